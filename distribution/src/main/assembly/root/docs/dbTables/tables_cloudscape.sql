@@ -140,3 +140,11 @@ create table qrtz_locks
     lock_name  varchar(40) not null, 
 primary key (sched_name,lock_name)
 );
+
+create table qrtz_data_versions
+  (
+    sched_name varchar(120) not null,
+    version_name  varchar(40) not null, 
+    data_version  longint not null,
+primary key (sched_name,version_name)
+);
@@ -22,6 +22,7 @@ DROP TABLE QRTZ_FIRED_TRIGGERS;
 DROP TABLE QRTZ_PAUSED_TRIGGER_GRPS;
 DROP TABLE QRTZ_SCHEDULER_STATE;
 DROP TABLE QRTZ_LOCKS;
+DROP TABLE QRTZ_DATA_VERSIONS;
 DROP TABLE QRTZ_SIMPLE_TRIGGERS;
 DROP TABLE QRTZ_SIMPROP_TRIGGERS;
 DROP TABLE QRTZ_CRON_TRIGGERS;
@@ -161,3 +162,11 @@ create table qrtz_locks
     lock_name  varchar(40) not null, 
       primary key (sched_name,lock_name)
 );
+
+create table qrtz_data_versions
+  (
+    sched_name varchar(120) not null,
+    version_name  varchar(40) not null, 
+    data_version  bigint not null,
+      primary key (sched_name,version_name)
+);
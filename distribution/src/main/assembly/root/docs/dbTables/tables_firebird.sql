@@ -8,6 +8,7 @@ DROP TABLE QRTZ_FIRED_TRIGGERS;
 DROP TABLE QRTZ_PAUSED_TRIGGER_GRPS;
 DROP TABLE QRTZ_SCHEDULER_STATE;
 DROP TABLE QRTZ_LOCKS;
+DROP TABLE QRTZ_DATA_VERSIONS;
 DROP TABLE QRTZ_SIMPLE_TRIGGERS;
 DROP TABLE QRTZ_SIMPROP_TRIGGERS;
 DROP TABLE QRTZ_CRON_TRIGGERS;
@@ -151,4 +152,11 @@ CREATE TABLE QRTZ_LOCKS (
     CONSTRAINT PK_QRTZ_LOCKS PRIMARY KEY (SCHED_NAME,LOCK_NAME)
 );
 
+CREATE TABLE QRTZ_DATA_VERSIONS (
+    SCHED_NAME VARCHAR(120) NOT NULL,
+    VERSION_NAME  VARCHAR(40) NOT NULL, 
+    DATA_VERSION  BIGINT NOT NULL,
+    CONSTRAINT PK_QRTZ_DATA_VERSIONS PRIMARY KEY (SCHED_NAME,VERSION_NAME)
+);
+
 COMMIT;
@@ -55,6 +55,12 @@ CREATE TABLE QRTZ_LOCKS (
   LOCK_NAME VARCHAR (40)  NOT NULL 
 );
 
+CREATE TABLE QRTZ_DATA_VERSIONS (
+  SCHED_NAME VARCHAR(120) NOT NULL,
+  VERSION_NAME VARCHAR (40)  NOT NULL,
+  DATA_VERSION BIGINT NOT NULL
+);
+
 CREATE TABLE QRTZ_JOB_DETAILS (
   SCHED_NAME VARCHAR(120) NOT NULL,
   JOB_NAME VARCHAR (200)  NOT NULL ,
@@ -164,6 +170,13 @@ ALTER TABLE QRTZ_LOCKS  ADD
     LOCK_NAME
   );
 
+ALTER TABLE QRTZ_DATA_VERSIONS  ADD
+  CONSTRAINT PK_QRTZ_DATA_VERSIONS PRIMARY KEY  
+  (
+    SCHED_NAME,
+    VERSION_NAME
+  );
+
 ALTER TABLE QRTZ_JOB_DETAILS  ADD
   CONSTRAINT PK_QRTZ_JOB_DETAILS PRIMARY KEY  
   (
@@ -4,6 +4,7 @@
 --
 
 DROP TABLE qrtz_locks IF EXISTS;
+DROP TABLE qrtz_data_versions IF EXISTS;
 DROP TABLE qrtz_scheduler_state IF EXISTS;
 DROP TABLE qrtz_fired_triggers IF EXISTS;
 DROP TABLE qrtz_paused_trigger_grps IF EXISTS;
@@ -159,3 +160,11 @@ LOCK_NAME VARCHAR(40) NOT NULL,
 PRIMARY KEY (SCHED_NAME,LOCK_NAME)
 );
 
+CREATE TABLE qrtz_data_versions
+(
+SCHED_NAME VARCHAR(120) NOT NULL,
+VERSION_NAME VARCHAR(40) NOT NULL,
+DATA_VERSION NUMERIC(13) NOT NULL,
+PRIMARY KEY (SCHED_NAME,VERSION_NAME)
+);
+
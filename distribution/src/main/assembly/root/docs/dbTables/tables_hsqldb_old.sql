@@ -153,4 +153,12 @@ CREATE TABLE qrtz_locks
     PRIMARY KEY (SCHED_NAME,LOCK_NAME)
 );
 
+CREATE TABLE qrtz_data_versions
+  (
+    SCHED_NAME VARCHAR(120) NOT NULL,
+    VERSION_NAME  LONGVARCHAR(40) NOT NULL, 
+    DATA_VERSION  NUMERIC(13) NOT NULL,
+    PRIMARY KEY (SCHED_NAME,VERSION_NAME)
+);
+
 commit;
@@ -83,9 +83,18 @@ SCHED_NAME VARCHAR(120) NOT NULL,
 LOCK_NAME  varchar(40) NOT NULL
 );
 
+CREATE TABLE qdata_versions (
+SCHED_NAME VARCHAR(120) NOT NULL,
+VERSION_NAME  varchar(40) NOT NULL,
+DATA_VERSION  numeric(13) NOT NULL
+);
+
 ALTER TABLE qlocks
 ADD CONSTRAINT PRIMARY KEY (SCHED_NAME,LOCK_NAME);
 
+ALTER TABLE qdata_versions
+ADD CONSTRAINT PRIMARY KEY (SCHED_NAME,VERSION_NAME);
+
 
 CREATE TABLE qjob_details (
 SCHED_NAME VARCHAR(120) NOT NULL,
@@ -11,6 +11,7 @@ DROP TABLE IF EXISTS QRTZ_FIRED_TRIGGERS;
 DROP TABLE IF EXISTS QRTZ_PAUSED_TRIGGER_GRPS;
 DROP TABLE IF EXISTS QRTZ_SCHEDULER_STATE;
 DROP TABLE IF EXISTS QRTZ_LOCKS;
+DROP TABLE IF EXISTS QRTZ_DATA_VERSIONS;
 DROP TABLE IF EXISTS QRTZ_SIMPLE_TRIGGERS;
 DROP TABLE IF EXISTS QRTZ_SIMPROP_TRIGGERS;
 DROP TABLE IF EXISTS QRTZ_CRON_TRIGGERS;
@@ -164,5 +165,13 @@ CREATE TABLE QRTZ_LOCKS
     PRIMARY KEY (SCHED_NAME,LOCK_NAME)
 );
 
+CREATE TABLE QRTZ_DATA_VERSIONS
+  (
+    SCHED_NAME VARCHAR(120) NOT NULL,
+    VERSION_NAME  VARCHAR(40) NOT NULL, 
+    DATA_VERSION  BIGINT(13) NOT NULL,
+    PRIMARY KEY (SCHED_NAME,VERSION_NAME)
+);
+
 
 commit;
@@ -18,6 +18,7 @@ delete from qrtz_job_details;
 delete from qrtz_calendars;
 delete from qrtz_paused_trigger_grps;
 delete from qrtz_locks;
+delete from qrtz_data_versions;
 delete from qrtz_scheduler_state;
 
 drop table qrtz_calendars;
@@ -30,6 +31,7 @@ drop table qrtz_triggers;
 drop table qrtz_job_details;
 drop table qrtz_paused_trigger_grps;
 drop table qrtz_locks;
+drop table qrtz_data_versions;
 drop table qrtz_scheduler_state;
 
 
@@ -167,6 +169,14 @@ CREATE TABLE qrtz_locks
     CONSTRAINT QRTZ_LOCKS_PK PRIMARY KEY (SCHED_NAME,LOCK_NAME)
 );
 
+CREATE TABLE qrtz_data_versions
+  (
+    SCHED_NAME VARCHAR2(120) NOT NULL,
+    VERSION_NAME  VARCHAR2(40) NOT NULL, 
+    DATA_VERSION  NUMBER(13) NOT NULL,
+    CONSTRAINT QRTZ_DATA_VERSIONS_PK PRIMARY KEY (SCHED_NAME,VERSION_NAME)
+);
+
 create index idx_qrtz_j_req_recovery on qrtz_job_details(SCHED_NAME,REQUESTS_RECOVERY);
 create index idx_qrtz_j_grp on qrtz_job_details(SCHED_NAME,JOB_GROUP);
 
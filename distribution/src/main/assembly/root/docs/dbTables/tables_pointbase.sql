@@ -17,6 +17,7 @@ delete from qrtz_job_details;
 delete from qrtz_calendars;
 delete from qrtz_paused_trigger_grps;
 delete from qrtz_locks;
+delete from qrtz_data_versions;
 delete from qrtz_scheduler_state;
 
 drop table qrtz_calendars;
@@ -29,6 +30,7 @@ drop table qrtz_triggers;
 drop table qrtz_job_details;
 drop table qrtz_paused_trigger_grps;
 drop table qrtz_locks;
+drop table qrtz_data_versions;
 drop table qrtz_scheduler_state;
  
 
@@ -177,4 +179,12 @@ CREATE TABLE qrtz_locks
     PRIMARY KEY (SCHED_NAME,LOCK_NAME)
 );
 
+CREATE TABLE qrtz_data_versions
+  (
+    SCHED_NAME VARCHAR(120) NOT NULL,
+    VERSION_NAME  VARCHAR2(40) NOT NULL, 
+    DATA_VERSION  NUMBER(13) NOT NULL,
+    PRIMARY KEY (SCHED_NAME,VERSION_NAME)
+);
+
 commit;
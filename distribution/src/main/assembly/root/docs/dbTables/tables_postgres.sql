@@ -7,6 +7,7 @@ drop table qrtz_fired_triggers;
 DROP TABLE QRTZ_PAUSED_TRIGGER_GRPS;
 DROP TABLE QRTZ_SCHEDULER_STATE;
 DROP TABLE QRTZ_LOCKS;
+DROP TABLE QRTZ_DATA_VERSIONS;
 drop table qrtz_simple_triggers;
 drop table qrtz_cron_triggers;
 drop table qrtz_simprop_triggers;
@@ -160,6 +161,14 @@ CREATE TABLE qrtz_locks
     PRIMARY KEY (SCHED_NAME,LOCK_NAME)
 );
 
+CREATE TABLE qrtz_data_versions
+  (
+    SCHED_NAME VARCHAR(120) NOT NULL,
+    VERSION_NAME  VARCHAR(40) NOT NULL, 
+    DATA_VERSION  BIGINT NOT NULL,
+    PRIMARY KEY (SCHED_NAME,VERSION_NAME)
+);
+
 create index idx_qrtz_j_req_recovery on qrtz_job_details(SCHED_NAME,REQUESTS_RECOVERY);
 create index idx_qrtz_j_grp on qrtz_job_details(SCHED_NAME,JOB_GROUP);
 
@@ -1,5 +1,6 @@
 
 DROP TABLE qrtz_locks;
+DROP TABLE qrtz_data_versions;
 DROP TABLE qrtz_scheduler_state;
 DROP TABLE qrtz_fired_triggers;
 DROP TABLE qrtz_paused_trigger_grps;
@@ -144,4 +145,12 @@ create table qrtz_locks
 primary key (sched_name,lock_name)
 );
 
+create table qrtz_data_versions
+  (
+    sched_name varchar(120) not null,
+    version_name  varchar(40) not null, 
+    data_version  numeric(13) not null,
+primary key (sched_name,version_name)
+);
+
 commit work;
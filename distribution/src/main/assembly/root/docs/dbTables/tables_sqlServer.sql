@@ -71,6 +71,10 @@ IF EXISTS (SELECT * FROM dbo.sysobjects WHERE id = OBJECT_ID(N'[dbo].[QRTZ_LOCKS
 DROP TABLE [dbo].[QRTZ_LOCKS]
 GO
 
+IF EXISTS (SELECT * FROM dbo.sysobjects WHERE id = OBJECT_ID(N'[dbo].[QRTZ_DATA_VERSIONS]') AND OBJECTPROPERTY(id, N'ISUSERTABLE') = 1)
+DROP TABLE [dbo].[QRTZ_DATA_VERSIONS]
+GO
+
 IF EXISTS (SELECT * FROM dbo.sysobjects WHERE id = OBJECT_ID(N'[dbo].[QRTZ_JOB_DETAILS]') AND OBJECTPROPERTY(id, N'ISUSERTABLE') = 1)
 DROP TABLE [dbo].[QRTZ_JOB_DETAILS]
 GO
@@ -140,6 +144,13 @@ CREATE TABLE [dbo].[QRTZ_LOCKS] (
 ) ON [PRIMARY]
 GO
 
+CREATE TABLE [dbo].[QRTZ_DATA_VERSIONS] (
+  [SCHED_NAME] [VARCHAR] (120)  NOT NULL ,
+  [VERSION_NAME] [VARCHAR] (40)  NOT NULL,
+  [DATA_VERSION] [BIGINT] NOT NULL
+) ON [PRIMARY]
+GO
+
 CREATE TABLE [dbo].[QRTZ_JOB_DETAILS] (
   [SCHED_NAME] [VARCHAR] (120)  NOT NULL ,
   [JOB_NAME] [VARCHAR] (200)  NOT NULL ,
@@ -259,6 +270,14 @@ ALTER TABLE [dbo].[QRTZ_LOCKS] WITH NOCHECK ADD
   )  ON [PRIMARY]
 GO
 
+ALTER TABLE [dbo].[QRTZ_DATA_VERSIONS] WITH NOCHECK ADD
+  CONSTRAINT [PK_QRTZ_DATA_VERSIONS] PRIMARY KEY  CLUSTERED
+  (
+    [SCHED_NAME],
+    [VERSION_NAME]
+  )  ON [PRIMARY]
+GO
+
 ALTER TABLE [dbo].[QRTZ_JOB_DETAILS] WITH NOCHECK ADD
   CONSTRAINT [PK_QRTZ_JOB_DETAILS] PRIMARY KEY  CLUSTERED
   (
@@ -28,6 +28,10 @@ go
 IF OBJECT_ID('QRTZ_LOCKS') IS NOT NULL 
 delete from QRTZ_LOCKS
 go
+
+IF OBJECT_ID('QRTZ_DATA_VERSIONS') IS NOT NULL 
+delete from QRTZ_DATA_VERSIONS
+go
 IF OBJECT_ID('QRTZ_SIMPLE_TRIGGERS') IS NOT NULL 
 delete from QRTZ_SIMPLE_TRIGGERS
 go
@@ -86,6 +90,8 @@ drop table QRTZ_SCHEDULER_STATE
 go
 drop table QRTZ_LOCKS
 go
+drop table QRTZ_DATA_VERSIONS
+go
 drop table QRTZ_SIMPLE_TRIGGERS
 go
 drop table QRTZ_SIMPROP_TRIGGERS
@@ -158,6 +164,13 @@ LOCK_NAME  varchar(40) not null,
 )
 go
 
+create table QRTZ_DATA_VERSIONS (
+SCHED_NAME varchar(120) not null,
+VERSION_NAME  varchar(40) not null, 
+DATA_VERSION  numeric(13,0) not null,
+)
+go
+
 
 create table QRTZ_JOB_DETAILS (
 SCHED_NAME varchar(120) not null,
@@ -258,6 +271,10 @@ alter table QRTZ_LOCKS
 add constraint PK_qrtz_locks primary key clustered (SCHED_NAME,LOCK_NAME)
 go
 
+alter table QRTZ_DATA_VERSIONS
+add constraint PK_qrtz_data_versions primary key clustered (SCHED_NAME,VERSION_NAME)
+go
+
 alter table QRTZ_JOB_DETAILS
 add constraint PK_qrtz_job_details primary key clustered (SCHED_NAME,JOB_NAME, JOB_GROUP)
 go
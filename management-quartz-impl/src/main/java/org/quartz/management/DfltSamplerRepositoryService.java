@@ -8,13 +8,32 @@ import java.util.Map.Entry;
 import java.util.Set;
 
 import org.quartz.core.QuartzScheduler;
+import org.quartz.core.SampledStatistics;
 import org.quartz.management.resource.SchedulerEntity;
 import org.quartz.management.service.EntityResourceFactory;
 import org.quartz.management.service.SamplerRepositoryService;
+import org.quartz.utils.counter.Histogram;
 import org.terracotta.management.resource.AgentEntity;
 
 public class DfltSamplerRepositoryService implements EntityResourceFactory, SamplerRepositoryService {
 
+    /**
+     * Trigger fire lag, as a map from the upper bound in micros of each non
+     * empty histogram bucket to its count.
+     */
+    public static final String FIRE_LAG_HISTOGRAM_ATTRIBUTE = "TriggerFireLagHistogram";
+
+    /*
+     * Latency percentiles, each a map of count, mean, p50, p99, p999 and max.
+     */
+    public static final String FIRE_LAG_PERCENTILES_ATTRIBUTE = "TriggerFireLagPercentiles";
+
+    public static final String JOB_EXECUTION_TIME_PERCENTILES_ATTRIBUTE = "JobExecutionTimePercentiles";
+
+    public static final String ACQUISITION_LATENCY_PERCENTILES_ATTRIBUTE = "TriggerAcquisitionLatencyPercentiles";
+
+    public static final String TRIGGERS_FIRED_LATENCY_PERCENTILES_ATTRIBUTE = "TriggersFiredLatencyPercentiles";
+
     private final Map<String, QuartzScheduler> cacheManagerSamplerRepo = new HashMap<String, QuartzScheduler>();
 
     @Override
@@ -25,6 +44,7 @@ public class DfltSamplerRepositoryService implements EntityResourceFactory, Samp
                 SchedulerEntity schedulerEntity = new SchedulerEntity();
                 schedulerEntity.setName(scheduler.getKey());
                 schedulerEntity.setAgentId(AgentEntity.EMBEDDED_AGENT_ID);
+                addLatencyAttributes(schedulerEntity, scheduler.getValue(), attributes);
 
                 schedulerEntities.add(schedulerEntity);
             }
@@ -32,6 +52,33 @@ public class DfltSamplerRepositoryService implements EntityResourceFactory, Samp
         return schedulerEntities;
     }
 
+    private static void addLatencyAttributes(SchedulerEntity schedulerEntity, QuartzScheduler scheduler,
+            Set<String> attributes) {
+        Map<String, Object> entityAttributes = schedulerEntity.getAttributes();
+        SampledStatistics statistics = scheduler.getSampledStatistics();
+        if (attributes == null || attributes.contains(FIRE_LAG_HISTOGRAM_ATTRIBUTE)) {
+            entityAttributes.put(FIRE_LAG_HISTOGRAM_ATTRIBUTE, scheduler.getFireLagHistogram().getBuckets());
+        }
+        if (attributes == null || attributes.contains(FIRE_LAG_PERCENTILES_ATTRIBUTE)) {
+            entityAttributes.put(FIRE_LAG_PERCENTILES_ATTRIBUTE, scheduler.getFireLagHistogram().getPercentiles());
+        }
+        if (attributes == null || attributes.contains(JOB_EXECUTION_TIME_PERCENTILES_ATTRIBUTE)) {
+            Map<String, Map<String, Long>> byGroup = new HashMap<String, Map<String, Long>>();
+            for (Entry<String, Histogram> group : statistics.getJobExecutionHistograms().entrySet()) {
+                byGroup.put(group.getKey(), group.getValue().getPercentiles());
+            }
+            entityAttributes.put(JOB_EXECUTION_TIME_PERCENTILES_ATTRIBUTE, byGroup);
+        }
+        if (attributes == null || attributes.contains(ACQUISITION_LATENCY_PERCENTILES_ATTRIBUTE)) {
+            entityAttributes.put(ACQUISITION_LATENCY_PERCENTILES_ATTRIBUTE,
+                    statistics.getTriggerAcquisitionHistogram().getPercentiles());
+        }
+        if (attributes == null || attributes.contains(TRIGGERS_FIRED_LATENCY_PERCENTILES_ATTRIBUTE)) {
+            entityAttributes.put(TRIGGERS_FIRED_LATENCY_PERCENTILES_ATTRIBUTE,
+                    statistics.getTriggersFiredHistogram().getPercentiles());
+        }
+    }
+
     @Override
     public void register(QuartzScheduler quartzScheduler) {
         this.cacheManagerSamplerRepo.put(quartzScheduler.getSchedulerName(), quartzScheduler);
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2001-2009 Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.quartz;
+
+/**
+ * <p>
+ * The interface to be implemented by <code>{@link Job}s</code> that mostly
+ * wait on I/O, such as calls to remote services, and can do it without
+ * blocking a thread.
+ * </p>
+ * 
+ * <p>
+ * The scheduler calls <code>executeAsync(..)</code> instead of
+ * <code>execute(..)</code>, and gives the worker thread back to the
+ * <code>ThreadPool</code> as soon as it returns. The job then completes the
+ * returned <code>{@link JobCompletion}</code> when its work is done, and only
+ * then are the <code>JobListener</code>s and <code>TriggerListener</code>s
+ * notified and the <code>JobStore</code> told the job is complete - on the
+ * thread that completed it. Until then the job is among the currently
+ * executing jobs, and so can be interrupted if it is an
+ * <code>{@link InterruptableJob}</code>. If the completion has a time-out,
+ * when that expires the scheduler interrupts the job the same way and
+ * completes it exceptionally.
+ * </p>
+ * 
+ * <p>
+ * As the <code>ThreadPool</code> no longer limits how many such jobs run at
+ * once, the jobs should limit the load they put on the services they call.
+ * </p>
+ * 
+ * <p>
+ * <code>execute(..)</code> is still called when the job must complete on
+ * the worker thread, such as when it is executed in a JTA transaction, and
+ * can be implemented as <code>executeAsync(context).await()</code>.
+ * </p>
+ * 
+ * @see JobCompletion
+ * @see InterruptableJob
+ */
+public interface AsyncJob extends Job {
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     * 
+     * Interface.
+     * 
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    /**
+     * <p>
+     * Called by the <code>{@link Scheduler}</code> when a <code>{@link Trigger}</code>
+     * fires that is associated with the <code>Job</code>, to start the job's
+     * work without waiting for it.
+     * </p>
+     * 
+     * @return the <code>JobCompletion</code> the job completes once its work
+     *         is done, or <code>null</code> if it already is.
+     * 
+     * @throws JobExecutionException
+     *           if there is an exception while starting the job.
+     */
+    JobCompletion executeAsync(JobExecutionContext context)
+        throws JobExecutionException;
+}
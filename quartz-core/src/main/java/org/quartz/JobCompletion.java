@@ -0,0 +1,217 @@
+/*
+ * Copyright 2001-2009 Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.quartz;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ * The handle an <code>{@link AsyncJob}</code> returns from
+ * <code>executeAsync(..)</code>, and completes once the work it started is
+ * done, from whatever thread that work finishes on.
+ * </p>
+ * 
+ * <p>
+ * Only the first call to <code>complete()</code> or
+ * <code>completeExceptionally(..)</code> counts, so a job may race a
+ * time-out or its own <code>interrupt()</code> without harm.
+ * </p>
+ * 
+ * @see AsyncJob
+ */
+public class JobCompletion {
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     * 
+     * Data members.
+     * 
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    private final long timeout;
+
+    private boolean done = false;
+
+    private Throwable exception;
+
+    private List<Runnable> listeners = new ArrayList<Runnable>(2);
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     * 
+     * Constructors.
+     * 
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    /**
+     * <p>
+     * Create a <code>JobCompletion</code> that the scheduler waits on for
+     * as long as it takes.
+     * </p>
+     */
+    public JobCompletion() {
+        this(0L);
+    }
+
+    /**
+     * <p>
+     * Create a <code>JobCompletion</code> that the scheduler completes
+     * exceptionally if the job has not completed it within the given number
+     * of milliseconds, after calling <code>interrupt()</code> on the job if
+     * it is an <code>{@link InterruptableJob}</code>.
+     * </p>
+     * 
+     * @param timeout
+     *          the time-out in milliseconds, or 0 for none.
+     */
+    public JobCompletion(long timeout) {
+        if (timeout < 0) {
+            throw new IllegalArgumentException("Timeout cannot be negative.");
+        }
+        this.timeout = timeout;
+    }
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     * 
+     * Interface.
+     * 
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    /**
+     * <p>
+     * Get the time-out in milliseconds, 0 if there is none.
+     * </p>
+     */
+    public long getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * <p>
+     * Mark the job's execution as successfully completed.
+     * </p>
+     * 
+     * @return <code>false</code> if it had already been completed.
+     */
+    public boolean complete() {
+        return done(null);
+    }
+
+    /**
+     * <p>
+     * Mark the job's execution as failed. A
+     * <code>{@link JobExecutionException}</code> is handled as if
+     * <code>execute(..)</code> had thrown it, any other exception as an
+     * unhandled one.
+     * </p>
+     * 
+     * @return <code>false</code> if it had already been completed.
+     */
+    public boolean completeExceptionally(Throwable cause) {
+        if (cause == null) {
+            throw new IllegalArgumentException("Cause cannot be null.");
+        }
+        return done(cause);
+    }
+
+    public synchronized boolean isDone() {
+        return done;
+    }
+
+    /**
+     * <p>
+     * Get what the execution failed with, <code>null</code> if it has not
+     * completed or succeeded.
+     * </p>
+     */
+    public synchronized Throwable getException() {
+        return exception;
+    }
+
+    /**
+     * <p>
+     * Run the given <code>Runnable</code> once the execution completes, on
+     * the thread that completes it, or right away if it already has.
+     * </p>
+     */
+    public void whenDone(Runnable listener) {
+        synchronized (this) {
+            if (!done) {
+                listeners.add(listener);
+                return;
+            }
+        }
+        listener.run();
+    }
+
+    /**
+     * <p>
+     * Wait for the execution to complete, as
+     * <code>{@link AsyncJob#execute(JobExecutionContext)}</code>
+     * implementations may, rethrowing what it failed with.
+     * </p>
+     * 
+     * @throws JobExecutionException
+     *           if the execution failed, or the waiting thread was
+     *           interrupted.
+     */
+    public void await() throws JobExecutionException {
+        Throwable cause;
+        synchronized (this) {
+            while (!done) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new JobExecutionException("Interrupted while waiting for the job to complete.", e, false);
+                }
+            }
+            cause = exception;
+        }
+
+        if (cause instanceof JobExecutionException) {
+            throw (JobExecutionException) cause;
+        } else if (cause != null) {
+            throw new JobExecutionException(cause, false);
+        }
+    }
+
+    private boolean done(Throwable cause) {
+        List<Runnable> toRun;
+        synchronized (this) {
+            if (done) {
+                return false;
+            }
+            done = true;
+            exception = cause;
+            toRun = listeners;
+            listeners = null;
+            notifyAll();
+        }
+
+        for (Runnable listener : toRun) {
+            listener.run();
+        }
+        return true;
+    }
+}
@@ -0,0 +1,283 @@
+/*
+ * Copyright 2001-2009 Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.quartz.core;
+
+/**
+ * <p>
+ * Chooses the batch size, fire-ahead time window and idle wait time used by
+ * the <code>{@link QuartzSchedulerThread}</code> for each trigger acquisition.
+ * </p>
+ *
+ * <p>
+ * When not adaptive the configured values are used as they are.  When
+ * adaptive, the controller keeps moving averages of the acquisition latency,
+ * the fire lag (actual versus scheduled fire time), the fraction of each
+ * requested batch the job store filled and the thread pool usage, and every
+ * few acquisitions derives target values from them:
+ * </p>
+ * <ul>
+ * <li>full batches that still fire later than an acquisition takes double
+ * the batch size and widen the fire-ahead window, so that one round trip
+ * serves more triggers;</li>
+ * <li>mostly empty batches, or a saturated thread pool, halve them again, so
+ * that triggers are not held (or fired early) for nothing;</li>
+ * <li>triggers found already overdue after an idle wait halve the idle wait,
+ * which otherwise grows back to its configured value.</li>
+ * </ul>
+ * <p>
+ * The values in use move half way towards their targets at each evaluation,
+ * and always stay within the configured bounds: between
+ * <code>batchTriggerAcquisitionMinCount</code> and
+ * <code>batchTriggerAcquisitionMaxCount</code>, between zero and
+ * <code>batchTriggerAcquisitionFireAheadTimeWindow</code>, and between one
+ * second and <code>idleWaitTime</code>.
+ * </p>
+ *
+ * <p>
+ * The <code>record</code> methods are only called by the scheduler thread;
+ * the getters may be called from any thread (e.g. through JMX).
+ * </p>
+ *
+ * @see QuartzSchedulerResources#isBatchTriggerAcquisitionAdaptive()
+ */
+class AdaptiveBatchController {
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Data members.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    static final long MIN_IDLE_WAIT_TIME = 1000L;
+
+    // acquisitions between two evaluations of the targets
+    private static final int EVALUATION_INTERVAL = 8;
+
+    // weight of the newest sample in the moving averages
+    private static final double WEIGHT = 0.2;
+
+    private final boolean adaptive;
+
+    private final int minBatchSize;
+
+    private final int maxBatchSize;
+
+    private final long maxBatchTimeWindow;
+
+    private volatile long maxIdleWaitTime;
+
+    private volatile int batchSize;
+
+    private volatile int targetBatchSize;
+
+    private volatile long batchTimeWindow;
+
+    private volatile long targetBatchTimeWindow;
+
+    private volatile long idleWaitTime;
+
+    private volatile long targetIdleWaitTime;
+
+    private volatile double acquisitionLatency;
+
+    private volatile double fireLag;
+
+    private double fillRatio = 1.0;
+
+    private double poolUsage;
+
+    private int acquisitions;
+
+    private boolean lateAfterIdle;
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Constructors.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    AdaptiveBatchController(boolean adaptive, int minBatchSize, int maxBatchSize,
+            long maxBatchTimeWindow, long maxIdleWaitTime) {
+        this.adaptive = adaptive;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.minBatchSize = Math.max(1, Math.min(minBatchSize, this.maxBatchSize));
+        this.maxBatchTimeWindow = Math.max(0L, maxBatchTimeWindow);
+        this.maxIdleWaitTime = maxIdleWaitTime;
+
+        // adaptive batching starts small and grows with demand
+        this.batchSize = adaptive ? this.minBatchSize : this.maxBatchSize;
+        this.batchTimeWindow = adaptive ? 0L : this.maxBatchTimeWindow;
+        this.idleWaitTime = maxIdleWaitTime;
+        this.targetBatchSize = batchSize;
+        this.targetBatchTimeWindow = batchTimeWindow;
+        this.targetIdleWaitTime = idleWaitTime;
+    }
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Interface.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    boolean isAdaptive() {
+        return adaptive;
+    }
+
+    int getBatchSize() {
+        return batchSize;
+    }
+
+    int getTargetBatchSize() {
+        return targetBatchSize;
+    }
+
+    long getBatchTimeWindow() {
+        return batchTimeWindow;
+    }
+
+    long getTargetBatchTimeWindow() {
+        return targetBatchTimeWindow;
+    }
+
+    long getIdleWaitTime() {
+        return idleWaitTime;
+    }
+
+    long getTargetIdleWaitTime() {
+        return targetIdleWaitTime;
+    }
+
+    /**
+     * The moving average of the time, in millis, an acquisition takes.
+     */
+    long getAverageAcquisitionLatency() {
+        return Math.round(acquisitionLatency);
+    }
+
+    /**
+     * The moving average of the time, in millis, triggers fire after their
+     * scheduled fire time.
+     */
+    long getAverageFireLag() {
+        return Math.round(fireLag);
+    }
+
+    /**
+     * Sets the configured idle wait time, which is also its upper bound.
+     */
+    void setMaxIdleWaitTime(long maxIdleWaitTime) {
+        this.maxIdleWaitTime = maxIdleWaitTime;
+        this.idleWaitTime = maxIdleWaitTime;
+        this.targetIdleWaitTime = maxIdleWaitTime;
+    }
+
+    /**
+     * Records an acquisition.
+     *
+     * @param latency how long the acquisition took, in millis
+     * @param requested the number of triggers asked for
+     * @param returned the number of triggers the job store returned
+     * @param availThreadCount the threads available when acquiring
+     * @param poolSize the size of the thread pool
+     * @param overdue how long, in millis, the first returned trigger was
+     * already past its fire time
+     * @param afterIdleWait whether the scheduler thread waited for its idle
+     * wait time before this acquisition
+     */
+    void recordAcquisition(long latency, int requested, int returned,
+            int availThreadCount, int poolSize, long overdue, boolean afterIdleWait) {
+        acquisitionLatency = average(acquisitionLatency, latency);
+        if (requested > 0) {
+            fillRatio = average(fillRatio, Math.min(1.0, (double) returned / requested));
+        }
+        if (poolSize > 0) {
+            poolUsage = average(poolUsage, 1.0 - (double) availThreadCount / poolSize);
+        }
+        if (afterIdleWait && returned > 0 && overdue > acquisitionLatency + MIN_IDLE_WAIT_TIME / 10) {
+            lateAfterIdle = true;
+        }
+
+        if (adaptive && ++acquisitions >= EVALUATION_INTERVAL) {
+            acquisitions = 0;
+            evaluate();
+        }
+    }
+
+    /**
+     * Records how late, in millis, a trigger fired compared to its scheduled
+     * fire time; triggers fired early within the fire-ahead window count as
+     * on time.
+     */
+    void recordFireLag(long lag) {
+        fireLag = average(fireLag, Math.max(0L, lag));
+    }
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Helper methods.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    private void evaluate() {
+        boolean saturated = poolUsage > 0.9;
+        boolean lagging = fireLag > Math.max(1.0, acquisitionLatency);
+
+        if (!saturated && fillRatio > 0.9 && lagging) {
+            targetBatchSize = (int) Math.min(maxBatchSize, 2L * batchSize);
+            targetBatchTimeWindow = Math.min(maxBatchTimeWindow,
+                    Math.max(2L * batchTimeWindow, Math.round(acquisitionLatency) + 1));
+        } else if (saturated || fillRatio < 0.25) {
+            targetBatchSize = Math.max(minBatchSize, batchSize / 2);
+            targetBatchTimeWindow = batchTimeWindow / 2;
+        } else if (!lagging) {
+            targetBatchTimeWindow = batchTimeWindow / 2;
+        }
+
+        if (lateAfterIdle) {
+            targetIdleWaitTime = Math.max(MIN_IDLE_WAIT_TIME, idleWaitTime / 2);
+        } else {
+            targetIdleWaitTime = maxIdleWaitTime;
+        }
+        lateAfterIdle = false;
+
+        batchSize = (int) step(batchSize, targetBatchSize);
+        batchTimeWindow = step(batchTimeWindow, targetBatchTimeWindow);
+        idleWaitTime = step(idleWaitTime, targetIdleWaitTime);
+    }
+
+    private static double average(double average, double sample) {
+        return average + WEIGHT * (sample - average);
+    }
+
+    private static long step(long current, long target) {
+        long diff = target - current;
+        if (diff == 0) {
+            return current;
+        }
+        long half = diff / 2;
+        return current + (half != 0 ? half : diff);
+    }
+}
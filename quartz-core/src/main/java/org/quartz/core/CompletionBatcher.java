@@ -0,0 +1,191 @@
+/*
+ * Copyright 2001-2009 Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.quartz.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.quartz.JobDetail;
+import org.quartz.Trigger.CompletedExecutionInstruction;
+import org.quartz.spi.BatchingJobStore;
+import org.quartz.spi.JobStore;
+import org.quartz.spi.OperableTrigger;
+import org.quartz.spi.TriggerCompletedBundle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * Queues the job completions the <code>{@link QuartzScheduler}</code> is
+ * told of, and hands them to the <code>JobStore</code> a batch at a time.
+ * </p>
+ *
+ * <p>
+ * A batch is handed over by the thread whose completion fills it, or else
+ * by the batcher's own thread once its oldest completion has waited
+ * <code>maxWait</code> millis. A <code>{@link BatchingJobStore}</code>
+ * completes the whole batch at once; any other <code>JobStore</code> one
+ * completion at a time.
+ * </p>
+ *
+ * @see QuartzSchedulerResources#getMaxCompletionBatchSize()
+ */
+class CompletionBatcher implements Runnable {
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Data members.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    private final JobStore jobStore;
+
+    private final int maxBatchSize;
+
+    private final long maxWait;
+
+    private final Object lock = new Object();
+
+    private List<TriggerCompletedBundle> pending;
+
+    // when the oldest of the pending completions was queued
+    private long oldestQueued;
+
+    private boolean halted = false;
+
+    private final Thread thread;
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Constructors.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    CompletionBatcher(JobStore jobStore, int maxBatchSize, long maxWait, String threadName) {
+        this.jobStore = jobStore;
+        this.maxBatchSize = maxBatchSize;
+        this.maxWait = maxWait;
+        this.pending = new ArrayList<TriggerCompletedBundle>(maxBatchSize);
+        this.thread = new Thread(this, threadName);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Interface.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    void triggeredJobComplete(OperableTrigger trigger, JobDetail jobDetail,
+            CompletedExecutionInstruction instCode) {
+        TriggerCompletedBundle completion = new TriggerCompletedBundle(trigger, jobDetail, instCode);
+        List<TriggerCompletedBundle> batch = null;
+        synchronized (lock) {
+            if (halted) {
+                batch = new ArrayList<TriggerCompletedBundle>(1);
+                batch.add(completion);
+            } else {
+                if (pending.isEmpty()) {
+                    oldestQueued = System.currentTimeMillis();
+                    lock.notifyAll();
+                }
+                pending.add(completion);
+                if (pending.size() >= maxBatchSize) {
+                    batch = takePending();
+                }
+            }
+        }
+
+        if (batch != null) {
+            flush(batch);
+        }
+    }
+
+    /**
+     * Stops the batcher's thread, and hands over the completions still
+     * queued.
+     */
+    void shutdown() {
+        List<TriggerCompletedBundle> batch;
+        synchronized (lock) {
+            halted = true;
+            lock.notifyAll();
+            batch = takePending();
+        }
+        flush(batch);
+    }
+
+    public void run() {
+        while (true) {
+            List<TriggerCompletedBundle> batch;
+            synchronized (lock) {
+                while (!halted && pending.isEmpty()) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException ignore) {
+                    }
+                }
+                if (halted) {
+                    return;
+                }
+                long wait = oldestQueued + maxWait - System.currentTimeMillis();
+                if (wait > 0) {
+                    try {
+                        lock.wait(wait);
+                    } catch (InterruptedException ignore) {
+                    }
+                    continue;
+                }
+                batch = takePending();
+            }
+            flush(batch);
+        }
+    }
+
+    private List<TriggerCompletedBundle> takePending() {
+        List<TriggerCompletedBundle> batch = pending;
+        pending = new ArrayList<TriggerCompletedBundle>(maxBatchSize);
+        return batch;
+    }
+
+    private void flush(List<TriggerCompletedBundle> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            if (jobStore instanceof BatchingJobStore) {
+                ((BatchingJobStore) jobStore).triggeredJobsComplete(batch);
+            } else {
+                for (TriggerCompletedBundle completion : batch) {
+                    jobStore.triggeredJobComplete(completion.getTrigger(),
+                            completion.getJobDetail(), completion.getInstruction());
+                }
+            }
+        } catch (RuntimeException e) {
+            log.error("Unable to complete " + batch.size() + " fired triggers: ", e);
+        }
+    }
+}
@@ -18,7 +18,12 @@
 
 package org.quartz.core;
 
+import java.util.TimerTask;
+
+import org.quartz.AsyncJob;
+import org.quartz.InterruptableJob;
 import org.quartz.Job;
+import org.quartz.JobCompletion;
 import org.quartz.JobDetail;
 import org.quartz.JobExecutionContext;
 import org.quartz.JobExecutionException;
@@ -147,134 +152,267 @@ public class JobRunShell extends SchedulerListenerSupport implements Runnable {
         shutdownRequested = true;
     }
 
+    /**
+     * The trigger whose firing the job is run for.
+     */
+    public OperableTrigger getTrigger() {
+        return firedTriggerBundle.getTrigger();
+    }
+
     public void run() {
         qs.addInternalSchedulerListener(this);
 
+        boolean pending = false;
         try {
-            OperableTrigger trigger = (OperableTrigger) jec.getTrigger();
-            JobDetail jobDetail = jec.getJobDetail();
+            pending = runJob();
+        } finally {
+            if (!pending) {
+                qs.removeInternalSchedulerListener(this);
+            }
+        }
+    }
 
-            do {
+    /**
+     * Runs the job until it is done, returning true if it is an
+     * <code>AsyncJob</code> that is left to complete on another thread.
+     */
+    private boolean runJob() {
+        OperableTrigger trigger = (OperableTrigger) jec.getTrigger();
+        JobDetail jobDetail = jec.getJobDetail();
 
-                JobExecutionException jobExEx = null;
-                Job job = jec.getJobInstance();
+        do {
 
-                try {
-                    begin();
-                } catch (SchedulerException se) {
-                    qs.notifySchedulerListenersError("Error executing Job ("
-                            + jec.getJobDetail().getKey()
-                            + ": couldn't begin execution.", se);
+            JobExecutionException jobExEx = null;
+            Job job = jec.getJobInstance();
+
+            try {
+                begin();
+            } catch (SchedulerException se) {
+                qs.notifySchedulerListenersError("Error executing Job ("
+                        + jec.getJobDetail().getKey()
+                        + ": couldn't begin execution.", se);
+                break;
+            }
+
+            // notify job & trigger listeners...
+            try {
+                if (!notifyListenersBeginning(jec)) {
                     break;
                 }
-
-                // notify job & trigger listeners...
+            } catch(VetoedException ve) {
                 try {
-                    if (!notifyListenersBeginning(jec)) {
-                        break;
+                    CompletedExecutionInstruction instCode = trigger.executionComplete(jec, null);
+                    qs.notifyJobStoreJobVetoed(trigger, jobDetail, instCode);
+                    
+                    // QTZ-205
+                    // Even if trigger got vetoed, we still needs to check to see if it's the trigger's finalized run or not.
+                    if (jec.getTrigger().getNextFireTime() == null) {
+                        qs.notifySchedulerListenersFinalized(jec.getTrigger());
                     }
-                } catch(VetoedException ve) {
-                    try {
-                        CompletedExecutionInstruction instCode = trigger.executionComplete(jec, null);
-                        qs.notifyJobStoreJobVetoed(trigger, jobDetail, instCode);
-                        
-                        // QTZ-205
-                        // Even if trigger got vetoed, we still needs to check to see if it's the trigger's finalized run or not.
-                        if (jec.getTrigger().getNextFireTime() == null) {
-                            qs.notifySchedulerListenersFinalized(jec.getTrigger());
-                        }
-
-                        complete(true);
-                    } catch (SchedulerException se) {
-                        qs.notifySchedulerListenersError("Error during veto of Job ("
-                                + jec.getJobDetail().getKey()
-                                + ": couldn't finalize execution.", se);
-                    }
-                    break;
+
+                    complete(true);
+                } catch (SchedulerException se) {
+                    qs.notifySchedulerListenersError("Error during veto of Job ("
+                            + jec.getJobDetail().getKey()
+                            + ": couldn't finalize execution.", se);
                 }
+                break;
+            }
 
-                long startTime = System.currentTimeMillis();
-                long endTime = startTime;
+            long startTime = System.currentTimeMillis();
+            long endTime = startTime;
 
-                // execute the job
-                try {
+            // execute the job
+            try {
+                if (job instanceof AsyncJob && canExecuteAsync()) {
+                    log.debug("Calling executeAsync on job " + jobDetail.getKey());
+                    JobCompletion completion = ((AsyncJob) job).executeAsync(jec);
+                    if (completion != null) {
+                        awaitCompletion(completion, startTime);
+                        return true;
+                    }
+                } else {
                     log.debug("Calling execute on job " + jobDetail.getKey());
                     job.execute(jec);
-                    endTime = System.currentTimeMillis();
-                } catch (JobExecutionException jee) {
-                    endTime = System.currentTimeMillis();
-                    jobExEx = jee;
-                    getLog().info("Job " + jobDetail.getKey() +
-                            " threw a JobExecutionException: ", jobExEx);
-                } catch (Throwable e) {
-                    endTime = System.currentTimeMillis();
-                    getLog().error("Job " + jobDetail.getKey() +
-                            " threw an unhandled Exception: ", e);
-                    SchedulerException se = new SchedulerException(
-                            "Job threw an unhandled exception.", e);
-                    qs.notifySchedulerListenersError("Job ("
-                            + jec.getJobDetail().getKey()
-                            + " threw an exception.", se);
-                    jobExEx = new JobExecutionException(se, false);
                 }
+                endTime = System.currentTimeMillis();
+            } catch (Throwable e) {
+                endTime = System.currentTimeMillis();
+                jobExEx = jobFailed(e);
+            }
 
-                jec.setJobRunTime(endTime - startTime);
+            if (!jobExecuted(jobExEx, startTime, endTime)) {
+                break;
+            }
+        } while (true);
 
-                // notify all job listeners
-                if (!notifyJobListenersComplete(jec, jobExEx)) {
-                    break;
-                }
+        return false;
+    }
 
-                CompletedExecutionInstruction instCode = CompletedExecutionInstruction.NOOP;
+    /**
+     * Finishes the job's execution once it completes, returning true if it
+     * is to be executed again.
+     */
+    private boolean jobExecuted(JobExecutionException jobExEx, long startTime, long endTime) {
+        OperableTrigger trigger = (OperableTrigger) jec.getTrigger();
+        JobDetail jobDetail = jec.getJobDetail();
 
-                // update the trigger
-                try {
-                    instCode = trigger.executionComplete(jec, jobExEx);
-                } catch (Exception e) {
-                    // If this happens, there's a bug in the trigger...
-                    SchedulerException se = new SchedulerException(
-                            "Trigger threw an unhandled exception.", e);
-                    qs.notifySchedulerListenersError(
-                            "Please report this error to the Quartz developers.",
-                            se);
-                }
+        jec.setJobRunTime(endTime - startTime);
+        qs.getSampledStatistics().recordJobExecution(jobDetail.getKey().getGroup(), endTime - startTime);
 
-                // notify all trigger listeners
-                if (!notifyTriggerListenersComplete(jec, instCode)) {
-                    break;
-                }
+        // notify all job listeners
+        if (!notifyJobListenersComplete(jec, jobExEx)) {
+            return false;
+        }
 
-                // update job/trigger or re-execute job
-                if (instCode == CompletedExecutionInstruction.RE_EXECUTE_JOB) {
-                    jec.incrementRefireCount();
-                    try {
-                        complete(false);
-                    } catch (SchedulerException se) {
-                        qs.notifySchedulerListenersError("Error executing Job ("
-                                + jec.getJobDetail().getKey()
-                                + ": couldn't finalize execution.", se);
+        CompletedExecutionInstruction instCode = CompletedExecutionInstruction.NOOP;
+
+        // update the trigger
+        try {
+            instCode = trigger.executionComplete(jec, jobExEx);
+        } catch (Exception e) {
+            // If this happens, there's a bug in the trigger...
+            SchedulerException se = new SchedulerException(
+                    "Trigger threw an unhandled exception.", e);
+            qs.notifySchedulerListenersError(
+                    "Please report this error to the Quartz developers.",
+                    se);
+        }
+
+        // notify all trigger listeners
+        if (!notifyTriggerListenersComplete(jec, instCode)) {
+            return false;
+        }
+
+        // update job/trigger or re-execute job
+        if (instCode == CompletedExecutionInstruction.RE_EXECUTE_JOB) {
+            jec.incrementRefireCount();
+            try {
+                complete(false);
+            } catch (SchedulerException se) {
+                qs.notifySchedulerListenersError("Error executing Job ("
+                        + jec.getJobDetail().getKey()
+                        + ": couldn't finalize execution.", se);
+            }
+            return true;
+        }
+
+        try {
+            complete(true);
+        } catch (SchedulerException se) {
+            qs.notifySchedulerListenersError("Error executing Job ("
+                    + jec.getJobDetail().getKey()
+                    + ": couldn't finalize execution.", se);
+            return true;
+        }
+
+        qs.notifyJobStoreJobComplete(trigger, jobDetail, instCode);
+        return false;
+    }
+
+    private JobExecutionException jobFailed(Throwable e) {
+        JobDetail jobDetail = jec.getJobDetail();
+        if (e instanceof JobExecutionException) {
+            getLog().info("Job " + jobDetail.getKey() +
+                    " threw a JobExecutionException: ", e);
+            return (JobExecutionException) e;
+        }
+
+        getLog().error("Job " + jobDetail.getKey() +
+                " threw an unhandled Exception: ", e);
+        SchedulerException se = new SchedulerException(
+                "Job threw an unhandled exception.", e);
+        qs.notifySchedulerListenersError("Job ("
+                + jec.getJobDetail().getKey()
+                + " threw an exception.", se);
+        return new JobExecutionException(se, false);
+    }
+
+    private void awaitCompletion(final JobCompletion completion, final long startTime) {
+        qs.asyncJobStarted();
+
+        final TimerTask timeout;
+        if (completion.getTimeout() > 0) {
+            timeout = new TimerTask() {
+                @Override
+                public void run() {
+                    // only the expiry check runs on the timer thread
+                    if (!completion.isDone()) {
+                        qs.executeAsyncJobTimeout(new Runnable() {
+                            public void run() {
+                                timedOut(completion);
+                            }
+                        });
                     }
-                    continue;
                 }
+            };
+            qs.scheduleAsyncJobTimeout(timeout, completion.getTimeout());
+        } else {
+            timeout = null;
+        }
 
+        completion.whenDone(new Runnable() {
+            public void run() {
+                if (timeout != null) {
+                    timeout.cancel();
+                }
                 try {
-                    complete(true);
-                } catch (SchedulerException se) {
-                    qs.notifySchedulerListenersError("Error executing Job ("
-                            + jec.getJobDetail().getKey()
-                            + ": couldn't finalize execution.", se);
-                    continue;
+                    asyncJobCompleted(completion, startTime);
+                } finally {
+                    qs.asyncJobFinished();
                 }
+            }
+        });
+    }
 
-                qs.notifyJobStoreJobComplete(trigger, jobDetail, instCode);
-                break;
-            } while (true);
+    private void asyncJobCompleted(JobCompletion completion, long startTime) {
+        boolean pending = false;
+        try {
+            long endTime = System.currentTimeMillis();
+            JobExecutionException jobExEx = null;
+            if (completion.getException() != null) {
+                jobExEx = jobFailed(completion.getException());
+            }
 
+            if (jobExecuted(jobExEx, startTime, endTime)) {
+                pending = runJob();
+            }
+        } catch (Throwable e) {
+            getLog().error("Unable to complete job " + jec.getJobDetail().getKey() + ": ", e);
         } finally {
-            qs.removeInternalSchedulerListener(this);
+            if (!pending) {
+                qs.removeInternalSchedulerListener(this);
+            }
         }
     }
 
+    private void timedOut(JobCompletion completion) {
+        if (completion.isDone()) {
+            return;
+        }
+
+        Job job = jec.getJobInstance();
+        if (job instanceof InterruptableJob) {
+            try {
+                ((InterruptableJob) job).interrupt();
+            } catch (Throwable e) {
+                getLog().warn("Unable to interrupt job " + jec.getJobDetail().getKey()
+                        + " that timed out: ", e);
+            }
+        }
+        completion.completeExceptionally(new JobExecutionException("Job timed out after "
+                + completion.getTimeout() + " ms.", false));
+    }
+
+    /**
+     * Whether an <code>AsyncJob</code> may complete on another thread than
+     * the one that began its execution, true unless <code>begin()</code>
+     * ties it to the thread.
+     */
+    protected boolean canExecuteAsync() {
+        return true;
+    }
+
     protected void begin() throws SchedulerException {
     }
 
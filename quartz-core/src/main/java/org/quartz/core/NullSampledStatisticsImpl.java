@@ -1,6 +1,13 @@
 package org.quartz.core;
 
+import java.util.Collections;
+import java.util.Map;
+
+import org.quartz.utils.counter.Histogram;
+
 public class NullSampledStatisticsImpl implements SampledStatistics {
+    private static final Histogram EMPTY_HISTOGRAM = new Histogram();
+
     public long getJobsCompletedMostRecentSample() {
         return 0;
     }
@@ -13,6 +20,34 @@ public class NullSampledStatisticsImpl implements SampledStatistics {
         return 0;
     }
 
+    public void recordJobExecution(String jobGroup, long durationMillis) {
+        // nothing to do
+    }
+
+    public void recordTriggerAcquisition(long latencyMicros) {
+        // nothing to do
+    }
+
+    public void recordTriggersFired(long latencyMicros) {
+        // nothing to do
+    }
+
+    public Histogram getTriggerFireLagHistogram() {
+        return EMPTY_HISTOGRAM;
+    }
+
+    public Map<String, Histogram> getJobExecutionHistograms() {
+        return Collections.emptyMap();
+    }
+
+    public Histogram getTriggerAcquisitionHistogram() {
+        return EMPTY_HISTOGRAM;
+    }
+
+    public Histogram getTriggersFiredHistogram() {
+        return EMPTY_HISTOGRAM;
+    }
+
     public void shutdown() {
         // nothing to do
     }
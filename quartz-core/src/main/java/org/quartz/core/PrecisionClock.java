@@ -0,0 +1,81 @@
+/*
+ * Copyright 2001-2009 Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.quartz.core;
+
+/**
+ * <p>
+ * Maps wall clock times (in millis, as used by triggers) to
+ * <code>System.nanoTime()</code> values, so that the
+ * <code>{@link QuartzSchedulerThread}</code> can wait for a fire time, and
+ * measure how late it fired, with sub-millisecond precision.
+ * </p>
+ *
+ * <p>
+ * The offset between the two clocks is measured on the edge of a wall clock
+ * tick, which takes up to a millisecond of spinning, and measured again when
+ * older than a minute, to follow adjustments of the wall clock.  Only used
+ * by the scheduler thread that owns it.
+ * </p>
+ */
+class PrecisionClock {
+
+    private static final long CALIBRATION_INTERVAL_NANOS = 60L * 1000L * 1000000L;
+
+    private long baseMillis;
+
+    private long baseNanos;
+
+    PrecisionClock() {
+        calibrate();
+    }
+
+    /**
+     * Measures the clocks' offset again if it is older than the calibration
+     * interval.
+     */
+    void calibrateIfStale() {
+        if (System.nanoTime() - baseNanos > CALIBRATION_INTERVAL_NANOS) {
+            calibrate();
+        }
+    }
+
+    /**
+     * @return the <code>System.nanoTime()</code> value at which the wall
+     * clock will show the given time
+     */
+    long toNanoTime(long timeMillis) {
+        return baseNanos + (timeMillis - baseMillis) * 1000000L;
+    }
+
+    /**
+     * @return the current wall clock time, in nanos
+     */
+    long currentTimeNanos() {
+        return baseMillis * 1000000L + (System.nanoTime() - baseNanos);
+    }
+
+    private void calibrate() {
+        long start = System.currentTimeMillis();
+        long millis;
+        do {
+            millis = System.currentTimeMillis();
+        } while (millis == start);
+        baseNanos = System.nanoTime();
+        baseMillis = millis;
+    }
+}
@@ -26,6 +26,7 @@ import java.rmi.registry.Registry;
 import java.rmi.server.UnicastRemoteObject;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.LinkedList;
@@ -35,7 +36,13 @@ import java.util.Properties;
 import java.util.Random;
 import java.util.Set;
 import java.util.Timer;
+import java.util.TimerTask;
 import java.util.Map.Entry;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.management.MBeanServer;
@@ -54,6 +61,7 @@ import org.quartz.ListenerManager;
 import org.quartz.Matcher;
 import org.quartz.ObjectAlreadyExistsException;
 import org.quartz.Scheduler;
+import org.quartz.SchedulerConfigException;
 import org.quartz.SchedulerContext;
 import org.quartz.SchedulerException;
 import org.quartz.SchedulerListener;
@@ -68,15 +76,21 @@ import org.quartz.Trigger.TriggerState;
 import org.quartz.core.jmx.QuartzSchedulerMBean;
 import org.quartz.impl.SchedulerRepository;
 import org.quartz.impl.StdSchedulerFactory;
+import org.quartz.impl.jdbcjobstore.JobStoreSupport;
 import org.quartz.impl.matchers.GroupMatcher;
 import org.quartz.listeners.SchedulerListenerSupport;
 import org.quartz.simpl.PropertySettingJobFactory;
+import org.quartz.simpl.SimpleThreadPool;
 import org.quartz.spi.JobFactory;
+import org.quartz.spi.JobStore;
 import org.quartz.spi.OperableTrigger;
 import org.quartz.spi.SchedulerPlugin;
 import org.quartz.spi.SchedulerSignaler;
+import org.quartz.spi.ShardedJobStore;
 import org.quartz.spi.ThreadExecutor;
+import org.quartz.spi.ThreadPool;
 import org.quartz.utils.UpdateChecker;
+import org.quartz.utils.counter.Histogram;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -104,6 +118,9 @@ public class QuartzScheduler implements RemotableQuartzScheduler {
      * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
      */
 
+    // the threads that run the timeouts of AsyncJobs
+    private static final int ASYNC_JOB_TIMEOUT_THREADS = 2;
+
     private static String VERSION_MAJOR = "UNKNOWN";
     private static String VERSION_MINOR = "UNKNOWN";
     private static String VERSION_ITERATION = "UNKNOWN";
@@ -152,6 +169,12 @@ public class QuartzScheduler implements RemotableQuartzScheduler {
 
     private QuartzSchedulerThread schedThread;
 
+    private QuartzSchedulerThread[] schedThreads;
+
+    private final Histogram fireLagHistogram = new Histogram();
+
+    private volatile SampledStatistics sampledStatistics = new NullSampledStatisticsImpl();
+
     private ThreadGroup threadGroup;
 
     private SchedulerContext context = new SchedulerContext();
@@ -189,6 +212,22 @@ public class QuartzScheduler implements RemotableQuartzScheduler {
     /** Update timer that must be cancelled upon shutdown. */
     private final Timer updateTimer;
 
+    /** Times out AsyncJobs, created on first use. */
+    private Timer asyncJobTimer;
+
+    /**
+     * Runs the timeouts of the AsyncJobs the timer found expired, with
+     * their listeners and job store completion, created on first use.
+     */
+    private ThreadPoolExecutor asyncJobTimeoutExecutor;
+
+    private final Object asyncJobLock = new Object();
+
+    private int asyncJobCount = 0;
+
+    /** Queues job completions for the JobStore, if they are batched. */
+    private final CompletionBatcher completionBatcher;
+
     private final Logger log = LoggerFactory.getLogger(getClass());
     
     // private static final Map<String, ManagementServer> MGMT_SVR_BY_BIND = new
@@ -218,19 +257,36 @@ public class QuartzScheduler implements RemotableQuartzScheduler {
             addInternalJobListener((JobListener)resources.getJobStore());
         }
 
-        this.schedThread = new QuartzSchedulerThread(this, resources);
+        int schedThreadCount = Math.max(1, resources.getSchedulerThreadCount());
+        if (schedThreadCount > 1 && !(resources.getJobStore() instanceof ShardedJobStore)) {
+            throw new SchedulerConfigException("JobStore " + resources.getJobStore().getClass().getName()
+                    + " cannot be used with " + schedThreadCount + " scheduler threads, as it does not implement "
+                    + ShardedJobStore.class.getName());
+        }
+        this.schedThreads = new QuartzSchedulerThread[schedThreadCount];
         ThreadExecutor schedThreadExecutor = resources.getThreadExecutor();
-        schedThreadExecutor.execute(this.schedThread);
-        if (idleWaitTime > 0) {
-            this.schedThread.setIdleWaitTime(idleWaitTime);
+        for (int i = 0; i < schedThreadCount; i++) {
+            this.schedThreads[i] = new QuartzSchedulerThread(this, resources, i, schedThreadCount);
+            schedThreadExecutor.execute(this.schedThreads[i]);
+            if (idleWaitTime > 0) {
+                this.schedThreads[i].setIdleWaitTime(idleWaitTime);
+            }
         }
+        this.schedThread = this.schedThreads[0];
 
         jobMgr = new ExecutingJobsManager();
         addInternalJobListener(jobMgr);
         errLogger = new ErrorLogger();
         addInternalSchedulerListener(errLogger);
 
-        signaler = new SchedulerSignalerImpl(this, this.schedThread);
+        signaler = new SchedulerSignalerImpl(this, this.schedThreads);
+
+        if (resources.getMaxCompletionBatchSize() > 1) {
+            completionBatcher = new CompletionBatcher(resources.getJobStore(), resources.getMaxCompletionBatchSize(),
+                    resources.getCompletionBatchMaxWait(), resources.getName() + "_CompletionBatcher");
+        } else {
+            completionBatcher = null;
+        }
         
         if(shouldRunUpdateCheck()) 
             updateTimer = scheduleUpdateCheck();
@@ -570,7 +626,9 @@ public class QuartzScheduler implements RemotableQuartzScheduler {
             resources.getJobStore().schedulerResumed();
         }
 
-        schedThread.togglePause(false);
+        for (QuartzSchedulerThread thread : schedThreads) {
+            thread.togglePause(false);
+        }
 
         getLog().info(
                 "Scheduler " + resources.getUniqueIdentifier() + " started.");
@@ -609,7 +667,9 @@ public class QuartzScheduler implements RemotableQuartzScheduler {
      */
     public void standby() {
         resources.getJobStore().schedulerPaused();
-        schedThread.togglePause(true);
+        for (QuartzSchedulerThread thread : schedThreads) {
+            thread.togglePause(true);
+        }
         getLog().info(
                 "Scheduler " + resources.getUniqueIdentifier() + " paused.");
         notifySchedulerListenersInStandbyMode();        
@@ -654,6 +714,105 @@ public class QuartzScheduler implements RemotableQuartzScheduler {
         return resources.getThreadPool().getPoolSize();
     }
 
+    /**
+     * The number of threads the thread pool keeps, if it is a
+     * <code>SimpleThreadPool</code>, otherwise its size.
+     */
+    int getThreadPoolCoreSize() {
+        ThreadPool threadPool = resources.getThreadPool();
+        if (threadPool instanceof SimpleThreadPool) {
+            return ((SimpleThreadPool) threadPool).getThreadCount();
+        }
+        return threadPool.getPoolSize();
+    }
+
+    /**
+     * The number of threads currently in the thread pool, if it is a
+     * <code>SimpleThreadPool</code>, otherwise its size.
+     */
+    int getThreadPoolCurrentSize() {
+        ThreadPool threadPool = resources.getThreadPool();
+        if (threadPool instanceof SimpleThreadPool) {
+            return ((SimpleThreadPool) threadPool).getCurrentThreadCount();
+        }
+        return threadPool.getPoolSize();
+    }
+
+    /**
+     * Change the number of threads the thread pool keeps and may grow to,
+     * if it is a <code>SimpleThreadPool</code>.
+     */
+    void resizeThreadPool(int coreSize, int size) throws SchedulerException {
+        ThreadPool threadPool = resources.getThreadPool();
+        if (!(threadPool instanceof SimpleThreadPool)) {
+            throw new SchedulerException("Thread pool " + threadPool.getClass().getName()
+                    + " can't be resized.");
+        }
+        try {
+            ((SimpleThreadPool) threadPool).resize(coreSize, size);
+        } catch (IllegalArgumentException e) {
+            throw new SchedulerException(e.getMessage());
+        }
+    }
+
+    /**
+     * <p>
+     * Returns the histogram of how late, in micros, triggers fired compared
+     * to their scheduled fire time, across all scheduler threads.
+     * </p>
+     */
+    public Histogram getFireLagHistogram() {
+        return fireLagHistogram;
+    }
+
+    /**
+     * <p>
+     * Returns the statistics the scheduler threads and job run shells record
+     * their latencies to; they are only collected while enabled through the
+     * scheduler's MBean, except for the fire lag, which is always recorded
+     * in <code>{@link #getFireLagHistogram()}</code>.
+     * </p>
+     */
+    public SampledStatistics getSampledStatistics() {
+        return sampledStatistics;
+    }
+
+    void setSampledStatistics(SampledStatistics sampledStatistics) {
+        this.sampledStatistics = sampledStatistics;
+    }
+
+    /**
+     * The batch controller of the first scheduler thread; with several
+     * scheduler threads, each tunes its own.
+     */
+    AdaptiveBatchController getBatchController() {
+        return schedThread.getBatchController();
+    }
+
+    /**
+     * The progress of the job store's misfire handling, if it is a
+     * <code>JobStoreSupport</code>.
+     */
+    Map<String, Long> getMisfireHandlingProgress() {
+        JobStore jobStore = resources.getJobStore();
+        if (jobStore instanceof JobStoreSupport) {
+            return ((JobStoreSupport) jobStore).getMisfireHandlingProgress();
+        }
+        return Collections.emptyMap();
+    }
+
+    /**
+     * The metrics of the connection pools of the job store's data sources,
+     * if it is a <code>JobStoreSupport</code>.
+     */
+    Map<String, Map<String, Long>> getConnectionPoolMetrics() {
+        JobStore jobStore = resources.getJobStore();
+        if (jobStore instanceof JobStoreSupport) {
+            return ((JobStoreSupport) jobStore).getConnectionPoolMetrics();
+        }
+        return Collections.emptyMap();
+    }
+
     /**
      * <p>
      * Halts the <code>QuartzScheduler</code>'s firing of <code>{@link org.quartz.Trigger}s</code>,
@@ -719,7 +878,14 @@ public class QuartzScheduler implements RemotableQuartzScheduler {
 
         standby();
 
-        schedThread.halt(waitForJobsToComplete);
+        for (QuartzSchedulerThread thread : schedThreads) {
+            thread.halt(false);
+        }
+        if (waitForJobsToComplete) {
+            for (QuartzSchedulerThread thread : schedThreads) {
+                thread.halt(true);
+            }
+        }
         
         notifySchedulerListenersShuttingdown();
         
@@ -738,6 +904,14 @@ public class QuartzScheduler implements RemotableQuartzScheduler {
         }
         
         resources.getThreadPool().shutdown(waitForJobsToComplete);
+
+        if (waitForJobsToComplete) {
+            waitForAsyncJobs();
+        }
+
+        if (completionBatcher != null) {
+            completionBatcher.shutdown();
+        }
         
         closed = true;
 
@@ -767,6 +941,15 @@ public class QuartzScheduler implements RemotableQuartzScheduler {
 
         if(updateTimer != null)
             updateTimer.cancel();
+
+        synchronized (asyncJobLock) {
+            if (asyncJobTimer != null) {
+                asyncJobTimer.cancel();
+            }
+            if (asyncJobTimeoutExecutor != null) {
+                asyncJobTimeoutExecutor.shutdown();
+            }
+        }
         
         getLog().info(
                 "Scheduler " + resources.getUniqueIdentifier()
@@ -819,6 +1002,90 @@ public class QuartzScheduler implements RemotableQuartzScheduler {
         return jobMgr.getExecutingJobs();
     }
 
+    /**
+     * <p>
+     * Called by a <code>JobRunShell</code> when it leaves an
+     * <code>AsyncJob</code> to complete on another thread.
+     * </p>
+     */
+    void asyncJobStarted() {
+        synchronized (asyncJobLock) {
+            asyncJobCount++;
+        }
+    }
+
+    void asyncJobFinished() {
+        synchronized (asyncJobLock) {
+            asyncJobCount--;
+            asyncJobLock.notifyAll();
+        }
+    }
+
+    void scheduleAsyncJobTimeout(TimerTask timeout, long delay) {
+        synchronized (asyncJobLock) {
+            if (closed) {
+                return;
+            }
+            if (asyncJobTimer == null) {
+                asyncJobTimer = new Timer(resources.getName() + "_AsyncJobTimer", true);
+            }
+            asyncJobTimer.schedule(timeout, delay);
+        }
+    }
+
+    /**
+     * <p>
+     * Runs the timeout of an <code>AsyncJob</code> off the timer thread, so
+     * that the timer only checks for expired jobs, and one job's listeners
+     * and job store completion do not hold up the timeouts of others.
+     * </p>
+     */
+    void executeAsyncJobTimeout(Runnable timeout) {
+        ThreadPoolExecutor executor;
+        synchronized (asyncJobLock) {
+            if (asyncJobTimeoutExecutor == null && !closed) {
+                final String threadName = resources.getName() + "_AsyncJobTimeout-";
+                final AtomicInteger threadNumber = new AtomicInteger();
+                asyncJobTimeoutExecutor = new ThreadPoolExecutor(ASYNC_JOB_TIMEOUT_THREADS, ASYNC_JOB_TIMEOUT_THREADS,
+                        60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                            public Thread newThread(Runnable r) {
+                                Thread thread = new Thread(r, threadName + threadNumber.incrementAndGet());
+                                thread.setDaemon(true);
+                                return thread;
+                            }
+                        });
+                asyncJobTimeoutExecutor.allowCoreThreadTimeOut(true);
+            }
+            executor = asyncJobTimeoutExecutor;
+        }
+        try {
+            if (executor != null) {
+                executor.execute(timeout);
+                return;
+            }
+        } catch (RejectedExecutionException e) {
+            // shut down meanwhile
+        }
+        timeout.run();
+    }
+
+    private void waitForAsyncJobs() {
+        boolean interrupted = false;
+        synchronized (asyncJobLock) {
+            while (asyncJobCount > 0) {
+                getLog().debug("Waiting for " + asyncJobCount + " asynchronous jobs to complete.");
+                try {
+                    asyncJobLock.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     ///////////////////////////////////////////////////////////////////////////
     ///
     /// Scheduling-related Methods
@@ -1801,7 +2068,11 @@ J     *
     }
 
     protected void notifyJobStoreJobComplete(OperableTrigger trigger, JobDetail detail, CompletedExecutionInstruction instCode) {
-        resources.getJobStore().triggeredJobComplete(trigger, detail, instCode);
+        if (completionBatcher != null) {
+            completionBatcher.triggeredJobComplete(trigger, detail, instCode);
+        } else {
+            resources.getJobStore().triggeredJobComplete(trigger, detail, instCode);
+        }
     }
 
     protected void notifyJobStoreJobVetoed(OperableTrigger trigger, JobDetail detail, CompletedExecutionInstruction instCode) {
@@ -13,6 +13,7 @@ import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -48,6 +49,7 @@ import org.quartz.core.jmx.TriggerSupport;
 import org.quartz.impl.matchers.GroupMatcher;
 import org.quartz.impl.triggers.AbstractTrigger;
 import org.quartz.spi.OperableTrigger;
+import org.quartz.utils.counter.Histogram;
 
 public class QuartzSchedulerMBeanImpl extends StandardMBean implements
         NotificationEmitter, QuartzSchedulerMBean, JobListener,
@@ -552,6 +554,82 @@ public class QuartzSchedulerMBeanImpl extends StandardMBean implements
         return scheduler.getThreadPoolSize();
     }
 
+    public void setThreadPoolSize(int threadPoolSize) throws Exception {
+        try {
+            scheduler.resizeThreadPool(Math.min(scheduler.getThreadPoolCoreSize(), threadPoolSize), threadPoolSize);
+        } catch (Exception e) {
+            throw newPlainException(e);
+        }
+    }
+
+    public int getThreadPoolCoreSize() {
+        return scheduler.getThreadPoolCoreSize();
+    }
+
+    public void setThreadPoolCoreSize(int threadPoolCoreSize) throws Exception {
+        try {
+            scheduler.resizeThreadPool(threadPoolCoreSize, Math.max(threadPoolCoreSize, scheduler.getThreadPoolSize()));
+        } catch (Exception e) {
+            throw newPlainException(e);
+        }
+    }
+
+    public int getThreadPoolCurrentSize() {
+        return scheduler.getThreadPoolCurrentSize();
+    }
+
+    public boolean isBatchTriggerAcquisitionAdaptive() {
+        return scheduler.getBatchController().isAdaptive();
+    }
+
+    public int getBatchTriggerAcquisitionMaxCount() {
+        return scheduler.getBatchController().getBatchSize();
+    }
+
+    public int getTargetBatchTriggerAcquisitionMaxCount() {
+        return scheduler.getBatchController().getTargetBatchSize();
+    }
+
+    public long getBatchTriggerAcquisitionFireAheadTimeWindow() {
+        return scheduler.getBatchController().getBatchTimeWindow();
+    }
+
+    public long getTargetBatchTriggerAcquisitionFireAheadTimeWindow() {
+        return scheduler.getBatchController().getTargetBatchTimeWindow();
+    }
+
+    public long getIdleWaitTime() {
+        return scheduler.getBatchController().getIdleWaitTime();
+    }
+
+    public long getTargetIdleWaitTime() {
+        return scheduler.getBatchController().getTargetIdleWaitTime();
+    }
+
+    public long getAverageTriggerAcquisitionLatency() {
+        return scheduler.getBatchController().getAverageAcquisitionLatency();
+    }
+
+    public long getAverageTriggerFireLag() {
+        return scheduler.getBatchController().getAverageFireLag();
+    }
+
+    public Map<String, Long> getTriggerFireLagHistogram() {
+        Map<String, Long> result = new LinkedHashMap<String, Long>();
+        for (Map.Entry<Long, Long> bucket : scheduler.getFireLagHistogram().getBuckets().entrySet()) {
+            result.put(String.valueOf(bucket.getKey()), bucket.getValue());
+        }
+        return result;
+    }
+
+    public Map<String, Long> getMisfireHandlingProgress() {
+        return scheduler.getMisfireHandlingProgress();
+    }
+
+    public Map<String, Map<String, Long>> getConnectionPoolMetrics() {
+        return scheduler.getConnectionPoolMetrics();
+    }
+
     public void pauseJob(String jobName, String jobGroup) throws Exception {
         try {
             scheduler.pauseJob(jobKey(jobName, jobGroup));
@@ -977,10 +1055,12 @@ public class QuartzSchedulerMBeanImpl extends StandardMBean implements
             this.sampledStatisticsEnabled = enabled;
             if(enabled) {
                 this.sampledStatistics = new SampledStatisticsImpl(scheduler);
+                scheduler.setSampledStatistics(this.sampledStatistics);
             }
             else {
                  this.sampledStatistics.shutdown(); 
                  this.sampledStatistics = NULL_SAMPLED_STATISTICS;
+                 scheduler.setSampledStatistics(NULL_SAMPLED_STATISTICS);
             }
             sendNotification(SAMPLED_STATISTICS_ENABLED, Boolean.valueOf(enabled));
         }
@@ -998,6 +1078,26 @@ public class QuartzSchedulerMBeanImpl extends StandardMBean implements
         return this.sampledStatistics.getJobsScheduledMostRecentSample();
     }
 
+    public Map<String, Long> getTriggerFireLagPercentiles() {
+        return scheduler.getFireLagHistogram().getPercentiles();
+    }
+
+    public Map<String, Map<String, Long>> getJobExecutionTimePercentiles() {
+        Map<String, Map<String, Long>> result = new HashMap<String, Map<String, Long>>();
+        for (Map.Entry<String, Histogram> group : this.sampledStatistics.getJobExecutionHistograms().entrySet()) {
+            result.put(group.getKey(), group.getValue().getPercentiles());
+        }
+        return result;
+    }
+
+    public Map<String, Long> getTriggerAcquisitionLatencyPercentiles() {
+        return this.sampledStatistics.getTriggerAcquisitionHistogram().getPercentiles();
+    }
+
+    public Map<String, Long> getTriggersFiredLatencyPercentiles() {
+        return this.sampledStatistics.getTriggersFiredHistogram().getPercentiles();
+    }
+
     public Map<String, Long> getPerformanceMetrics() {
         Map<String, Long> result = new HashMap<String, Long>();
         result.put("JobsCompleted", Long
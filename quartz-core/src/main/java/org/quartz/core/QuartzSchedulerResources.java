@@ -95,6 +95,20 @@ public class QuartzSchedulerResources {
 
     private int maxBatchSize = 1;
 
+    private boolean pipelineTriggerAcquisition = false;
+
+    private boolean precisionTiming = false;
+
+    private boolean batchTriggerAcquisitionAdaptive = false;
+
+    private int minBatchSize = 1;
+
+    private int maxCompletionBatchSize = 1;
+
+    private long completionBatchMaxWait = 100L;
+
+    private int schedulerThreadCount = 1;
+
     private boolean interruptJobsOnShutdown = false;
     private boolean interruptJobsOnShutdownWithWait = false;
     
@@ -565,6 +579,90 @@ public class QuartzSchedulerResources {
     public void setMaxBatchSize(int maxBatchSize) {
       this.maxBatchSize = maxBatchSize;
     }
+
+    /**
+     * Whether the scheduler thread acquires the next batch of triggers while
+     * it waits for the fire time of the batch it already holds.
+     */
+    public boolean isPipelineTriggerAcquisition() {
+        return pipelineTriggerAcquisition;
+    }
+
+    public void setPipelineTriggerAcquisition(boolean pipelineTriggerAcquisition) {
+        this.pipelineTriggerAcquisition = pipelineTriggerAcquisition;
+    }
+
+    /**
+     * Whether the scheduler thread waits for fire times with
+     * <code>LockSupport.parkNanos()</code> and a final spin, firing within
+     * microseconds of the fire time rather than within a few millis.
+     */
+    public boolean isPrecisionTiming() {
+        return precisionTiming;
+    }
+
+    public void setPrecisionTiming(boolean precisionTiming) {
+        this.precisionTiming = precisionTiming;
+    }
+
+    /**
+     * Whether the batch size, fire-ahead time window and idle wait time are
+     * tuned at runtime, with <code>maxBatchSize</code>,
+     * <code>batchTimeWindow</code> and the idle wait time as upper bounds.
+     */
+    public boolean isBatchTriggerAcquisitionAdaptive() {
+        return batchTriggerAcquisitionAdaptive;
+    }
+
+    public void setBatchTriggerAcquisitionAdaptive(boolean batchTriggerAcquisitionAdaptive) {
+        this.batchTriggerAcquisitionAdaptive = batchTriggerAcquisitionAdaptive;
+    }
+
+    public int getMinBatchSize() {
+        return minBatchSize;
+    }
+
+    public void setMinBatchSize(int minBatchSize) {
+        this.minBatchSize = minBatchSize;
+    }
+
+    /**
+     * The most job completions handed to the <code>JobStore</code> at once;
+     * with more than 1 they are queued and handed over in batches.
+     *
+     * @see org.quartz.spi.BatchingJobStore
+     */
+    public int getMaxCompletionBatchSize() {
+        return maxCompletionBatchSize;
+    }
+
+    public void setMaxCompletionBatchSize(int maxCompletionBatchSize) {
+        this.maxCompletionBatchSize = maxCompletionBatchSize;
+    }
+
+    /**
+     * The most millis a queued job completion waits for its batch to fill.
+     */
+    public long getCompletionBatchMaxWait() {
+        return completionBatchMaxWait;
+    }
+
+    public void setCompletionBatchMaxWait(long completionBatchMaxWait) {
+        this.completionBatchMaxWait = completionBatchMaxWait;
+    }
+
+    /**
+     * The number of <code>{@link QuartzSchedulerThread}</code>s, each firing
+     * the triggers of one shard of trigger groups.  More than one requires a
+     * <code>{@link org.quartz.spi.ShardedJobStore}</code>.
+     */
+    public int getSchedulerThreadCount() {
+        return schedulerThreadCount;
+    }
+
+    public void setSchedulerThreadCount(int schedulerThreadCount) {
+        this.schedulerThreadCount = schedulerThreadCount;
+    }
     
     public boolean isInterruptJobsOnShutdown() {
         return interruptJobsOnShutdown;
@@ -19,17 +19,22 @@
 package org.quartz.core;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
 
 import org.quartz.JobPersistenceException;
 import org.quartz.SchedulerException;
 import org.quartz.Trigger;
 import org.quartz.Trigger.CompletedExecutionInstruction;
 import org.quartz.spi.OperableTrigger;
+import org.quartz.spi.PartitionedThreadPool;
+import org.quartz.spi.ShardedJobStore;
 import org.quartz.spi.TriggerFiredBundle;
 import org.quartz.spi.TriggerFiredResult;
+import org.quartz.utils.counter.Histogram;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -72,9 +77,41 @@ public class QuartzSchedulerThread extends Thread {
     // it should wait until checking again...
     private static long DEFAULT_IDLE_WAIT_TIME = 30L * 1000L;
 
-    private long idleWaitTime = DEFAULT_IDLE_WAIT_TIME;
+    // decides the batch size, fire-ahead window and idle wait time of each
+    // acquisition...
+    private final AdaptiveBatchController batchController;
 
-    private int idleWaitVariablness = 7 * 1000;
+    // the shard of the triggers this thread fires, when there are several
+    // scheduler threads...
+    private final int shard;
+
+    private final int shardCount;
+
+    // In pipelined mode, the batch acquired while waiting for the fire time
+    // of the current one; only touched by this thread.
+    private List<OperableTrigger> prefetchedTriggers;
+
+    // In precision timing mode, how long before the fire time parking stops
+    // and spinning starts, as parking may overshoot by tens of micros...
+    private static final long SPIN_WAIT_NANOS = 100L * 1000L;
+
+    // null unless in precision timing mode
+    private final PrecisionClock precisionClock;
+
+    private final Histogram fireLagHistogram;
+
+    // With a partitioned thread pool, how many triggers of the last batch
+    // were released for lack of room in their partition; the next batch is
+    // that much bigger, up to the maximum batch size, to reach the triggers
+    // behind them.
+    private int deferredTriggerCount;
+
+    // signals this thread once a partition it deferred triggers of has room
+    private final Runnable partitionAvailable = new Runnable() {
+        public void run() {
+            signalPartitionAvailable();
+        }
+    };
 
     private final Logger log = LoggerFactory.getLogger(getClass());
 
@@ -97,6 +134,17 @@ public class QuartzSchedulerThread extends Thread {
         this(qs, qsRsrcs, qsRsrcs.getMakeSchedulerThreadDaemon(), Thread.NORM_PRIORITY);
     }
 
+    /**
+     * <p>
+     * Construct a new <code>QuartzSchedulerThread</code> for the given
+     * <code>QuartzScheduler</code>, firing only the triggers of the given
+     * shard (see <code>{@link ShardedJobStore}</code>).
+     * </p>
+     */
+    QuartzSchedulerThread(QuartzScheduler qs, QuartzSchedulerResources qsRsrcs, int shard, int shardCount) {
+        this(qs, qsRsrcs, qsRsrcs.getMakeSchedulerThreadDaemon(), Thread.NORM_PRIORITY, shard, shardCount);
+    }
+
     /**
      * <p>
      * Construct a new <code>QuartzSchedulerThread</code> for the given
@@ -105,9 +153,16 @@ public class QuartzSchedulerThread extends Thread {
      * </p>
      */
     QuartzSchedulerThread(QuartzScheduler qs, QuartzSchedulerResources qsRsrcs, boolean setDaemon, int threadPrio) {
-        super(qs.getSchedulerThreadGroup(), qsRsrcs.getThreadName());
+        this(qs, qsRsrcs, setDaemon, threadPrio, 0, 1);
+    }
+
+    private QuartzSchedulerThread(QuartzScheduler qs, QuartzSchedulerResources qsRsrcs, boolean setDaemon, int threadPrio,
+            int shard, int shardCount) {
+        super(qs.getSchedulerThreadGroup(), (shardCount > 1) ? qsRsrcs.getThreadName() + "-" + shard : qsRsrcs.getThreadName());
         this.qs = qs;
         this.qsRsrcs = qsRsrcs;
+        this.shard = shard;
+        this.shardCount = shardCount;
         this.setDaemon(setDaemon);
         if(qsRsrcs.isThreadsInheritInitializersClassLoadContext()) {
             log.info("QuartzSchedulerThread Inheriting ContextClassLoader of thread: " + Thread.currentThread().getName());
@@ -116,6 +171,11 @@ public class QuartzSchedulerThread extends Thread {
 
         this.setPriority(threadPrio);
 
+        batchController = new AdaptiveBatchController(qsRsrcs.isBatchTriggerAcquisitionAdaptive(),
+                qsRsrcs.getMinBatchSize(), qsRsrcs.getMaxBatchSize(), qsRsrcs.getBatchTimeWindow(), DEFAULT_IDLE_WAIT_TIME);
+        precisionClock = qsRsrcs.isPrecisionTiming() ? new PrecisionClock() : null;
+        fireLagHistogram = qs.getFireLagHistogram();
+
         // start the underlying thread, but put this object into the 'paused'
         // state
         // so processing doesn't start yet...
@@ -132,12 +192,16 @@ public class QuartzSchedulerThread extends Thread {
      */
 
     void setIdleWaitTime(long waitTime) {
-        idleWaitTime = waitTime;
-        idleWaitVariablness = (int) (waitTime * 0.2);
+        batchController.setMaxIdleWaitTime(waitTime);
     }
 
     private long getRandomizedIdleWaitTime() {
-        return idleWaitTime - random.nextInt(idleWaitVariablness);
+        long waitTime = batchController.getIdleWaitTime();
+        return waitTime - random.nextInt(Math.max(1, (int) (waitTime * 0.2)));
+    }
+
+    AdaptiveBatchController getBatchController() {
+        return batchController;
     }
 
     /**
@@ -213,6 +277,27 @@ public class QuartzSchedulerThread extends Thread {
             signaledNextFireTime = candidateNewNextFireTime;
             sigLock.notifyAll();
         }
+        if (precisionClock != null) {
+            LockSupport.unpark(this);
+        }
+    }
+
+    /**
+     * <p>
+     * Signals the main processing loop that a partition of the thread pool
+     * has room for triggers it deferred, which wakes it from waiting for
+     * triggers to acquire, but not from waiting for the fire time of those
+     * it acquired.
+     * </p>
+     */
+    private void signalPartitionAvailable() {
+        synchronized(sigLock) {
+            if (!signaled) {
+                signaled = true;
+                signaledNextFireTime = Long.MAX_VALUE;
+            }
+            sigLock.notifyAll();
+        }
     }
 
     public void clearSignaledSchedulingChange() {
@@ -242,9 +327,15 @@ public class QuartzSchedulerThread extends Thread {
     @Override
     public void run() {
         boolean lastAcquireFailed = false;
+        boolean idleWaited = false;
 
         while (!halted.get()) {
             try {
+                // don't hold on to triggers we won't fire for a while
+                if (prefetchedTriggers != null && isPaused()) {
+                    releasePrefetchedTriggers();
+                }
+
                 // check if we're supposed to pause...
                 synchronized (sigLock) {
                     while (paused && !halted.get()) {
@@ -267,28 +358,49 @@ public class QuartzSchedulerThread extends Thread {
 
                     long now = System.currentTimeMillis();
 
-                    clearSignaledSchedulingChange();
-                    try {
-                        triggers = qsRsrcs.getJobStore().acquireNextTriggers(
-                                now + idleWaitTime, Math.min(availThreadCount, qsRsrcs.getMaxBatchSize()), qsRsrcs.getBatchTimeWindow());
-                        lastAcquireFailed = false;
-                        if (log.isDebugEnabled()) 
-                            log.debug("batch acquisition of " + (triggers == null ? 0 : triggers.size()) + " triggers");
-                    } catch (JobPersistenceException jpe) {
-                        if(!lastAcquireFailed) {
-                            qs.notifySchedulerListenersError(
-                                "An error occurred while scanning for the next triggers to fire.",
-                                jpe);
-                        }
-                        lastAcquireFailed = true;
-                        continue;
-                    } catch (RuntimeException e) {
-                        if(!lastAcquireFailed) {
-                            getLog().error("quartzSchedulerThreadLoop: RuntimeException "
-                                    +e.getMessage(), e);
+                    if (prefetchedTriggers != null && !prefetchedTriggers.isEmpty()) {
+                        // acquired while waiting on the previous batch; any
+                        // schedule change signaled since then is still pending
+                        triggers = prefetchedTriggers;
+                        prefetchedTriggers = null;
+                        if (log.isDebugEnabled())
+                            log.debug("using prefetched batch of " + triggers.size() + " triggers");
+                    } else {
+                        prefetchedTriggers = null;
+                        clearSignaledSchedulingChange();
+                        try {
+                            int batchSize = Math.min(Math.min(availThreadCount, batchController.getBatchSize())
+                                    + deferredTriggerCount, Math.max(1, qsRsrcs.getMaxBatchSize()));
+                            triggers = acquireNextTriggers(
+                                    now + batchController.getIdleWaitTime(), batchSize, batchController.getBatchTimeWindow());
+                            lastAcquireFailed = false;
+                            if (log.isDebugEnabled()) 
+                                log.debug("batch acquisition of " + (triggers == null ? 0 : triggers.size()) + " triggers");
+                            recordAcquisition(now, batchSize, triggers, availThreadCount, idleWaited);
+                            idleWaited = false;
+                        } catch (JobPersistenceException jpe) {
+                            if(!lastAcquireFailed) {
+                                qs.notifySchedulerListenersError(
+                                    "An error occurred while scanning for the next triggers to fire.",
+                                    jpe);
+                            }
+                            lastAcquireFailed = true;
+                            continue;
+                        } catch (RuntimeException e) {
+                            if(!lastAcquireFailed) {
+                                getLog().error("quartzSchedulerThreadLoop: RuntimeException "
+                                        +e.getMessage(), e);
+                            }
+                            lastAcquireFailed = true;
+                            continue;
                         }
-                        lastAcquireFailed = true;
-                        continue;
+                    }
+
+                    // if every trigger acquired waits for room in its
+                    // partition, we fall through to the idle wait below,
+                    // which a partition with room again cuts short
+                    if (qsRsrcs.getThreadPool() instanceof PartitionedThreadPool) {
+                        triggers = keepTriggersWithPartitionRoom(triggers, availThreadCount);
                     }
 
                     if (triggers != null && !triggers.isEmpty()) {
@@ -296,7 +408,15 @@ public class QuartzSchedulerThread extends Thread {
                         now = System.currentTimeMillis();
                         long triggerTime = triggers.get(0).getNextFireTime().getTime();
                         long timeUntilTrigger = triggerTime - now;
+                        if (precisionClock != null) {
+                            waitPrecisely(triggers, triggerTime, availThreadCount);
+                            timeUntilTrigger = 0;
+                        }
                         while(timeUntilTrigger > 2) {
+                            if (prefetchedTriggers == null && qsRsrcs.isPipelineTriggerAcquisition()
+                                    && timeUntilTrigger > getAcquisitionCost()) {
+                                prefetchNextTriggers(availThreadCount - triggers.size());
+                            }
                             synchronized (sigLock) {
                                 if (halted.get()) {
                                     break;
@@ -333,7 +453,9 @@ public class QuartzSchedulerThread extends Thread {
                         }
                         if(goAhead) {
                             try {
+                                long firedStart = System.nanoTime();
                                 List<TriggerFiredResult> res = qsRsrcs.getJobStore().triggersFired(triggers);
+                                qs.getSampledStatistics().recordTriggersFired((System.nanoTime() - firedStart) / 1000L);
                                 if(res != null)
                                     bndles = res;
                             } catch (SchedulerException se) {
@@ -369,6 +491,10 @@ public class QuartzSchedulerThread extends Thread {
                                 continue;
                             }
 
+                            if (bndle.getScheduledFireTime() != null) {
+                                recordFireLag(bndle.getScheduledFireTime().getTime());
+                            }
+
                             JobRunShell shell = null;
                             try {
                                 shell = qsRsrcs.getJobRunShellFactory().createJobRunShell(bndle);
@@ -408,6 +534,7 @@ public class QuartzSchedulerThread extends Thread {
                         // scheduled very soon
                         if (!isScheduleChanged()) {
                           sigLock.wait(timeUntilContinue);
+                          idleWaited = !isScheduleChanged();
                         }
                       }
                     } catch (InterruptedException ignore) {
@@ -419,13 +546,175 @@ public class QuartzSchedulerThread extends Thread {
             }
         } // while (!halted)
 
+        if (prefetchedTriggers != null) {
+            releasePrefetchedTriggers();
+        }
+
         // drop references to scheduler stuff to aid garbage collection...
         qs = null;
         qsRsrcs = null;
     }
 
+    /**
+     * <p>
+     * Acquires the batch that will follow the one currently waiting to fire,
+     * limited to the threads that batch leaves free.  Nothing is retried
+     * until the schedule changes, so an empty or failed prefetch simply
+     * leaves the next batch to the regular acquisition.
+     * </p>
+     */
+    private void prefetchNextTriggers(int availThreadCount) {
+        prefetchedTriggers = new ArrayList<OperableTrigger>();
+        if (availThreadCount < 1) {
+            return;
+        }
+
+        try {
+            long now = System.currentTimeMillis();
+            int batchSize = Math.min(availThreadCount, batchController.getBatchSize());
+            List<OperableTrigger> triggers = acquireNextTriggers(
+                    now + batchController.getIdleWaitTime(), batchSize, batchController.getBatchTimeWindow());
+            recordAcquisition(now, batchSize, triggers, availThreadCount, false);
+            if (triggers != null) {
+                prefetchedTriggers.addAll(triggers);
+            }
+            if (log.isDebugEnabled())
+                log.debug("prefetched batch of " + prefetchedTriggers.size() + " triggers");
+        } catch (JobPersistenceException jpe) {
+            getLog().warn("Failed to prefetch the next triggers to fire: " + jpe.getMessage());
+        } catch (RuntimeException e) {
+            getLog().error("quartzSchedulerThreadLoop: RuntimeException while prefetching triggers "
+                    +e.getMessage(), e);
+        }
+    }
+
+    /**
+     * <p>
+     * Keeps as many of the acquired triggers for each partition of the
+     * thread pool as it has room for, in the order acquired, and at most
+     * <code>maxKept</code> in all, and releases the others; this thread is
+     * signaled once the partitions of those deferred have room again.
+     * </p>
+     */
+    private List<OperableTrigger> keepTriggersWithPartitionRoom(List<OperableTrigger> triggers, int maxKept) {
+        List<OperableTrigger> kept = new ArrayList<OperableTrigger>();
+        int deferred = 0;
+        if (triggers != null && !triggers.isEmpty()) {
+            PartitionedThreadPool threadPool = (PartitionedThreadPool) qsRsrcs.getThreadPool();
+            int[] room = new int[threadPool.getPartitionCount()];
+            Arrays.fill(room, -1);
+            for (OperableTrigger trigger : triggers) {
+                int partition = threadPool.getPartition(trigger);
+                if (room[partition] < 0) {
+                    room[partition] = threadPool.getAvailableThreads(partition);
+                }
+                if (kept.size() >= maxKept) {
+                    qsRsrcs.getJobStore().releaseAcquiredTrigger(trigger);
+                } else if (room[partition] > 0) {
+                    room[partition]--;
+                    kept.add(trigger);
+                } else {
+                    qsRsrcs.getJobStore().releaseAcquiredTrigger(trigger);
+                    threadPool.notifyWhenAvailable(partition, partitionAvailable);
+                    deferred++;
+                }
+            }
+            if (deferred > 0 && log.isDebugEnabled())
+                log.debug("deferred " + deferred + " triggers until their thread pool partition has room");
+        }
+        deferredTriggerCount = deferred;
+        return kept;
+    }
+
+    private List<OperableTrigger> acquireNextTriggers(long noLaterThan, int maxCount, long timeWindow)
+        throws JobPersistenceException {
+        long start = System.nanoTime();
+        try {
+            if (shardCount > 1) {
+                return ((ShardedJobStore) qsRsrcs.getJobStore()).acquireNextTriggers(
+                        noLaterThan, maxCount, timeWindow, shard, shardCount);
+            }
+            return qsRsrcs.getJobStore().acquireNextTriggers(noLaterThan, maxCount, timeWindow);
+        } finally {
+            qs.getSampledStatistics().recordTriggerAcquisition((System.nanoTime() - start) / 1000L);
+        }
+    }
+
+    private void recordAcquisition(long startTime, int batchSize, List<OperableTrigger> triggers,
+            int availThreadCount, boolean afterIdleWait) {
+        long now = System.currentTimeMillis();
+        int returned = (triggers == null) ? 0 : triggers.size();
+        long overdue = (returned == 0) ? 0L : now - triggers.get(0).getNextFireTime().getTime();
+        batchController.recordAcquisition(now - startTime, batchSize, returned,
+                availThreadCount, qsRsrcs.getThreadPool().getPoolSize(), overdue, afterIdleWait);
+    }
+
+    private void recordFireLag(long scheduledFireTime) {
+        long lagMicros;
+        if (precisionClock != null) {
+            lagMicros = (precisionClock.currentTimeNanos() - scheduledFireTime * 1000000L) / 1000L;
+        } else {
+            lagMicros = (System.currentTimeMillis() - scheduledFireTime) * 1000L;
+        }
+        // triggers fired early within the fire-ahead window count as on time
+        fireLagHistogram.record(lagMicros);
+        batchController.recordFireLag(lagMicros / 1000L);
+    }
+
+    /**
+     * <p>
+     * Waits for the fire time of the acquired triggers in precision timing
+     * mode: parks until shortly before it, then spins.  A scheduling change
+     * unparks the thread, so that it can be handled as in the regular wait.
+     * </p>
+     */
+    private void waitPrecisely(List<OperableTrigger> triggers, long triggerTime, int availThreadCount) {
+        precisionClock.calibrateIfStale();
+        long fireNanos = precisionClock.toNanoTime(triggerTime);
+        long nanosUntilTrigger = fireNanos - System.nanoTime();
+        while (nanosUntilTrigger > SPIN_WAIT_NANOS) {
+            if (prefetchedTriggers == null && qsRsrcs.isPipelineTriggerAcquisition()
+                    && nanosUntilTrigger / 1000000L > getAcquisitionCost()) {
+                prefetchNextTriggers(availThreadCount - triggers.size());
+            }
+            boolean park;
+            synchronized (sigLock) {
+                if (halted.get()) {
+                    return;
+                }
+                park = !isCandidateNewTimeEarlierWithinReason(triggerTime, false);
+            }
+            // a signal sent after the check above leaves a permit, so the
+            // park returns at once rather than missing it
+            if (park) {
+                LockSupport.parkNanos(this, fireNanos - System.nanoTime() - SPIN_WAIT_NANOS);
+            }
+            if (releaseIfScheduleChangedSignificantly(triggers, triggerTime)) {
+                return;
+            }
+            nanosUntilTrigger = fireNanos - System.nanoTime();
+        }
+        while (System.nanoTime() - fireNanos < 0) {
+            // spin
+        }
+    }
+
+    private void releasePrefetchedTriggers() {
+        for (OperableTrigger trigger : prefetchedTriggers) {
+            qsRsrcs.getJobStore().releaseAcquiredTrigger(trigger);
+        }
+        prefetchedTriggers = null;
+    }
+
     private boolean releaseIfScheduleChangedSignificantly(
             List<OperableTrigger> triggers, long triggerTime) {
+        // the prefetched batch fires after the current one, so a change may
+        // be significant for it even when it is not for the current batch;
+        // an empty prefetch is simply retried after any change
+        if (prefetchedTriggers != null && isCandidateNewTimeEarlierWithinReason(prefetchedTriggers.isEmpty()
+                ? Long.MAX_VALUE : prefetchedTriggers.get(0).getNextFireTime().getTime(), false)) {
+            releasePrefetchedTriggers();
+        }
         if (isCandidateNewTimeEarlierWithinReason(triggerTime, true)) {
             // above call does a clearSignaledSchedulingChange()
             for (OperableTrigger trigger : triggers) {
@@ -472,7 +761,7 @@ public class QuartzSchedulerThread extends Thread {
             if(earlier) {
                 // so the new time is considered earlier, but is it enough earlier?
                 long diff = oldTime - System.currentTimeMillis();
-                if(diff < (qsRsrcs.getJobStore().supportsPersistence() ? 70L : 7L))
+                if(diff < getAcquisitionCost())
                     earlier = false;
             }
 
@@ -484,6 +773,13 @@ public class QuartzSchedulerThread extends Thread {
         }
     }
 
+    /**
+     * Our guess, in millis, of what it costs to acquire a batch of triggers.
+     */
+    private long getAcquisitionCost() {
+        return qsRsrcs.getJobStore().supportsPersistence() ? 70L : 7L;
+    }
+
     public Logger getLog() {
         return log;
     }
@@ -1,8 +1,46 @@
 package org.quartz.core;
 
+import java.util.Map;
+
+import org.quartz.utils.counter.Histogram;
+
 public interface SampledStatistics {
     long getJobsScheduledMostRecentSample();
     long getJobsExecutingMostRecentSample();
     long getJobsCompletedMostRecentSample();
+
+    /**
+     * Records how long, in millis, a job of the given group ran.
+     */
+    void recordJobExecution(String jobGroup, long durationMillis);
+
+    /**
+     * Records how long, in micros, a <code>JobStore.acquireNextTriggers()</code>
+     * call took.
+     */
+    void recordTriggerAcquisition(long latencyMicros);
+
+    /**
+     * Records how long, in micros, a <code>JobStore.triggersFired()</code>
+     * call took.
+     */
+    void recordTriggersFired(long latencyMicros);
+
+    /**
+     * @return the histogram of how late, in micros, triggers fired; while
+     * statistics are sampled, the one the scheduler always records to
+     * @see QuartzScheduler#getFireLagHistogram()
+     */
+    Histogram getTriggerFireLagHistogram();
+
+    /**
+     * @return the job duration histogram of each job group that ran a job
+     */
+    Map<String, Histogram> getJobExecutionHistograms();
+
+    Histogram getTriggerAcquisitionHistogram();
+
+    Histogram getTriggersFiredHistogram();
+
     void shutdown();
 }
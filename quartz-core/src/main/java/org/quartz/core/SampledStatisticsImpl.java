@@ -1,6 +1,10 @@
 package org.quartz.core;
 
+import java.util.Collections;
+import java.util.Map;
 import java.util.Timer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.quartz.JobDetail;
 import org.quartz.JobExecutionContext;
@@ -12,6 +16,7 @@ import org.quartz.listeners.SchedulerListenerSupport;
 import org.quartz.utils.counter.CounterConfig;
 import org.quartz.utils.counter.CounterManager;
 import org.quartz.utils.counter.CounterManagerImpl;
+import org.quartz.utils.counter.Histogram;
 import org.quartz.utils.counter.sampled.SampledCounter;
 import org.quartz.utils.counter.sampled.SampledCounterConfig;
 import org.quartz.utils.counter.sampled.SampledRateCounterConfig;
@@ -34,6 +39,10 @@ public class SampledStatisticsImpl extends SchedulerListenerSupport implements S
     private final SampledCounter jobsScheduledCount;
     private final SampledCounter jobsExecutingCount;
     private final SampledCounter jobsCompletedCount;
+
+    private final ConcurrentMap<String, Histogram> jobExecutionByGroup = new ConcurrentHashMap<String, Histogram>();
+    private final Histogram triggerAcquisition = new Histogram();
+    private final Histogram triggersFired = new Histogram();
     
     SampledStatisticsImpl(QuartzScheduler scheduler) {
         this.scheduler = scheduler;
@@ -62,6 +71,9 @@ public class SampledStatisticsImpl extends SchedulerListenerSupport implements S
         jobsScheduledCount.getAndReset();
         jobsExecutingCount.getAndReset();
         jobsCompletedCount.getAndReset();
+        jobExecutionByGroup.clear();
+        triggerAcquisition.reset();
+        triggersFired.reset();
     }
     
     public long getJobsCompletedMostRecentSample() {
@@ -76,6 +88,42 @@ public class SampledStatisticsImpl extends SchedulerListenerSupport implements S
         return jobsScheduledCount.getMostRecentSample().getCounterValue();
     }
 
+    public void recordJobExecution(String jobGroup, long durationMillis) {
+        Histogram histogram = jobExecutionByGroup.get(jobGroup);
+        if (histogram == null) {
+            Histogram newHistogram = new Histogram();
+            histogram = jobExecutionByGroup.putIfAbsent(jobGroup, newHistogram);
+            if (histogram == null) {
+                histogram = newHistogram;
+            }
+        }
+        histogram.record(durationMillis);
+    }
+
+    public void recordTriggerAcquisition(long latencyMicros) {
+        triggerAcquisition.record(latencyMicros);
+    }
+
+    public void recordTriggersFired(long latencyMicros) {
+        triggersFired.record(latencyMicros);
+    }
+
+    public Histogram getTriggerFireLagHistogram() {
+        return scheduler.getFireLagHistogram();
+    }
+
+    public Map<String, Histogram> getJobExecutionHistograms() {
+        return Collections.unmodifiableMap(jobExecutionByGroup);
+    }
+
+    public Histogram getTriggerAcquisitionHistogram() {
+        return triggerAcquisition;
+    }
+
+    public Histogram getTriggersFiredHistogram() {
+        return triggersFired;
+    }
+
     public String getName() {
         return NAME;
     }
@@ -45,6 +45,7 @@ public class SchedulerSignalerImpl implements SchedulerSignaler {
 
     protected QuartzScheduler sched;
     protected QuartzSchedulerThread schedThread;
+    protected QuartzSchedulerThread[] schedThreads;
 
     /*
      * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
@@ -55,8 +56,17 @@ public class SchedulerSignalerImpl implements SchedulerSignaler {
      */
 
     public SchedulerSignalerImpl(QuartzScheduler sched, QuartzSchedulerThread schedThread) {
+        this(sched, new QuartzSchedulerThread[] { schedThread });
+    }
+
+    /**
+     * Signals scheduling changes to all the given scheduler threads, each
+     * of which owns one shard of the triggers.
+     */
+    public SchedulerSignalerImpl(QuartzScheduler sched, QuartzSchedulerThread[] schedThreads) {
         this.sched = sched;
-        this.schedThread = schedThread;
+        this.schedThread = schedThreads[0];
+        this.schedThreads = schedThreads;
         
         log.info("Initialized Scheduler Signaller of type: " + getClass());
     }
@@ -85,7 +95,9 @@ public class SchedulerSignalerImpl implements SchedulerSignaler {
     }
 
     public void signalSchedulingChange(long candidateNewNextFireTime) {
-        schedThread.signalSchedulingChange(candidateNewNextFireTime);
+        for (QuartzSchedulerThread thread : schedThreads) {
+            thread.signalSchedulingChange(candidateNewNextFireTime);
+        }
     }
 
     public void notifySchedulerListenersJobDeleted(JobKey jobKey) {
@@ -50,8 +50,87 @@ public interface QuartzSchedulerMBean {
 
     String getThreadPoolClassName();
 
+    /**
+     * @return the number of threads the thread pool may grow to
+     */
     int getThreadPoolSize();
 
+    /**
+     * Change the number of threads the thread pool may grow to, lowering the
+     * number it keeps if that is above it.  Only a
+     * <code>SimpleThreadPool</code> can be resized.
+     */
+    void setThreadPoolSize(int threadPoolSize) throws Exception;
+
+    /**
+     * @return the number of threads the thread pool keeps while idle
+     */
+    int getThreadPoolCoreSize();
+
+    /**
+     * Change the number of threads the thread pool keeps while idle, raising
+     * the number it may grow to if that is below it.  Only a
+     * <code>SimpleThreadPool</code> can be resized.
+     */
+    void setThreadPoolCoreSize(int threadPoolCoreSize) throws Exception;
+
+    /**
+     * @return the number of threads currently in the thread pool
+     */
+    int getThreadPoolCurrentSize();
+
+    /**
+     * Whether the batch size, fire-ahead time window and idle wait time are
+     * tuned at runtime.  The getters below return the values in use and the
+     * values they are converging towards; without adaptive tuning both are
+     * the configured values.
+     */
+    boolean isBatchTriggerAcquisitionAdaptive();
+
+    int getBatchTriggerAcquisitionMaxCount();
+
+    int getTargetBatchTriggerAcquisitionMaxCount();
+
+    long getBatchTriggerAcquisitionFireAheadTimeWindow();
+
+    long getTargetBatchTriggerAcquisitionFireAheadTimeWindow();
+
+    long getIdleWaitTime();
+
+    long getTargetIdleWaitTime();
+
+    /**
+     * @return the moving average of trigger acquisition time, in millis
+     */
+    long getAverageTriggerAcquisitionLatency();
+
+    /**
+     * @return the moving average of how late triggers fire, in millis
+     */
+    long getAverageTriggerFireLag();
+
+    /**
+     * @return how late triggers fired: the upper bound, in micros, of each non empty bucket of the histogram,
+     * mapped to the number of triggers in it
+     */
+    Map<String, Long> getTriggerFireLagHistogram();
+
+    /**
+     * @return the progress of the job store's misfire handling through the
+     * misfired triggers, including an estimate of those remaining, or an
+     * empty map if the job store doesn't report it
+     * @see org.quartz.impl.jdbcjobstore.JobStoreSupport#getMisfireHandlingProgress()
+     */
+    Map<String, Long> getMisfireHandlingProgress();
+
+    /**
+     * @return the sizes of, and the percentiles of the waits for and the use
+     * of connections of, the built-in lightweight connection pools of the
+     * job store's data sources, by data source and metric
+     * @see org.quartz.impl.jdbcjobstore.JobStoreSupport#getConnectionPoolMetrics()
+     */
+    Map<String, Map<String, Long>> getConnectionPoolMetrics();
+
     long getJobsScheduledMostRecentSample();
 
     long getJobsExecutedMostRecentSample();
@@ -60,6 +139,35 @@ public interface QuartzSchedulerMBean {
 
     Map<String, Long> getPerformanceMetrics();
 
+    /*
+     * The latency percentiles below, but for the fire lag, are collected
+     * while sampled statistics are enabled, each as a map of count, mean,
+     * p50, p99, p999 and max.
+     */
+
+    /**
+     * @return percentiles of how late, in micros, triggers fired, which are
+     * always collected
+     */
+    Map<String, Long> getTriggerFireLagPercentiles();
+
+    /**
+     * @return percentiles of how long, in millis, jobs ran, by job group
+     */
+    Map<String, Map<String, Long>> getJobExecutionTimePercentiles();
+
+    /**
+     * @return percentiles of how long, in micros, acquiring triggers from the
+     * job store took
+     */
+    Map<String, Long> getTriggerAcquisitionLatencyPercentiles();
+
+    /**
+     * @return percentiles of how long, in micros, marking acquired triggers
+     * fired in the job store took
+     */
+    Map<String, Long> getTriggersFiredLatencyPercentiles();
+
     /**
      * @return TabularData of CompositeData:JobExecutionContext
      * @throws Exception
@@ -161,6 +161,15 @@ public class JTAJobRunShell extends JobRunShell {
         }
     }
 
+    /**
+     * The UserTransaction is bound to the worker thread, so <code>AsyncJob</code>s
+     * are executed synchronously.
+     */
+    @Override
+    protected boolean canExecuteAsync() {
+        return false;
+    }
+
     /**
      * Override passivate() to ensure we always cleanup the UserTransaction. 
      */
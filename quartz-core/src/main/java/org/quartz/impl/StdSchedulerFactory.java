@@ -29,6 +29,7 @@ import org.quartz.impl.jdbcjobstore.Semaphore;
 import org.quartz.impl.jdbcjobstore.TablePrefixAware;
 import org.quartz.impl.matchers.EverythingMatcher;
 import org.quartz.management.ManagementRESTServiceConfiguration;
+import org.quartz.simpl.BulkheadThreadPool;
 import org.quartz.simpl.RAMJobStore;
 import org.quartz.simpl.SimpleThreadPool;
 import org.quartz.spi.*;
@@ -127,6 +128,20 @@ public class StdSchedulerFactory implements SchedulerFactory {
 
     public static final String PROP_SCHED_MAX_BATCH_SIZE = "org.quartz.scheduler.batchTriggerAcquisitionMaxCount";
 
+    public static final String PROP_SCHED_PIPELINE_TRIGGER_ACQUISITION = "org.quartz.scheduler.pipelineTriggerAcquisition";
+
+    public static final String PROP_SCHED_PRECISION_TIMING = "org.quartz.scheduler.precisionTiming";
+
+    public static final String PROP_SCHED_ADAPTIVE_BATCH = "org.quartz.scheduler.batchTriggerAcquisitionAdaptive";
+
+    public static final String PROP_SCHED_MIN_BATCH_SIZE = "org.quartz.scheduler.batchTriggerAcquisitionMinCount";
+
+    public static final String PROP_SCHED_SCHEDULER_THREAD_COUNT = "org.quartz.scheduler.schedulerThreadCount";
+
+    public static final String PROP_SCHED_MAX_COMPLETION_BATCH_SIZE = "org.quartz.scheduler.batchTriggerCompletionMaxCount";
+
+    public static final String PROP_SCHED_COMPLETION_BATCH_MAX_WAIT = "org.quartz.scheduler.batchTriggerCompletionMaxWait";
+
     public static final String PROP_SCHED_JMX_EXPORT = "org.quartz.scheduler.jmx.export";
 
     public static final String PROP_SCHED_JMX_OBJECT_NAME = "org.quartz.scheduler.jmx.objectName";
@@ -177,12 +192,18 @@ public class StdSchedulerFactory implements SchedulerFactory {
 
     public static final String PROP_THREAD_POOL_CLASS = "org.quartz.threadPool.class";
 
+    public static final String PROP_THREAD_POOL_PARTITION_PREFIX = PROP_THREAD_POOL_PREFIX + ".partition";
+
     public static final String PROP_JOB_STORE_PREFIX = "org.quartz.jobStore";
 
     public static final String PROP_JOB_STORE_LOCK_HANDLER_PREFIX = PROP_JOB_STORE_PREFIX + ".lockHandler";
 
     public static final String PROP_JOB_STORE_LOCK_HANDLER_CLASS = PROP_JOB_STORE_LOCK_HANDLER_PREFIX + ".class";
 
+    public static final String PROP_JOB_STORE_JOB_DATA_SERIALIZER_PREFIX = PROP_JOB_STORE_PREFIX + ".jobDataSerializer";
+
+    public static final String PROP_JOB_STORE_JOB_DATA_SERIALIZER_CLASS = PROP_JOB_STORE_JOB_DATA_SERIALIZER_PREFIX + ".class";
+
     public static final String PROP_TABLE_PREFIX = "tablePrefix";
 
     public static final String PROP_SCHED_NAME = "schedName";
@@ -662,6 +683,19 @@ public class StdSchedulerFactory implements SchedulerFactory {
         boolean skipUpdateCheck = cfg.getBooleanProperty(PROP_SCHED_SKIP_UPDATE_CHECK, false);
         long batchTimeWindow = cfg.getLongProperty(PROP_SCHED_BATCH_TIME_WINDOW, 0L);
         int maxBatchSize = cfg.getIntProperty(PROP_SCHED_MAX_BATCH_SIZE, 1);
+        boolean pipelineTriggerAcquisition = cfg.getBooleanProperty(PROP_SCHED_PIPELINE_TRIGGER_ACQUISITION, false);
+        boolean precisionTiming = cfg.getBooleanProperty(PROP_SCHED_PRECISION_TIMING, false);
+        boolean adaptiveBatch = cfg.getBooleanProperty(PROP_SCHED_ADAPTIVE_BATCH, false);
+        int minBatchSize = cfg.getIntProperty(PROP_SCHED_MIN_BATCH_SIZE, 1);
+        int schedulerThreadCount = cfg.getIntProperty(PROP_SCHED_SCHEDULER_THREAD_COUNT, 1);
+        if (schedulerThreadCount < 1) {
+            throw new SchedulerException(PROP_SCHED_SCHEDULER_THREAD_COUNT + " must be at least 1.");
+        }
+        int maxCompletionBatchSize = cfg.getIntProperty(PROP_SCHED_MAX_COMPLETION_BATCH_SIZE, 1);
+        long completionBatchMaxWait = cfg.getLongProperty(PROP_SCHED_COMPLETION_BATCH_MAX_WAIT, 100L);
+        if (completionBatchMaxWait < 0) {
+            throw new SchedulerException(PROP_SCHED_COMPLETION_BATCH_MAX_WAIT + " of less than 0 ms is not legal.");
+        }
 
         boolean interruptJobsOnShutdown = cfg.getBooleanProperty(PROP_SCHED_INTERRUPT_JOBS_ON_SHUTDOWN, false);
         boolean interruptJobsOnShutdownWithWait = cfg.getBooleanProperty(PROP_SCHED_INTERRUPT_JOBS_ON_SHUTDOWN_WITH_WAIT, false);
@@ -825,7 +859,7 @@ public class StdSchedulerFactory implements SchedulerFactory {
                     + tpClass + "' could not be instantiated.", e);
             throw initException;
         }
-        tProps = cfg.getPropertyGroup(PROP_THREAD_POOL_PREFIX, true);
+        tProps = cfg.getPropertyGroup(PROP_THREAD_POOL_PREFIX, true, new String[] {PROP_THREAD_POOL_PARTITION_PREFIX});
         try {
             setBeanProps(tp, tProps);
         } catch (Exception e) {
@@ -834,6 +868,22 @@ public class StdSchedulerFactory implements SchedulerFactory {
             throw initException;
         }
 
+        if (tp instanceof BulkheadThreadPool) {
+            String[] partitionNames = cfg.getPropertyGroups(PROP_THREAD_POOL_PARTITION_PREFIX);
+            for (String partitionName : partitionNames) {
+                BulkheadThreadPool.Partition partition = new BulkheadThreadPool.Partition(partitionName);
+                tProps = cfg.getPropertyGroup(PROP_THREAD_POOL_PARTITION_PREFIX + "." + partitionName, true);
+                try {
+                    setBeanProps(partition, tProps);
+                    ((BulkheadThreadPool) tp).addPartition(partition);
+                } catch (Exception e) {
+                    initException = new SchedulerException("ThreadPool partition '"
+                            + partitionName + "' could not be configured.", e);
+                    throw initException;
+                }
+            }
+        }
+
         // Get JobStore Properties
         // ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
 
@@ -856,7 +906,7 @@ public class StdSchedulerFactory implements SchedulerFactory {
 
         SchedulerDetailsSetter.setDetails(js, schedName, schedInstId);
 
-        tProps = cfg.getPropertyGroup(PROP_JOB_STORE_PREFIX, true, new String[] {PROP_JOB_STORE_LOCK_HANDLER_PREFIX});
+        tProps = cfg.getPropertyGroup(PROP_JOB_STORE_PREFIX, true, new String[] {PROP_JOB_STORE_LOCK_HANDLER_PREFIX, PROP_JOB_STORE_JOB_DATA_SERIALIZER_PREFIX});
         try {
             setBeanProps(js, tProps);
         } catch (Exception e) {
@@ -898,6 +948,31 @@ public class StdSchedulerFactory implements SchedulerFactory {
                     throw initException;
                 }
             }
+
+            // Install custom JobDataMap and Calendar serializer
+            String serializerClass = cfg.getStringProperty(PROP_JOB_STORE_JOB_DATA_SERIALIZER_CLASS);
+            if (serializerClass != null) {
+                JobDataSerializer serializer = null;
+                try {
+                    serializer = (JobDataSerializer)loadHelper.loadClass(serializerClass).newInstance();
+                } catch (Exception e) {
+                    initException = new SchedulerException("JobStore JobDataSerializer class '" + serializerClass
+                            + "' could not be instantiated.", e);
+                    throw initException;
+                }
+
+                tProps = cfg.getPropertyGroup(PROP_JOB_STORE_JOB_DATA_SERIALIZER_PREFIX, true);
+                try {
+                    setBeanProps(serializer, tProps);
+                } catch (Exception e) {
+                    initException = new SchedulerException("JobStore JobDataSerializer class '" + serializerClass
+                            + "' props could not be configured.", e);
+                    throw initException;
+                }
+
+                ((JobStoreSupport)js).setJobDataSerializer(serializer);
+                getLog().info("Using job data serializer: " + serializerClass);
+            }
         }
 
         // Set up any DataSources
@@ -995,13 +1070,30 @@ public class StdSchedulerFactory implements SchedulerFactory {
                                         + dsNames[i]);
                         throw initException;
                     }
+                    String poolingProvider = pp.getStringProperty(PoolingConnectionProvider.POOLING_PROVIDER,
+                            PoolingConnectionProvider.C3P0_POOLING_PROVIDER);
                     try {
-                        PoolingConnectionProvider cp = new PoolingConnectionProvider(pp.getUnderlyingProperties());
-                        dbMgr = DBConnectionManager.getInstance();
-                        dbMgr.addConnectionProvider(dsNames[i], cp);
-
-                        // Populate the underlying C3P0 data source pool properties
-                        populateProviderWithExtraProps(cp, pp.getUnderlyingProperties());
+                        if (LightweightPoolingConnectionProvider.POOLING_PROVIDER_NAME.equals(poolingProvider)) {
+                            Properties poolProps = new Properties();
+                            poolProps.putAll(pp.getUnderlyingProperties());
+                            if (!poolProps.containsKey(PoolingConnectionProvider.DB_MAX_CONNECTIONS)) {
+                                // a connection for each worker thread, the scheduler thread, the misfire handler and the cluster manager
+                                int maxConnections = tp.getPoolSize() + 2 + (js.isClustered() ? 1 : 0);
+                                poolProps.setProperty(PoolingConnectionProvider.DB_MAX_CONNECTIONS, String.valueOf(maxConnections));
+                            }
+                            LightweightPoolingConnectionProvider cp = new LightweightPoolingConnectionProvider(poolProps);
+                            dbMgr = DBConnectionManager.getInstance();
+                            dbMgr.addConnectionProvider(dsNames[i], cp);
+                        } else if (PoolingConnectionProvider.C3P0_POOLING_PROVIDER.equals(poolingProvider)) {
+                            PoolingConnectionProvider cp = new PoolingConnectionProvider(pp.getUnderlyingProperties());
+                            dbMgr = DBConnectionManager.getInstance();
+                            dbMgr.addConnectionProvider(dsNames[i], cp);
+
+                            // Populate the underlying C3P0 data source pool properties
+                            populateProviderWithExtraProps(cp, pp.getUnderlyingProperties());
+                        } else {
+                            throw new SchedulerException("Unknown pooling provider '" + poolingProvider + "'");
+                        }
                     } catch (Exception sqle) {
                         initException = new SchedulerException(
                                 "Could not initialize DataSource: " + dsNames[i],
@@ -1243,6 +1335,13 @@ public class StdSchedulerFactory implements SchedulerFactory {
             rsrcs.setRunUpdateCheck(!skipUpdateCheck);
             rsrcs.setBatchTimeWindow(batchTimeWindow);
             rsrcs.setMaxBatchSize(maxBatchSize);
+            rsrcs.setPipelineTriggerAcquisition(pipelineTriggerAcquisition);
+            rsrcs.setPrecisionTiming(precisionTiming);
+            rsrcs.setBatchTriggerAcquisitionAdaptive(adaptiveBatch);
+            rsrcs.setMinBatchSize(minBatchSize);
+            rsrcs.setSchedulerThreadCount(schedulerThreadCount);
+            rsrcs.setMaxCompletionBatchSize(maxCompletionBatchSize);
+            rsrcs.setCompletionBatchMaxWait(completionBatchMaxWait);
             rsrcs.setInterruptJobsOnShutdown(interruptJobsOnShutdown);
             rsrcs.setInterruptJobsOnShutdownWithWait(interruptJobsOnShutdownWithWait);
             rsrcs.setJMXExport(jmxExport);
@@ -1369,6 +1468,7 @@ public class StdSchedulerFactory implements SchedulerFactory {
         copyProps.remove(PoolingConnectionProvider.DB_MAX_CACHED_STATEMENTS_PER_CONNECTION);
         copyProps.remove(PoolingConnectionProvider.DB_VALIDATE_ON_CHECKOUT);
         copyProps.remove(PoolingConnectionProvider.DB_VALIDATION_QUERY);
+        copyProps.remove(PoolingConnectionProvider.POOLING_PROVIDER);
         setBeanProps(cp.getDataSource(), copyProps);
     }
 
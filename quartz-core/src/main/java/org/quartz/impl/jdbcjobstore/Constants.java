@@ -58,6 +58,8 @@ public interface Constants {
 
     String TABLE_SCHEDULER_STATE = "SCHEDULER_STATE";
 
+    String TABLE_DATA_VERSIONS = "DATA_VERSIONS";
+
     // TABLE_JOB_DETAILS columns names
     
     String COL_SCHEDULER_NAME = "SCHED_NAME";
@@ -144,6 +146,11 @@ public interface Constants {
 
     String COL_CHECKIN_INTERVAL = "CHECKIN_INTERVAL";
 
+    // TABLE_DATA_VERSIONS columns names
+    String COL_VERSION_NAME = "VERSION_NAME";
+
+    String COL_DATA_VERSION = "DATA_VERSION";
+
     // MISC CONSTANTS
     String DEFAULT_TABLE_PREFIX = "QRTZ_";
 
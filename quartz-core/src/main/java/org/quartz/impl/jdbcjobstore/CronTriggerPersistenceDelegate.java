@@ -5,6 +5,9 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.TimeZone;
 
 import org.quartz.CronScheduleBuilder;
@@ -14,14 +17,18 @@ import org.quartz.TriggerKey;
 import org.quartz.impl.triggers.CronTriggerImpl;
 import org.quartz.spi.OperableTrigger;
 
-public class CronTriggerPersistenceDelegate implements TriggerPersistenceDelegate, StdJDBCConstants {
+public class CronTriggerPersistenceDelegate implements JoinableTriggerPersistenceDelegate, StdJDBCConstants {
 
     protected String tablePrefix;
     protected String schedNameLiteral;
 
+    // the queries of the constants, with the table prefix and scheduler name substituted
+    private Map<String, String> compiledSql = Collections.emptyMap();
+
     public void initialize(String theTablePrefix, String schedName) {
         this.tablePrefix = theTablePrefix;
         this.schedNameLiteral = "'" + schedName + "'";
+        this.compiledSql = Util.rtpAll(getClass(), theTablePrefix, schedNameLiteral);
     }
 
     public String getHandledTriggerTypeDiscriminator() {
@@ -37,7 +44,7 @@ public class CronTriggerPersistenceDelegate implements TriggerPersistenceDelegat
         PreparedStatement ps = null;
 
         try {
-            ps = conn.prepareStatement(Util.rtp(DELETE_CRON_TRIGGER, tablePrefix, schedNameLiteral));
+            ps = conn.prepareStatement(rtp(DELETE_CRON_TRIGGER));
             ps.setString(1, triggerKey.getName());
             ps.setString(2, triggerKey.getGroup());
 
@@ -49,16 +56,11 @@ public class CronTriggerPersistenceDelegate implements TriggerPersistenceDelegat
 
     public int insertExtendedTriggerProperties(Connection conn, OperableTrigger trigger, String state, JobDetail jobDetail) throws SQLException, IOException {
 
-        CronTrigger cronTrigger = (CronTrigger)trigger;
-        
         PreparedStatement ps = null;
         
         try {
-            ps = conn.prepareStatement(Util.rtp(INSERT_CRON_TRIGGER, tablePrefix, schedNameLiteral));
-            ps.setString(1, trigger.getKey().getName());
-            ps.setString(2, trigger.getKey().getGroup());
-            ps.setString(3, cronTrigger.getCronExpression());
-            ps.setString(4, cronTrigger.getTimeZone().getID());
+            ps = conn.prepareStatement(rtp(INSERT_CRON_TRIGGER));
+            setInsertParameters(ps, trigger);
 
             return ps.executeUpdate();
         } finally {
@@ -66,27 +68,46 @@ public class CronTriggerPersistenceDelegate implements TriggerPersistenceDelegat
         }
     }
 
+    public int[] insertExtendedTriggerProperties(Connection conn, List<OperableTrigger> triggers) throws SQLException, IOException {
+
+        PreparedStatement ps = null;
+        
+        try {
+            ps = conn.prepareStatement(rtp(INSERT_CRON_TRIGGER));
+            for (OperableTrigger trigger : triggers) {
+                setInsertParameters(ps, trigger);
+                ps.addBatch();
+            }
+
+            return ps.executeBatch();
+        } finally {
+            Util.closeStatement(ps);
+        }
+    }
+
+    private void setInsertParameters(PreparedStatement ps, OperableTrigger trigger) throws SQLException {
+
+        CronTrigger cronTrigger = (CronTrigger)trigger;
+        
+        ps.setString(1, trigger.getKey().getName());
+        ps.setString(2, trigger.getKey().getGroup());
+        ps.setString(3, cronTrigger.getCronExpression());
+        ps.setString(4, cronTrigger.getTimeZone().getID());
+    }
+
     public TriggerPropertyBundle loadExtendedTriggerProperties(Connection conn, TriggerKey triggerKey) throws SQLException {
 
         PreparedStatement ps = null;
         ResultSet rs = null;
         
         try {
-            ps = conn.prepareStatement(Util.rtp(SELECT_CRON_TRIGGER, tablePrefix, schedNameLiteral));
+            ps = conn.prepareStatement(rtp(SELECT_CRON_TRIGGER));
             ps.setString(1, triggerKey.getName());
             ps.setString(2, triggerKey.getGroup());
             rs = ps.executeQuery();
 
             if (rs.next()) {
-                String cronExpr = rs.getString(COL_CRON_EXPRESSION);
-                String timeZoneId = rs.getString(COL_TIME_ZONE_ID);
-
-                CronScheduleBuilder cb = CronScheduleBuilder.cronSchedule(cronExpr);
-              
-                if (timeZoneId != null) 
-                    cb.inTimeZone(TimeZone.getTimeZone(timeZoneId));
-                
-                return new TriggerPropertyBundle(cb, null, null);
+                return readExtendedTriggerProperties(rs);
             }
             
             throw new IllegalStateException("No record found for selection of Trigger with key: '" + triggerKey + "' and statement: " + Util.rtp(SELECT_CRON_TRIGGER, tablePrefix, schedNameLiteral));
@@ -96,23 +117,68 @@ public class CronTriggerPersistenceDelegate implements TriggerPersistenceDelegat
         }
     }
 
-    public int updateExtendedTriggerProperties(Connection conn, OperableTrigger trigger, String state, JobDetail jobDetail) throws SQLException, IOException {
+    public String getExtendedPropertiesTableName() {
+        return TABLE_CRON_TRIGGERS;
+    }
 
-        CronTrigger cronTrigger = (CronTrigger)trigger;
+    public TriggerPropertyBundle readExtendedTriggerProperties(ResultSet rs) throws SQLException {
+        String cronExpr = rs.getString(COL_CRON_EXPRESSION);
+        String timeZoneId = rs.getString(COL_TIME_ZONE_ID);
+
+        CronScheduleBuilder cb = CronScheduleBuilder.cronSchedule(cronExpr);
+      
+        if (timeZoneId != null) 
+            cb.inTimeZone(TimeZone.getTimeZone(timeZoneId));
         
-        PreparedStatement ps = null;
+        return new TriggerPropertyBundle(cb, null, null);
+    }
 
+    public int updateExtendedTriggerProperties(Connection conn, OperableTrigger trigger, String state, JobDetail jobDetail) throws SQLException, IOException {
+
+        PreparedStatement ps = null;
+        
         try {
-            ps = conn.prepareStatement(Util.rtp(UPDATE_CRON_TRIGGER, tablePrefix, schedNameLiteral));
-            ps.setString(1, cronTrigger.getCronExpression());
-            ps.setString(2, cronTrigger.getTimeZone().getID());
-            ps.setString(3, trigger.getKey().getName());
-            ps.setString(4, trigger.getKey().getGroup());
-            
+            ps = conn.prepareStatement(rtp(UPDATE_CRON_TRIGGER));
+            setUpdateParameters(ps, trigger);
+
             return ps.executeUpdate();
         } finally {
             Util.closeStatement(ps);
         }
     }
 
+    public int[] updateExtendedTriggerProperties(Connection conn, List<OperableTrigger> triggers) throws SQLException, IOException {
+
+        PreparedStatement ps = null;
+        
+        try {
+            ps = conn.prepareStatement(rtp(UPDATE_CRON_TRIGGER));
+            for (OperableTrigger trigger : triggers) {
+                setUpdateParameters(ps, trigger);
+                ps.addBatch();
+            }
+
+            return ps.executeBatch();
+        } finally {
+            Util.closeStatement(ps);
+        }
+    }
+
+    private void setUpdateParameters(PreparedStatement ps, OperableTrigger trigger) throws SQLException {
+
+        CronTrigger cronTrigger = (CronTrigger)trigger;
+        
+        ps.setString(1, cronTrigger.getCronExpression());
+        ps.setString(2, cronTrigger.getTimeZone().getID());
+        ps.setString(3, trigger.getKey().getName());
+        ps.setString(4, trigger.getKey().getGroup());
+    }
+
+    private String rtp(String query) {
+        String sql = compiledSql.get(query);
+        if (sql != null) {
+            return sql;
+        }
+        return Util.rtp(query, tablePrefix, schedNameLiteral);
+    }
 }
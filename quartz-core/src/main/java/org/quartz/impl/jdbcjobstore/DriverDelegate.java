@@ -21,6 +21,7 @@ import java.io.IOException;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.quartz.Calendar;
@@ -236,6 +237,22 @@ public interface DriverDelegate {
     int insertJobDetail(Connection conn, JobDetail job)
         throws IOException, SQLException;
 
+    /**
+     * <p>
+     * Insert the given job detail records in one JDBC batch.
+     * </p>
+     * 
+     * @param conn
+     *          the DB Connection
+     * @param jobs
+     *          the jobs to insert
+     * @return number of rows inserted for each job
+     * @throws IOException
+     *           if there were problems serializing the JobDataMaps
+     */
+    int[] insertJobDetails(Connection conn, List<JobDetail> jobs)
+        throws IOException, SQLException;
+
     /**
      * <p>
      * Update the job detail record.
@@ -303,6 +320,20 @@ public interface DriverDelegate {
     boolean jobExists(Connection conn, JobKey jobKey)
         throws SQLException;
 
+    /**
+     * <p>
+     * Select which of the given jobs exist.
+     * </p>
+     * 
+     * @param conn
+     *          the DB Connection
+     * @param jobKeys
+     *          the jobs to look for
+     * @return the keys of the jobs that exist
+     */
+    Set<JobKey> selectExistingJobKeys(Connection conn, List<JobKey> jobKeys)
+        throws SQLException;
+
     /**
      * <p>
      * Update the job data map for the given job.
@@ -394,6 +425,25 @@ public interface DriverDelegate {
     int insertTrigger(Connection conn, OperableTrigger trigger, String state,
         JobDetail jobDetail) throws SQLException, IOException;
 
+    /**
+     * <p>
+     * Insert the base trigger data, and the extended properties, of the
+     * given triggers in JDBC batches.
+     * </p>
+     * 
+     * @param conn
+     *          the DB Connection
+     * @param triggers
+     *          the triggers to insert
+     * @param states
+     *          the state that each trigger should be stored in
+     * @param jobDetails
+     *          the job of each trigger
+     * @return the number of base rows inserted for each trigger
+     */
+    int[] insertTriggers(Connection conn, List<OperableTrigger> triggers,
+        List<String> states, List<JobDetail> jobDetails) throws SQLException, IOException;
+
     /**
      * <p>
      * Update the base trigger data.
@@ -410,6 +460,25 @@ public interface DriverDelegate {
     int updateTrigger(Connection conn, OperableTrigger trigger, String state,
         JobDetail jobDetail) throws SQLException, IOException;
 
+    /**
+     * <p>
+     * Update the base trigger data, and the extended properties, of the
+     * given triggers in JDBC batches.
+     * </p>
+     * 
+     * @param conn
+     *          the DB Connection
+     * @param triggers
+     *          the triggers to update
+     * @param states
+     *          the state that each trigger should be stored in
+     * @param jobDetails
+     *          the job of each trigger
+     * @return the number of base rows updated for each trigger
+     */
+    int[] updateTriggers(Connection conn, List<OperableTrigger> triggers,
+        List<String> states, List<JobDetail> jobDetails) throws SQLException, IOException;
+
     /**
      * <p>
      * Check whether or not a trigger exists.
@@ -561,6 +630,26 @@ public interface DriverDelegate {
         JobKey jobKey, String state, String oldState)
         throws SQLException;
 
+    /**
+     * <p>
+     * Update the states of any triggers associated with the given jobs, that
+     * are in the given current state, in one JDBC batch.
+     * </p>
+     * 
+     * @param conn
+     *          the DB Connection
+     * @param jobKeys
+     *          the jobs whose triggers to update
+     * @param state
+     *          the new state for the triggers
+     * @param oldState
+     *          the old state of the triggers
+     * @return the number of rows updated for each job
+     */
+    int[] updateTriggerStatesForJobsFromOtherState(Connection conn,
+        List<JobKey> jobKeys, String state, String oldState)
+        throws SQLException;
+
     /**
      * <p>
      * Delete the base trigger data for a trigger.
@@ -684,6 +773,32 @@ public interface DriverDelegate {
      */
     String selectTriggerState(Connection conn, TriggerKey triggerKey) throws SQLException;
 
+    /**
+     * <p>
+     * Select the state values of the given triggers.
+     * </p>
+     * 
+     * @param conn
+     *          the DB Connection
+     * @param triggerKeys
+     *          the triggers to look for
+     * @return the state of each of the triggers that exist, by trigger key
+     */
+    Map<TriggerKey, String> selectTriggerStates(Connection conn, List<TriggerKey> triggerKeys) throws SQLException;
+
+    /**
+     * <p>
+     * Select the status (state & next fire time) of the given triggers.
+     * </p>
+     * 
+     * @param conn
+     *          the DB Connection
+     * @param triggerKeys
+     *          the triggers to look for
+     * @return the status of each of the triggers that exist, by trigger key
+     */
+    Map<TriggerKey, TriggerStatus> selectTriggerStatuses(Connection conn, List<TriggerKey> triggerKeys) throws SQLException;
+
     /**
      * <p>
      * Select a trigger' status (state & next fire time).
@@ -982,6 +1097,137 @@ public interface DriverDelegate {
     int insertFiredTrigger(Connection conn, OperableTrigger trigger,
         String state, JobDetail jobDetail) throws SQLException;
 
+    /**
+     * <p>
+     * Select the keys of the next triggers which will fire between the two
+     * given timestamps, in the order of <code>{@link #selectTriggerToAcquire(Connection, long, long, int)}</code>,
+     * along with the keys of their jobs, reading only the triggers table.
+     * </p>
+     * 
+     * @param conn
+     *          the DB Connection
+     * @param noLaterThan
+     *          highest value of <code>getNextFireTime()</code> of the triggers (exclusive)
+     * @param noEarlierThan 
+     *          highest value of <code>getNextFireTime()</code> of the triggers (inclusive)
+     * @param maxCount 
+     *          maximum number of trigger keys to return.
+     *          
+     * @return A (never null, possibly empty) map, iterating in fire order,
+     *         of the keys of the next triggers to be fired to the keys of their jobs.
+     */
+    Map<TriggerKey, JobKey> selectJobKeysOfTriggersToAcquire(Connection conn, long noLaterThan, long noEarlierThan, int maxCount)
+        throws SQLException;
+
+    /**
+     * <p>
+     * Select the next triggers which will fire between the two given
+     * timestamps, in the order of <code>{@link #selectTriggerToAcquire(Connection, long, long, int)}</code>,
+     * loading each trigger along with whether its job disallows concurrent
+     * execution, in as few queries as possible.
+     * </p>
+     * 
+     * @param conn
+     *          the DB Connection
+     * @param noLaterThan
+     *          highest value of <code>getNextFireTime()</code> of the triggers (exclusive)
+     * @param noEarlierThan 
+     *          highest value of <code>getNextFireTime()</code> of the triggers (inclusive)
+     * @param maxCount 
+     *          maximum number of triggers to return.
+     *          
+     * @return A (never null, possibly empty) list of the next triggers to be fired.
+     */
+    List<AcquirableTrigger> selectTriggersToAcquire(Connection conn, long noLaterThan, long noEarlierThan, int maxCount)
+        throws SQLException, ClassNotFoundException, IOException, JobPersistenceException;
+
+    /**
+     * <p>
+     * Select the next triggers which will fire between the two given
+     * timestamps like <code>{@link #selectTriggersToAcquire(Connection, long, long, int)}</code>,
+     * locking their rows until the end of the transaction, and skipping the
+     * rows other transactions have locked, so that several schedulers can
+     * acquire disjoint triggers at the same time.
+     * </p>
+     * 
+     * @throws UnsupportedOperationException
+     *          if the database cannot skip locked rows
+     * @see #supportsSkipLocked()
+     */
+    List<AcquirableTrigger> selectTriggersToAcquireSkipLocked(Connection conn, long noLaterThan, long noEarlierThan, int maxCount)
+        throws SQLException, ClassNotFoundException, IOException, JobPersistenceException;
+
+    /**
+     * @return whether the database supports
+     * <code>{@link #selectTriggersToAcquireSkipLocked(Connection, long, long, int)}</code>
+     */
+    boolean supportsSkipLocked();
+
+    /**
+     * <p>
+     * Select a page of the triggers in the given state that have misfired
+     * according to the given timestamp, in ascending order of fire time and
+     * then of trigger group and name, starting after the given trigger, so
+     * that a large number of misfired triggers can be paged through without
+     * reading the same rows again.
+     * </p>
+     * 
+     * @param conn
+     *          the DB Connection
+     * @param state
+     *          the state of the triggers
+     * @param ts
+     *          the misfire time: triggers must be due before it
+     * @param afterNextFireTime
+     *          the next fire time of the last trigger of the previous page
+     * @param afterKey
+     *          the last trigger of the previous page, or null for the first page
+     * @param maxCount
+     *          the maximum number of triggers to return
+     * @return the (never null, possibly empty) page of misfired triggers
+     */
+    List<OperableTrigger> selectMisfiredTriggersInStatePage(Connection conn, String state, long ts,
+            long afterNextFireTime, TriggerKey afterKey, int maxCount)
+        throws SQLException, ClassNotFoundException, IOException, JobPersistenceException;
+
+    /**
+     * <p>
+     * Update the given triggers to the given new state, if they are in the
+     * given old state, in one JDBC batch.
+     * </p>
+     * 
+     * @param conn
+     *          the DB connection
+     * @param triggerKeys
+     *          the triggers to update
+     * @param newState
+     *          the new state for the triggers
+     * @param oldState
+     *          the old state the triggers must be in
+     * @return the number of rows updated for each trigger, or
+     *          <code>Statement.SUCCESS_NO_INFO</code>
+     */
+    int[] updateTriggerStatesFromOtherState(Connection conn,
+        List<TriggerKey> triggerKeys, String newState, String oldState) throws SQLException;
+
+    /**
+     * <p>
+     * Insert fired trigger records for the given triggers, which are not yet
+     * executing a job, in one JDBC batch.
+     * </p>
+     * 
+     * @param conn
+     *          the DB Connection
+     * @param triggers
+     *          the triggers
+     * @param state
+     *          the state that the triggers should be stored in
+     * @return the number of rows inserted for each trigger, or
+     *          <code>Statement.SUCCESS_NO_INFO</code>
+     */
+    int[] insertFiredTriggers(Connection conn, List<OperableTrigger> triggers,
+        String state) throws SQLException;
+
     /**
      * <p>
      * Update a fired trigger record.  Will update the fields  
@@ -999,6 +1245,25 @@ public interface DriverDelegate {
     int updateFiredTrigger(Connection conn, OperableTrigger trigger,
         String state, JobDetail jobDetail) throws SQLException;
 
+    /**
+     * <p>
+     * Update the fired trigger records of the given triggers in one JDBC
+     * batch.
+     * </p>
+     * 
+     * @param conn
+     *          the DB Connection
+     * @param triggers
+     *          the triggers
+     * @param state
+     *          the state that the triggers should be stored in
+     * @param jobDetails
+     *          the job of each trigger
+     * @return the number of rows updated for each trigger
+     */
+    int[] updateFiredTriggers(Connection conn, List<OperableTrigger> triggers,
+        String state, List<JobDetail> jobDetails) throws SQLException;
+
     /**
      * <p>
      * Select the states of all fired-trigger records for a given trigger, or
@@ -1060,6 +1325,20 @@ public interface DriverDelegate {
     int deleteFiredTrigger(Connection conn, String entryId)
         throws SQLException;
 
+    /**
+     * <p>
+     * Delete the given fired triggers, in one JDBC batch.
+     * </p>
+     * 
+     * @param conn
+     *          the DB Connection
+     * @param entryIds
+     *          the fired trigger entries to delete
+     * @return the number of rows deleted for each entry
+     */
+    int[] deleteFiredTriggers(Connection conn, List<String> entryIds)
+        throws SQLException;
+
     /**
      * <p>
      * Get the number instances of the identified job currently executing.
@@ -1126,6 +1405,33 @@ public interface DriverDelegate {
     List<SchedulerStateRecord> selectSchedulerStateRecords(Connection conn, String instanceId)
         throws SQLException;
 
+    /**
+     * <p>
+     * Select the data version counters of the scheduler, which are
+     * incremented whenever the data they cover changes.
+     * </p>
+     * 
+     * @param conn
+     *          the DB Connection
+     * @return the value of each counter, by name; counters that were never
+     *         incremented are missing
+     */
+    Map<String, Long> selectDataVersions(Connection conn)
+        throws SQLException;
+
+    /**
+     * <p>
+     * Increment the given data version counter of the scheduler.
+     * </p>
+     * 
+     * @param conn
+     *          the DB Connection
+     * @param versionName
+     *          the name of the counter
+     */
+    void incrementDataVersion(Connection conn, String versionName)
+        throws SQLException;
+
     /**
      * Clear (delete!) all scheduling data - all {@link Job}s, {@link Trigger}s
      * {@link Calendar}s.
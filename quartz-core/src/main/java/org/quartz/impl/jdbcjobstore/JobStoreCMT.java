@@ -20,6 +20,7 @@ package org.quartz.impl.jdbcjobstore;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.Set;
 
 import org.quartz.JobPersistenceException;
 import org.quartz.SchedulerConfigException;
@@ -91,6 +92,15 @@ public class JobStoreCMT extends JobStoreSupport {
         return nonManagedTxDsName;
     }
 
+    @Override
+    protected Set<String> getDataSourceNames() {
+        Set<String> names = super.getDataSourceNames();
+        if (getNonManagedTXDataSource() != null) {
+            names.add(getNonManagedTXDataSource());
+        }
+        return names;
+    }
+
     public boolean isDontSetNonManagedTXConnectionAutoCommitFalse() {
         return dontSetNonManagedTXConnectionAutoCommitFalse;
     }
@@ -248,6 +258,7 @@ public class JobStoreCMT extends JobStoreSupport {
                 releaseLock(LOCK_TRIGGER_ACCESS, transOwner);
             } finally {
                 cleanupConnection(conn);
+                dataChanged(lockName);
             }
         }
     }
@@ -22,14 +22,19 @@ import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Proxy;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.quartz.Calendar;
 import org.quartz.Job;
@@ -51,14 +56,20 @@ import org.quartz.impl.matchers.GroupMatcher;
 import org.quartz.impl.matchers.StringMatcher;
 import org.quartz.impl.matchers.StringMatcher.StringOperatorName;
 import org.quartz.impl.triggers.SimpleTriggerImpl;
+import org.quartz.spi.BatchingJobStore;
 import org.quartz.spi.ClassLoadHelper;
-import org.quartz.spi.JobStore;
+import org.quartz.spi.JobDataSerializer;
 import org.quartz.spi.OperableTrigger;
 import org.quartz.spi.SchedulerSignaler;
+import org.quartz.spi.ShardedJobStore;
 import org.quartz.spi.ThreadExecutor;
+import org.quartz.spi.TriggerCompletedBundle;
 import org.quartz.spi.TriggerFiredBundle;
 import org.quartz.spi.TriggerFiredResult;
+import org.quartz.utils.ConnectionProvider;
 import org.quartz.utils.DBConnectionManager;
+import org.quartz.utils.LightweightPoolingConnectionProvider;
+import org.quartz.utils.TriggerShards;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -71,7 +82,7 @@ import org.slf4j.LoggerFactory;
  * @author <a href="mailto:jeff@binaryfeed.org">Jeffrey Wescott</a>
  * @author James House
  */
-public abstract class JobStoreSupport implements JobStore, Constants {
+public abstract class JobStoreSupport implements ShardedJobStore, BatchingJobStore, Constants {
 
     /*
      * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
@@ -85,6 +96,14 @@ public abstract class JobStoreSupport implements JobStore, Constants {
 
     protected static final String LOCK_STATE_ACCESS = "STATE_ACCESS";
 
+    // the number of rows written by each JDBC batch when storing many jobs and triggers
+    protected static final int STORE_BATCH_SIZE = 500;
+
+    // the data version counters invalidating the job and calendar caches
+    protected static final String VERSION_JOBS = "JOBS";
+
+    protected static final String VERSION_CALENDARS = "CALENDARS";
+
     /*
      * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
      * 
@@ -95,6 +114,8 @@ public abstract class JobStoreSupport implements JobStore, Constants {
 
     protected String dsName;
 
+    protected String readDsName;
+
     protected String tablePrefix = DEFAULT_TABLE_PREFIX;
 
     protected boolean useProperties = false;
@@ -138,10 +159,56 @@ public abstract class JobStoreSupport implements JobStore, Constants {
     private SchedulerSignaler schedSignaler;
 
     protected int maxToRecoverAtATime = 20;
+
+    private long misfireHandlingTimeBudget = 500L;
+
+    // where the misfire handler's sweep through the misfired triggers stopped, between passes
+    private long misfireCursorNextFireTime;
+    private TriggerKey misfireCursorKey;
+
+    // the misfire handler's progress, see getMisfireHandlingProgress()
+    private volatile boolean misfireSweepInProgress = false;
+    private volatile long misfireSweepStartTime;
+    private volatile long misfireSweepBacklog = -1L;
+    private volatile long misfiresHandledInSweep;
+    private volatile long misfiresHandled;
+    private volatile long misfirePagesHandled;
+    private volatile long lastMisfireSweepDuration;
     
     private boolean setTxIsolationLevelSequential = false;
     
     private boolean acquireTriggersWithinLock = false;
+
+    private boolean bulkTriggerAcquisition = false;
+
+    private boolean batchTriggersFired = false;
+
+    private boolean acquireTriggersWithSkipLocked = false;
+
+    // whether the delegate supports acquireTriggersWithSkipLocked, once known
+    private volatile Boolean skipLockedSupported = null;
+
+    private int triggerAccessLockPartitions = 1;
+
+    private final AtomicInteger nextAcquisitionPartition = new AtomicInteger();
+
+    private int jobAndCalendarCacheSize = 0;
+
+    private JobDataSerializer jobDataSerializer;
+
+    private boolean cacheStatements = false;
+
+    private long readDataSourceMaxLag = 5000L;
+
+    // when this job store last changed data with a lock, to route reads
+    private volatile long lastChangeTime = 0L;
+
+    private VersionedCache<JobKey, JobDetail> jobCache;
+
+    private VersionedCache<String, Calendar> versionedCalendarCache;
+
+    // the data versions read in the current thread's transaction
+    private final ThreadLocal<DataVersions> dataVersions = new ThreadLocal<DataVersions>();
     
     private long dbRetryInterval = 15000L; // 15 secs
     
@@ -187,6 +254,56 @@ public abstract class JobStoreSupport implements JobStore, Constants {
         return dsName;
     }
 
+    /**
+     * <p>
+     * Set the name of a <code>DataSource</code>, typically of a read
+     * replica of the database, to be used for the reads that need no lock,
+     * such as those of <code>{@link #getJobKeys(GroupMatcher)}</code> and
+     * <code>{@link #getTriggerState(TriggerKey)}</code>.  Acquiring and
+     * firing triggers always use the primary data source.  With
+     * <code>JobStoreCMT</code>, these reads are not part of the managed
+     * transaction.  Defaults to null, for all reads to use the primary
+     * data source.
+     * </p>
+     */
+    @SuppressWarnings("UnusedDeclaration") /* called reflectively */
+    public void setReadDataSource(String readDsName) {
+        this.readDsName = readDsName;
+    }
+
+    /**
+     * <p>
+     * Get the name of the <code>DataSource</code> that should be used for
+     * the reads that need no lock, or null if they use the primary one.
+     * </p>
+     */
+    public String getReadDataSource() {
+        return readDsName;
+    }
+
+    public long getReadDataSourceMaxLag() {
+        return readDataSourceMaxLag;
+    }
+
+    /**
+     * <p>
+     * Set the staleness, in milliseconds, tolerated of the read data
+     * source: how far it may lag behind the primary data source.  For this
+     * long after this job store changes jobs, triggers or calendars, reads
+     * use the primary data source, so that they see the change.  Changes
+     * made by other nodes of a cluster, by firing triggers, and inserts
+     * made without a lock (see <code>{@link #setLockOnInsert(boolean)}</code>)
+     * may be read this much later.  Defaults to 5000.
+     * </p>
+     */
+    @SuppressWarnings("UnusedDeclaration") /* called reflectively */
+    public void setReadDataSourceMaxLag(long readDataSourceMaxLag) {
+        if (readDataSourceMaxLag < 0) {
+            throw new IllegalArgumentException("readDataSourceMaxLag must not be negative");
+        }
+        this.readDataSourceMaxLag = readDataSourceMaxLag;
+    }
+
     /**
      * <p>
      * Set the prefix that should be pre-pended to all table names.
@@ -328,8 +445,8 @@ public abstract class JobStoreSupport implements JobStore, Constants {
     /**
      * <p>
      * Get the maximum number of misfired triggers that the misfire handling
-     * thread will try to recover at one time (within one transaction).  The
-     * default is 20.
+     * thread will try to recover at one time (within one transaction, and
+     * one hold of the <code>TRIGGER_ACCESS</code> lock).  The default is 20.
      * </p>
      */
     public int getMaxMisfiresToHandleAtATime() {
@@ -348,6 +465,104 @@ public abstract class JobStoreSupport implements JobStore, Constants {
         this.maxToRecoverAtATime = maxToRecoverAtATime;
     }
 
+    public long getMisfireHandlingTimeBudget() {
+        return misfireHandlingTimeBudget;
+    }
+
+    /**
+     * <p>
+     * Set the number of milliseconds the misfire handling thread may spend
+     * going through pages of misfired triggers before pausing briefly, and
+     * signaling the scheduler of the triggers it updated.  The
+     * <code>TRIGGER_ACCESS</code> lock is released after each page
+     * regardless.  The default is 500.
+     * </p>
+     */
+    @SuppressWarnings("UnusedDeclaration") /* called reflectively */
+    public void setMisfireHandlingTimeBudget(long misfireHandlingTimeBudget) {
+        this.misfireHandlingTimeBudget = misfireHandlingTimeBudget;
+    }
+
+    /**
+     * <p>
+     * Get the progress of the misfire handling thread through the misfired
+     * triggers, as:
+     * </p>
+     * <ul>
+     * <li><code>sweepInProgress</code>: 1 if it is going through misfired
+     * triggers, 0 if it found none last time it looked</li>
+     * <li><code>handledInSweep</code>: the triggers handled since it found
+     * misfired triggers</li>
+     * <li><code>remaining</code>: an estimate of the misfired triggers left
+     * to handle, or -1 if unknown (when
+     * <code>doubleCheckLockMisfireHandler</code> is off)</li>
+     * <li><code>handled</code> and <code>pages</code>: the triggers and
+     * pages handled since the job store started</li>
+     * <li><code>lastSweepDuration</code>: how long, in millis, the handling
+     * of the previous batch of misfired triggers took</li>
+     * </ul>
+     */
+    public Map<String, Long> getMisfireHandlingProgress() {
+        long backlog = misfireSweepBacklog;
+        long handledInSweep = misfiresHandledInSweep;
+        Map<String, Long> progress = new LinkedHashMap<String, Long>();
+        progress.put("sweepInProgress", Long.valueOf(misfireSweepInProgress ? 1L : 0L));
+        progress.put("handledInSweep", Long.valueOf(handledInSweep));
+        progress.put("remaining", Long.valueOf(backlog < 0 ? -1L : Math.max(0L, backlog - handledInSweep)));
+        progress.put("handled", Long.valueOf(misfiresHandled));
+        progress.put("pages", Long.valueOf(misfirePagesHandled));
+        progress.put("lastSweepDuration", Long.valueOf(lastMisfireSweepDuration));
+        return progress;
+    }
+
+    /**
+     * Returns the metrics of the pools of the data sources of this job store
+     * that are <code>{@link LightweightPoolingConnectionProvider}</code>s.
+     * For each such data source <code>NAME</code>, the map has:
+     * <ul>
+     * <li><code>NAME.connections</code>: the <code>max</code>,
+     * <code>open</code> and <code>active</code> connections, and the
+     * threads <code>waiting</code> for one</li>
+     * <li><code>NAME.acquisitionWaitMicros</code>: the percentiles of how
+     * long getting a connection took</li>
+     * <li><code>NAME.usageMicros</code>: the percentiles of how long
+     * connections were used</li>
+     * </ul>
+     */
+    public Map<String, Map<String, Long>> getConnectionPoolMetrics() {
+        Map<String, Map<String, Long>> metrics = new LinkedHashMap<String, Map<String, Long>>();
+        for (String name : getDataSourceNames()) {
+            ConnectionProvider provider = DBConnectionManager.getInstance().getConnectionProvider(name);
+            if (!(provider instanceof LightweightPoolingConnectionProvider)) {
+                continue;
+            }
+            LightweightPoolingConnectionProvider pool = (LightweightPoolingConnectionProvider) provider;
+            Map<String, Long> connections = new LinkedHashMap<String, Long>();
+            connections.put("max", Long.valueOf(pool.getMaxConnections()));
+            connections.put("open", Long.valueOf(pool.getOpenConnectionCount()));
+            connections.put("active", Long.valueOf(pool.getActiveConnectionCount()));
+            connections.put("waiting", Long.valueOf(pool.getWaitingThreadCount()));
+            metrics.put(name + ".connections", connections);
+            metrics.put(name + ".acquisitionWaitMicros", pool.getAcquisitionWaitHistogram().getPercentiles());
+            metrics.put(name + ".usageMicros", pool.getUsageHistogram().getPercentiles());
+        }
+        return metrics;
+    }
+
+    /**
+     * @return the names of the data sources this job store uses
+     */
+    protected Set<String> getDataSourceNames() {
+        Set<String> names = new LinkedHashSet<String>();
+        if (getDataSource() != null) {
+            names.add(getDataSource());
+        }
+        if (getReadDataSource() != null) {
+            names.add(getReadDataSource());
+        }
+        return names;
+    }
+
     /**
      * @return Returns the dbRetryInterval.
      */
@@ -482,6 +697,193 @@ public abstract class JobStoreSupport implements JobStore, Constants {
         this.acquireTriggersWithinLock = acquireTriggersWithinLock;
     }
 
+    /**
+     * Whether triggers acquired under the <code>TRIGGER_ACCESS</code> lock
+     * (see <code>{@link #isAcquireTriggersWithinLock()}</code>) are loaded,
+     * along with their jobs' concurrency flags, by one joined query, and
+     * then marked as acquired and recorded as fired triggers with JDBC
+     * batches, rather than with several statements per trigger.
+     */
+    public boolean isBulkTriggerAcquisition() {
+        return bulkTriggerAcquisition;
+    }
+
+    /**
+     * Whether triggers acquired under the <code>TRIGGER_ACCESS</code> lock
+     * should be loaded by one joined query, and updated with JDBC batches.
+     * Triggers stored as blobs, or whose <code>TriggerPersistenceDelegate</code>
+     * is not a <code>{@link JoinableTriggerPersistenceDelegate}</code>, are
+     * still loaded one by one.  Defaults to false.
+     */
+    @SuppressWarnings("UnusedDeclaration") /* called reflectively */
+    public void setBulkTriggerAcquisition(boolean bulkTriggerAcquisition) {
+        this.bulkTriggerAcquisition = bulkTriggerAcquisition;
+    }
+
+    /**
+     * Whether <code>{@link #triggersFired(List)}</code> reads the states of
+     * the fired triggers with one query, and writes the fired trigger
+     * records, the blocked states of non-concurrent jobs' triggers and the
+     * triggers themselves with JDBC batches, rather than with several
+     * statements per trigger.
+     */
+    public boolean isBatchTriggersFired() {
+        return batchTriggersFired;
+    }
+
+    /**
+     * Whether <code>{@link #triggersFired(List)}</code> should read and write
+     * the whole batch of fired triggers with a few queries and JDBC batches.
+     * A trigger whose job or calendar can not be retrieved still gets its
+     * own failed <code>TriggerFiredResult</code>, but if one of the batches
+     * fails the whole call fails (and its transaction is rolled back),
+     * rather than only the triggers it was writing.  Defaults to false.
+     */
+    @SuppressWarnings("UnusedDeclaration") /* called reflectively */
+    public void setBatchTriggersFired(boolean batchTriggersFired) {
+        this.batchTriggersFired = batchTriggersFired;
+    }
+
+    /**
+     * Whether triggers are acquired without the <code>TRIGGER_ACCESS</code>
+     * lock, by selecting their rows <code>FOR UPDATE SKIP LOCKED</code>,
+     * when the driver delegate supports it.
+     * 
+     * @see DriverDelegate#supportsSkipLocked()
+     */
+    public boolean isAcquireTriggersWithSkipLocked() {
+        return acquireTriggersWithSkipLocked;
+    }
+
+    /**
+     * Whether triggers should be acquired by locking their own rows, skipping
+     * the rows locked by other schedulers, rather than under the cluster-wide
+     * <code>TRIGGER_ACCESS</code> lock, so that the nodes of a cluster can
+     * acquire disjoint batches of triggers at the same time.  Supported by
+     * the PostgreSQL (9.5 and later), MySQL 8 and Oracle delegates; with
+     * other delegates triggers are still acquired under the lock.  Defaults
+     * to false.
+     */
+    @SuppressWarnings("UnusedDeclaration") /* called reflectively */
+    public void setAcquireTriggersWithSkipLocked(boolean acquireTriggersWithSkipLocked) {
+        this.acquireTriggersWithSkipLocked = acquireTriggersWithSkipLocked;
+    }
+
+    /**
+     * Get the number of partitions of the <code>TRIGGER_ACCESS</code> lock.
+     */
+    public int getTriggerAccessLockPartitions() {
+        return triggerAccessLockPartitions;
+    }
+
+    /**
+     * Set the number of partitions of the <code>TRIGGER_ACCESS</code> lock,
+     * <code>TRIGGER_ACCESS_0</code> to <code>TRIGGER_ACCESS_&lt;n-1&gt;</code>,
+     * each guarding the triggers of the jobs whose key hashes to it (so that
+     * the triggers of a job that disallows concurrent execution share one).
+     * Acquiring, firing and completing triggers then only locks the partition
+     * involved (acquisitions visit the partitions one at a time, each starting
+     * with the next one), so that the nodes of a cluster can work on different
+     * partitions at the same time.
+     * All the other operations lock every partition.  Defaults to 1, the
+     * single <code>TRIGGER_ACCESS</code> lock; all the nodes of a cluster
+     * must use the same value.
+     * 
+     * @see PartitionedTriggerAccessSemaphore
+     */
+    @SuppressWarnings("UnusedDeclaration") /* called reflectively */
+    public void setTriggerAccessLockPartitions(int triggerAccessLockPartitions) {
+        if (triggerAccessLockPartitions < 1) {
+            throw new IllegalArgumentException("triggerAccessLockPartitions must be at least 1");
+        }
+        this.triggerAccessLockPartitions = triggerAccessLockPartitions;
+    }
+
+    /**
+     * Get the maximum number of <code>JobDetail</code>s, and of
+     * <code>Calendar</code>s, kept in the job store's caches.
+     */
+    public int getJobAndCalendarCacheSize() {
+        return jobAndCalendarCacheSize;
+    }
+
+    /**
+     * Set the maximum number of <code>JobDetail</code>s, and of
+     * <code>Calendar</code>s, to keep in least recently used caches, so that
+     * firing a trigger does not read and deserialize its job and calendar
+     * again.  Jobs that persist their job data after execution are not
+     * cached.
+     * 
+     * <p>
+     * The caches are invalidated through the <code>DATA_VERSIONS</code>
+     * table: every change to a stored job or calendar increments a counter
+     * row, which each transaction using the caches reads once, so they are
+     * coherent across a cluster, provided that all of its nodes enable them.
+     * Defaults to 0, which disables the caches.
+     * </p>
+     */
+    @SuppressWarnings("UnusedDeclaration") /* called reflectively */
+    public void setJobAndCalendarCacheSize(int jobAndCalendarCacheSize) {
+        if (jobAndCalendarCacheSize < 0) {
+            throw new IllegalArgumentException("jobAndCalendarCacheSize must not be negative");
+        }
+        this.jobAndCalendarCacheSize = jobAndCalendarCacheSize;
+    }
+
+    public JobDataSerializer getJobDataSerializer() {
+        return jobDataSerializer;
+    }
+
+    /**
+     * Set the serializer of the <code>JobDataMap</code>s (unless
+     * <code>useProperties</code> is set) and <code>Calendar</code>s written
+     * to the database.  Defaults to null, for standard Java serialization.
+     * It must be set before the job store is initialized, and must be the
+     * same for all the nodes of a cluster.
+     */
+    public void setJobDataSerializer(JobDataSerializer jobDataSerializer) {
+        this.jobDataSerializer = jobDataSerializer;
+    }
+
+    public boolean isCacheStatements() {
+        return cacheStatements;
+    }
+
+    /**
+     * Set whether the statements run for each trigger that is acquired,
+     * fired or completed are prepared once for each connection obtained
+     * from the data source, rather than once per use.  Reusing them across
+     * connections is left to the connection pool, such as with the
+     * <code>maxCachedStatementsPerConnection</code> property of the data
+     * sources of <code>{@link org.quartz.utils.PoolingConnectionProvider}</code>.
+     * Defaults to false.
+     */
+    @SuppressWarnings("UnusedDeclaration") /* called reflectively */
+    public void setCacheStatements(boolean cacheStatements) {
+        this.cacheStatements = cacheStatements;
+    }
+
+    /**
+     * @return whether triggers are to be acquired with
+     * <code>{@link DriverDelegate#selectTriggersToAcquireSkipLocked(Connection, long, long, int)}</code>
+     */
+    protected boolean isSkipLockedAcquisition() throws JobPersistenceException {
+        if (!isAcquireTriggersWithSkipLocked()) {
+            return false;
+        }
+        Boolean supported = skipLockedSupported;
+        if (supported == null) {
+            supported = Boolean.valueOf(getDelegate().supportsSkipLocked());
+            if (!supported.booleanValue()) {
+                getLog().warn("Driver delegate " + getDelegate().getClass().getName()
+                        + " cannot skip locked rows, triggers will be acquired under the "
+                        + LOCK_TRIGGER_ACCESS + " lock.");
+            }
+            skipLockedSupported = supported;
+        }
+        return supported.booleanValue();
+    }
+
     
     /**
      * <p>
@@ -673,6 +1075,17 @@ public abstract class JobStoreSupport implements JobStore, Constants {
             }
         }
 
+        if (getTriggerAccessLockPartitions() > 1 && getPartitionedLockHandler() == null) {
+            getLog().info("Using " + getTriggerAccessLockPartitions() + " partitions of the " + LOCK_TRIGGER_ACCESS + " lock.");
+            setLockHandler(new PartitionedTriggerAccessSemaphore(getLockHandler(), getTriggerAccessLockPartitions()));
+        }
+
+        if (getJobAndCalendarCacheSize() > 0) {
+            getLog().info("Caching up to " + getJobAndCalendarCacheSize() + " jobs and calendars.");
+            jobCache = new VersionedCache<JobKey, JobDetail>(getJobAndCalendarCacheSize());
+            versionedCalendarCache = new VersionedCache<String, Calendar>(getJobAndCalendarCacheSize());
+        }
+
     }
    
     /**
@@ -742,6 +1155,14 @@ public abstract class JobStoreSupport implements JobStore, Constants {
         } catch (SQLException sqle) {
             getLog().warn("Database connection shutdown unsuccessful.", sqle);
         }        
+
+        if (getReadDataSource() != null) {
+            try {
+                DBConnectionManager.getInstance().shutdown(getReadDataSource());
+            } catch (SQLException sqle) {
+                getLog().warn("Read database connection shutdown unsuccessful.", sqle);
+            }
+        }
         
         getLog().debug("JobStore background threads shutdown.");
     }
@@ -911,6 +1332,38 @@ public abstract class JobStoreSupport implements JobStore, Constants {
         return (misfireTime > 0) ? misfireTime : 0;
     }
 
+    /**
+     * The data versions read in a transaction, which the values it reads
+     * are cached at.
+     */
+    private static class DataVersions {
+        private final Connection conn;
+        private final long jobs;
+        private final long calendars;
+
+        private DataVersions(Connection conn, Long jobs, Long calendars) {
+            this.conn = conn;
+            this.jobs = (jobs == null) ? 0L : jobs;
+            this.calendars = (calendars == null) ? 0L : calendars;
+        }
+    }
+
+    /**
+     * A misfired trigger read by the misfire handler, and the trigger as it
+     * is to be stored once its misfire instruction is applied.
+     */
+    private static class MisfiredTrigger {
+        private final OperableTrigger trigger;
+        private final long nextFireTime;
+        private final OperableTrigger updatedTrigger;
+
+        private MisfiredTrigger(OperableTrigger trigger, OperableTrigger updatedTrigger) {
+            this.trigger = trigger;
+            this.nextFireTime = (trigger.getNextFireTime() == null) ? -1L : trigger.getNextFireTime().getTime();
+            this.updatedTrigger = updatedTrigger;
+        }
+    }
+
     /**
      * Helper class for returning the composite result of trying
      * to recover misfired jobs.
@@ -1108,6 +1561,7 @@ public abstract class JobStoreSupport implements JobStore, Constants {
                     throw new ObjectAlreadyExistsException(newJob); 
                 }
                 getDelegate().updateJobDetail(conn, newJob);
+                jobChanged(conn, newJob.getKey());
             } else {
                 getDelegate().insertJobDetail(conn, newJob);
             }
@@ -1325,7 +1779,11 @@ public abstract class JobStoreSupport implements JobStore, Constants {
                 new VoidTransactionCallback() {
                     public void executeVoid(Connection conn) throws JobPersistenceException {
                         
-                        // FUTURE_TODO: make this more efficient with a true bulk operation...
+                        if (!replace) {
+                            storeNewJobsAndTriggers(conn, triggersAndJobs);
+                            return;
+                        }
+
                         for(JobDetail job: triggersAndJobs.keySet()) {
                             storeJob(conn, job, replace);
                             for(Trigger trigger: triggersAndJobs.get(job)) {
@@ -1335,8 +1793,175 @@ public abstract class JobStoreSupport implements JobStore, Constants {
                         }
                     }
                 });
+    }
+
+    /**
+     * <p>
+     * Insert the given jobs and triggers, none of which may exist yet, with
+     * JDBC batches of up to <code>STORE_BATCH_SIZE</code> rows: the
+     * existence of the jobs and triggers is checked with a query per a few
+     * hundred keys, and whether each trigger group is paused once per group,
+     * instead of with several statements for each job and trigger.
+     * </p>
+     */
+    protected void storeNewJobsAndTriggers(Connection conn,
+            Map<JobDetail, Set<? extends Trigger>> triggersAndJobs)
+        throws JobPersistenceException {
+
+        List<JobDetail> jobs = new ArrayList<JobDetail>(triggersAndJobs.keySet());
+        List<JobKey> jobKeys = new ArrayList<JobKey>(jobs.size());
+        List<OperableTrigger> triggers = new ArrayList<OperableTrigger>();
+        List<JobDetail> triggerJobs = new ArrayList<JobDetail>();
+        List<TriggerKey> triggerKeys = new ArrayList<TriggerKey>();
+        Set<JobKey> newJobKeys = new HashSet<JobKey>();
+        Set<TriggerKey> newTriggerKeys = new HashSet<TriggerKey>();
+        for (JobDetail job : jobs) {
+            if (!newJobKeys.add(job.getKey())) {
+                throw new ObjectAlreadyExistsException(job);
+            }
+            jobKeys.add(job.getKey());
+            for (Trigger trigger : triggersAndJobs.get(job)) {
+                if (!newTriggerKeys.add(trigger.getKey())) {
+                    throw new ObjectAlreadyExistsException(trigger);
+                }
+                triggers.add((OperableTrigger) trigger);
+                triggerJobs.add(job);
+                triggerKeys.add(trigger.getKey());
+            }
+        }
+
+        try {
+            Set<JobKey> existingJobs = getDelegate().selectExistingJobKeys(conn, jobKeys);
+            if (!existingJobs.isEmpty()) {
+                for (JobDetail job : jobs) {
+                    if (existingJobs.contains(job.getKey())) {
+                        throw new ObjectAlreadyExistsException(job);
+                    }
+                }
+            }
+            Map<TriggerKey, String> existingTriggers = getDelegate().selectTriggerStates(conn, triggerKeys);
+            if (!existingTriggers.isEmpty()) {
+                for (OperableTrigger trigger : triggers) {
+                    if (existingTriggers.containsKey(trigger.getKey())) {
+                        throw new ObjectAlreadyExistsException(trigger);
+                    }
+                }
+            }
+
+            Map<String, Boolean> pausedGroups = new HashMap<String, Boolean>();
+            Map<JobKey, String> blockedStates = new HashMap<JobKey, String>();
+            List<String> states = new ArrayList<String>(triggers.size());
+            for (int i = 0; i < triggers.size(); i++) {
+                OperableTrigger trigger = triggers.get(i);
+                JobDetail job = triggerJobs.get(i);
+                String state = STATE_WAITING;
+                if (isTriggerGroupPausedForStore(conn, trigger.getKey().getGroup(), pausedGroups)) {
+                    state = STATE_PAUSED;
+                }
+                if (job.isConcurrentExectionDisallowed()) {
+                    // the job may have been deleted and added again while executing
+                    String blockedState = blockedStates.get(job.getKey());
+                    if (blockedState == null) {
+                        blockedState = checkBlockedState(conn, job.getKey(), STATE_WAITING);
+                        blockedStates.put(job.getKey(), blockedState);
+                    }
+                    if (STATE_BLOCKED.equals(blockedState)) {
+                        state = STATE_PAUSED.equals(state) ? STATE_PAUSED_BLOCKED : STATE_BLOCKED;
+                    }
+                }
+                states.add(state);
+            }
+
+            for (int from = 0; from < jobs.size(); from += STORE_BATCH_SIZE) {
+                int to = Math.min(jobs.size(), from + STORE_BATCH_SIZE);
+                getDelegate().insertJobDetails(conn, jobs.subList(from, to));
+            }
+            for (int from = 0; from < triggers.size(); from += STORE_BATCH_SIZE) {
+                int to = Math.min(triggers.size(), from + STORE_BATCH_SIZE);
+                getDelegate().insertTriggers(conn, triggers.subList(from, to),
+                        states.subList(from, to), triggerJobs.subList(from, to));
+            }
+        } catch (IOException e) {
+            throw new JobPersistenceException("Couldn't store jobs and triggers: "
+                    + e.getMessage(), e);
+        } catch (SQLException e) {
+            throw new JobPersistenceException("Couldn't store jobs and triggers: "
+                    + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Whether triggers stored in the given group should be paused, as
+     * <code>{@link #storeTrigger(Connection, OperableTrigger, JobDetail, boolean, String, boolean, boolean)}</code>
+     * decides it, remembering the answer for each group in the given map.
+     */
+    private boolean isTriggerGroupPausedForStore(Connection conn, String group,
+            Map<String, Boolean> pausedGroups) throws SQLException, JobPersistenceException {
+        Boolean paused = pausedGroups.get(group);
+        if (paused == null) {
+            paused = getDelegate().isTriggerGroupPaused(conn, group);
+            if (!paused) {
+                Boolean allPaused = pausedGroups.get(ALL_GROUPS_PAUSED);
+                if (allPaused == null) {
+                    allPaused = getDelegate().isTriggerGroupPaused(conn, ALL_GROUPS_PAUSED);
+                    pausedGroups.put(ALL_GROUPS_PAUSED, allPaused);
+                }
+                if (allPaused) {
+                    getDelegate().insertPausedTriggerGroup(conn, group);
+                    paused = Boolean.TRUE;
+                }
+            }
+            pausedGroups.put(group, paused);
+        }
+        return paused;
     }    
     
+    /**
+     * Reads the data versions once per transaction, emptying the job and
+     * calendar caches if another transaction changed the data they cover.
+     */
+    private DataVersions readDataVersions(Connection conn) throws JobPersistenceException {
+        DataVersions versions = dataVersions.get();
+        if (versions != null && versions.conn == conn) {
+            return versions;
+        }
+
+        try {
+            Map<String, Long> counters = getDelegate().selectDataVersions(conn);
+            versions = new DataVersions(conn, counters.get(VERSION_JOBS), counters.get(VERSION_CALENDARS));
+        } catch (SQLException e) {
+            throw new JobPersistenceException("Couldn't read data versions: "
+                    + e.getMessage(), e);
+        }
+        jobCache.updateVersion(versions.jobs);
+        versionedCalendarCache.updateVersion(versions.calendars);
+        dataVersions.set(versions);
+        return versions;
+    }
+
+    private void jobChanged(Connection conn, JobKey key) throws JobPersistenceException {
+        if (jobCache != null) {
+            jobCache.remove(key);
+            incrementDataVersion(conn, VERSION_JOBS);
+        }
+    }
+
+    private void calendarChanged(Connection conn, String calName) throws JobPersistenceException {
+        if (versionedCalendarCache != null) {
+            versionedCalendarCache.remove(calName);
+            incrementDataVersion(conn, VERSION_CALENDARS);
+        }
+    }
+
+    private void incrementDataVersion(Connection conn, String versionName) throws JobPersistenceException {
+        try {
+            getDelegate().incrementDataVersion(conn, versionName);
+        } catch (SQLException e) {
+            throw new JobPersistenceException("Couldn't increment data version: "
+                    + e.getMessage(), e);
+        }
+    }
+
     /**
      * Delete a job and its listeners.
      * 
@@ -1344,9 +1969,13 @@ public abstract class JobStoreSupport implements JobStore, Constants {
      * @see #removeTrigger(Connection, TriggerKey)
      */
     private boolean deleteJobAndChildren(Connection conn, JobKey key)
-        throws NoSuchDelegateException, SQLException {
+        throws JobPersistenceException, SQLException {
 
-        return (getDelegate().deleteJobDetail(conn, key) > 0);
+        if (getDelegate().deleteJobDetail(conn, key) > 0) {
+            jobChanged(conn, key);
+            return true;
+        }
+        return false;
     }
     
     /**
@@ -1380,10 +2009,24 @@ public abstract class JobStoreSupport implements JobStore, Constants {
     }
     
     protected JobDetail retrieveJob(Connection conn, JobKey key) throws JobPersistenceException {
+        DataVersions versions = null;
+        if (jobCache != null) {
+            versions = readDataVersions(conn);
+            JobDetail cached = jobCache.get(key);
+            if (cached != null) {
+                return (JobDetail) cached.clone();
+            }
+        }
+
         try {
 
-            return getDelegate().selectJobDetail(conn, key,
+            JobDetail job = getDelegate().selectJobDetail(conn, key,
                     getClassLoadHelper());
+            // the job data of jobs that persist it changes with every execution
+            if (versions != null && job != null && !job.isPersistJobDataAfterExecution()) {
+                jobCache.put(key, (JobDetail) job.clone(), versions.jobs);
+            }
+            return job;
         } catch (ClassNotFoundException e) {
             throw new JobPersistenceException(
                     "Couldn't retrieve job because a required class was not found: "
@@ -1640,6 +2283,7 @@ public abstract class JobStoreSupport implements JobStore, Constants {
                     throw new JobPersistenceException(
                         "Couldn't store calendar.  Update failed."); 
                 }
+                calendarChanged(conn, calName);
                 
                 if(updateTriggers) {
                     List<OperableTrigger> trigs = getDelegate().selectTriggersForCalendar(conn, calName);
@@ -1656,7 +2300,7 @@ public abstract class JobStoreSupport implements JobStore, Constants {
                 }
             }
 
-            if (!isClustered) {
+            if (!isClustered && versionedCalendarCache == null) {
                 calendarCache.put(calName, calendar); // lazy-cache
             }
 
@@ -1723,7 +2367,11 @@ public abstract class JobStoreSupport implements JobStore, Constants {
                 calendarCache.remove(calName);
             }
 
-            return (getDelegate().deleteCalendar(conn, calName) > 0);
+            if (getDelegate().deleteCalendar(conn, calName) > 0) {
+                calendarChanged(conn, calName);
+                return true;
+            }
+            return false;
         } catch (SQLException e) {
             throw new JobPersistenceException("Couldn't remove calendar: "
                     + e.getMessage(), e);
@@ -1753,16 +2401,30 @@ public abstract class JobStoreSupport implements JobStore, Constants {
     protected Calendar retrieveCalendar(Connection conn,
             String calName)
         throws JobPersistenceException {
-        // all calendars are persistent, but we can lazy-cache them during run
-        // time as long as we aren't running clustered.
-        Calendar cal = (isClustered) ? null : calendarCache.get(calName);
-        if (cal != null) {
-            return cal;
+        DataVersions versions = null;
+        Calendar cal;
+        if (versionedCalendarCache != null) {
+            versions = readDataVersions(conn);
+            cal = versionedCalendarCache.get(calName);
+            if (cal != null) {
+                return (Calendar) cal.clone();
+            }
+        } else {
+            // all calendars are persistent, but we can lazy-cache them during run
+            // time as long as we aren't running clustered.
+            cal = (isClustered) ? null : calendarCache.get(calName);
+            if (cal != null) {
+                return cal;
+            }
         }
 
         try {
             cal = getDelegate().selectCalendar(conn, calName);
-            if (!isClustered) {
+            if (versions != null) {
+                if (cal != null) {
+                    versionedCalendarCache.put(calName, (Calendar) cal.clone(), versions.calendars);
+                }
+            } else if (!isClustered) {
                 calendarCache.put(calName, cal); // lazy-cache...
             }
             return cal;
@@ -1965,6 +2627,10 @@ public abstract class JobStoreSupport implements JobStore, Constants {
     protected void clearAllSchedulingData(Connection conn) throws JobPersistenceException {
         try {
             getDelegate().clearData(conn);
+            if (jobCache != null) {
+                getDelegate().incrementDataVersion(conn, VERSION_JOBS);
+                getDelegate().incrementDataVersion(conn, VERSION_CALENDARS);
+            }
         } catch (SQLException e) {
             throw new JobPersistenceException("Error clearing scheduling data: " + e.getMessage(), e);
         }
@@ -2743,22 +3409,140 @@ public abstract class JobStoreSupport implements JobStore, Constants {
      * 
      * @see #releaseAcquiredTrigger(OperableTrigger)
      */
-    @SuppressWarnings("unchecked")
     public List<OperableTrigger> acquireNextTriggers(final long noLaterThan, final int maxCount, final long timeWindow)
         throws JobPersistenceException {
-        
-        String lockName;
-        if(isAcquireTriggersWithinLock() || maxCount > 1) { 
-            lockName = LOCK_TRIGGER_ACCESS;
-        } else {
-            lockName = null;
+        if (getPartitionedLockHandler() != null && !isSkipLockedAcquisition()) {
+            return acquireNextTriggersByPartition(noLaterThan, maxCount, timeWindow, 0, 1);
         }
-        return executeInNonManagedTXLock(lockName, 
+        return acquireNextTriggers(acquisitionLockName(maxCount),
                 new TransactionCallback<List<OperableTrigger>>() {
                     public List<OperableTrigger> execute(Connection conn) throws JobPersistenceException {
                         return acquireNextTrigger(conn, noLaterThan, maxCount, timeWindow);
                     }
-                },
+                });
+    }
+
+    /**
+     * <p>
+     * Get a handle to the next N triggers of the given shard to be fired,
+     * and mark them as 'reserved' by the calling scheduler thread.
+     * </p>
+     *
+     * <p>
+     * Candidates are selected in fire time order as usual, reading up to
+     * <code>maxCount * shardCount</code> rows, and those of other shards are
+     * skipped.
+     * </p>
+     *
+     * @see org.quartz.spi.ShardedJobStore
+     */
+    public List<OperableTrigger> acquireNextTriggers(final long noLaterThan, final int maxCount, final long timeWindow,
+            final int shard, final int shardCount) throws JobPersistenceException {
+        if (shardCount <= 1) {
+            return acquireNextTriggers(noLaterThan, maxCount, timeWindow);
+        }
+        if (getPartitionedLockHandler() != null && !isSkipLockedAcquisition()) {
+            return acquireNextTriggersByPartition(noLaterThan, maxCount, timeWindow, shard, shardCount);
+        }
+        return acquireNextTriggers(acquisitionLockName(maxCount),
+                new TransactionCallback<List<OperableTrigger>>() {
+                    public List<OperableTrigger> execute(Connection conn) throws JobPersistenceException {
+                        return acquireNextTrigger(conn, noLaterThan, maxCount, timeWindow, shard, shardCount);
+                    }
+                });
+    }
+
+    /**
+     * Acquires triggers one partition of the <code>TRIGGER_ACCESS</code> lock
+     * at a time, each in its own transaction holding only that partition's
+     * lock.  The keys of the next triggers to fire and of their jobs are
+     * first read from the triggers table alone, without any lock, only to
+     * find out how many to acquire from each partition; each partition's
+     * triggers are then loaded and acquired under its lock.  Each call
+     * starts with the partition after the one the previous call started with,
+     * so that the nodes of a cluster rarely wait for the same partition.
+     * 
+     * <p>
+     * Should a partition fail once others have been acquired (and committed),
+     * the triggers acquired so far are returned rather than left stranded
+     * in the acquired state.
+     * </p>
+     */
+    private List<OperableTrigger> acquireNextTriggersByPartition(final long noLaterThan, final int maxCount, final long timeWindow,
+            final int shard, final int shardCount) throws JobPersistenceException {
+        final PartitionedTriggerAccessSemaphore partitionedLockHandler = getPartitionedLockHandler();
+        final int partitions = partitionedLockHandler.getPartitions();
+        int[] counts = executeInNonManagedTXLock(null,
+                new TransactionCallback<int[]>() {
+                    public int[] execute(Connection conn) throws JobPersistenceException {
+                        int[] counts = new int[partitions];
+                        try {
+                            int selectCount = (int) Math.min(Integer.MAX_VALUE, (long) maxCount * Math.max(1, shardCount));
+                            Map<TriggerKey, JobKey> candidates = getDelegate().selectJobKeysOfTriggersToAcquire(conn, noLaterThan + timeWindow, getMisfireTime(), selectCount);
+                            int selected = 0;
+                            for (Map.Entry<TriggerKey, JobKey> candidate : candidates.entrySet()) {
+                                if (shardCount > 1 && TriggerShards.shardOf(candidate.getKey(), shardCount) != shard) {
+                                    continue;
+                                }
+                                if (selected == maxCount) {
+                                    break;
+                                }
+                                counts[partitionedLockHandler.partitionOf(candidate.getValue())]++;
+                                selected++;
+                            }
+                        } catch (Exception e) {
+                            throw new JobPersistenceException(
+                                    "Couldn't select next triggers: " + e.getMessage(), e);
+                        }
+                        return counts;
+                    }
+                }, null);
+
+        int first = (nextAcquisitionPartition.getAndIncrement() & Integer.MAX_VALUE) % partitions;
+        List<OperableTrigger> acquiredTriggers = new ArrayList<OperableTrigger>();
+        for (int i = 0; i < partitions; i++) {
+            final int partition = (first + i) % partitions;
+            final int count = counts[partition];
+            if (count == 0) {
+                continue;
+            }
+            try {
+                acquiredTriggers.addAll(acquireNextTriggers(partitionedLockHandler.getPartitionLockName(partition),
+                        new TransactionCallback<List<OperableTrigger>>() {
+                            public List<OperableTrigger> execute(Connection conn) throws JobPersistenceException {
+                                return acquireNextTriggersInBulk(conn, noLaterThan, count, timeWindow, shard, shardCount, false, partition);
+                            }
+                        }));
+            } catch (JobPersistenceException e) {
+                if (acquiredTriggers.isEmpty()) {
+                    throw e;
+                }
+                // the partitions already acquired are committed; hand them to the scheduler
+                getLog().error("Couldn't acquire the next triggers of partition " + partition
+                        + ", returning the " + acquiredTriggers.size() + " already acquired: " + e.getMessage(), e);
+                break;
+            }
+        }
+        Collections.sort(acquiredTriggers, new Trigger.TriggerTimeComparator());
+        return acquiredTriggers;
+    }
+
+    private String acquisitionLockName(int maxCount) throws JobPersistenceException {
+        if(isSkipLockedAcquisition()) {
+            // the trigger rows themselves are locked
+            return null;
+        } else if(isAcquireTriggersWithinLock() || maxCount > 1) { 
+            return LOCK_TRIGGER_ACCESS;
+        } else {
+            return null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<OperableTrigger> acquireNextTriggers(String lockName, TransactionCallback<List<OperableTrigger>> callback)
+        throws JobPersistenceException {
+        return executeInNonManagedTXLock(lockName, 
+                callback,
                 new TransactionValidator<List<OperableTrigger>>() {
                     public Boolean validate(Connection conn, List<OperableTrigger> result) throws JobPersistenceException {
                         try {
@@ -2784,9 +3568,22 @@ public abstract class JobStoreSupport implements JobStore, Constants {
     // so that the fireInstanceId doesn't have to be on the trigger...
     protected List<OperableTrigger> acquireNextTrigger(Connection conn, long noLaterThan, int maxCount, long timeWindow)
         throws JobPersistenceException {
+        return acquireNextTrigger(conn, noLaterThan, maxCount, timeWindow, 0, 1);
+    }
+
+    protected List<OperableTrigger> acquireNextTrigger(Connection conn, long noLaterThan, int maxCount, long timeWindow,
+            int shard, int shardCount) throws JobPersistenceException {
         if (timeWindow < 0) {
           throw new IllegalArgumentException();
         }
+
+        if (isSkipLockedAcquisition()) {
+            return acquireNextTriggersInBulk(conn, noLaterThan, maxCount, timeWindow, shard, shardCount, true, -1);
+        }
+        // batched updates are only safe while no other scheduler can acquire the same rows
+        if (isBulkTriggerAcquisition() && (isAcquireTriggersWithinLock() || maxCount > 1)) {
+            return acquireNextTriggersInBulk(conn, noLaterThan, maxCount, timeWindow, shard, shardCount, false, -1);
+        }
         
         List<OperableTrigger> acquiredTriggers = new ArrayList<OperableTrigger>();
         Set<JobKey> acquiredJobKeysForNoConcurrentExec = new HashSet<JobKey>();
@@ -2797,13 +3594,22 @@ public abstract class JobStoreSupport implements JobStore, Constants {
         do {
             currentLoopCount ++;
             try {
-                List<TriggerKey> keys = getDelegate().selectTriggerToAcquire(conn, noLaterThan + timeWindow, getMisfireTime(), maxCount);
+                int selectCount = (shardCount > 1) ? (int) Math.min(Integer.MAX_VALUE, (long) maxCount * shardCount) : maxCount;
+                List<TriggerKey> keys = getDelegate().selectTriggerToAcquire(conn, noLaterThan + timeWindow, getMisfireTime(), selectCount);
                 
                 // No trigger is ready to fire yet.
                 if (keys == null || keys.size() == 0)
                     return acquiredTriggers;
                 
                 for(TriggerKey triggerKey: keys) {
+                    // Leave the triggers of other shards to their own scheduler threads.
+                    if (shardCount > 1 && TriggerShards.shardOf(triggerKey, shardCount) != shard) {
+                        continue; // next trigger
+                    }
+                    if (acquiredTriggers.size() == maxCount) {
+                        break;
+                    }
+
                     // If our trigger is no longer available, try a new one.
                     OperableTrigger nextTrigger = retrieveTrigger(conn, triggerKey);
                     if(nextTrigger == null) {
@@ -2853,6 +3659,86 @@ public abstract class JobStoreSupport implements JobStore, Constants {
         // Return the acquired trigger list
         return acquiredTriggers;
     }
+
+    /**
+     * Acquires triggers like <code>{@link #acquireNextTrigger(Connection, long, int, long, int, int)}</code>,
+     * but loading the candidates with one query, and marking them as acquired
+     * and inserting their fired trigger records with one JDBC batch each.
+     * Only called while holding the <code>TRIGGER_ACCESS</code> lock, unless
+     * <code>skipLocked</code>, in which case the candidates' rows are locked
+     * by the query itself, or the lock of the given <code>partition</code>,
+     * in which case only the triggers of that partition are acquired.
+     */
+    protected List<OperableTrigger> acquireNextTriggersInBulk(Connection conn, long noLaterThan, int maxCount, long timeWindow,
+            int shard, int shardCount, boolean skipLocked, int partition) throws JobPersistenceException {
+        PartitionedTriggerAccessSemaphore partitionedLockHandler = partition >= 0 ? getPartitionedLockHandler() : null;
+        List<OperableTrigger> acquiredTriggers = new ArrayList<OperableTrigger>();
+        final int MAX_DO_LOOP_RETRY = 3;
+        int currentLoopCount = 0;
+
+        do {
+            currentLoopCount ++;
+            try {
+                long selectCount = (shardCount > 1) ? (long) maxCount * shardCount : maxCount;
+                if (partitionedLockHandler != null) {
+                    selectCount *= partitionedLockHandler.getPartitions();
+                }
+                selectCount = Math.min(Integer.MAX_VALUE, selectCount);
+                List<AcquirableTrigger> candidates = skipLocked
+                        ? getDelegate().selectTriggersToAcquireSkipLocked(conn, noLaterThan + timeWindow, getMisfireTime(), (int) selectCount)
+                        : getDelegate().selectTriggersToAcquire(conn, noLaterThan + timeWindow, getMisfireTime(), (int) selectCount);
+
+                // No trigger is ready to fire yet.
+                if (candidates.size() == 0)
+                    return acquiredTriggers;
+
+                List<OperableTrigger> batch = new ArrayList<OperableTrigger>();
+                List<TriggerKey> batchKeys = new ArrayList<TriggerKey>();
+                Set<JobKey> acquiredJobKeysForNoConcurrentExec = new HashSet<JobKey>();
+                for (AcquirableTrigger candidate : candidates) {
+                    OperableTrigger nextTrigger = candidate.getTrigger();
+                    if (shardCount > 1 && TriggerShards.shardOf(nextTrigger.getKey(), shardCount) != shard) {
+                        continue; // next trigger
+                    }
+                    // Leave the triggers of other partitions to their own lock holders.
+                    if (partitionedLockHandler != null && partitionedLockHandler.partitionOf(nextTrigger.getJobKey()) != partition) {
+                        continue; // next trigger
+                    }
+                    if (batch.size() == maxCount) {
+                        break;
+                    }
+                    if (candidate.isJobDisallowsConcurrentExecution()
+                            && !acquiredJobKeysForNoConcurrentExec.add(nextTrigger.getJobKey())) {
+                        continue; // next trigger
+                    }
+                    batch.add(nextTrigger);
+                    batchKeys.add(nextTrigger.getKey());
+                }
+
+                // If a trigger was no longer in the expected state, leave it out.
+                int[] rowsUpdated = getDelegate().updateTriggerStatesFromOtherState(conn, batchKeys, STATE_ACQUIRED, STATE_WAITING);
+                for (int i = 0; i < batch.size(); i++) {
+                    if (rowsUpdated[i] > 0 || rowsUpdated[i] == Statement.SUCCESS_NO_INFO) {
+                        OperableTrigger nextTrigger = batch.get(i);
+                        nextTrigger.setFireInstanceId(getFiredTriggerRecordId());
+                        acquiredTriggers.add(nextTrigger);
+                    }
+                }
+                getDelegate().insertFiredTriggers(conn, acquiredTriggers, STATE_ACQUIRED);
+
+                if(acquiredTriggers.size() == 0 && currentLoopCount < MAX_DO_LOOP_RETRY) {
+                    continue;
+                }
+
+                break;
+            } catch (Exception e) {
+                throw new JobPersistenceException(
+                          "Couldn't acquire next trigger: " + e.getMessage(), e);
+            }
+        } while (true);
+
+        return acquiredTriggers;
+    }
     
     /**
      * <p>
@@ -2863,7 +3749,7 @@ public abstract class JobStoreSupport implements JobStore, Constants {
      */
     public void releaseAcquiredTrigger(final OperableTrigger trigger) {
         retryExecuteInNonManagedTXLock(
-            LOCK_TRIGGER_ACCESS,
+            triggerAccessLockName(Collections.singletonList(trigger)),
             new VoidTransactionCallback() {
                 public void executeVoid(Connection conn) throws JobPersistenceException {
                     releaseAcquiredTrigger(conn, trigger);
@@ -2897,9 +3783,13 @@ public abstract class JobStoreSupport implements JobStore, Constants {
      */
     @SuppressWarnings("unchecked")
     public List<TriggerFiredResult> triggersFired(final List<OperableTrigger> triggers) throws JobPersistenceException {
-        return executeInNonManagedTXLock(LOCK_TRIGGER_ACCESS,
+        return executeInNonManagedTXLock(triggerAccessLockName(triggers),
                 new TransactionCallback<List<TriggerFiredResult>>() {
                     public List<TriggerFiredResult> execute(Connection conn) throws JobPersistenceException {
+                        if (isBatchTriggersFired()) {
+                            return triggersFiredInBatch(conn, triggers);
+                        }
+
                         List<TriggerFiredResult> results = new ArrayList<TriggerFiredResult>();
 
                         TriggerFiredResult result;
@@ -2942,6 +3832,186 @@ public abstract class JobStoreSupport implements JobStore, Constants {
                 });
     }
 
+    /**
+     * <p>
+     * The batched equivalent of calling
+     * <code>{@link #triggerFired(Connection, OperableTrigger)}</code> for
+     * each of the given triggers: the trigger states are read with one
+     * query, each job and calendar is retrieved once, and the fired trigger
+     * records, the blocked states of non-concurrent jobs' triggers and the
+     * triggers are written with JDBC batches.
+     * </p>
+     */
+    protected List<TriggerFiredResult> triggersFiredInBatch(Connection conn,
+            List<OperableTrigger> triggers) throws JobPersistenceException {
+
+        TriggerFiredResult[] results = new TriggerFiredResult[triggers.size()];
+
+        List<TriggerKey> triggerKeys = new ArrayList<TriggerKey>(triggers.size());
+        for (OperableTrigger trigger : triggers) {
+            triggerKeys.add(trigger.getKey());
+        }
+        Map<TriggerKey, String> triggerStates;
+        try {
+            triggerStates = getDelegate().selectTriggerStates(conn, triggerKeys);
+        } catch (SQLException e) {
+            throw new JobPersistenceException("Couldn't select trigger states: "
+                    + e.getMessage(), e);
+        }
+
+        // make sure the triggers weren't deleted, paused, or completed, and
+        // that their jobs and calendars can be retrieved...
+        Map<JobKey, JobDetail> jobs = new HashMap<JobKey, JobDetail>();
+        Map<String, Calendar> calendars = new HashMap<String, Calendar>();
+        Set<JobKey> blockedJobs = new HashSet<JobKey>();
+        List<Integer> firing = new ArrayList<Integer>();
+        List<OperableTrigger> firingTriggers = new ArrayList<OperableTrigger>();
+        List<JobDetail> firingJobs = new ArrayList<JobDetail>();
+        for (int i = 0; i < triggers.size(); i++) {
+            OperableTrigger trigger = triggers.get(i);
+            results[i] = new TriggerFiredResult((TriggerFiredBundle) null);
+            try {
+                if (!STATE_ACQUIRED.equals(triggerStates.get(trigger.getKey()))) {
+                    continue;
+                }
+
+                JobDetail job;
+                if (jobs.containsKey(trigger.getJobKey())) {
+                    job = jobs.get(trigger.getJobKey());
+                    // each firing gets a JobDetail, and JobDataMap, of its own
+                    if (job != null) {
+                        job = (JobDetail) job.clone();
+                    }
+                } else {
+                    try {
+                        job = retrieveJob(conn, trigger.getJobKey());
+                    } catch (JobPersistenceException jpe) {
+                        try {
+                            getLog().error("Error retrieving job, setting trigger state to ERROR.", jpe);
+                            getDelegate().updateTriggerState(conn, trigger.getKey(),
+                                    STATE_ERROR);
+                        } catch (SQLException sqle) {
+                            getLog().error("Unable to set trigger state to ERROR.", sqle);
+                        }
+                        throw jpe;
+                    }
+                    jobs.put(trigger.getJobKey(), job);
+                }
+                if (job == null) {
+                    continue;
+                }
+                // firing an earlier trigger of the batch blocked this one
+                if (job.isConcurrentExectionDisallowed() && !blockedJobs.add(job.getKey())) {
+                    continue;
+                }
+
+                if (trigger.getCalendarName() != null) {
+                    Calendar cal;
+                    if (calendars.containsKey(trigger.getCalendarName())) {
+                        cal = calendars.get(trigger.getCalendarName());
+                    } else {
+                        cal = retrieveCalendar(conn, trigger.getCalendarName());
+                        calendars.put(trigger.getCalendarName(), cal);
+                    }
+                    if (cal == null) {
+                        continue;
+                    }
+                }
+
+                firing.add(i);
+                firingTriggers.add(trigger);
+                firingJobs.add(job);
+            } catch (JobPersistenceException jpe) {
+                results[i] = new TriggerFiredResult(jpe);
+            } catch(RuntimeException re) {
+                results[i] = new TriggerFiredResult(re);
+            }
+        }
+
+        try {
+            getDelegate().updateFiredTriggers(conn, firingTriggers, STATE_EXECUTING, firingJobs);
+        } catch (SQLException e) {
+            throw new JobPersistenceException("Couldn't update fired triggers: "
+                    + e.getMessage(), e);
+        }
+
+        // call triggered - to update the triggers' next-fire-time state...
+        List<Integer> fired = new ArrayList<Integer>();
+        List<OperableTrigger> firedTriggers = new ArrayList<OperableTrigger>();
+        List<JobDetail> firedJobs = new ArrayList<JobDetail>();
+        List<String> firedStates = new ArrayList<String>();
+        List<Date> prevFireTimes = new ArrayList<Date>();
+        List<JobKey> nonConcurrentJobs = new ArrayList<JobKey>();
+        Map<String, Boolean> pausedGroups = new HashMap<String, Boolean>();
+        for (int j = 0; j < firingTriggers.size(); j++) {
+            OperableTrigger trigger = firingTriggers.get(j);
+            JobDetail job = firingJobs.get(j);
+            try {
+                Date prevFireTime = trigger.getPreviousFireTime();
+                Calendar cal = trigger.getCalendarName() == null ? null : calendars.get(trigger.getCalendarName());
+                trigger.triggered(cal);
+
+                String state = STATE_WAITING;
+                if (job.isConcurrentExectionDisallowed()) {
+                    nonConcurrentJobs.add(job.getKey());
+                    state = STATE_BLOCKED;
+                    if (trigger.getNextFireTime() != null) {
+                        // storeTrigger would record the group as paused if all groups are
+                        isTriggerGroupPausedForStore(conn, trigger.getKey().getGroup(), pausedGroups);
+                    }
+                }
+                if (trigger.getNextFireTime() == null) {
+                    state = STATE_COMPLETE;
+                }
+
+                fired.add(firing.get(j));
+                firedTriggers.add(trigger);
+                firedJobs.add(job);
+                firedStates.add(state);
+                prevFireTimes.add(prevFireTime);
+            } catch (SQLException e) {
+                throw new JobPersistenceException("Couldn't determine if trigger group is paused: "
+                        + e.getMessage(), e);
+            } catch(RuntimeException re) {
+                results[firing.get(j)] = new TriggerFiredResult(re);
+            }
+        }
+
+        try {
+            getDelegate().updateTriggerStatesForJobsFromOtherState(conn, nonConcurrentJobs,
+                    STATE_BLOCKED, STATE_WAITING);
+            getDelegate().updateTriggerStatesForJobsFromOtherState(conn, nonConcurrentJobs,
+                    STATE_BLOCKED, STATE_ACQUIRED);
+            getDelegate().updateTriggerStatesForJobsFromOtherState(conn, nonConcurrentJobs,
+                    STATE_PAUSED_BLOCKED, STATE_PAUSED);
+        } catch (SQLException e) {
+            throw new JobPersistenceException(
+                    "Couldn't update states of blocked triggers: "
+                            + e.getMessage(), e);
+        }
+
+        try {
+            getDelegate().updateTriggers(conn, firedTriggers, firedStates, firedJobs);
+        } catch (Exception e) {
+            throw new JobPersistenceException("Couldn't store fired triggers: "
+                    + e.getMessage(), e);
+        }
+
+        for (int j = 0; j < firedTriggers.size(); j++) {
+            OperableTrigger trigger = firedTriggers.get(j);
+            JobDetail job = firedJobs.get(j);
+            job.getJobDataMap().clearDirtyFlag();
+            Calendar cal = trigger.getCalendarName() == null ? null : calendars.get(trigger.getCalendarName());
+            results[fired.get(j)] = new TriggerFiredResult(new TriggerFiredBundle(job, trigger, cal,
+                    trigger.getKey().getGroup().equals(Scheduler.DEFAULT_RECOVERY_GROUP), new Date(),
+                    trigger.getPreviousFireTime(), prevFireTimes.get(j), trigger.getNextFireTime()));
+        }
+
+        List<TriggerFiredResult> resultList = new ArrayList<TriggerFiredResult>(results.length);
+        Collections.addAll(resultList, results);
+        return resultList;
+    }
+
     protected TriggerFiredBundle triggerFired(Connection conn,
             OperableTrigger trigger)
         throws JobPersistenceException {
@@ -3037,7 +4107,7 @@ public abstract class JobStoreSupport implements JobStore, Constants {
     public void triggeredJobComplete(final OperableTrigger trigger,
             final JobDetail jobDetail, final CompletedExecutionInstruction triggerInstCode) {
         retryExecuteInNonManagedTXLock(
-            LOCK_TRIGGER_ACCESS,
+            triggerAccessLockName(Collections.singletonList(trigger)),
             new VoidTransactionCallback() {
                 public void executeVoid(Connection conn) throws JobPersistenceException {
                     triggeredJobComplete(conn, trigger, jobDetail,triggerInstCode);
@@ -3049,39 +4119,7 @@ public abstract class JobStoreSupport implements JobStore, Constants {
             OperableTrigger trigger, JobDetail jobDetail,
             CompletedExecutionInstruction triggerInstCode) throws JobPersistenceException {
         try {
-            if (triggerInstCode == CompletedExecutionInstruction.DELETE_TRIGGER) {
-                if(trigger.getNextFireTime() == null) { 
-                    // double check for possible reschedule within job 
-                    // execution, which would cancel the need to delete...
-                    TriggerStatus stat = getDelegate().selectTriggerStatus(
-                            conn, trigger.getKey());
-                    if(stat != null && stat.getNextFireTime() == null) {
-                        removeTrigger(conn, trigger.getKey());
-                    }
-                } else{
-                    removeTrigger(conn, trigger.getKey());
-                    signalSchedulingChangeOnTxCompletion(0L);
-                }
-            } else if (triggerInstCode == CompletedExecutionInstruction.SET_TRIGGER_COMPLETE) {
-                getDelegate().updateTriggerState(conn, trigger.getKey(),
-                        STATE_COMPLETE);
-                signalSchedulingChangeOnTxCompletion(0L);
-            } else if (triggerInstCode == CompletedExecutionInstruction.SET_TRIGGER_ERROR) {
-                getLog().info("Trigger " + trigger.getKey() + " set to ERROR state.");
-                getDelegate().updateTriggerState(conn, trigger.getKey(),
-                        STATE_ERROR);
-                signalSchedulingChangeOnTxCompletion(0L);
-            } else if (triggerInstCode == CompletedExecutionInstruction.SET_ALL_JOB_TRIGGERS_COMPLETE) {
-                getDelegate().updateTriggerStatesForJob(conn,
-                        trigger.getJobKey(), STATE_COMPLETE);
-                signalSchedulingChangeOnTxCompletion(0L);
-            } else if (triggerInstCode == CompletedExecutionInstruction.SET_ALL_JOB_TRIGGERS_ERROR) {
-                getLog().info("All triggers of Job " + 
-                        trigger.getKey() + " set to ERROR state.");
-                getDelegate().updateTriggerStatesForJob(conn,
-                        trigger.getJobKey(), STATE_ERROR);
-                signalSchedulingChangeOnTxCompletion(0L);
-            }
+            completeTriggerState(conn, trigger, triggerInstCode);
 
             if (jobDetail.isConcurrentExectionDisallowed()) {
                 getDelegate().updateTriggerStatesForJobFromOtherState(conn,
@@ -3094,19 +4132,7 @@ public abstract class JobStoreSupport implements JobStore, Constants {
 
                 signalSchedulingChangeOnTxCompletion(0L);
             }
-            if (jobDetail.isPersistJobDataAfterExecution()) {
-                try {
-                    if (jobDetail.getJobDataMap().isDirty()) {
-                        getDelegate().updateJobData(conn, jobDetail);
-                    }
-                } catch (IOException e) {
-                    throw new JobPersistenceException(
-                            "Couldn't serialize job data: " + e.getMessage(), e);
-                } catch (SQLException e) {
-                    throw new JobPersistenceException(
-                            "Couldn't update job data: " + e.getMessage(), e);
-                }
-            }
+            persistJobDataAfterExecution(conn, jobDetail);
         } catch (SQLException e) {
             throw new JobPersistenceException(
                     "Couldn't update trigger state(s): " + e.getMessage(), e);
@@ -3120,6 +4146,126 @@ public abstract class JobStoreSupport implements JobStore, Constants {
         }
     }
 
+    /**
+     * <p>
+     * Inform the <code>JobStore</code> that the scheduler has completed the
+     * firing of each of the given triggers, in one transaction. The triggers
+     * blocked by the completed jobs are released, and the fired triggers
+     * deleted, in JDBC batches.
+     * </p>
+     */
+    public void triggeredJobsComplete(final List<TriggerCompletedBundle> completions) {
+        if (completions.isEmpty()) {
+            return;
+        }
+        List<OperableTrigger> triggers = new ArrayList<OperableTrigger>(completions.size());
+        for (TriggerCompletedBundle completion : completions) {
+            triggers.add(completion.getTrigger());
+        }
+
+        retryExecuteInNonManagedTXLock(
+            triggerAccessLockName(triggers),
+            new VoidTransactionCallback() {
+                public void executeVoid(Connection conn) throws JobPersistenceException {
+                    triggeredJobsComplete(conn, completions);
+                }
+            });
+    }
+
+    protected void triggeredJobsComplete(Connection conn,
+            List<TriggerCompletedBundle> completions) throws JobPersistenceException {
+        List<JobKey> blockingJobKeys = new ArrayList<JobKey>();
+        List<String> fireInstanceIds = new ArrayList<String>(completions.size());
+        try {
+            for (TriggerCompletedBundle completion : completions) {
+                completeTriggerState(conn, completion.getTrigger(), completion.getInstruction());
+
+                JobDetail jobDetail = completion.getJobDetail();
+                if (jobDetail.isConcurrentExectionDisallowed()) {
+                    blockingJobKeys.add(jobDetail.getKey());
+                }
+                persistJobDataAfterExecution(conn, jobDetail);
+                fireInstanceIds.add(completion.getTrigger().getFireInstanceId());
+            }
+
+            if (!blockingJobKeys.isEmpty()) {
+                getDelegate().updateTriggerStatesForJobsFromOtherState(conn,
+                        blockingJobKeys, STATE_WAITING, STATE_BLOCKED);
+
+                getDelegate().updateTriggerStatesForJobsFromOtherState(conn,
+                        blockingJobKeys, STATE_PAUSED, STATE_PAUSED_BLOCKED);
+
+                signalSchedulingChangeOnTxCompletion(0L);
+            }
+        } catch (SQLException e) {
+            throw new JobPersistenceException(
+                    "Couldn't update trigger state(s): " + e.getMessage(), e);
+        }
+
+        try {
+            getDelegate().deleteFiredTriggers(conn, fireInstanceIds);
+        } catch (SQLException e) {
+            throw new JobPersistenceException("Couldn't delete fired triggers: "
+                    + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Apply the completed execution instruction to the trigger's state.
+     */
+    private void completeTriggerState(Connection conn, OperableTrigger trigger,
+            CompletedExecutionInstruction triggerInstCode) throws JobPersistenceException, SQLException {
+        if (triggerInstCode == CompletedExecutionInstruction.DELETE_TRIGGER) {
+            if(trigger.getNextFireTime() == null) { 
+                // double check for possible reschedule within job 
+                // execution, which would cancel the need to delete...
+                TriggerStatus stat = getDelegate().selectTriggerStatus(
+                        conn, trigger.getKey());
+                if(stat != null && stat.getNextFireTime() == null) {
+                    removeTrigger(conn, trigger.getKey());
+                }
+            } else{
+                removeTrigger(conn, trigger.getKey());
+                signalSchedulingChangeOnTxCompletion(0L);
+            }
+        } else if (triggerInstCode == CompletedExecutionInstruction.SET_TRIGGER_COMPLETE) {
+            getDelegate().updateTriggerState(conn, trigger.getKey(),
+                    STATE_COMPLETE);
+            signalSchedulingChangeOnTxCompletion(0L);
+        } else if (triggerInstCode == CompletedExecutionInstruction.SET_TRIGGER_ERROR) {
+            getLog().info("Trigger " + trigger.getKey() + " set to ERROR state.");
+            getDelegate().updateTriggerState(conn, trigger.getKey(),
+                    STATE_ERROR);
+            signalSchedulingChangeOnTxCompletion(0L);
+        } else if (triggerInstCode == CompletedExecutionInstruction.SET_ALL_JOB_TRIGGERS_COMPLETE) {
+            getDelegate().updateTriggerStatesForJob(conn,
+                    trigger.getJobKey(), STATE_COMPLETE);
+            signalSchedulingChangeOnTxCompletion(0L);
+        } else if (triggerInstCode == CompletedExecutionInstruction.SET_ALL_JOB_TRIGGERS_ERROR) {
+            getLog().info("All triggers of Job " + 
+                    trigger.getKey() + " set to ERROR state.");
+            getDelegate().updateTriggerStatesForJob(conn,
+                    trigger.getJobKey(), STATE_ERROR);
+            signalSchedulingChangeOnTxCompletion(0L);
+        }
+    }
+
+    private void persistJobDataAfterExecution(Connection conn, JobDetail jobDetail) throws JobPersistenceException {
+        if (jobDetail.isPersistJobDataAfterExecution()) {
+            try {
+                if (jobDetail.getJobDataMap().isDirty()) {
+                    getDelegate().updateJobData(conn, jobDetail);
+                }
+            } catch (IOException e) {
+                throw new JobPersistenceException(
+                        "Couldn't serialize job data: " + e.getMessage(), e);
+            } catch (SQLException e) {
+                throw new JobPersistenceException(
+                        "Couldn't update job data: " + e.getMessage(), e);
+            }
+        }
+    }
+
     /**
      * <P>
      * Get the driver delegate for DB operations.
@@ -3136,6 +4282,22 @@ public abstract class JobStoreSupport implements JobStore, Constants {
                     delegate = delegateClass.newInstance();
                     
                     delegate.initialize(getLog(), tablePrefix, instanceName, instanceId, getClassLoadHelper(), canUseProperties(), getDriverDelegateInitString());
+
+                    if (jobDataSerializer != null) {
+                        if (!(delegate instanceof StdJDBCDelegate)) {
+                            throw new NoSuchDelegateException("Delegate " + delegate.getClass().getName()
+                                    + " does not support a JobDataSerializer.");
+                        }
+                        ((StdJDBCDelegate) delegate).setJobDataSerializer(jobDataSerializer);
+                    }
+
+                    if (cacheStatements) {
+                        if (!(delegate instanceof StdJDBCDelegate)) {
+                            throw new NoSuchDelegateException("Delegate " + delegate.getClass().getName()
+                                    + " does not support caching statements.");
+                        }
+                        ((StdJDBCDelegate) delegate).setCacheStatements(true);
+                    }
                     
                 } catch (InstantiationException e) {
                     throw new NoSuchDelegateException("Couldn't create delegate: "
@@ -3156,6 +4318,33 @@ public abstract class JobStoreSupport implements JobStore, Constants {
         return lockHandler;
     }
 
+    /**
+     * @return the lock handler if the <code>TRIGGER_ACCESS</code> lock is
+     * partitioned, null otherwise
+     */
+    protected PartitionedTriggerAccessSemaphore getPartitionedLockHandler() {
+        Semaphore handler = getLockHandler();
+        return (handler instanceof PartitionedTriggerAccessSemaphore) ? (PartitionedTriggerAccessSemaphore) handler : null;
+    }
+
+    /**
+     * @return the partition of the <code>TRIGGER_ACCESS</code> lock guarding
+     * all the given triggers, if there is one, else the whole lock
+     */
+    protected String triggerAccessLockName(List<? extends OperableTrigger> triggers) {
+        PartitionedTriggerAccessSemaphore partitionedLockHandler = getPartitionedLockHandler();
+        if (partitionedLockHandler == null || triggers.isEmpty()) {
+            return LOCK_TRIGGER_ACCESS;
+        }
+        int partition = partitionedLockHandler.partitionOf(triggers.get(0).getJobKey());
+        for (OperableTrigger trigger : triggers) {
+            if (partitionedLockHandler.partitionOf(trigger.getJobKey()) != partition) {
+                return LOCK_TRIGGER_ACCESS;
+            }
+        }
+        return partitionedLockHandler.getPartitionLockName(partition);
+    }
+
     public void setLockHandler(Semaphore lockHandler) {
         this.lockHandler = lockHandler;
     }
@@ -3164,48 +4353,190 @@ public abstract class JobStoreSupport implements JobStore, Constants {
     // Management methods
     //---------------------------------------------------------------------------
 
+    /**
+     * <p>
+     * Handle misfired triggers a page of <code>maxMisfiresToHandleAtATime</code>
+     * at a time, for up to <code>misfireHandlingTimeBudget</code> millis,
+     * going on from where the previous call stopped.
+     * </p>
+     * 
+     * <p>
+     * The pages are read in order of fire time and trigger key, and the
+     * misfire instructions applied, without locks.  Each page is then
+     * written in JDBC batches under the <code>TRIGGER_ACCESS</code> lock,
+     * skipping the triggers that changed since they were read, so that the
+     * lock is only held briefly at a time even if a great many triggers
+     * misfired.
+     * </p>
+     */
     protected RecoverMisfiredJobsResult doRecoverMisfires() throws JobPersistenceException {
-        boolean transOwner = false;
-        Connection conn = getNonManagedTXConnection();
-        try {
-            RecoverMisfiredJobsResult result = RecoverMisfiredJobsResult.NO_OP;
-            
-            // Before we make the potentially expensive call to acquire the 
-            // trigger lock, peek ahead to see if it is likely we would find
-            // misfired triggers requiring recovery.
-            int misfireCount = (getDoubleCheckLockMisfireHandler()) ?
-                getDelegate().countMisfiredTriggersInState(
-                    conn, STATE_WAITING, getMisfireTime()) : 
-                Integer.MAX_VALUE;
-            
+        final long misfireTime = getMisfireTime();
+        long passStartTime = System.currentTimeMillis();
+
+        if (misfireCursorKey == null) {
+            // Before going through the pages, peek ahead to see if it is 
+            // likely we would find misfired triggers requiring recovery.
+            int misfireCount = -1;
+            if (getDoubleCheckLockMisfireHandler()) {
+                misfireCount = executeInNonManagedTXLock(null, new TransactionCallback<Integer>() {
+                    public Integer execute(Connection conn) throws JobPersistenceException {
+                        try {
+                            return getDelegate().countMisfiredTriggersInState(conn, STATE_WAITING, misfireTime);
+                        } catch (SQLException e) {
+                            throw new JobPersistenceException("Database error recovering from misfires.", e);
+                        }
+                    }
+                }, null);
+            }
+
             if (misfireCount == 0) {
                 getLog().debug(
                     "Found 0 triggers that missed their scheduled fire-time.");
-            } else {
-                transOwner = getLockHandler().obtainLock(conn, LOCK_TRIGGER_ACCESS);
-                
-                result = recoverMisfiredJobs(conn, false);
+                misfireSweepInProgress = false;
+                return RecoverMisfiredJobsResult.NO_OP;
             }
-            
-            commitConnection(conn);
-            return result;
-        } catch (JobPersistenceException e) {
-            rollbackConnection(conn);
-            throw e;
-        } catch (SQLException e) {
-            rollbackConnection(conn);
-            throw new JobPersistenceException("Database error recovering from misfires.", e);
-        } catch (RuntimeException e) {
-            rollbackConnection(conn);
-            throw new JobPersistenceException("Unexpected runtime exception: "
-                    + e.getMessage(), e);
-        } finally {
-            try {
-                releaseLock(LOCK_TRIGGER_ACCESS, transOwner);
-            } finally {
-                cleanupConnection(conn);
+
+            if (!misfireSweepInProgress) {
+                misfireSweepStartTime = passStartTime;
+                misfiresHandledInSweep = 0;
+                misfireSweepInProgress = true;
+            }
+            misfireSweepBacklog = misfiresHandledInSweep + misfireCount;
+        }
+
+        int pageSize = Math.max(1, getMaxMisfiresToHandleAtATime());
+        int processed = 0;
+        long earliestNewTime = Long.MAX_VALUE;
+        boolean hasMore;
+        do {
+            List<MisfiredTrigger> page = readMisfiredTriggers(misfireTime, pageSize);
+            hasMore = !page.isEmpty();
+            if (!hasMore) {
+                break;
+            }
+
+            RecoverMisfiredJobsResult written = writeMisfiredTriggers(page);
+            MisfiredTrigger last = page.get(page.size() - 1);
+            misfireCursorNextFireTime = last.nextFireTime;
+            misfireCursorKey = last.trigger.getKey();
+
+            processed += written.getProcessedMisfiredTriggerCount();
+            earliestNewTime = Math.min(earliestNewTime, written.getEarliestNewTime());
+            misfiresHandledInSweep += written.getProcessedMisfiredTriggerCount();
+            misfiresHandled += written.getProcessedMisfiredTriggerCount();
+            misfirePagesHandled++;
+        } while (System.currentTimeMillis() - passStartTime < getMisfireHandlingTimeBudget());
+
+        if (hasMore) {
+            getLog().info(
+                "Handled " + processed + " triggers that missed their scheduled fire-time.  " +
+                "More misfired triggers remain to be processed.");
+        } else {
+            misfireCursorKey = null;
+            if (misfireSweepInProgress) {
+                lastMisfireSweepDuration = System.currentTimeMillis() - misfireSweepStartTime;
+            }
+            if (processed > 0) {
+                getLog().info(
+                    "Handled " + processed + 
+                    " trigger(s) that missed their scheduled fire-time.");
             }
         }
+
+        return new RecoverMisfiredJobsResult(hasMore, processed, earliestNewTime);
+    }
+
+    /**
+     * Reads the next page of misfired triggers after the misfire handler's
+     * cursor, and applies their misfire instructions to copies of them.
+     */
+    private List<MisfiredTrigger> readMisfiredTriggers(final long misfireTime, final int pageSize)
+        throws JobPersistenceException {
+        final long afterNextFireTime = misfireCursorNextFireTime;
+        final TriggerKey afterKey = misfireCursorKey;
+        return executeInNonManagedTXLock(null, new TransactionCallback<List<MisfiredTrigger>>() {
+            public List<MisfiredTrigger> execute(Connection conn) throws JobPersistenceException {
+                try {
+                    List<OperableTrigger> triggers = getDelegate().selectMisfiredTriggersInStatePage(
+                            conn, STATE_WAITING, misfireTime, afterNextFireTime, afterKey, pageSize);
+                    List<MisfiredTrigger> page = new ArrayList<MisfiredTrigger>(triggers.size());
+                    for (OperableTrigger trigger : triggers) {
+                        Calendar cal = null;
+                        if (trigger.getCalendarName() != null) {
+                            cal = retrieveCalendar(conn, trigger.getCalendarName());
+                        }
+                        OperableTrigger updatedTrigger = (OperableTrigger) trigger.clone();
+                        updatedTrigger.updateAfterMisfire(cal);
+                        page.add(new MisfiredTrigger(trigger, updatedTrigger));
+                    }
+                    return page;
+                } catch (JobPersistenceException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new JobPersistenceException("Couldn't read misfired triggers: " + e.getMessage(), e);
+                }
+            }
+        }, null);
+    }
+
+    /**
+     * Stores a page of misfired triggers updated by their misfire
+     * instructions, unless they changed since they were read.
+     */
+    private RecoverMisfiredJobsResult writeMisfiredTriggers(final List<MisfiredTrigger> page)
+        throws JobPersistenceException {
+        return executeInNonManagedTXLock(LOCK_TRIGGER_ACCESS, new TransactionCallback<RecoverMisfiredJobsResult>() {
+            public RecoverMisfiredJobsResult execute(Connection conn) throws JobPersistenceException {
+                List<TriggerKey> keys = new ArrayList<TriggerKey>(page.size());
+                for (MisfiredTrigger misfired : page) {
+                    keys.add(misfired.trigger.getKey());
+                }
+
+                try {
+                    Map<TriggerKey, TriggerStatus> statuses = getDelegate().selectTriggerStatuses(conn, keys);
+
+                    List<OperableTrigger> triggers = new ArrayList<OperableTrigger>(page.size());
+                    List<String> states = new ArrayList<String>(page.size());
+                    List<JobDetail> jobs = new ArrayList<JobDetail>(page.size());
+                    List<OperableTrigger> finalizedTriggers = new ArrayList<OperableTrigger>();
+                    long earliestNewTime = Long.MAX_VALUE;
+                    for (MisfiredTrigger misfired : page) {
+                        // triggers changed since the page was read are left to the next sweep
+                        TriggerStatus status = statuses.get(misfired.trigger.getKey());
+                        if (status == null || !STATE_WAITING.equals(status.getStatus())) {
+                            continue;
+                        }
+                        long nextFireTime = (status.getNextFireTime() == null) ? -1L : status.getNextFireTime().getTime();
+                        if (nextFireTime != misfired.nextFireTime) {
+                            continue;
+                        }
+
+                        schedSignaler.notifyTriggerListenersMisfired(misfired.trigger);
+
+                        OperableTrigger trig = misfired.updatedTrigger;
+                        triggers.add(trig);
+                        jobs.add(null);
+                        if (trig.getNextFireTime() == null) {
+                            states.add(STATE_COMPLETE);
+                            finalizedTriggers.add(trig);
+                        } else {
+                            states.add(STATE_WAITING);
+                            earliestNewTime = Math.min(earliestNewTime, trig.getNextFireTime().getTime());
+                        }
+                    }
+
+                    getDelegate().updateTriggers(conn, triggers, states, jobs);
+
+                    for (OperableTrigger trig : finalizedTriggers) {
+                        schedSignaler.notifySchedulerListenersFinalized(trig);
+                    }
+
+                    return new RecoverMisfiredJobsResult(false, triggers.size(), earliestNewTime);
+                } catch (Exception e) {
+                    throw new JobPersistenceException("Couldn't update misfired triggers: " + e.getMessage(), e);
+                }
+            }
+        }, null);
     }
 
     protected ThreadLocal<Long> sigChangeForTxCompletion = new ThreadLocal<Long>();
@@ -3587,7 +4918,12 @@ public abstract class JobStoreSupport implements JobStore, Constants {
      * @see #closeConnection(Connection)
      */
     protected void cleanupConnection(Connection conn) {
+        dataVersions.remove();
         if (conn != null) {
+            if (cacheStatements && delegate instanceof StdJDBCDelegate) {
+                ((StdJDBCDelegate) delegate).closeCachedStatements(conn);
+            }
+
             if (conn instanceof Proxy) {
                 Proxy connProxy = (Proxy)conn;
                 
@@ -3708,21 +5044,93 @@ public abstract class JobStoreSupport implements JobStore, Constants {
     }
 
     /**
-     * Execute the given callback in a transaction. Depending on the JobStore, 
-     * the surrounding transaction may be assumed to be already present 
-     * (managed).  
+     * Execute the given callback, which must only read, in a transaction.
+     * Depending on the JobStore, the surrounding transaction may be assumed
+     * to be already present (managed).  
      * 
      * <p>
-     * This method just forwards to executeInLock() with a null lockName.
+     * If there is a read data source, and this job store has not changed
+     * data for longer than its maximum lag, the callback is executed in a
+     * transaction of its own, on a connection of the read data source.
+     * Otherwise, this method just forwards to executeInLock() with a null
+     * lockName.
      * </p>
      * 
      * @see #executeInLock(String, TransactionCallback)
+     * @see #setReadDataSource(String)
      */
     public <T> T executeWithoutLock(
         TransactionCallback<T> txCallback) throws JobPersistenceException {
+        if (getReadDataSource() != null
+                && System.currentTimeMillis() - lastChangeTime >= getReadDataSourceMaxLag()) {
+            Connection conn = getReadConnection();
+            if (conn != null) {
+                try {
+                    T result = txCallback.execute(conn);
+                    commitConnection(conn);
+                    return result;
+                } catch (JobPersistenceException e) {
+                    rollbackConnection(conn);
+                    throw e;
+                } catch (RuntimeException e) {
+                    rollbackConnection(conn);
+                    throw new JobPersistenceException("Unexpected runtime exception: "
+                            + e.getMessage(), e);
+                } finally {
+                    cleanupConnection(conn);
+                }
+            }
+        }
         return executeInLock(null, txCallback);
     }
 
+    /**
+     * Gets a connection of the read data source, or null, having logged
+     * why, if none can be had, for the primary data source to be used
+     * instead.
+     */
+    protected Connection getReadConnection() {
+        Connection conn;
+        try {
+            conn = DBConnectionManager.getInstance().getConnection(getReadDataSource());
+        } catch (Throwable e) {
+            getLog().warn("Failed to obtain DB connection from read data source '"
+                    + getReadDataSource() + "', reading from '" + getDataSource() + "': " + e.toString());
+            return null;
+        }
+
+        if (conn == null) {
+            getLog().warn("Could not get connection from read data source '"
+                    + getReadDataSource() + "', reading from '" + getDataSource() + "'");
+            return null;
+        }
+
+        // Protect connection attributes we might change.
+        conn = getAttributeRestoringConnection(conn);
+
+        try {
+            if (!isDontSetAutoCommitFalse()) {
+                conn.setAutoCommit(false);
+            }
+        } catch (SQLException sqle) {
+            getLog().warn("Failed to override connection auto commit.", sqle);
+        }
+        return conn;
+    }
+
+    /**
+     * Records that data was changed under the given lock, if any, for the
+     * reads of <code>{@link #executeWithoutLock(TransactionCallback)}</code>
+     * to use the primary data source while the read data source may lag.
+     * Called by the implementations of
+     * <code>{@link #executeInLock(String, TransactionCallback)}</code>.
+     */
+    protected void dataChanged(String lockName) {
+        if (lockName != null && getReadDataSource() != null) {
+            lastChangeTime = System.currentTimeMillis();
+        }
+    }
+
     /**
      * Execute the given callback having acquired the given lock.
      * Depending on the JobStore, the surrounding transaction may be 
@@ -0,0 +1,59 @@
+package org.quartz.impl.jdbcjobstore;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+import org.quartz.impl.jdbcjobstore.TriggerPersistenceDelegate.TriggerPropertyBundle;
+import org.quartz.spi.OperableTrigger;
+
+/**
+ * A <code>{@link TriggerPersistenceDelegate}</code> whose extended properties
+ * are kept in a single table keyed by scheduler name, trigger name and
+ * trigger group, which can therefore be joined to the triggers table.  This
+ * lets the set-based trigger acquisition query load triggers of this type
+ * together with their extended properties, and the bulk store and fire
+ * paths to write the extended properties of many triggers in one JDBC
+ * batch.
+ * 
+ * <p>
+ * The extended properties columns, other than the key columns, must not
+ * have the names of columns of the triggers table or of other joinable
+ * delegates' tables.
+ * </p>
+ * 
+ * @see JobStoreSupport#setBulkTriggerAcquisition(boolean)
+ */
+public interface JoinableTriggerPersistenceDelegate extends TriggerPersistenceDelegate {
+
+    /**
+     * @return the name of the extended properties table, without the table
+     * prefix
+     */
+    public String getExtendedPropertiesTableName();
+
+    /**
+     * Reads the extended properties of the current row of the given
+     * <code>ResultSet</code>, which includes the columns of the extended
+     * properties table.
+     */
+    public TriggerPropertyBundle readExtendedTriggerProperties(ResultSet rs) throws SQLException;
+
+    /**
+     * Inserts the extended properties of the given triggers, which are all of
+     * the type handled by this delegate, as one JDBC batch.
+     * 
+     * @return the update counts of the batch
+     */
+    public int[] insertExtendedTriggerProperties(Connection conn, List<OperableTrigger> triggers) throws SQLException, IOException;
+
+    /**
+     * Updates the extended properties of the given triggers, which are all of
+     * the type handled by this delegate, as one JDBC batch.
+     * 
+     * @return the update counts of the batch
+     */
+    public int[] updateExtendedTriggerProperties(Connection conn, List<OperableTrigger> triggers) throws SQLException, IOException;
+}
@@ -19,7 +19,6 @@ package org.quartz.impl.jdbcjobstore;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.ObjectInputStream;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 
@@ -67,12 +66,7 @@ public class MSSQLDelegate extends StdJDBCDelegate {
 
         Object obj = null;
 
-        ObjectInputStream in = new ObjectInputStream(binaryInput);
-        try {
-            obj = in.readObject();
-        } finally {
-            in.close();
-        }
+        obj = deserializeObject(binaryInput);
 
         return obj;
     }
@@ -0,0 +1,39 @@
+/* 
+ * Copyright 2001-2009 Terracotta, Inc. 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not 
+ * use this file except in compliance with the License. You may obtain a copy 
+ * of the License at 
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0 
+ *   
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations 
+ * under the License.
+ * 
+ */
+
+package org.quartz.impl.jdbcjobstore;
+
+/**
+ * <p>
+ * This is a driver delegate for MySQL 8.0 and later, which can skip locked
+ * rows when acquiring triggers.  Otherwise the same as the
+ * <code>{@link StdJDBCDelegate}</code>.
+ * </p>
+ * 
+ * @see JobStoreSupport#setAcquireTriggersWithSkipLocked(boolean)
+ */
+public class MySQL8Delegate extends StdJDBCDelegate {
+
+    //---------------------------------------------------------------------------
+    // protected methods that can be overridden by subclasses
+    //---------------------------------------------------------------------------
+
+    @Override
+    protected String getSkipLockedClause() {
+        return " FOR UPDATE OF T SKIP LOCKED";
+    }
+}
@@ -0,0 +1,141 @@
+/* 
+ * Copyright 2001-2009 Terracotta, Inc. 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not 
+ * use this file except in compliance with the License. You may obtain a copy 
+ * of the License at 
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0 
+ *   
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations 
+ * under the License.
+ * 
+ */
+
+package org.quartz.impl.jdbcjobstore;
+
+import java.sql.Connection;
+
+import org.quartz.JobKey;
+
+/**
+ * A <code>{@link Semaphore}</code> that splits the <code>TRIGGER_ACCESS</code>
+ * lock into several partitions, <code>TRIGGER_ACCESS_0</code> to
+ * <code>TRIGGER_ACCESS_&lt;n-1&gt;</code>, each guarding the triggers of the
+ * jobs that hash to it, and delegates the locking of each to another
+ * <code>Semaphore</code>.
+ * 
+ * <p>
+ * Obtaining the <code>TRIGGER_ACCESS</code> lock itself obtains all of the
+ * partitions, in order, so that operations which are not confined to the
+ * triggers of one partition are still serialized with everything else.
+ * Other locks are passed through.
+ * </p>
+ * 
+ * @see JobStoreSupport#setTriggerAccessLockPartitions(int)
+ */
+public class PartitionedTriggerAccessSemaphore implements Semaphore {
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     * 
+     * Data members.
+     * 
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    private final Semaphore lockHandler;
+
+    private final String[] partitionLockNames;
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     * 
+     * Constructors.
+     * 
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    public PartitionedTriggerAccessSemaphore(Semaphore lockHandler, int partitions) {
+        if (partitions < 1) {
+            throw new IllegalArgumentException("partitions must be at least 1");
+        }
+        this.lockHandler = lockHandler;
+        this.partitionLockNames = new String[partitions];
+        for (int i = 0; i < partitions; i++) {
+            partitionLockNames[i] = JobStoreSupport.LOCK_TRIGGER_ACCESS + "_" + i;
+        }
+    }
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     * 
+     * Interface.
+     * 
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    public Semaphore getLockHandler() {
+        return lockHandler;
+    }
+
+    public int getPartitions() {
+        return partitionLockNames.length;
+    }
+
+    /**
+     * @return the partition guarding the triggers of the given job, which
+     * only depends on the job's name and group, so all the nodes of a cluster
+     * agree on it
+     */
+    public int partitionOf(JobKey jobKey) {
+        int hash = 31 * jobKey.getGroup().hashCode() + jobKey.getName().hashCode();
+        return (hash & Integer.MAX_VALUE) % partitionLockNames.length;
+    }
+
+    /**
+     * @return the name of the lock of the given partition
+     */
+    public String getPartitionLockName(int partition) {
+        return partitionLockNames[partition];
+    }
+
+    public boolean obtainLock(Connection conn, String lockName) throws LockException {
+        if (!JobStoreSupport.LOCK_TRIGGER_ACCESS.equals(lockName)) {
+            return lockHandler.obtainLock(conn, lockName);
+        }
+
+        int obtained = 0;
+        try {
+            for (; obtained < partitionLockNames.length; obtained++) {
+                lockHandler.obtainLock(conn, partitionLockNames[obtained]);
+            }
+        } finally {
+            if (obtained < partitionLockNames.length) {
+                releasePartitions(obtained);
+            }
+        }
+        return true;
+    }
+
+    public void releaseLock(String lockName) throws LockException {
+        if (!JobStoreSupport.LOCK_TRIGGER_ACCESS.equals(lockName)) {
+            lockHandler.releaseLock(lockName);
+        } else {
+            releasePartitions(partitionLockNames.length);
+        }
+    }
+
+    public boolean requiresConnection() {
+        return lockHandler.requiresConnection();
+    }
+
+    private void releasePartitions(int count) throws LockException {
+        for (int i = count - 1; i >= 0; i--) {
+            lockHandler.releaseLock(partitionLockNames[i]);
+        }
+    }
+}
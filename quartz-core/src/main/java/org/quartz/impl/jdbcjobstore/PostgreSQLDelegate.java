@@ -20,7 +20,6 @@ package org.quartz.impl.jdbcjobstore;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.ObjectInputStream;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 
@@ -40,6 +39,16 @@ public class PostgreSQLDelegate extends StdJDBCDelegate {
     // protected methods that can be overridden by subclasses
     //---------------------------------------------------------------------------
 
+    /**
+     * <p>
+     * PostgreSQL 9.5 and later can skip locked rows.
+     * </p>
+     */
+    @Override
+    protected String getSkipLockedClause() {
+        return " FOR UPDATE OF T SKIP LOCKED";
+    }
+
     /**
      * <p>
      * This method should be overridden by any delegate subclasses that need
@@ -68,12 +77,7 @@ public class PostgreSQLDelegate extends StdJDBCDelegate {
         if(bytes != null && bytes.length != 0) {
             binaryInput = new ByteArrayInputStream(bytes);
         
-            ObjectInputStream in = new ObjectInputStream(binaryInput);
-            try {
-                obj = in.readObject();
-            } finally {
-                in.close();
-            }
+            obj = deserializeObject(binaryInput);
 
         }
         
@@ -5,6 +5,9 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 import org.quartz.JobDetail;
 import org.quartz.ScheduleBuilder;
@@ -22,7 +25,7 @@ import org.quartz.spi.OperableTrigger;
  * 
  * @author jhouse
  */
-public abstract class SimplePropertiesTriggerPersistenceDelegateSupport implements TriggerPersistenceDelegate, StdJDBCConstants {
+public abstract class SimplePropertiesTriggerPersistenceDelegateSupport implements JoinableTriggerPersistenceDelegate, StdJDBCConstants {
 
     protected static final String TABLE_SIMPLE_PROPERTIES_TRIGGERS = "SIMPROP_TRIGGERS";
     
@@ -74,9 +77,13 @@ public abstract class SimplePropertiesTriggerPersistenceDelegateSupport implemen
 
     protected String schedNameLiteral;
 
+    // the queries of the constants, with the table prefix and scheduler name substituted
+    private Map<String, String> compiledSql = Collections.emptyMap();
+
     public void initialize(String theTablePrefix, String schedName) {
         this.tablePrefix = theTablePrefix;
         this.schedNameLiteral = "'" + schedName + "'";
+        this.compiledSql = Util.rtpAll(getClass(), theTablePrefix, schedNameLiteral);
     }
 
     protected abstract SimplePropertiesTriggerProperties getTriggerProperties(OperableTrigger trigger);
@@ -87,7 +94,7 @@ public abstract class SimplePropertiesTriggerPersistenceDelegateSupport implemen
         PreparedStatement ps = null;
 
         try {
-            ps = conn.prepareStatement(Util.rtp(DELETE_SIMPLE_PROPS_TRIGGER, tablePrefix, schedNameLiteral));
+            ps = conn.prepareStatement(rtp(DELETE_SIMPLE_PROPS_TRIGGER));
             ps.setString(1, triggerKey.getName());
             ps.setString(2, triggerKey.getGroup());
 
@@ -99,25 +106,11 @@ public abstract class SimplePropertiesTriggerPersistenceDelegateSupport implemen
 
     public int insertExtendedTriggerProperties(Connection conn, OperableTrigger trigger, String state, JobDetail jobDetail) throws SQLException, IOException {
 
-        SimplePropertiesTriggerProperties properties = getTriggerProperties(trigger);
-        
         PreparedStatement ps = null;
         
         try {
-            ps = conn.prepareStatement(Util.rtp(INSERT_SIMPLE_PROPS_TRIGGER, tablePrefix, schedNameLiteral));
-            ps.setString(1, trigger.getKey().getName());
-            ps.setString(2, trigger.getKey().getGroup());
-            ps.setString(3, properties.getString1());
-            ps.setString(4, properties.getString2());
-            ps.setString(5, properties.getString3());
-            ps.setInt(6, properties.getInt1());
-            ps.setInt(7, properties.getInt2());
-            ps.setLong(8, properties.getLong1());
-            ps.setLong(9, properties.getLong2());
-            ps.setBigDecimal(10, properties.getDecimal1());
-            ps.setBigDecimal(11, properties.getDecimal2());
-            ps.setBoolean(12, properties.isBoolean1());
-            ps.setBoolean(13, properties.isBoolean2());
+            ps = conn.prepareStatement(rtp(INSERT_SIMPLE_PROPS_TRIGGER));
+            setInsertParameters(ps, trigger);
 
             return ps.executeUpdate();
         } finally {
@@ -125,33 +118,55 @@ public abstract class SimplePropertiesTriggerPersistenceDelegateSupport implemen
         }
     }
 
+    public int[] insertExtendedTriggerProperties(Connection conn, List<OperableTrigger> triggers) throws SQLException, IOException {
+
+        PreparedStatement ps = null;
+        
+        try {
+            ps = conn.prepareStatement(rtp(INSERT_SIMPLE_PROPS_TRIGGER));
+            for (OperableTrigger trigger : triggers) {
+                setInsertParameters(ps, trigger);
+                ps.addBatch();
+            }
+
+            return ps.executeBatch();
+        } finally {
+            Util.closeStatement(ps);
+        }
+    }
+
+    private void setInsertParameters(PreparedStatement ps, OperableTrigger trigger) throws SQLException {
+
+        SimplePropertiesTriggerProperties properties = getTriggerProperties(trigger);
+        
+        ps.setString(1, trigger.getKey().getName());
+        ps.setString(2, trigger.getKey().getGroup());
+        ps.setString(3, properties.getString1());
+        ps.setString(4, properties.getString2());
+        ps.setString(5, properties.getString3());
+        ps.setInt(6, properties.getInt1());
+        ps.setInt(7, properties.getInt2());
+        ps.setLong(8, properties.getLong1());
+        ps.setLong(9, properties.getLong2());
+        ps.setBigDecimal(10, properties.getDecimal1());
+        ps.setBigDecimal(11, properties.getDecimal2());
+        ps.setBoolean(12, properties.isBoolean1());
+        ps.setBoolean(13, properties.isBoolean2());
+    }
+
     public TriggerPropertyBundle loadExtendedTriggerProperties(Connection conn, TriggerKey triggerKey) throws SQLException {
 
         PreparedStatement ps = null;
         ResultSet rs = null;
         
         try {
-            ps = conn.prepareStatement(Util.rtp(SELECT_SIMPLE_PROPS_TRIGGER, tablePrefix, schedNameLiteral));
+            ps = conn.prepareStatement(rtp(SELECT_SIMPLE_PROPS_TRIGGER));
             ps.setString(1, triggerKey.getName());
             ps.setString(2, triggerKey.getGroup());
             rs = ps.executeQuery();
     
             if (rs.next()) {
-                SimplePropertiesTriggerProperties properties = new SimplePropertiesTriggerProperties();
-                    
-                properties.setString1(rs.getString(COL_STR_PROP_1));
-                properties.setString2(rs.getString(COL_STR_PROP_2));
-                properties.setString3(rs.getString(COL_STR_PROP_3));
-                properties.setInt1(rs.getInt(COL_INT_PROP_1));
-                properties.setInt2(rs.getInt(COL_INT_PROP_2));
-                properties.setLong1(rs.getInt(COL_LONG_PROP_1));
-                properties.setLong2(rs.getInt(COL_LONG_PROP_2));
-                properties.setDecimal1(rs.getBigDecimal(COL_DEC_PROP_1));
-                properties.setDecimal2(rs.getBigDecimal(COL_DEC_PROP_2));
-                properties.setBoolean1(rs.getBoolean(COL_BOOL_PROP_1));
-                properties.setBoolean2(rs.getBoolean(COL_BOOL_PROP_2));
-                
-                return getTriggerPropertyBundle(properties);
+                return readExtendedTriggerProperties(rs);
             }
             
             throw new IllegalStateException("No record found for selection of Trigger with key: '" + triggerKey + "' and statement: " + Util.rtp(SELECT_SIMPLE_TRIGGER, tablePrefix, schedNameLiteral));
@@ -161,27 +176,35 @@ public abstract class SimplePropertiesTriggerPersistenceDelegateSupport implemen
         }
     }
 
-    public int updateExtendedTriggerProperties(Connection conn, OperableTrigger trigger, String state, JobDetail jobDetail) throws SQLException, IOException {
+    public String getExtendedPropertiesTableName() {
+        return TABLE_SIMPLE_PROPERTIES_TRIGGERS;
+    }
 
-        SimplePropertiesTriggerProperties properties = getTriggerProperties(trigger);
+    public TriggerPropertyBundle readExtendedTriggerProperties(ResultSet rs) throws SQLException {
+        SimplePropertiesTriggerProperties properties = new SimplePropertiesTriggerProperties();
+            
+        properties.setString1(rs.getString(COL_STR_PROP_1));
+        properties.setString2(rs.getString(COL_STR_PROP_2));
+        properties.setString3(rs.getString(COL_STR_PROP_3));
+        properties.setInt1(rs.getInt(COL_INT_PROP_1));
+        properties.setInt2(rs.getInt(COL_INT_PROP_2));
+        properties.setLong1(rs.getInt(COL_LONG_PROP_1));
+        properties.setLong2(rs.getInt(COL_LONG_PROP_2));
+        properties.setDecimal1(rs.getBigDecimal(COL_DEC_PROP_1));
+        properties.setDecimal2(rs.getBigDecimal(COL_DEC_PROP_2));
+        properties.setBoolean1(rs.getBoolean(COL_BOOL_PROP_1));
+        properties.setBoolean2(rs.getBoolean(COL_BOOL_PROP_2));
         
-        PreparedStatement ps = null;
+        return getTriggerPropertyBundle(properties);
+    }
+
+    public int updateExtendedTriggerProperties(Connection conn, OperableTrigger trigger, String state, JobDetail jobDetail) throws SQLException, IOException {
 
+        PreparedStatement ps = null;
+        
         try {
-            ps = conn.prepareStatement(Util.rtp(UPDATE_SIMPLE_PROPS_TRIGGER, tablePrefix, schedNameLiteral));
-            ps.setString(1, properties.getString1());
-            ps.setString(2, properties.getString2());
-            ps.setString(3, properties.getString3());
-            ps.setInt(4, properties.getInt1());
-            ps.setInt(5, properties.getInt2());
-            ps.setLong(6, properties.getLong1());
-            ps.setLong(7, properties.getLong2());
-            ps.setBigDecimal(8, properties.getDecimal1());
-            ps.setBigDecimal(9, properties.getDecimal2());
-            ps.setBoolean(10, properties.isBoolean1());
-            ps.setBoolean(11, properties.isBoolean2());
-            ps.setString(12, trigger.getKey().getName());
-            ps.setString(13, trigger.getKey().getGroup());
+            ps = conn.prepareStatement(rtp(UPDATE_SIMPLE_PROPS_TRIGGER));
+            setUpdateParameters(ps, trigger);
 
             return ps.executeUpdate();
         } finally {
@@ -189,4 +212,47 @@ public abstract class SimplePropertiesTriggerPersistenceDelegateSupport implemen
         }
     }
 
+    public int[] updateExtendedTriggerProperties(Connection conn, List<OperableTrigger> triggers) throws SQLException, IOException {
+
+        PreparedStatement ps = null;
+        
+        try {
+            ps = conn.prepareStatement(rtp(UPDATE_SIMPLE_PROPS_TRIGGER));
+            for (OperableTrigger trigger : triggers) {
+                setUpdateParameters(ps, trigger);
+                ps.addBatch();
+            }
+
+            return ps.executeBatch();
+        } finally {
+            Util.closeStatement(ps);
+        }
+    }
+
+    private void setUpdateParameters(PreparedStatement ps, OperableTrigger trigger) throws SQLException {
+
+        SimplePropertiesTriggerProperties properties = getTriggerProperties(trigger);
+        
+        ps.setString(1, properties.getString1());
+        ps.setString(2, properties.getString2());
+        ps.setString(3, properties.getString3());
+        ps.setInt(4, properties.getInt1());
+        ps.setInt(5, properties.getInt2());
+        ps.setLong(6, properties.getLong1());
+        ps.setLong(7, properties.getLong2());
+        ps.setBigDecimal(8, properties.getDecimal1());
+        ps.setBigDecimal(9, properties.getDecimal2());
+        ps.setBoolean(10, properties.isBoolean1());
+        ps.setBoolean(11, properties.isBoolean2());
+        ps.setString(12, trigger.getKey().getName());
+        ps.setString(13, trigger.getKey().getGroup());
+    }
+
+    private String rtp(String query) {
+        String sql = compiledSql.get(query);
+        if (sql != null) {
+            return sql;
+        }
+        return Util.rtp(query, tablePrefix, schedNameLiteral);
+    }
 }
@@ -172,6 +172,15 @@ public interface StdJDBCConstants extends Constants {
             + " AND " + COL_JOB_NAME
             + " = ? AND " + COL_JOB_GROUP + " = ?";
 
+    // followed by JOB_KEY_CONDITION for each job, OR-ed together in parentheses
+    String SELECT_JOBS_EXISTENCE = "SELECT " + COL_JOB_NAME + ", "
+            + COL_JOB_GROUP + " FROM " + TABLE_PREFIX_SUBST + TABLE_JOB_DETAILS
+            + " WHERE " + COL_SCHEDULER_NAME + " = " + SCHED_NAME_SUBST 
+            + " AND ";
+
+    String JOB_KEY_CONDITION = "(" + COL_JOB_NAME + " = ? AND "
+            + COL_JOB_GROUP + " = ?)";
+
     String UPDATE_JOB_DATA = "UPDATE " + TABLE_PREFIX_SUBST
             + TABLE_JOB_DETAILS + " SET " + COL_JOB_DATAMAP + " = ? "
             + " WHERE " 
@@ -408,6 +417,16 @@ public interface StdJDBCConstants extends Constants {
             + " AND " + COL_TRIGGER_NAME + " = ? AND "
             + COL_TRIGGER_GROUP + " = ?";
 
+    // followed by TRIGGER_KEY_CONDITION for each trigger, OR-ed together in parentheses
+    String SELECT_TRIGGER_STATES = "SELECT "
+            + COL_TRIGGER_NAME + ", " + COL_TRIGGER_GROUP + ", "
+            + COL_TRIGGER_STATE + " FROM " + TABLE_PREFIX_SUBST
+            + TABLE_TRIGGERS + " WHERE " + COL_SCHEDULER_NAME + " = " + SCHED_NAME_SUBST
+            + " AND ";
+
+    String TRIGGER_KEY_CONDITION = "(" + COL_TRIGGER_NAME + " = ? AND "
+            + COL_TRIGGER_GROUP + " = ?)";
+
     String SELECT_TRIGGER_STATUS = "SELECT "
             + COL_TRIGGER_STATE + ", " + COL_NEXT_FIRE_TIME + ", "
             + COL_JOB_NAME + ", " + COL_JOB_GROUP + " FROM "
@@ -415,6 +434,14 @@ public interface StdJDBCConstants extends Constants {
             + COL_SCHEDULER_NAME + " = " + SCHED_NAME_SUBST
             + " AND " + COL_TRIGGER_NAME + " = ? AND " + COL_TRIGGER_GROUP + " = ?";
 
+    // followed by TRIGGER_KEY_CONDITION for each trigger, OR-ed together in parentheses
+    String SELECT_TRIGGER_STATUSES = "SELECT "
+            + COL_TRIGGER_NAME + ", " + COL_TRIGGER_GROUP + ", "
+            + COL_TRIGGER_STATE + ", " + COL_NEXT_FIRE_TIME + ", "
+            + COL_JOB_NAME + ", " + COL_JOB_GROUP + " FROM "
+            + TABLE_PREFIX_SUBST + TABLE_TRIGGERS + " WHERE "
+            + COL_SCHEDULER_NAME + " = " + SCHED_NAME_SUBST + " AND ";
+
     String SELECT_SIMPLE_TRIGGER = "SELECT *" + " FROM "
             + TABLE_PREFIX_SUBST + TABLE_SIMPLE_TRIGGERS + " WHERE "
             + COL_SCHEDULER_NAME + " = " + SCHED_NAME_SUBST
@@ -514,7 +541,17 @@ public interface StdJDBCConstants extends Constants {
         + " AND " + COL_TRIGGER_STATE + " = ? AND " + COL_NEXT_FIRE_TIME + " <= ? " 
         + "AND (" + COL_MISFIRE_INSTRUCTION + " = -1 OR (" +COL_MISFIRE_INSTRUCTION+ " != -1 AND "+ COL_NEXT_FIRE_TIME + " >= ?)) "
         + "ORDER BY "+ COL_NEXT_FIRE_TIME + " ASC, " + COL_PRIORITY + " DESC";
-    
+
+
+    String SELECT_NEXT_TRIGGER_JOB_KEYS_TO_ACQUIRE = "SELECT "
+        + COL_TRIGGER_NAME + ", " + COL_TRIGGER_GROUP + ", "
+        + COL_JOB_NAME + ", " + COL_JOB_GROUP + ", "
+        + COL_NEXT_FIRE_TIME + ", " + COL_PRIORITY + " FROM "
+        + TABLE_PREFIX_SUBST + TABLE_TRIGGERS + " WHERE "
+        + COL_SCHEDULER_NAME + " = " + SCHED_NAME_SUBST
+        + " AND " + COL_TRIGGER_STATE + " = ? AND " + COL_NEXT_FIRE_TIME + " <= ? " 
+        + "AND (" + COL_MISFIRE_INSTRUCTION + " = -1 OR (" +COL_MISFIRE_INSTRUCTION+ " != -1 AND "+ COL_NEXT_FIRE_TIME + " >= ?)) "
+        + "ORDER BY "+ COL_NEXT_FIRE_TIME + " ASC, " + COL_PRIORITY + " DESC";    
     
     String INSERT_FIRED_TRIGGER = "INSERT INTO "
             + TABLE_PREFIX_SUBST + TABLE_FIRED_TRIGGERS + " (" + COL_SCHEDULER_NAME + ", " + COL_ENTRY_ID
@@ -662,6 +699,20 @@ public interface StdJDBCConstants extends Constants {
             + TABLE_PREFIX_SUBST + TABLE_PAUSED_TRIGGERS
             + " WHERE " + COL_SCHEDULER_NAME + " = " + SCHED_NAME_SUBST;
 
+    String SELECT_DATA_VERSIONS = "SELECT " + COL_VERSION_NAME + ", "
+            + COL_DATA_VERSION + " FROM " + TABLE_PREFIX_SUBST + TABLE_DATA_VERSIONS
+            + " WHERE " + COL_SCHEDULER_NAME + " = " + SCHED_NAME_SUBST;
+
+    String UPDATE_DATA_VERSION = "UPDATE " + TABLE_PREFIX_SUBST
+            + TABLE_DATA_VERSIONS + " SET " + COL_DATA_VERSION + " = "
+            + COL_DATA_VERSION + " + 1 WHERE " + COL_SCHEDULER_NAME + " = "
+            + SCHED_NAME_SUBST + " AND " + COL_VERSION_NAME + " = ?";
+
+    String INSERT_DATA_VERSION = "INSERT INTO " + TABLE_PREFIX_SUBST
+            + TABLE_DATA_VERSIONS + " (" + COL_SCHEDULER_NAME + ", "
+            + COL_VERSION_NAME + ", " + COL_DATA_VERSION + ") VALUES("
+            + SCHED_NAME_SUBST + ", ?, 1)";
+
     //  CREATE TABLE qrtz_scheduler_state(INSTANCE_NAME VARCHAR2(80) NOT NULL,
     // LAST_CHECKIN_TIME NUMBER(13) NOT NULL, CHECKIN_INTERVAL NUMBER(13) NOT
     // NULL, PRIMARY KEY (INSTANCE_NAME));
@@ -35,15 +35,19 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.WeakHashMap;
 
 import org.quartz.Calendar;
 import org.quartz.Job;
@@ -62,6 +66,7 @@ import org.quartz.impl.matchers.GroupMatcher;
 import org.quartz.impl.matchers.StringMatcher;
 import org.quartz.impl.triggers.SimpleTriggerImpl;
 import org.quartz.spi.ClassLoadHelper;
+import org.quartz.spi.JobDataSerializer;
 import org.quartz.spi.OperableTrigger;
 import org.slf4j.Logger;
 
@@ -86,6 +91,9 @@ public class StdJDBCDelegate implements DriverDelegate, StdJDBCConstants {
      * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
      */
 
+    // the number of keys looked up by each query of the multi-key selects
+    protected static final int MAX_KEYS_PER_SELECT = 250;
+
     protected Logger logger = null;
 
     protected String tablePrefix = DEFAULT_TABLE_PREFIX;
@@ -95,11 +103,26 @@ public class StdJDBCDelegate implements DriverDelegate, StdJDBCConstants {
     protected String schedName;
 
     protected boolean useProperties;
+
+    protected JobDataSerializer jobDataSerializer;
     
     protected ClassLoadHelper classLoadHelper;
 
     protected List<TriggerPersistenceDelegate> triggerPersistenceDelegates = new LinkedList<TriggerPersistenceDelegate>();
 
+    // the extension tables joined by the trigger acquisition query, by name, in join order
+    private volatile List<String> acquisitionJoinedTables;
+
+    private volatile String selectTriggersToAcquireSql;
+
+    private volatile String selectMisfiredTriggersSql;
+
+    // the queries of the constants, with the table prefix and scheduler name substituted
+    private Map<String, String> compiledSql = Collections.emptyMap();
+
+    // the statements of prepareCachedStatement, by connection and query, if they are cached
+    private Map<Connection, Map<String, PreparedStatement>> cachedStatements;
+
     
     /*
      * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
@@ -137,6 +160,7 @@ public class StdJDBCDelegate implements DriverDelegate, StdJDBCConstants {
         this.instanceId = instanceId;
         this.useProperties = useProperties;
         this.classLoadHelper = classLoadHelper;
+        this.compiledSql = Util.rtpAll(getClass(), tablePrefix, getSchedulerNameLiteral());
         addDefaultTriggerPersistenceDelegates();
 
         if(initString == null)
@@ -178,11 +202,43 @@ public class StdJDBCDelegate implements DriverDelegate, StdJDBCConstants {
     protected boolean canUseProperties() {
         return useProperties;
     }
+
+    /**
+     * <p>
+     * Set the serializer of JobDataMaps (when properties are not used) and
+     * Calendars.  If null, standard Java serialization is used.
+     * </p>
+     */
+    public void setJobDataSerializer(JobDataSerializer jobDataSerializer) {
+        this.jobDataSerializer = jobDataSerializer;
+    }
+
+    public JobDataSerializer getJobDataSerializer() {
+        return jobDataSerializer;
+    }
+
+    /**
+     * <p>
+     * Set whether the statements of the queries run for each trigger that
+     * is acquired, fired or completed are kept open, and reused, until
+     * <code>{@link #closeCachedStatements(Connection)}</code> is called for
+     * their connection.
+     * </p>
+     */
+    public void setCacheStatements(boolean cacheStatements) {
+        this.cachedStatements = cacheStatements ? new WeakHashMap<Connection, Map<String, PreparedStatement>>() : null;
+    }
+
+    public boolean isCacheStatements() {
+        return cachedStatements != null;
+    }
     
     public void addTriggerPersistenceDelegate(TriggerPersistenceDelegate delegate) {
         logger.debug("Adding TriggerPersistenceDelegate of type: " + delegate.getClass().getCanonicalName());
         delegate.initialize(tablePrefix, schedName);
         this.triggerPersistenceDelegates.add(delegate);
+        this.selectTriggersToAcquireSql = null;
+        this.selectMisfiredTriggersSql = null;
     }
     
     public TriggerPersistenceDelegate findTriggerPersistenceDelegate(OperableTrigger trigger)  {
@@ -611,15 +667,7 @@ public class StdJDBCDelegate implements DriverDelegate, StdJDBCConstants {
 
         try {
             ps = conn.prepareStatement(rtp(INSERT_JOB_DETAIL));
-            ps.setString(1, job.getKey().getName());
-            ps.setString(2, job.getKey().getGroup());
-            ps.setString(3, job.getDescription());
-            ps.setString(4, job.getJobClass().getName());
-            setBoolean(ps, 5, job.isDurable());
-            setBoolean(ps, 6, job.isConcurrentExectionDisallowed());
-            setBoolean(ps, 7, job.isPersistJobDataAfterExecution());
-            setBoolean(ps, 8, job.requestsRecovery());
-            setBytes(ps, 9, baos);
+            setJobDetailInsertParameters(ps, job, baos);
 
             insertResult = ps.executeUpdate();
         } finally {
@@ -629,6 +677,71 @@ public class StdJDBCDelegate implements DriverDelegate, StdJDBCConstants {
         return insertResult;
     }
 
+    /**
+     * <p>
+     * Insert the given job details in one JDBC batch.
+     * </p>
+     * 
+     * @param conn
+     *          the DB Connection
+     * @param jobs
+     *          the jobs to insert
+     * @return the number of rows inserted for each job
+     * @throws IOException
+     *           if there were problems serializing the JobDataMaps
+     */
+    public int[] insertJobDetails(Connection conn, List<JobDetail> jobs)
+        throws IOException, SQLException {
+        if (!canBatchBlobWrites()) {
+            int[] insertResults = new int[jobs.size()];
+            for (int i = 0; i < jobs.size(); i++) {
+                insertResults[i] = insertJobDetail(conn, jobs.get(i));
+            }
+            return insertResults;
+        }
+        if (jobs.isEmpty()) {
+            return new int[0];
+        }
+        PreparedStatement ps = null;
+
+        try {
+            ps = conn.prepareStatement(rtp(INSERT_JOB_DETAIL));
+            for (JobDetail job : jobs) {
+                setJobDetailInsertParameters(ps, job, serializeJobData(job.getJobDataMap()));
+                ps.addBatch();
+            }
+
+            return ps.executeBatch();
+        } finally {
+            closeStatement(ps);
+        }
+    }
+
+    /**
+     * <p>
+     * Whether the job data of job and trigger records can be written as a
+     * parameter of a batched statement.  Delegates that write it in a
+     * separate step return <code>false</code>, and the batched job and
+     * trigger writes then fall back to writing each row on its own.
+     * </p>
+     */
+    protected boolean canBatchBlobWrites() {
+        return true;
+    }
+
+    private void setJobDetailInsertParameters(PreparedStatement ps, JobDetail job,
+            ByteArrayOutputStream baos) throws SQLException {
+        ps.setString(1, job.getKey().getName());
+        ps.setString(2, job.getKey().getGroup());
+        ps.setString(3, job.getDescription());
+        ps.setString(4, job.getJobClass().getName());
+        setBoolean(ps, 5, job.isDurable());
+        setBoolean(ps, 6, job.isConcurrentExectionDisallowed());
+        setBoolean(ps, 7, job.isPersistJobDataAfterExecution());
+        setBoolean(ps, 8, job.requestsRecovery());
+        setBytes(ps, 9, baos);
+    }
+
     /**
      * <p>
      * Update the job detail record.
@@ -786,6 +899,57 @@ public class StdJDBCDelegate implements DriverDelegate, StdJDBCConstants {
 
     }
 
+    /**
+     * <p>
+     * Select which of the given jobs exist, with one query per
+     * <code>MAX_KEYS_PER_SELECT</code> jobs.
+     * </p>
+     * 
+     * @param conn
+     *          the DB Connection
+     * @param jobKeys
+     *          the jobs to look for
+     * @return the keys of the jobs that exist
+     */
+    public Set<JobKey> selectExistingJobKeys(Connection conn, List<JobKey> jobKeys)
+        throws SQLException {
+        Set<JobKey> existing = new HashSet<JobKey>();
+        for (int from = 0; from < jobKeys.size(); from += MAX_KEYS_PER_SELECT) {
+            List<JobKey> chunk = jobKeys.subList(from, Math.min(jobKeys.size(), from + MAX_KEYS_PER_SELECT));
+            PreparedStatement ps = null;
+            ResultSet rs = null;
+
+            try {
+                ps = conn.prepareStatement(rtp(keySelect(SELECT_JOBS_EXISTENCE, JOB_KEY_CONDITION, chunk.size())));
+                int index = 1;
+                for (JobKey jobKey : chunk) {
+                    ps.setString(index++, jobKey.getName());
+                    ps.setString(index++, jobKey.getGroup());
+                }
+                rs = ps.executeQuery();
+                while (rs.next()) {
+                    existing.add(jobKey(rs.getString(COL_JOB_NAME), rs.getString(COL_JOB_GROUP)));
+                }
+            } finally {
+                closeResultSet(rs);
+                closeStatement(ps);
+            }
+        }
+        return existing;
+    }
+
+    private static String keySelect(String select, String keyCondition, int count) {
+        StringBuilder sql = new StringBuilder(select.length() + count * (keyCondition.length() + 4) + 2);
+        sql.append(select).append('(');
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                sql.append(" OR ");
+            }
+            sql.append(keyCondition);
+        }
+        return sql.append(')').toString();
+    }
+
     /**
      * <p>
      * Update the job data map for the given job.
@@ -804,14 +968,14 @@ public class StdJDBCDelegate implements DriverDelegate, StdJDBCConstants {
         PreparedStatement ps = null;
 
         try {
-            ps = conn.prepareStatement(rtp(UPDATE_JOB_DATA));
+            ps = prepareCachedStatement(conn, rtp(UPDATE_JOB_DATA));
             setBytes(ps, 1, baos);
             ps.setString(2, job.getKey().getName());
             ps.setString(3, job.getKey().getGroup());
 
             return ps.executeUpdate();
         } finally {
-            closeStatement(ps);
+            releaseCachedStatement(ps);
         }
     }
 
@@ -836,7 +1000,7 @@ public class StdJDBCDelegate implements DriverDelegate, StdJDBCConstants {
         ResultSet rs = null;
 
         try {
-            ps = conn.prepareStatement(rtp(SELECT_JOB_DETAIL));
+            ps = prepareCachedStatement(conn, rtp(SELECT_JOB_DETAIL));
             ps.setString(1, jobKey.getName());
             ps.setString(2, jobKey.getGroup());
             rs = ps.executeQuery();
@@ -868,7 +1032,7 @@ public class StdJDBCDelegate implements DriverDelegate, StdJDBCConstants {
             return job;
         } finally {
             closeResultSet(rs);
-            closeStatement(ps);
+            releaseCachedStatement(ps);
         }
     }
 
@@ -1054,41 +1218,8 @@ public class StdJDBCDelegate implements DriverDelegate, StdJDBCConstants {
 
         try {
             ps = conn.prepareStatement(rtp(INSERT_TRIGGER));
-            ps.setString(1, trigger.getKey().getName());
-            ps.setString(2, trigger.getKey().getGroup());
-            ps.setString(3, trigger.getJobKey().getName());
-            ps.setString(4, trigger.getJobKey().getGroup());
-            ps.setString(5, trigger.getDescription());
-            if(trigger.getNextFireTime() != null)
-                ps.setBigDecimal(6, new BigDecimal(String.valueOf(trigger
-                        .getNextFireTime().getTime())));
-            else
-                ps.setBigDecimal(6, null);
-            long prevFireTime = -1;
-            if (trigger.getPreviousFireTime() != null) {
-                prevFireTime = trigger.getPreviousFireTime().getTime();
-            }
-            ps.setBigDecimal(7, new BigDecimal(String.valueOf(prevFireTime)));
-            ps.setString(8, state);
-            
             TriggerPersistenceDelegate tDel = findTriggerPersistenceDelegate(trigger);
-            
-            String type = TTYPE_BLOB;
-            if(tDel != null)
-                type = tDel.getHandledTriggerTypeDiscriminator();
-            ps.setString(9, type);
-            
-            ps.setBigDecimal(10, new BigDecimal(String.valueOf(trigger
-                    .getStartTime().getTime())));
-            long endTime = 0;
-            if (trigger.getEndTime() != null) {
-                endTime = trigger.getEndTime().getTime();
-            }
-            ps.setBigDecimal(11, new BigDecimal(String.valueOf(endTime)));
-            ps.setString(12, trigger.getCalendarName());
-            ps.setInt(13, trigger.getMisfireInstruction());
-            setBytes(ps, 14, baos);
-            ps.setInt(15, trigger.getPriority());
+            setTriggerInsertParameters(ps, trigger, state, tDel, baos);
             
             insertResult = ps.executeUpdate();
             
@@ -1104,6 +1235,120 @@ public class StdJDBCDelegate implements DriverDelegate, StdJDBCConstants {
         return insertResult;
     }
 
+    /**
+     * <p>
+     * Insert the given triggers in JDBC batches: one for the base trigger
+     * records, then one for the extended properties of each
+     * <code>{@link JoinableTriggerPersistenceDelegate}</code>'s triggers.
+     * The extended properties of other triggers are inserted one by one.
+     * </p>
+     * 
+     * @param conn
+     *          the DB Connection
+     * @param triggers
+     *          the triggers to insert
+     * @param states
+     *          the state that each trigger should be stored in
+     * @param jobDetails
+     *          the job of each trigger
+     * @return the number of base trigger rows inserted for each trigger
+     */
+    public int[] insertTriggers(Connection conn, List<OperableTrigger> triggers,
+            List<String> states, List<JobDetail> jobDetails) throws SQLException, IOException {
+        if (!canBatchBlobWrites()) {
+            int[] insertResults = new int[triggers.size()];
+            for (int i = 0; i < triggers.size(); i++) {
+                insertResults[i] = insertTrigger(conn, triggers.get(i), states.get(i), jobDetails.get(i));
+            }
+            return insertResults;
+        }
+        if (triggers.isEmpty()) {
+            return new int[0];
+        }
+        PreparedStatement ps = null;
+
+        int[] insertResults;
+
+        try {
+            ps = conn.prepareStatement(rtp(INSERT_TRIGGER));
+            for (int i = 0; i < triggers.size(); i++) {
+                OperableTrigger trigger = triggers.get(i);
+                ByteArrayOutputStream baos = null;
+                if(trigger.getJobDataMap().size() > 0) {
+                    baos = serializeJobData(trigger.getJobDataMap());
+                }
+                setTriggerInsertParameters(ps, trigger, states.get(i),
+                        findTriggerPersistenceDelegate(trigger), baos);
+                ps.addBatch();
+            }
+            
+            insertResults = ps.executeBatch();
+        } finally {
+            closeStatement(ps);
+        }
+
+        Map<JoinableTriggerPersistenceDelegate, List<OperableTrigger>> joinable = 
+            new HashMap<JoinableTriggerPersistenceDelegate, List<OperableTrigger>>();
+        for (int i = 0; i < triggers.size(); i++) {
+            OperableTrigger trigger = triggers.get(i);
+            TriggerPersistenceDelegate tDel = findTriggerPersistenceDelegate(trigger);
+            if(tDel == null) {
+                insertBlobTrigger(conn, trigger);
+            } else if(tDel instanceof JoinableTriggerPersistenceDelegate) {
+                List<OperableTrigger> delegateTriggers = joinable.get(tDel);
+                if(delegateTriggers == null) {
+                    delegateTriggers = new ArrayList<OperableTrigger>();
+                    joinable.put((JoinableTriggerPersistenceDelegate)tDel, delegateTriggers);
+                }
+                delegateTriggers.add(trigger);
+            } else {
+                tDel.insertExtendedTriggerProperties(conn, trigger, states.get(i), jobDetails.get(i));
+            }
+        }
+        for (Map.Entry<JoinableTriggerPersistenceDelegate, List<OperableTrigger>> entry : joinable.entrySet()) {
+            entry.getKey().insertExtendedTriggerProperties(conn, entry.getValue());
+        }
+
+        return insertResults;
+    }
+
+    private void setTriggerInsertParameters(PreparedStatement ps, OperableTrigger trigger,
+            String state, TriggerPersistenceDelegate tDel, ByteArrayOutputStream baos) throws SQLException {
+        ps.setString(1, trigger.getKey().getName());
+        ps.setString(2, trigger.getKey().getGroup());
+        ps.setString(3, trigger.getJobKey().getName());
+        ps.setString(4, trigger.getJobKey().getGroup());
+        ps.setString(5, trigger.getDescription());
+        if(trigger.getNextFireTime() != null)
+            ps.setBigDecimal(6, new BigDecimal(String.valueOf(trigger
+                    .getNextFireTime().getTime())));
+        else
+            ps.setBigDecimal(6, null);
+        long prevFireTime = -1;
+        if (trigger.getPreviousFireTime() != null) {
+            prevFireTime = trigger.getPreviousFireTime().getTime();
+        }
+        ps.setBigDecimal(7, new BigDecimal(String.valueOf(prevFireTime)));
+        ps.setString(8, state);
+        
+        String type = TTYPE_BLOB;
+        if(tDel != null)
+            type = tDel.getHandledTriggerTypeDiscriminator();
+        ps.setString(9, type);
+        
+        ps.setBigDecimal(10, new BigDecimal(String.valueOf(trigger
+                .getStartTime().getTime())));
+        long endTime = 0;
+        if (trigger.getEndTime() != null) {
+            endTime = trigger.getEndTime().getTime();
+        }
+        ps.setBigDecimal(11, new BigDecimal(String.valueOf(endTime)));
+        ps.setString(12, trigger.getCalendarName());
+        ps.setInt(13, trigger.getMisfireInstruction());
+        setBytes(ps, 14, baos);
+        ps.setInt(15, trigger.getPriority());
+    }
+
     /**
      * <p>
      * Insert the blob trigger data.
@@ -1176,48 +1421,8 @@ public class StdJDBCDelegate implements DriverDelegate, StdJDBCConstants {
                 ps = conn.prepareStatement(rtp(UPDATE_TRIGGER_SKIP_DATA));
             }
                 
-            ps.setString(1, trigger.getJobKey().getName());
-            ps.setString(2, trigger.getJobKey().getGroup());
-            ps.setString(3, trigger.getDescription());
-            long nextFireTime = -1;
-            if (trigger.getNextFireTime() != null) {
-                nextFireTime = trigger.getNextFireTime().getTime();
-            }
-            ps.setBigDecimal(4, new BigDecimal(String.valueOf(nextFireTime)));
-            long prevFireTime = -1;
-            if (trigger.getPreviousFireTime() != null) {
-                prevFireTime = trigger.getPreviousFireTime().getTime();
-            }
-            ps.setBigDecimal(5, new BigDecimal(String.valueOf(prevFireTime)));
-            ps.setString(6, state);
-            
             TriggerPersistenceDelegate tDel = findTriggerPersistenceDelegate(trigger);
-            
-            String type = TTYPE_BLOB;
-            if(tDel != null)
-                type = tDel.getHandledTriggerTypeDiscriminator();
-
-            ps.setString(7, type);
-            
-            ps.setBigDecimal(8, new BigDecimal(String.valueOf(trigger
-                    .getStartTime().getTime())));
-            long endTime = 0;
-            if (trigger.getEndTime() != null) {
-                endTime = trigger.getEndTime().getTime();
-            }
-            ps.setBigDecimal(9, new BigDecimal(String.valueOf(endTime)));
-            ps.setString(10, trigger.getCalendarName());
-            ps.setInt(11, trigger.getMisfireInstruction());
-            ps.setInt(12, trigger.getPriority());
-
-            if(updateJobData) {
-                setBytes(ps, 13, baos);
-                ps.setString(14, trigger.getKey().getName());
-                ps.setString(15, trigger.getKey().getGroup());
-            } else {
-                ps.setString(13, trigger.getKey().getName());
-                ps.setString(14, trigger.getKey().getGroup());
-            }
+            setTriggerUpdateParameters(ps, trigger, state, tDel, updateJobData, baos);
 
             insertResult = ps.executeUpdate();
             
@@ -1233,6 +1438,150 @@ public class StdJDBCDelegate implements DriverDelegate, StdJDBCConstants {
         return insertResult;
     }
 
+    /**
+     * <p>
+     * Update the given triggers in JDBC batches: one for the base trigger
+     * records whose job data is dirty, one for the others, then one for the
+     * extended properties of each
+     * <code>{@link JoinableTriggerPersistenceDelegate}</code>'s triggers.
+     * The extended properties of other triggers are updated one by one.
+     * </p>
+     * 
+     * @param conn
+     *          the DB Connection
+     * @param triggers
+     *          the triggers to update
+     * @param states
+     *          the state that each trigger should be stored in
+     * @param jobDetails
+     *          the job of each trigger
+     * @return the number of base trigger rows updated for each trigger
+     */
+    public int[] updateTriggers(Connection conn, List<OperableTrigger> triggers,
+            List<String> states, List<JobDetail> jobDetails) throws SQLException, IOException {
+        int[] updateResults = new int[triggers.size()];
+        if (!canBatchBlobWrites()) {
+            for (int i = 0; i < triggers.size(); i++) {
+                updateResults[i] = updateTrigger(conn, triggers.get(i), states.get(i), jobDetails.get(i));
+            }
+            return updateResults;
+        }
+        if (triggers.isEmpty()) {
+            return updateResults;
+        }
+
+        List<Integer> withData = new ArrayList<Integer>();
+        List<Integer> skipData = new ArrayList<Integer>();
+        for (int i = 0; i < triggers.size(); i++) {
+            if (triggers.get(i).getJobDataMap().isDirty()) {
+                withData.add(i);
+            } else {
+                skipData.add(i);
+            }
+        }
+        updateTriggerBatch(conn, triggers, states, withData, true, updateResults);
+        updateTriggerBatch(conn, triggers, states, skipData, false, updateResults);
+
+        Map<JoinableTriggerPersistenceDelegate, List<OperableTrigger>> joinable = 
+            new HashMap<JoinableTriggerPersistenceDelegate, List<OperableTrigger>>();
+        for (int i = 0; i < triggers.size(); i++) {
+            OperableTrigger trigger = triggers.get(i);
+            TriggerPersistenceDelegate tDel = findTriggerPersistenceDelegate(trigger);
+            if(tDel == null) {
+                updateBlobTrigger(conn, trigger);
+            } else if(tDel instanceof JoinableTriggerPersistenceDelegate) {
+                List<OperableTrigger> delegateTriggers = joinable.get(tDel);
+                if(delegateTriggers == null) {
+                    delegateTriggers = new ArrayList<OperableTrigger>();
+                    joinable.put((JoinableTriggerPersistenceDelegate)tDel, delegateTriggers);
+                }
+                delegateTriggers.add(trigger);
+            } else {
+                tDel.updateExtendedTriggerProperties(conn, trigger, states.get(i), jobDetails.get(i));
+            }
+        }
+        for (Map.Entry<JoinableTriggerPersistenceDelegate, List<OperableTrigger>> entry : joinable.entrySet()) {
+            entry.getKey().updateExtendedTriggerProperties(conn, entry.getValue());
+        }
+
+        return updateResults;
+    }
+
+    private void updateTriggerBatch(Connection conn, List<OperableTrigger> triggers,
+            List<String> states, List<Integer> indexes, boolean updateJobData,
+            int[] updateResults) throws SQLException, IOException {
+        if (indexes.isEmpty()) {
+            return;
+        }
+        PreparedStatement ps = null;
+
+        try {
+            ps = conn.prepareStatement(rtp(updateJobData ? UPDATE_TRIGGER : UPDATE_TRIGGER_SKIP_DATA));
+            for (Integer index : indexes) {
+                OperableTrigger trigger = triggers.get(index);
+                ByteArrayOutputStream baos = null;
+                if(updateJobData && trigger.getJobDataMap().size() > 0) {
+                    baos = serializeJobData(trigger.getJobDataMap());
+                }
+                setTriggerUpdateParameters(ps, trigger, states.get(index),
+                        findTriggerPersistenceDelegate(trigger), updateJobData, baos);
+                ps.addBatch();
+            }
+
+            int[] batchResults = ps.executeBatch();
+            for (int i = 0; i < batchResults.length; i++) {
+                updateResults[indexes.get(i)] = batchResults[i];
+            }
+        } finally {
+            closeStatement(ps);
+        }
+    }
+
+    private void setTriggerUpdateParameters(PreparedStatement ps, OperableTrigger trigger,
+            String state, TriggerPersistenceDelegate tDel, boolean updateJobData,
+            ByteArrayOutputStream baos) throws SQLException {
+        ps.setString(1, trigger.getJobKey().getName());
+        ps.setString(2, trigger.getJobKey().getGroup());
+        ps.setString(3, trigger.getDescription());
+        long nextFireTime = -1;
+        if (trigger.getNextFireTime() != null) {
+            nextFireTime = trigger.getNextFireTime().getTime();
+        }
+        ps.setBigDecimal(4, new BigDecimal(String.valueOf(nextFireTime)));
+        long prevFireTime = -1;
+        if (trigger.getPreviousFireTime() != null) {
+            prevFireTime = trigger.getPreviousFireTime().getTime();
+        }
+        ps.setBigDecimal(5, new BigDecimal(String.valueOf(prevFireTime)));
+        ps.setString(6, state);
+        
+        String type = TTYPE_BLOB;
+        if(tDel != null)
+            type = tDel.getHandledTriggerTypeDiscriminator();
+
+        ps.setString(7, type);
+        
+        ps.setBigDecimal(8, new BigDecimal(String.valueOf(trigger
+                .getStartTime().getTime())));
+        long endTime = 0;
+        if (trigger.getEndTime() != null) {
+            endTime = trigger.getEndTime().getTime();
+        }
+        ps.setBigDecimal(9, new BigDecimal(String.valueOf(endTime)));
+        ps.setString(10, trigger.getCalendarName());
+        ps.setInt(11, trigger.getMisfireInstruction());
+        ps.setInt(12, trigger.getPriority());
+
+        if(updateJobData) {
+            setBytes(ps, 13, baos);
+            ps.setString(14, trigger.getKey().getName());
+            ps.setString(15, trigger.getKey().getGroup());
+        } else {
+            ps.setString(13, trigger.getKey().getName());
+            ps.setString(14, trigger.getKey().getGroup());
+        }
+    }
+
     /**
      * <p>
      * Update the blob trigger data.
@@ -1319,13 +1668,13 @@ public class StdJDBCDelegate implements DriverDelegate, StdJDBCConstants {
         PreparedStatement ps = null;
 
         try {
-            ps = conn.prepareStatement(rtp(UPDATE_TRIGGER_STATE));
+            ps = prepareCachedStatement(conn, rtp(UPDATE_TRIGGER_STATE));
             ps.setString(1, state);
             ps.setString(2, triggerKey.getName());
             ps.setString(3, triggerKey.getGroup());
             return ps.executeUpdate();
         } finally {
-            closeStatement(ps);
+            releaseCachedStatement(ps);
         }
     }
 
@@ -1430,13 +1779,52 @@ public class StdJDBCDelegate implements DriverDelegate, StdJDBCConstants {
         PreparedStatement ps = null;
 
         try {
-            ps = conn.prepareStatement(rtp(UPDATE_TRIGGER_STATE_FROM_STATE));
+            ps = prepareCachedStatement(conn, rtp(UPDATE_TRIGGER_STATE_FROM_STATE));
             ps.setString(1, newState);
             ps.setString(2, triggerKey.getName());
             ps.setString(3, triggerKey.getGroup());
             ps.setString(4, oldState);
 
             return ps.executeUpdate();
+        } finally {
+            releaseCachedStatement(ps);
+        }
+    }
+
+    /**
+     * <p>
+     * Update the given triggers to the given new state, if they are in the
+     * given old state, in one JDBC batch.
+     * </p>
+     * 
+     * @param conn
+     *          the DB connection
+     * @param triggerKeys
+     *          the triggers to update
+     * @param newState
+     *          the new state for the triggers
+     * @param oldState
+     *          the old state the triggers must be in
+     * @return the number of rows updated for each trigger
+     */
+    public int[] updateTriggerStatesFromOtherState(Connection conn,
+            List<TriggerKey> triggerKeys, String newState, String oldState) throws SQLException {
+        if (triggerKeys.isEmpty()) {
+            return new int[0];
+        }
+        PreparedStatement ps = null;
+
+        try {
+            ps = conn.prepareStatement(rtp(UPDATE_TRIGGER_STATE_FROM_STATE));
+            for (TriggerKey triggerKey : triggerKeys) {
+                ps.setString(1, newState);
+                ps.setString(2, triggerKey.getName());
+                ps.setString(3, triggerKey.getGroup());
+                ps.setString(4, oldState);
+                ps.addBatch();
+            }
+
+            return ps.executeBatch();
         } finally {
             closeStatement(ps);
         }
@@ -1493,14 +1881,14 @@ public class StdJDBCDelegate implements DriverDelegate, StdJDBCConstants {
         PreparedStatement ps = null;
 
         try {
-            ps = conn.prepareStatement(rtp(UPDATE_JOB_TRIGGER_STATES));
+            ps = prepareCachedStatement(conn, rtp(UPDATE_JOB_TRIGGER_STATES));
             ps.setString(1, state);
             ps.setString(2, jobKey.getName());
             ps.setString(3, jobKey.getGroup());
 
             return ps.executeUpdate();
         } finally {
-            closeStatement(ps);
+            releaseCachedStatement(ps);
         }
     }
 
@@ -1510,14 +1898,54 @@ public class StdJDBCDelegate implements DriverDelegate, StdJDBCConstants {
         PreparedStatement ps = null;
 
         try {
-            ps = conn
-                    .prepareStatement(rtp(UPDATE_JOB_TRIGGER_STATES_FROM_OTHER_STATE));
+            ps = prepareCachedStatement(conn, rtp(UPDATE_JOB_TRIGGER_STATES_FROM_OTHER_STATE));
             ps.setString(1, state);
             ps.setString(2, jobKey.getName());
             ps.setString(3, jobKey.getGroup());
             ps.setString(4, oldState);
 
             return ps.executeUpdate();
+        } finally {
+            releaseCachedStatement(ps);
+        }
+    }
+
+    /**
+     * <p>
+     * Update the states of the triggers of the given jobs that are in the
+     * given old state, in one JDBC batch.
+     * </p>
+     * 
+     * @param conn
+     *          the DB Connection
+     * @param jobKeys
+     *          the jobs whose triggers to update
+     * @param state
+     *          the new state for the triggers
+     * @param oldState
+     *          the old state the triggers must be in
+     * @return the number of rows updated for each job
+     */
+    public int[] updateTriggerStatesForJobsFromOtherState(Connection conn,
+            List<JobKey> jobKeys, String state, String oldState)
+        throws SQLException {
+        if (jobKeys.isEmpty()) {
+            return new int[0];
+        }
+        PreparedStatement ps = null;
+
+        try {
+            ps = conn
+                    .prepareStatement(rtp(UPDATE_JOB_TRIGGER_STATES_FROM_OTHER_STATE));
+            for (JobKey jobKey : jobKeys) {
+                ps.setString(1, state);
+                ps.setString(2, jobKey.getName());
+                ps.setString(3, jobKey.getGroup());
+                ps.setString(4, oldState);
+                ps.addBatch();
+            }
+
+            return ps.executeBatch();
         } finally {
             closeStatement(ps);
         }
@@ -1962,6 +2390,46 @@ public class StdJDBCDelegate implements DriverDelegate, StdJDBCConstants {
 
     }
 
+    /**
+     * <p>
+     * Select the state values of the given triggers, with one query per
+     * <code>MAX_KEYS_PER_SELECT</code> triggers.
+     * </p>
+     * 
+     * @param conn
+     *          the DB Connection
+     * @param triggerKeys
+     *          the triggers to look for
+     * @return the state of each trigger that exists, by trigger key
+     */
+    public Map<TriggerKey, String> selectTriggerStates(Connection conn, List<TriggerKey> triggerKeys)
+        throws SQLException {
+        Map<TriggerKey, String> states = new HashMap<TriggerKey, String>();
+        for (int from = 0; from < triggerKeys.size(); from += MAX_KEYS_PER_SELECT) {
+            List<TriggerKey> chunk = triggerKeys.subList(from, Math.min(triggerKeys.size(), from + MAX_KEYS_PER_SELECT));
+            PreparedStatement ps = null;
+            ResultSet rs = null;
+
+            try {
+                ps = conn.prepareStatement(rtp(keySelect(SELECT_TRIGGER_STATES, TRIGGER_KEY_CONDITION, chunk.size())));
+                int index = 1;
+                for (TriggerKey triggerKey : chunk) {
+                    ps.setString(index++, triggerKey.getName());
+                    ps.setString(index++, triggerKey.getGroup());
+                }
+                rs = ps.executeQuery();
+                while (rs.next()) {
+                    states.put(triggerKey(rs.getString(COL_TRIGGER_NAME), rs.getString(COL_TRIGGER_GROUP)),
+                            rs.getString(COL_TRIGGER_STATE).intern());
+                }
+            } finally {
+                closeResultSet(rs);
+                closeStatement(ps);
+            }
+        }
+        return states;
+    }
+
     /**
      * <p>
      * Select a trigger' status (state & next fire time).
@@ -1979,7 +2447,7 @@ public class StdJDBCDelegate implements DriverDelegate, StdJDBCConstants {
         try {
             TriggerStatus status = null;
 
-            ps = conn.prepareStatement(rtp(SELECT_TRIGGER_STATUS));
+            ps = prepareCachedStatement(conn, rtp(SELECT_TRIGGER_STATUS));
             ps.setString(1, triggerKey.getName());
             ps.setString(2, triggerKey.getGroup());
             rs = ps.executeQuery();
@@ -2003,25 +2471,70 @@ public class StdJDBCDelegate implements DriverDelegate, StdJDBCConstants {
             return status;
         } finally {
             closeResultSet(rs);
-            closeStatement(ps);
+            releaseCachedStatement(ps);
         }
 
     }
 
     /**
      * <p>
-     * Select the total number of triggers stored.
+     * Select the status (state & next fire time) of the given triggers,
+     * with one query per <code>MAX_KEYS_PER_SELECT</code> triggers.
      * </p>
      * 
      * @param conn
      *          the DB Connection
-     * @return the total number of triggers stored
+     * @param triggerKeys
+     *          the triggers to look for
+     * @return the status of each trigger that exists, by trigger key
      */
-    public int selectNumTriggers(Connection conn) throws SQLException {
-        PreparedStatement ps = null;
-        ResultSet rs = null;
+    public Map<TriggerKey, TriggerStatus> selectTriggerStatuses(Connection conn, List<TriggerKey> triggerKeys)
+        throws SQLException {
+        Map<TriggerKey, TriggerStatus> statuses = new HashMap<TriggerKey, TriggerStatus>();
+        for (int from = 0; from < triggerKeys.size(); from += MAX_KEYS_PER_SELECT) {
+            List<TriggerKey> chunk = triggerKeys.subList(from, Math.min(triggerKeys.size(), from + MAX_KEYS_PER_SELECT));
+            PreparedStatement ps = null;
+            ResultSet rs = null;
 
-        try {
+            try {
+                ps = conn.prepareStatement(rtp(keySelect(SELECT_TRIGGER_STATUSES, TRIGGER_KEY_CONDITION, chunk.size())));
+                int index = 1;
+                for (TriggerKey triggerKey : chunk) {
+                    ps.setString(index++, triggerKey.getName());
+                    ps.setString(index++, triggerKey.getGroup());
+                }
+                rs = ps.executeQuery();
+                while (rs.next()) {
+                    TriggerKey triggerKey = triggerKey(rs.getString(COL_TRIGGER_NAME), rs.getString(COL_TRIGGER_GROUP));
+                    long nextFireTime = rs.getLong(COL_NEXT_FIRE_TIME);
+                    TriggerStatus status = new TriggerStatus(rs.getString(COL_TRIGGER_STATE).intern(),
+                            nextFireTime > 0 ? new Date(nextFireTime) : null);
+                    status.setKey(triggerKey);
+                    status.setJobKey(jobKey(rs.getString(COL_JOB_NAME), rs.getString(COL_JOB_GROUP)));
+                    statuses.put(triggerKey, status);
+                }
+            } finally {
+                closeResultSet(rs);
+                closeStatement(ps);
+            }
+        }
+        return statuses;
+    }
+
+    /**
+     * <p>
+     * Select the total number of triggers stored.
+     * </p>
+     * 
+     * @param conn
+     *          the DB Connection
+     * @return the total number of triggers stored
+     */
+    public int selectNumTriggers(Connection conn) throws SQLException {
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+
+        try {
             int count = 0;
             ps = conn.prepareStatement(rtp(SELECT_NUM_TRIGGERS));
             rs = ps.executeQuery();
@@ -2625,6 +3138,383 @@ public class StdJDBCDelegate implements DriverDelegate, StdJDBCConstants {
         }      
     }
 
+    /**
+     * <p>
+     * Select the keys of the next triggers which will fire between the two
+     * given timestamps, in ascending order of fire time, and then descending
+     * by priority, along with the keys of their jobs.
+     * </p>
+     */
+    public Map<TriggerKey, JobKey> selectJobKeysOfTriggersToAcquire(Connection conn, long noLaterThan, long noEarlierThan, int maxCount)
+        throws SQLException {
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        Map<TriggerKey, JobKey> nextTriggers = new LinkedHashMap<TriggerKey, JobKey>();
+        try {
+            ps = conn.prepareStatement(rtp(SELECT_NEXT_TRIGGER_JOB_KEYS_TO_ACQUIRE));
+
+            if (maxCount < 1)
+                maxCount = 1; // we want at least one trigger back.
+            ps.setMaxRows(maxCount);
+            ps.setFetchSize(maxCount);
+
+            ps.setString(1, STATE_WAITING);
+            ps.setBigDecimal(2, new BigDecimal(String.valueOf(noLaterThan)));
+            ps.setBigDecimal(3, new BigDecimal(String.valueOf(noEarlierThan)));
+            rs = ps.executeQuery();
+
+            while (rs.next() && nextTriggers.size() < maxCount) {
+                nextTriggers.put(
+                        triggerKey(rs.getString(COL_TRIGGER_NAME), rs.getString(COL_TRIGGER_GROUP)),
+                        jobKey(rs.getString(COL_JOB_NAME), rs.getString(COL_JOB_GROUP)));
+            }
+
+            return nextTriggers;
+        } finally {
+            closeResultSet(rs);
+            closeStatement(ps);
+        }
+    }
+
+    /**
+     * <p>
+     * Select the next triggers which will fire between the two given
+     * timestamps, in ascending order of fire time, and then descending by
+     * priority, along with whether their jobs disallow concurrent execution.
+     * </p>
+     * 
+     * <p>
+     * The triggers, their jobs' concurrency flags and the extended properties
+     * of the triggers whose <code>{@link TriggerPersistenceDelegate}</code> is
+     * a <code>{@link JoinableTriggerPersistenceDelegate}</code> are read with
+     * a single joined query.  Other triggers (e.g. blob triggers) are then
+     * loaded one by one with <code>{@link #selectTrigger(Connection, TriggerKey)}</code>.
+     * </p>
+     * 
+     * @param conn
+     *          the DB Connection
+     * @param noLaterThan
+     *          highest value of <code>getNextFireTime()</code> of the triggers (exclusive)
+     * @param noEarlierThan 
+     *          highest value of <code>getNextFireTime()</code> of the triggers (inclusive)
+     * @param maxCount 
+     *          maximum number of triggers to return.
+     *          
+     * @return A (never null, possibly empty) list of the next triggers to be fired.
+     */
+    public List<AcquirableTrigger> selectTriggersToAcquire(Connection conn, long noLaterThan, long noEarlierThan, int maxCount)
+        throws SQLException, ClassNotFoundException, IOException, JobPersistenceException {
+        return selectTriggersToAcquire(conn, getSelectTriggersToAcquireSql(), noLaterThan, noEarlierThan, maxCount);
+    }
+
+    /**
+     * <p>
+     * Select the next triggers which will fire between the two given
+     * timestamps like <code>{@link #selectTriggersToAcquire(Connection, long, long, int)}</code>,
+     * locking their rows until the end of the transaction and skipping the
+     * rows other transactions have locked, by appending the
+     * <code>{@link #getSkipLockedClause()}</code> to the query.
+     * </p>
+     * 
+     * @throws UnsupportedOperationException
+     *          if the database cannot skip locked rows
+     * @see #supportsSkipLocked()
+     */
+    public List<AcquirableTrigger> selectTriggersToAcquireSkipLocked(Connection conn, long noLaterThan, long noEarlierThan, int maxCount)
+        throws SQLException, ClassNotFoundException, IOException, JobPersistenceException {
+        String skipLockedClause = getSkipLockedClause();
+        if (skipLockedClause == null) {
+            throw new UnsupportedOperationException(getClass().getName() + " cannot skip locked rows");
+        }
+        return selectTriggersToAcquire(conn, getSelectTriggersToAcquireSql() + skipLockedClause, noLaterThan, noEarlierThan, maxCount);
+    }
+
+    /**
+     * Whether <code>{@link #selectTriggersToAcquireSkipLocked(Connection, long, long, int)}</code>
+     * is supported, i.e. whether <code>{@link #getSkipLockedClause()}</code>
+     * is not null.
+     */
+    public boolean supportsSkipLocked() {
+        return getSkipLockedClause() != null;
+    }
+
+    /**
+     * <p>
+     * This method should be overridden by any delegate subclasses whose
+     * database can lock the selected rows of the triggers table (aliased
+     * <code>T</code>) while skipping rows locked by other transactions,
+     * e.g. <code>FOR UPDATE OF T SKIP LOCKED</code>.  The default
+     * implementation returns null, meaning the database cannot.
+     * </p>
+     * 
+     * @return the clause appended to the trigger acquisition query, or null
+     */
+    protected String getSkipLockedClause() {
+        return null;
+    }
+
+    private List<AcquirableTrigger> selectTriggersToAcquire(Connection conn, String sql, long noLaterThan, long noEarlierThan, int maxCount)
+        throws SQLException, ClassNotFoundException, IOException, JobPersistenceException {
+        PreparedStatement ps = null;
+        try {
+            ps = conn.prepareStatement(sql);
+
+            if (maxCount < 1)
+                maxCount = 1; // we want at least one trigger back.
+
+            ps.setString(1, STATE_WAITING);
+            ps.setBigDecimal(2, new BigDecimal(String.valueOf(noLaterThan)));
+            ps.setBigDecimal(3, new BigDecimal(String.valueOf(noEarlierThan)));
+            return selectJoinedTriggers(conn, ps, maxCount);
+        } finally {
+            closeStatement(ps);
+        }
+    }
+
+    /**
+     * <p>
+     * Select a page of the triggers in the given state that have misfired
+     * according to the given timestamp, in ascending order of fire time and
+     * then of key, starting after the given trigger.  The triggers are read
+     * like with <code>{@link #selectTriggersToAcquire(Connection, long, long, int)}</code>.
+     * </p>
+     * 
+     * @param conn
+     *          the DB Connection
+     * @param state
+     *          the state of the triggers
+     * @param ts
+     *          the misfire time: triggers must be due before it
+     * @param afterNextFireTime
+     *          the next fire time of the last trigger of the previous page
+     * @param afterKey
+     *          the last trigger of the previous page, or null for the first page
+     * @param maxCount
+     *          the maximum number of triggers to return
+     * @return the (never null, possibly empty) page of misfired triggers
+     */
+    public List<OperableTrigger> selectMisfiredTriggersInStatePage(Connection conn, String state, long ts,
+            long afterNextFireTime, TriggerKey afterKey, int maxCount)
+        throws SQLException, ClassNotFoundException, IOException, JobPersistenceException {
+        PreparedStatement ps = null;
+        try {
+            ps = conn.prepareStatement(getSelectMisfiredTriggersSql());
+            ps.setBigDecimal(1, new BigDecimal(String.valueOf(ts)));
+            ps.setString(2, state);
+            if (afterKey == null) {
+                afterNextFireTime = Long.MIN_VALUE;
+                afterKey = triggerKey("", "");
+            }
+            BigDecimal after = new BigDecimal(String.valueOf(afterNextFireTime));
+            ps.setBigDecimal(3, after);
+            ps.setBigDecimal(4, after);
+            ps.setString(5, afterKey.getGroup());
+            ps.setString(6, afterKey.getGroup());
+            ps.setString(7, afterKey.getName());
+
+            List<AcquirableTrigger> selected = selectJoinedTriggers(conn, ps, Math.max(1, maxCount));
+            List<OperableTrigger> triggers = new ArrayList<OperableTrigger>(selected.size());
+            for (AcquirableTrigger trigger : selected) {
+                triggers.add(trigger.getTrigger());
+            }
+            return triggers;
+        } finally {
+            closeStatement(ps);
+        }
+    }
+
+    /**
+     * Runs a query built on <code>{@link #getJoinedTriggersSelect()}</code>,
+     * then loads the triggers whose extended properties were not joined.
+     */
+    private List<AcquirableTrigger> selectJoinedTriggers(Connection conn, PreparedStatement ps, int maxCount)
+        throws SQLException, ClassNotFoundException, IOException, JobPersistenceException {
+        ResultSet rs = null;
+        List<TriggerKey> keys = new ArrayList<TriggerKey>();
+        List<OperableTrigger> triggers = new ArrayList<OperableTrigger>();
+        List<Boolean> nonConcurrent = new ArrayList<Boolean>();
+        try {
+            List<String> joinedTables = acquisitionJoinedTables;
+            ps.setMaxRows(maxCount);
+            ps.setFetchSize(maxCount);
+            rs = ps.executeQuery();
+
+            while (rs.next() && keys.size() < maxCount) {
+                TriggerKey triggerKey = triggerKey(
+                        rs.getString(COL_TRIGGER_NAME),
+                        rs.getString(COL_TRIGGER_GROUP));
+                keys.add(triggerKey);
+                nonConcurrent.add(Boolean.valueOf(getBoolean(rs, COL_IS_NONCONCURRENT)));
+
+                // triggers of other types, or whose extended properties
+                // are missing, are loaded once the result set is closed
+                OperableTrigger trigger = null;
+                TriggerPersistenceDelegate tDel = findTriggerPersistenceDelegate(rs.getString(COL_TRIGGER_TYPE));
+                if (tDel instanceof JoinableTriggerPersistenceDelegate) {
+                    JoinableTriggerPersistenceDelegate jDel = (JoinableTriggerPersistenceDelegate) tDel;
+                    int table = joinedTables.indexOf(jDel.getExtendedPropertiesTableName());
+                    if (table >= 0 && rs.getString(acquisitionPresenceColumn(table)) != null) {
+                        trigger = buildTrigger(rs, triggerKey, jDel.readExtendedTriggerProperties(rs));
+                    }
+                }
+                triggers.add(trigger);
+            }
+        } finally {
+            closeResultSet(rs);
+        }
+
+        List<AcquirableTrigger> nextTriggers = new ArrayList<AcquirableTrigger>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            OperableTrigger trigger = triggers.get(i);
+            if (trigger == null) {
+                trigger = selectTrigger(conn, keys.get(i));
+                if (trigger == null) {
+                    continue; // deleted meanwhile
+                }
+            }
+            nextTriggers.add(new AcquirableTrigger(trigger, nonConcurrent.get(i).booleanValue()));
+        }
+        return nextTriggers;
+    }
+
+    /**
+     * Builds, once for the registered <code>TriggerPersistenceDelegate</code>s,
+     * the query of <code>{@link #selectTriggersToAcquire(Connection, long, long, int)}</code>:
+     * the triggers table joined to the job details table, and outer joined
+     * to each distinct extended properties table.
+     */
+    protected String getSelectTriggersToAcquireSql() {
+        String sql = selectTriggersToAcquireSql;
+        if (sql != null) {
+            return sql;
+        }
+
+        String where = " WHERE T." + COL_SCHEDULER_NAME + " = " + SCHED_NAME_SUBST
+            + " AND T." + COL_TRIGGER_STATE + " = ? AND T." + COL_NEXT_FIRE_TIME + " <= ? "
+            + "AND (T." + COL_MISFIRE_INSTRUCTION + " = -1 OR (T." + COL_MISFIRE_INSTRUCTION + " != -1 AND T." + COL_NEXT_FIRE_TIME + " >= ?)) "
+            + "ORDER BY T." + COL_NEXT_FIRE_TIME + " ASC, T." + COL_PRIORITY + " DESC";
+
+        sql = rtp(getJoinedTriggersSelect() + where);
+        selectTriggersToAcquireSql = sql;
+        return sql;
+    }
+
+    /**
+     * Builds, once for the registered <code>TriggerPersistenceDelegate</code>s,
+     * the query of <code>{@link #selectMisfiredTriggersInStatePage(Connection, String, long, long, TriggerKey, int)}</code>:
+     * the joined query of the acquisition, with a keyset condition on the
+     * fire time and key of the triggers.
+     */
+    protected String getSelectMisfiredTriggersSql() {
+        String sql = selectMisfiredTriggersSql;
+        if (sql != null) {
+            return sql;
+        }
+
+        String where = " WHERE T." + COL_SCHEDULER_NAME + " = " + SCHED_NAME_SUBST
+            + " AND NOT (T." + COL_MISFIRE_INSTRUCTION + " = " + Trigger.MISFIRE_INSTRUCTION_IGNORE_MISFIRE_POLICY + ") "
+            + "AND T." + COL_NEXT_FIRE_TIME + " < ? AND T." + COL_TRIGGER_STATE + " = ? "
+            + "AND (T." + COL_NEXT_FIRE_TIME + " > ? OR (T." + COL_NEXT_FIRE_TIME + " = ? AND (T."
+            + COL_TRIGGER_GROUP + " > ? OR (T." + COL_TRIGGER_GROUP + " = ? AND T." + COL_TRIGGER_NAME + " > ?)))) "
+            + "ORDER BY T." + COL_NEXT_FIRE_TIME + " ASC, T." + COL_TRIGGER_GROUP + " ASC, T." + COL_TRIGGER_NAME + " ASC";
+
+        sql = rtp(getJoinedTriggersSelect() + where);
+        selectMisfiredTriggersSql = sql;
+        return sql;
+    }
+
+    /**
+     * Builds the select and from clauses of the joined trigger queries: the
+     * triggers table joined to the job details table, and outer joined to
+     * each distinct extended properties table.
+     */
+    private String getJoinedTriggersSelect() {
+        List<String> joinedTables = new ArrayList<String>();
+        for (TriggerPersistenceDelegate delegate : triggerPersistenceDelegates) {
+            if (delegate instanceof JoinableTriggerPersistenceDelegate) {
+                String table = ((JoinableTriggerPersistenceDelegate) delegate).getExtendedPropertiesTableName();
+                if (!joinedTables.contains(table)) {
+                    joinedTables.add(table);
+                }
+            }
+        }
+
+        // the triggers' columns come first, so that they are the ones
+        // found by name where the extended properties tables repeat them
+        StringBuilder select = new StringBuilder("SELECT T.*, J.").append(COL_IS_NONCONCURRENT);
+        StringBuilder from = new StringBuilder(" FROM ")
+            .append(TABLE_PREFIX_SUBST).append(TABLE_TRIGGERS).append(" T JOIN ")
+            .append(TABLE_PREFIX_SUBST).append(TABLE_JOB_DETAILS).append(" J ON (J.")
+            .append(COL_SCHEDULER_NAME).append(" = T.").append(COL_SCHEDULER_NAME).append(" AND J.")
+            .append(COL_JOB_NAME).append(" = T.").append(COL_JOB_NAME).append(" AND J.")
+            .append(COL_JOB_GROUP).append(" = T.").append(COL_JOB_GROUP).append(")");
+        for (int i = 0; i < joinedTables.size(); i++) {
+            String alias = "E" + i;
+            select.append(", ").append(alias).append(".").append(COL_TRIGGER_NAME)
+                .append(" AS ").append(acquisitionPresenceColumn(i))
+                .append(", ").append(alias).append(".*");
+            from.append(" LEFT OUTER JOIN ").append(TABLE_PREFIX_SUBST).append(joinedTables.get(i))
+                .append(" ").append(alias).append(" ON (").append(alias).append(".")
+                .append(COL_SCHEDULER_NAME).append(" = T.").append(COL_SCHEDULER_NAME).append(" AND ").append(alias).append(".")
+                .append(COL_TRIGGER_NAME).append(" = T.").append(COL_TRIGGER_NAME).append(" AND ").append(alias).append(".")
+                .append(COL_TRIGGER_GROUP).append(" = T.").append(COL_TRIGGER_GROUP).append(")");
+        }
+        acquisitionJoinedTables = joinedTables;
+        return select.toString() + from.toString();
+    }
+
+    private static String acquisitionPresenceColumn(int table) {
+        return "EXT" + table + "_PRESENT";
+    }
+
+    /**
+     * Builds a trigger from the current row of a query of the triggers
+     * table, and its extended properties.
+     */
+    private OperableTrigger buildTrigger(ResultSet rs, TriggerKey triggerKey, TriggerPropertyBundle triggerProps)
+        throws SQLException, ClassNotFoundException, IOException, JobPersistenceException {
+        String jobName = rs.getString(COL_JOB_NAME);
+        String jobGroup = rs.getString(COL_JOB_GROUP);
+        String description = rs.getString(COL_DESCRIPTION);
+        long nextFireTime = rs.getLong(COL_NEXT_FIRE_TIME);
+        long prevFireTime = rs.getLong(COL_PREV_FIRE_TIME);
+        long startTime = rs.getLong(COL_START_TIME);
+        long endTime = rs.getLong(COL_END_TIME);
+        String calendarName = rs.getString(COL_CALENDAR_NAME);
+        int misFireInstr = rs.getInt(COL_MISFIRE_INSTRUCTION);
+        int priority = rs.getInt(COL_PRIORITY);
+
+        Map<?, ?> map = null;
+        if (canUseProperties()) {
+            map = getMapFromProperties(rs);
+        } else {
+            map = (Map<?, ?>) getObjectFromBlob(rs, COL_JOB_DATAMAP);
+        }
+
+        TriggerBuilder<?> tb = newTrigger()
+            .withDescription(description)
+            .withPriority(priority)
+            .startAt(new Date(startTime))
+            .endAt(endTime > 0 ? new Date(endTime) : null)
+            .withIdentity(triggerKey)
+            .modifiedByCalendar(calendarName)
+            .withSchedule(triggerProps.getScheduleBuilder())
+            .forJob(jobKey(jobName, jobGroup));
+
+        if (null != map) {
+            tb.usingJobData(new JobDataMap(map));
+        }
+
+        OperableTrigger trigger = (OperableTrigger) tb.build();
+
+        trigger.setMisfireInstruction(misFireInstr);
+        trigger.setNextFireTime(nextFireTime > 0 ? new Date(nextFireTime) : null);
+        trigger.setPreviousFireTime(prevFireTime > 0 ? new Date(prevFireTime) : null);
+
+        setTriggerStateProperties(trigger, triggerProps);
+        return trigger;
+    }
+
     /**
      * <p>
      * Insert a fired trigger.
@@ -2641,34 +3531,72 @@ public class StdJDBCDelegate implements DriverDelegate, StdJDBCConstants {
     public int insertFiredTrigger(Connection conn, OperableTrigger trigger,
             String state, JobDetail job) throws SQLException {
         PreparedStatement ps = null;
+        try {
+            ps = prepareCachedStatement(conn, rtp(INSERT_FIRED_TRIGGER));
+            setFiredTriggerParameters(ps, trigger, state, job);
+
+            return ps.executeUpdate();
+        } finally {
+            releaseCachedStatement(ps);
+        }
+    }
+
+    /**
+     * <p>
+     * Insert fired trigger records for the given triggers, which are not yet
+     * executing a job, in one JDBC batch.
+     * </p>
+     * 
+     * @param conn
+     *          the DB Connection
+     * @param triggers
+     *          the triggers
+     * @param state
+     *          the state that the triggers should be stored in
+     * @return the number of rows inserted for each trigger
+     */
+    public int[] insertFiredTriggers(Connection conn, List<OperableTrigger> triggers,
+            String state) throws SQLException {
+        if (triggers.isEmpty()) {
+            return new int[0];
+        }
+        PreparedStatement ps = null;
         try {
             ps = conn.prepareStatement(rtp(INSERT_FIRED_TRIGGER));
-            ps.setString(1, trigger.getFireInstanceId());
-            ps.setString(2, trigger.getKey().getName());
-            ps.setString(3, trigger.getKey().getGroup());
-            ps.setString(4, instanceId);
-            ps.setBigDecimal(5, new BigDecimal(String.valueOf(System.currentTimeMillis())));
-            ps.setBigDecimal(6, new BigDecimal(String.valueOf(trigger.getNextFireTime().getTime())));
-            ps.setString(7, state);
-            if (job != null) {
-                ps.setString(8, trigger.getJobKey().getName());
-                ps.setString(9, trigger.getJobKey().getGroup());
-                setBoolean(ps, 10, job.isConcurrentExectionDisallowed());
-                setBoolean(ps, 11, job.requestsRecovery());
-            } else {
-                ps.setString(8, null);
-                ps.setString(9, null);
-                setBoolean(ps, 10, false);
-                setBoolean(ps, 11, false);
+            for (OperableTrigger trigger : triggers) {
+                setFiredTriggerParameters(ps, trigger, state, null);
+                ps.addBatch();
             }
-            ps.setInt(12, trigger.getPriority());
 
-            return ps.executeUpdate();
+            return ps.executeBatch();
         } finally {
             closeStatement(ps);
         }
     }
 
+    private void setFiredTriggerParameters(PreparedStatement ps, OperableTrigger trigger,
+            String state, JobDetail job) throws SQLException {
+        ps.setString(1, trigger.getFireInstanceId());
+        ps.setString(2, trigger.getKey().getName());
+        ps.setString(3, trigger.getKey().getGroup());
+        ps.setString(4, instanceId);
+        ps.setBigDecimal(5, new BigDecimal(String.valueOf(System.currentTimeMillis())));
+        ps.setBigDecimal(6, new BigDecimal(String.valueOf(trigger.getNextFireTime().getTime())));
+        ps.setString(7, state);
+        if (job != null) {
+            ps.setString(8, trigger.getJobKey().getName());
+            ps.setString(9, trigger.getJobKey().getGroup());
+            setBoolean(ps, 10, job.isConcurrentExectionDisallowed());
+            setBoolean(ps, 11, job.requestsRecovery());
+        } else {
+            ps.setString(8, null);
+            ps.setString(9, null);
+            setBoolean(ps, 10, false);
+            setBoolean(ps, 11, false);
+        }
+        ps.setInt(12, trigger.getPriority());
+    }
+
     /**
      * <p>
      * Update a fired trigger.
@@ -2686,34 +3614,72 @@ public class StdJDBCDelegate implements DriverDelegate, StdJDBCConstants {
             String state, JobDetail job) throws SQLException {
         PreparedStatement ps = null;
         try {
-            ps = conn.prepareStatement(rtp(UPDATE_FIRED_TRIGGER));
-            
-            ps.setString(1, instanceId);
+            ps = prepareCachedStatement(conn, rtp(UPDATE_FIRED_TRIGGER));
+            setFiredTriggerUpdateParameters(ps, trigger, state, job);
 
-            ps.setBigDecimal(2, new BigDecimal(String.valueOf(System.currentTimeMillis())));
-            ps.setBigDecimal(3, new BigDecimal(String.valueOf(trigger.getNextFireTime().getTime())));
-            ps.setString(4, state);
+            return ps.executeUpdate();
+        } finally {
+            releaseCachedStatement(ps);
+        }
+    }
 
-            if (job != null) {
-                ps.setString(5, trigger.getJobKey().getName());
-                ps.setString(6, trigger.getJobKey().getGroup());
-                setBoolean(ps, 7, job.isConcurrentExectionDisallowed());
-                setBoolean(ps, 8, job.requestsRecovery());
-            } else {
-                ps.setString(5, null);
-                ps.setString(6, null);
-                setBoolean(ps, 7, false);
-                setBoolean(ps, 8, false);
+    /**
+     * <p>
+     * Update the fired trigger records of the given triggers in one JDBC
+     * batch.
+     * </p>
+     * 
+     * @param conn
+     *          the DB Connection
+     * @param triggers
+     *          the triggers
+     * @param state
+     *          the state that the triggers should be stored in
+     * @param jobs
+     *          the job of each trigger
+     * @return the number of rows updated for each trigger
+     */
+    public int[] updateFiredTriggers(Connection conn, List<OperableTrigger> triggers,
+            String state, List<JobDetail> jobs) throws SQLException {
+        if (triggers.isEmpty()) {
+            return new int[0];
+        }
+        PreparedStatement ps = null;
+        try {
+            ps = conn.prepareStatement(rtp(UPDATE_FIRED_TRIGGER));
+            for (int i = 0; i < triggers.size(); i++) {
+                setFiredTriggerUpdateParameters(ps, triggers.get(i), state, jobs.get(i));
+                ps.addBatch();
             }
 
-            ps.setString(9, trigger.getFireInstanceId());
-
-
-            return ps.executeUpdate();
+            return ps.executeBatch();
         } finally {
             closeStatement(ps);
         }
     }
+
+    private void setFiredTriggerUpdateParameters(PreparedStatement ps, OperableTrigger trigger,
+            String state, JobDetail job) throws SQLException {
+        ps.setString(1, instanceId);
+
+        ps.setBigDecimal(2, new BigDecimal(String.valueOf(System.currentTimeMillis())));
+        ps.setBigDecimal(3, new BigDecimal(String.valueOf(trigger.getNextFireTime().getTime())));
+        ps.setString(4, state);
+
+        if (job != null) {
+            ps.setString(5, trigger.getJobKey().getName());
+            ps.setString(6, trigger.getJobKey().getGroup());
+            setBoolean(ps, 7, job.isConcurrentExectionDisallowed());
+            setBoolean(ps, 8, job.requestsRecovery());
+        } else {
+            ps.setString(5, null);
+            ps.setString(6, null);
+            setBoolean(ps, 7, false);
+            setBoolean(ps, 8, false);
+        }
+
+        ps.setString(9, trigger.getFireInstanceId());
+    }
     
     /**
      * <p>
@@ -2908,10 +3874,40 @@ public class StdJDBCDelegate implements DriverDelegate, StdJDBCConstants {
         throws SQLException {
         PreparedStatement ps = null;
         try {
-            ps = conn.prepareStatement(rtp(DELETE_FIRED_TRIGGER));
+            ps = prepareCachedStatement(conn, rtp(DELETE_FIRED_TRIGGER));
             ps.setString(1, entryId);
 
             return ps.executeUpdate();
+        } finally {
+            releaseCachedStatement(ps);
+        }
+    }
+
+    /**
+     * <p>
+     * Delete the given fired triggers, in one JDBC batch.
+     * </p>
+     * 
+     * @param conn
+     *          the DB Connection
+     * @param entryIds
+     *          the fired trigger entries to delete
+     * @return the number of rows deleted for each entry
+     */
+    public int[] deleteFiredTriggers(Connection conn, List<String> entryIds)
+        throws SQLException {
+        if (entryIds.isEmpty()) {
+            return new int[0];
+        }
+        PreparedStatement ps = null;
+        try {
+            ps = conn.prepareStatement(rtp(DELETE_FIRED_TRIGGER));
+            for (String entryId : entryIds) {
+                ps.setString(1, entryId);
+                ps.addBatch();
+            }
+
+            return ps.executeBatch();
         } finally {
             closeStatement(ps);
         }
@@ -3011,6 +4007,80 @@ public class StdJDBCDelegate implements DriverDelegate, StdJDBCConstants {
 
     }
 
+    /**
+     * <p>
+     * Select the data version counters of the scheduler.
+     * </p>
+     * 
+     * @param conn
+     *          the DB Connection
+     * @return the value of each counter, by name
+     */
+    public Map<String, Long> selectDataVersions(Connection conn)
+        throws SQLException {
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        try {
+            Map<String, Long> versions = new HashMap<String, Long>();
+
+            ps = conn.prepareStatement(rtp(SELECT_DATA_VERSIONS));
+            rs = ps.executeQuery();
+
+            while (rs.next()) {
+                versions.put(rs.getString(COL_VERSION_NAME), rs.getLong(COL_DATA_VERSION));
+            }
+
+            return versions;
+        } finally {
+            closeResultSet(rs);
+            closeStatement(ps);
+        }
+    }
+
+    /**
+     * <p>
+     * Increment the given data version counter of the scheduler, creating it
+     * (with the value 1) if it does not exist yet.
+     * </p>
+     * 
+     * @param conn
+     *          the DB Connection
+     * @param versionName
+     *          the name of the counter
+     */
+    public void incrementDataVersion(Connection conn, String versionName)
+        throws SQLException {
+        if (updateDataVersion(conn, versionName) > 0) {
+            return;
+        }
+
+        PreparedStatement ps = null;
+        try {
+            ps = conn.prepareStatement(rtp(INSERT_DATA_VERSION));
+            ps.setString(1, versionName);
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            // another scheduler may have just created it
+            if (updateDataVersion(conn, versionName) < 1) {
+                throw e;
+            }
+        } finally {
+            closeStatement(ps);
+        }
+    }
+
+    private int updateDataVersion(Connection conn, String versionName)
+        throws SQLException {
+        PreparedStatement ps = null;
+        try {
+            ps = conn.prepareStatement(rtp(UPDATE_DATA_VERSION));
+            ps.setString(1, versionName);
+            return ps.executeUpdate();
+        } finally {
+            closeStatement(ps);
+        }
+    }
+
     //---------------------------------------------------------------------------
     // protected methods that can be overridden by subclasses
     //---------------------------------------------------------------------------
@@ -3026,6 +4096,10 @@ public class StdJDBCDelegate implements DriverDelegate, StdJDBCConstants {
      * @return the query, with proper table prefix substituted
      */
     protected final String rtp(String query) {
+        String sql = compiledSql.get(query);
+        if (sql != null) {
+            return sql;
+        }
         return Util.rtp(query, tablePrefix, getSchedulerNameLiteral());
     }
 
@@ -3052,13 +4126,52 @@ public class StdJDBCDelegate implements DriverDelegate, StdJDBCConstants {
         throws IOException {
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
         if (null != obj) {
-            ObjectOutputStream out = new ObjectOutputStream(baos);
-            out.writeObject(obj);
-            out.flush();
+            if (jobDataSerializer != null) {
+                baos.write(jobDataSerializer.serialize(obj));
+            } else {
+                ObjectOutputStream out = new ObjectOutputStream(baos);
+                out.writeObject(obj);
+                out.flush();
+            }
         }
         return baos;
     }
 
+    /**
+     * <p>
+     * Read an Object written by <code>{@link #serializeObject(Object)}</code>
+     * from the given stream, with the <code>{@link JobDataSerializer}</code>
+     * if one is configured.  Delegates overriding
+     * <code>{@link #getObjectFromBlob(ResultSet, String)}</code> should use
+     * this to deserialize the BLOB's content.
+     * </p>
+     * 
+     * @param binaryInput
+     *          the BLOB's content, which is closed
+     * @return the deserialized Object
+     * @throws ClassNotFoundException
+     *           if a class found during deserialization cannot be found
+     * @throws IOException
+     *           if deserialization causes an error
+     */
+    protected Object deserializeObject(InputStream binaryInput)
+        throws ClassNotFoundException, IOException {
+        if (jobDataSerializer != null) {
+            try {
+                return jobDataSerializer.deserialize(binaryInput);
+            } finally {
+                binaryInput.close();
+            }
+        }
+
+        ObjectInputStream in = new ObjectInputStream(binaryInput);
+        try {
+            return in.readObject();
+        } finally {
+            in.close();
+        }
+    }
+
     /**
      * <p>
      * Remove the transient data from and then create a serialized <code>java.util.ByteArrayOutputStream</code>
@@ -3196,12 +4309,7 @@ public class StdJDBCDelegate implements DriverDelegate, StdJDBCConstants {
                     && ((ByteArrayInputStream) binaryInput).available() == 0 ) {
                     //do nothing
                 } else {
-                    ObjectInputStream in = new ObjectInputStream(binaryInput);
-                    try {
-                        obj = in.readObject();
-                    } finally {
-                        in.close();
-                    }
+                    obj = deserializeObject(binaryInput);
                 }
             }
 
@@ -3277,6 +4385,72 @@ public class StdJDBCDelegate implements DriverDelegate, StdJDBCConstants {
         }
     }
 
+    /**
+     * Prepares a statement of the given query, or, if statements are cached,
+     * returns the statement already prepared for it on the given connection.
+     * The statement must be released with
+     * <code>{@link #releaseCachedStatement(PreparedStatement)}</code>.
+     */
+    protected PreparedStatement prepareCachedStatement(Connection conn, String sql) throws SQLException {
+        Map<Connection, Map<String, PreparedStatement>> cached = cachedStatements;
+        if (cached == null) {
+            return conn.prepareStatement(sql);
+        }
+
+        Map<String, PreparedStatement> statements;
+        synchronized (cached) {
+            statements = cached.get(conn);
+            if (statements == null) {
+                statements = new HashMap<String, PreparedStatement>();
+                cached.put(conn, statements);
+            }
+        }
+
+        // a connection is used by one thread at a time
+        PreparedStatement ps = statements.get(sql);
+        if (ps == null) {
+            ps = conn.prepareStatement(sql);
+            statements.put(sql, ps);
+        }
+        return ps;
+    }
+
+    /**
+     * Releases a statement of <code>{@link #prepareCachedStatement(Connection, String)}</code>:
+     * closes it, or, if statements are cached, clears its parameters.
+     */
+    protected void releaseCachedStatement(PreparedStatement ps) {
+        if (cachedStatements == null) {
+            closeStatement(ps);
+        } else if (ps != null) {
+            try {
+                ps.clearParameters();
+            } catch (SQLException ignore) {
+            }
+        }
+    }
+
+    /**
+     * Closes the statements cached for the given connection, which must be
+     * called before the connection is closed.
+     */
+    public void closeCachedStatements(Connection conn) {
+        Map<Connection, Map<String, PreparedStatement>> cached = cachedStatements;
+        if (cached == null) {
+            return;
+        }
+
+        Map<String, PreparedStatement> statements;
+        synchronized (cached) {
+            statements = cached.remove(conn);
+        }
+        if (statements != null) {
+            for (PreparedStatement ps : statements.values()) {
+                closeStatement(ps);
+            }
+        }
+    }
+
     /**
      * Cleanup helper method that closes the given <code>Statement</code>
      * while ignoring any errors.
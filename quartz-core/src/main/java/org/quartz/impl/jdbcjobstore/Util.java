@@ -21,11 +21,15 @@ package org.quartz.impl.jdbcjobstore;
 import java.beans.BeanInfo;
 import java.beans.Introspector;
 import java.beans.PropertyDescriptor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.text.MessageFormat;
+import java.util.HashMap;
 import java.util.Locale;
+import java.util.Map;
 
 import org.quartz.JobPersistenceException;
 
@@ -68,6 +72,44 @@ public final class Util {
         return MessageFormat.format(query, new Object[]{tablePrefix, schedNameLiteral});
     }
 
+    /**
+     * <p>
+     * Replace the table prefix and scheduler name, as by
+     * <code>{@link #rtp(String, String, String)}</code>, in all the static
+     * <code>String</code> constants that contain "{0}" of the given class,
+     * of its superclasses, and of the interfaces they implement.
+     * </p>
+     * 
+     * @return the substituted queries, by unsubstituted query
+     */
+    public static Map<String, String> rtpAll(Class<?> constantsClass, String tablePrefix, String schedNameLiteral) {
+        Map<String, String> queries = new HashMap<String, String>();
+        for (Field field : constantsClass.getFields()) {
+            addQuery(queries, field, tablePrefix, schedNameLiteral);
+        }
+        for (Class<?> c = constantsClass; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                addQuery(queries, field, tablePrefix, schedNameLiteral);
+            }
+        }
+        return queries;
+    }
+
+    private static void addQuery(Map<String, String> queries, Field field, String tablePrefix, String schedNameLiteral) {
+        if (!Modifier.isStatic(field.getModifiers()) || field.getType() != String.class) {
+            return;
+        }
+        try {
+            field.setAccessible(true);
+            String query = (String) field.get(null);
+            if (query != null && query.contains(StdJDBCConstants.TABLE_PREFIX_SUBST) && !queries.containsKey(query)) {
+                queries.put(query, rtp(query, tablePrefix, schedNameLiteral));
+            }
+        } catch (Exception ignore) {
+            // the query is substituted when it is used
+        }
+    }
+
     /**
      * <p>
      * Obtain a unique key for a given job.
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2001-2009 Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.quartz.impl.jdbcjobstore;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <p>
+ * A size bounded, least recently used cache of values read from the
+ * database, which is valid for one value of a data version counter.
+ * </p>
+ *
+ * <p>
+ * The cache is emptied whenever it is told of a newer version, and a
+ * value is only cached if it was read at the version the cache currently
+ * holds, so a value read before the counter was incremented can not
+ * outlive the invalidation.
+ * </p>
+ *
+ * <p>
+ * Versions only move forward: an older version, as read from a read
+ * replica that lags behind the primary, leaves the cache alone, and the
+ * values read at it are not cached.
+ * </p>
+ *
+ * @see JobStoreSupport#setJobAndCalendarCacheSize(int)
+ */
+class VersionedCache<K, V> {
+
+    private final LinkedHashMap<K, V> entries;
+
+    private long version = -1L;
+
+    VersionedCache(final int maxSize) {
+        this.entries = new LinkedHashMap<K, V>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Empties the cache if the given version is newer than the one it holds.
+     */
+    synchronized void updateVersion(long newVersion) {
+        if (newVersion > version) {
+            entries.clear();
+            version = newVersion;
+        }
+    }
+
+    synchronized V get(K key) {
+        return entries.get(key);
+    }
+
+    /**
+     * Caches the given value, if it was read at the version the cache holds.
+     */
+    synchronized void put(K key, V value, long readVersion) {
+        if (readVersion == version) {
+            entries.put(key, value);
+        }
+    }
+
+    synchronized void remove(K key) {
+        entries.remove(key);
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+}
@@ -0,0 +1,676 @@
+/*
+ * Copyright 2001-2009 Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.quartz.simpl;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.quartz.JobKey;
+import org.quartz.SchedulerConfigException;
+import org.quartz.Trigger;
+import org.quartz.TriggerKey;
+import org.quartz.core.JobRunShell;
+import org.quartz.impl.matchers.GroupMatcher;
+import org.quartz.spi.OperableTrigger;
+import org.quartz.spi.PartitionedThreadPool;
+import org.quartz.utils.Key;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * A <code>{@link PartitionedThreadPool}</code> with a fixed number of
+ * <code>Thread</code>s in each partition, so that a flood of slow jobs in
+ * some groups can't delay the jobs of the other groups.
+ * </p>
+ *
+ * <p>
+ * Each partition runs the jobs whose job group or trigger group matches one
+ * of its <code>GroupMatcher</code>s, the partitions being tried in the order
+ * they were added.  The jobs that match none run in the default partition,
+ * configured by the pool's own <code>threadCount</code> and
+ * <code>queueSize</code>.  On top of its threads, a partition can queue up
+ * to <code>queueSize</code> jobs, which its threads take by trigger priority,
+ * highest first, and in the order they came in among equal priorities.
+ * </p>
+ *
+ * <pre>
+ * org.quartz.threadPool.class = org.quartz.simpl.BulkheadThreadPool
+ * org.quartz.threadPool.threadCount = 10
+ * org.quartz.threadPool.partition.reports.threadCount = 2
+ * org.quartz.threadPool.partition.reports.queueSize = 8
+ * org.quartz.threadPool.partition.reports.jobGroups = reports, *-export
+ * org.quartz.threadPool.partition.alerts.threadCount = 4
+ * org.quartz.threadPool.partition.alerts.triggerGroups = alerts
+ * </pre>
+ *
+ * <p>
+ * Groups are listed separated by commas; a leading or trailing
+ * <code>*</code> matches groups ending or starting with the rest, both
+ * match groups containing it, and <code>*</code> alone matches any group.
+ * </p>
+ *
+ * @see SimpleThreadPool
+ */
+public class BulkheadThreadPool implements PartitionedThreadPool {
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Constants.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    public static final String DEFAULT_PARTITION = "default";
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Data members.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    private final Partition defaultPartition = new Partition(DEFAULT_PARTITION);
+
+    private final Map<String, Partition> namedPartitions = new LinkedHashMap<String, Partition>();
+
+    // the default partition first, then the named ones in the order added
+    private Partition[] partitions;
+
+    // the room of all partitions together
+    private final Semaphore availableThreads = new Semaphore(0);
+
+    private final AtomicLong queuedCount = new AtomicLong();
+
+    private final List<WorkerThread> workers = new ArrayList<WorkerThread>();
+
+    private int prio = Thread.NORM_PRIORITY;
+
+    private boolean inheritLoader = false;
+
+    private boolean makeThreadsDaemons = false;
+
+    private String threadNamePrefix;
+
+    private String schedulerInstanceName;
+
+    private volatile boolean isShutdown = false;
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Constructors.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    /**
+     * <p>
+     * Create a new (unconfigured) <code>BulkheadThreadPool</code>.
+     * </p>
+     *
+     * @see #setThreadCount(int)
+     * @see #addPartition(Partition)
+     */
+    public BulkheadThreadPool() {
+    }
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Interface.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    public Logger getLog() {
+        return log;
+    }
+
+    /**
+     * <p>
+     * Set the number of worker threads of the default partition - has no
+     * effect after <code>initialize()</code> has been called.
+     * </p>
+     */
+    public void setThreadCount(int count) {
+        defaultPartition.setThreadCount(count);
+    }
+
+    public int getThreadCount() {
+        return defaultPartition.getThreadCount();
+    }
+
+    /**
+     * <p>
+     * Set the number of jobs the default partition queues on top of its
+     * threads, 0 by default.
+     * </p>
+     */
+    public void setQueueSize(int queueSize) {
+        defaultPartition.setQueueSize(queueSize);
+    }
+
+    public int getQueueSize() {
+        return defaultPartition.getQueueSize();
+    }
+
+    public void setThreadPriority(int prio) {
+        this.prio = prio;
+    }
+
+    public int getThreadPriority() {
+        return prio;
+    }
+
+    public void setThreadNamePrefix(String prfx) {
+        this.threadNamePrefix = prfx;
+    }
+
+    public String getThreadNamePrefix() {
+        return threadNamePrefix;
+    }
+
+    public boolean isThreadsInheritContextClassLoaderOfInitializingThread() {
+        return inheritLoader;
+    }
+
+    public void setThreadsInheritContextClassLoaderOfInitializingThread(
+            boolean inheritLoader) {
+        this.inheritLoader = inheritLoader;
+    }
+
+    public boolean isMakeThreadsDaemons() {
+        return makeThreadsDaemons;
+    }
+
+    public void setMakeThreadsDaemons(boolean makeThreadsDaemons) {
+        this.makeThreadsDaemons = makeThreadsDaemons;
+    }
+
+    /**
+     * <p>
+     * Add a partition, which must be done before <code>initialize()</code>.
+     * </p>
+     */
+    public void addPartition(Partition partition) {
+        if (partitions != null) {
+            throw new IllegalStateException("Partitions can't be added after initialize().");
+        }
+        if (DEFAULT_PARTITION.equals(partition.getName())
+                || namedPartitions.containsKey(partition.getName())) {
+            throw new IllegalArgumentException("Partition '" + partition.getName() + "' already exists.");
+        }
+        namedPartitions.put(partition.getName(), partition);
+    }
+
+    /**
+     * <p>
+     * Get the partition with the given name, or <code>null</code>.
+     * </p>
+     */
+    public Partition getPartition(String name) {
+        return DEFAULT_PARTITION.equals(name) ? defaultPartition : namedPartitions.get(name);
+    }
+
+    public void setInstanceId(String schedInstId) {
+    }
+
+    public void setInstanceName(String schedName) {
+        schedulerInstanceName = schedName;
+    }
+
+    public int getPoolSize() {
+        int size = defaultPartition.getThreadCount();
+        for (Partition partition : namedPartitions.values()) {
+            size += partition.getThreadCount();
+        }
+        return size;
+    }
+
+    public int getPartitionCount() {
+        return namedPartitions.size() + 1;
+    }
+
+    public int getPartition(OperableTrigger trigger) {
+        for (int i = 1; i < partitions.length; i++) {
+            if (partitions[i].matches(trigger)) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    public int getAvailableThreads(int partition) {
+        return Math.max(0, partitions[partition].room.availablePermits());
+    }
+
+    public void notifyWhenAvailable(int partition, Runnable listener) {
+        Partition p = partitions[partition];
+        if (!p.listeners.contains(listener)) {
+            p.listeners.add(listener);
+        }
+        if (p.room.availablePermits() > 0) {
+            p.notifyListeners();
+        }
+    }
+
+    public synchronized void initialize() throws SchedulerConfigException {
+
+        if (partitions != null) // already initialized...
+            return;
+
+        if (prio <= 0 || prio > 9) {
+            throw new SchedulerConfigException(
+                    "Thread priority must be > 0 and <= 9");
+        }
+
+        List<Partition> all = new ArrayList<Partition>();
+        all.add(defaultPartition);
+        all.addAll(namedPartitions.values());
+        for (Partition partition : all) {
+            if (partition.getThreadCount() <= 0) {
+                throw new SchedulerConfigException("Thread count of partition '"
+                        + partition.getName() + "' must be > 0");
+            }
+            if (partition.getQueueSize() < 0) {
+                throw new SchedulerConfigException("Queue size of partition '"
+                        + partition.getName() + "' must be >= 0");
+            }
+        }
+        partitions = all.toArray(new Partition[all.size()]);
+
+        String prefix = getThreadNamePrefix();
+        if (prefix == null) {
+            prefix = schedulerInstanceName + "_Worker";
+        }
+        ClassLoader loader = isThreadsInheritContextClassLoaderOfInitializingThread()
+            ? Thread.currentThread().getContextClassLoader() : null;
+
+        for (Partition partition : partitions) {
+            int room = partition.getThreadCount() + partition.getQueueSize();
+            partition.room.release(room);
+            availableThreads.release(room);
+
+            String partitionPrefix = (partition == defaultPartition)
+                ? prefix : prefix + "-" + partition.getName();
+            for (int i = 1; i <= partition.getThreadCount(); i++) {
+                WorkerThread wt = new WorkerThread(partition, partitionPrefix + "-" + i);
+                if (loader != null) {
+                    wt.setContextClassLoader(loader);
+                }
+                workers.add(wt);
+            }
+            getLog().info("Partition '" + partition.getName() + "' has " + partition.getThreadCount()
+                    + " threads and queues up to " + partition.getQueueSize() + " jobs.");
+        }
+
+        for (WorkerThread wt : workers) {
+            wt.start();
+        }
+    }
+
+    /**
+     * <p>
+     * Queue the given <code>Runnable</code> in its partition, blocking until
+     * the partition has room for it.  If the thread pool is shut down, the
+     * Runnable is executed immediately within a new additional thread.
+     * </p>
+     *
+     * @param runnable
+     *          the <code>Runnable</code> to be added.
+     */
+    public boolean runInThread(Runnable runnable) {
+        if (runnable == null) {
+            return false;
+        }
+
+        int priority = Trigger.DEFAULT_PRIORITY;
+        Partition partition = defaultPartition;
+        if (runnable instanceof JobRunShell) {
+            OperableTrigger trigger = ((JobRunShell) runnable).getTrigger();
+            priority = trigger.getPriority();
+            partition = partitions[getPartition(trigger)];
+        }
+
+        partition.room.acquireUninterruptibly();
+
+        if (isShutdown) {
+            WorkerThread wt = new WorkerThread(null, "WorkerThread-LastJob");
+            wt.lastJob = runnable;
+            wt.start();
+            return true;
+        }
+
+        // can't block, as the room of all partitions is at least the room
+        // of this one
+        availableThreads.acquireUninterruptibly();
+        partition.queue.offer(new QueuedRunnable(runnable, priority, queuedCount.incrementAndGet()));
+        return true;
+    }
+
+    public int blockForAvailableThreads() {
+        if (isShutdown) {
+            return 0;
+        }
+
+        availableThreads.acquireUninterruptibly();
+        try {
+            return isShutdown ? 0 : availableThreads.availablePermits() + 1;
+        } finally {
+            availableThreads.release();
+        }
+    }
+
+    /**
+     * <p>
+     * Terminate the worker threads once they have run the jobs queued in
+     * their partition.
+     * </p>
+     */
+    public void shutdown(boolean waitForJobsToComplete) {
+
+        getLog().debug("Shutting down threadpool...");
+
+        synchronized (this) {
+            if (isShutdown || partitions == null) {
+                isShutdown = true;
+                return;
+            }
+            isShutdown = true;
+
+            // release anyone blocked for room, they'll find the pool shut down
+            availableThreads.release(Integer.MAX_VALUE / 2);
+            for (Partition partition : partitions) {
+                partition.room.release(Integer.MAX_VALUE / 2);
+                for (int i = 0; i < partition.getThreadCount(); i++) {
+                    partition.queue.offer(QueuedRunnable.STOP);
+                }
+            }
+        }
+
+        if (waitForJobsToComplete) {
+            boolean interrupted = false;
+            try {
+                for (WorkerThread wt : workers) {
+                    if (wt == Thread.currentThread()) {
+                        continue;
+                    }
+                    try {
+                        getLog().debug("Waiting for thread " + wt.getName() + " to shut down");
+                        wt.join();
+                    } catch (InterruptedException _) {
+                        interrupted = true;
+                    }
+                }
+            } finally {
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            getLog().debug("No executing jobs remaining, all threads stopped.");
+        }
+        getLog().debug("Shutdown of threadpool complete.");
+    }
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Partition Class.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    /**
+     * <p>
+     * A partition of the pool: its size and the groups of the jobs it runs.
+     * </p>
+     */
+    public static class Partition {
+
+        private final String name;
+
+        private int threadCount = -1;
+
+        private int queueSize = 0;
+
+        private final List<GroupMatcher<JobKey>> jobGroupMatchers = new ArrayList<GroupMatcher<JobKey>>();
+
+        private final List<GroupMatcher<TriggerKey>> triggerGroupMatchers = new ArrayList<GroupMatcher<TriggerKey>>();
+
+        private final Semaphore room = new Semaphore(0);
+
+        private final PriorityBlockingQueue<QueuedRunnable> queue = new PriorityBlockingQueue<QueuedRunnable>();
+
+        private final ConcurrentLinkedQueue<Runnable> listeners = new ConcurrentLinkedQueue<Runnable>();
+
+        public Partition(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getThreadCount() {
+            return threadCount;
+        }
+
+        public void setThreadCount(int threadCount) {
+            this.threadCount = threadCount;
+        }
+
+        public int getQueueSize() {
+            return queueSize;
+        }
+
+        /**
+         * Set the number of jobs the partition queues on top of its threads,
+         * 0 by default.
+         */
+        public void setQueueSize(int queueSize) {
+            this.queueSize = queueSize;
+        }
+
+        public void addJobGroupMatcher(GroupMatcher<JobKey> matcher) {
+            jobGroupMatchers.add(matcher);
+        }
+
+        public void addTriggerGroupMatcher(GroupMatcher<TriggerKey> matcher) {
+            triggerGroupMatchers.add(matcher);
+        }
+
+        /**
+         * Add matchers for the given comma separated job groups.
+         */
+        public void setJobGroups(String jobGroups) {
+            for (String group : jobGroups.split(",")) {
+                if (group.trim().length() > 0) {
+                    addJobGroupMatcher(BulkheadThreadPool.<JobKey>toGroupMatcher(group.trim()));
+                }
+            }
+        }
+
+        /**
+         * Add matchers for the given comma separated trigger groups.
+         */
+        public void setTriggerGroups(String triggerGroups) {
+            for (String group : triggerGroups.split(",")) {
+                if (group.trim().length() > 0) {
+                    addTriggerGroupMatcher(BulkheadThreadPool.<TriggerKey>toGroupMatcher(group.trim()));
+                }
+            }
+        }
+
+        boolean matches(OperableTrigger trigger) {
+            for (GroupMatcher<JobKey> matcher : jobGroupMatchers) {
+                if (matcher.isMatch(trigger.getJobKey())) {
+                    return true;
+                }
+            }
+            for (GroupMatcher<TriggerKey> matcher : triggerGroupMatchers) {
+                if (matcher.isMatch(trigger.getKey())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void release() {
+            room.release();
+            notifyListeners();
+        }
+
+        void notifyListeners() {
+            Runnable listener;
+            while ((listener = listeners.poll()) != null) {
+                listener.run();
+            }
+        }
+    }
+
+    static <T extends Key<T>> GroupMatcher<T> toGroupMatcher(String group) {
+        if (group.equals("*")) {
+            return GroupMatcher.anyGroup();
+        }
+        boolean leading = group.startsWith("*");
+        boolean trailing = group.endsWith("*");
+        String compareTo = group.substring(leading ? 1 : 0, trailing ? group.length() - 1 : group.length());
+        if (leading && trailing) {
+            return GroupMatcher.groupContains(compareTo);
+        } else if (leading) {
+            return GroupMatcher.groupEndsWith(compareTo);
+        } else if (trailing) {
+            return GroupMatcher.groupStartsWith(compareTo);
+        }
+        return GroupMatcher.groupEquals(compareTo);
+    }
+
+    /**
+     * A queued <code>Runnable</code>, ordered by priority, highest first,
+     * then by arrival.
+     */
+    static class QueuedRunnable implements Comparable<QueuedRunnable> {
+
+        // runs after anything queued before shutdown
+        static final QueuedRunnable STOP = new QueuedRunnable(null, Integer.MIN_VALUE, Long.MAX_VALUE);
+
+        final Runnable runnable;
+
+        final int priority;
+
+        final long sequence;
+
+        QueuedRunnable(Runnable runnable, int priority, long sequence) {
+            this.runnable = runnable;
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        public int compareTo(QueuedRunnable other) {
+            if (priority != other.priority) {
+                return priority > other.priority ? -1 : 1;
+            }
+            return sequence < other.sequence ? -1 : (sequence == other.sequence ? 0 : 1);
+        }
+    }
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * WorkerThread Class.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    /**
+     * <p>
+     * A Worker loops, taking the queued tasks of its partition.
+     * </p>
+     */
+    class WorkerThread extends Thread {
+
+        private final Partition partition;
+
+        private Runnable lastJob;
+
+        WorkerThread(Partition partition, String name) {
+            super(name);
+            this.partition = partition;
+            setPriority(prio);
+            setDaemon(makeThreadsDaemons);
+        }
+
+        @Override
+        public void run() {
+            if (partition == null) {
+                execute(lastJob);
+                return;
+            }
+
+            while (true) {
+                QueuedRunnable next;
+                try {
+                    next = partition.queue.take();
+                } catch (InterruptedException unblock) {
+                    getLog().error("Worker thread was interrupt()'ed.", unblock);
+                    continue;
+                }
+                if (next == QueuedRunnable.STOP) {
+                    break;
+                }
+
+                try {
+                    execute(next.runnable);
+                } finally {
+                    if (!isShutdown) {
+                        availableThreads.release();
+                        partition.release();
+                    }
+                }
+            }
+
+            getLog().debug("WorkerThread is shut down.");
+        }
+
+        private void execute(Runnable runnable) {
+            try {
+                runnable.run();
+            } catch (Throwable exceptionInRunnable) {
+                getLog().error("Error while executing the Runnable: ",
+                    exceptionInRunnable);
+            } finally {
+                // repair the thread in case the runnable mucked it up...
+                if (getPriority() != prio) {
+                    setPriority(prio);
+                }
+            }
+        }
+    }
+}
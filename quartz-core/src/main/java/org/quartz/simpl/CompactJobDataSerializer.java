@@ -0,0 +1,404 @@
+/*
+ * Copyright 2001-2009 Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.quartz.simpl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.io.StreamCorruptedException;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.quartz.JobDataMap;
+import org.quartz.spi.JobDataSerializer;
+
+/**
+ * <p>
+ * A <code>{@link JobDataSerializer}</code> writing a compact, typed binary
+ * encoding of <code>JobDataMap</code>s.
+ * </p>
+ *
+ * <p>
+ * Strings, boxed primitives, <code>java.util.Date</code>s, byte arrays,
+ * <code>HashMap</code>s and <code>JobDataMap</code>s are written as a one
+ * byte type tag followed by their value, with variable length integers.
+ * Any other value (including <code>Calendar</code>s, and subclasses of the
+ * types above) is written with standard Java serialization, so that it
+ * comes back as the same class.  Encodings of at least
+ * <code>compressionThreshold</code> bytes are Deflate compressed, if that
+ * makes them smaller.
+ * </p>
+ *
+ * <p>
+ * Everything this serializer writes starts with a four byte header: two
+ * magic bytes, the format version and flags.  Data that does not start with
+ * the magic bytes is read with standard Java serialization, so blobs written
+ * before the serializer was configured can still be read.  Blobs written by
+ * this serializer can however only be read with it configured.
+ * </p>
+ *
+ * <p>
+ * It is configured with the <code>org.quartz.jobStore.jobDataSerializer.class</code>
+ * property, and its <code>compressionThreshold</code> with
+ * <code>org.quartz.jobStore.jobDataSerializer.compressionThreshold</code>.
+ * </p>
+ */
+public class CompactJobDataSerializer implements JobDataSerializer {
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Constants.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    // Java serialization streams start with 0xACED, so these can't be mistaken for one
+    static final int MAGIC_0 = 'Q';
+
+    static final int MAGIC_1 = 'Z';
+
+    static final int FORMAT_VERSION = 1;
+
+    static final int FLAG_DEFLATED = 0x01;
+
+    public static final int DEFAULT_COMPRESSION_THRESHOLD = 1024;
+
+    private static final int TAG_NULL = 0;
+    private static final int TAG_STRING = 1;
+    private static final int TAG_INTEGER = 2;
+    private static final int TAG_LONG = 3;
+    private static final int TAG_TRUE = 4;
+    private static final int TAG_FALSE = 5;
+    private static final int TAG_DOUBLE = 6;
+    private static final int TAG_FLOAT = 7;
+    private static final int TAG_SHORT = 8;
+    private static final int TAG_BYTE = 9;
+    private static final int TAG_CHARACTER = 10;
+    private static final int TAG_DATE = 11;
+    private static final int TAG_BYTES = 12;
+    private static final int TAG_HASH_MAP = 13;
+    private static final int TAG_JOB_DATA_MAP = 14;
+    private static final int TAG_SERIALIZED = 15;
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Data members.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    private volatile int compressionThreshold = DEFAULT_COMPRESSION_THRESHOLD;
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Interface.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    public int getCompressionThreshold() {
+        return compressionThreshold;
+    }
+
+    /**
+     * Set the size, in bytes, from which encodings are compressed.  A
+     * negative value disables compression.  Defaults to
+     * <code>{@link #DEFAULT_COMPRESSION_THRESHOLD}</code>.
+     */
+    public void setCompressionThreshold(int compressionThreshold) {
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    public byte[] serialize(Object obj) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        writeValue(body, obj);
+
+        int threshold = compressionThreshold;
+        if (threshold >= 0 && body.size() >= threshold) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.size() / 2 + 16);
+            writeHeader(compressed, FLAG_DEFLATED);
+            Deflater deflater = new Deflater();
+            try {
+                DeflaterOutputStream out = new DeflaterOutputStream(compressed, deflater);
+                body.writeTo(out);
+                out.finish();
+            } finally {
+                deflater.end();
+            }
+            if (compressed.size() < body.size() + 4) {
+                return compressed.toByteArray();
+            }
+        }
+
+        ByteArrayOutputStream result = new ByteArrayOutputStream(body.size() + 4);
+        writeHeader(result, 0);
+        body.writeTo(result);
+        return result.toByteArray();
+    }
+
+    public Object deserialize(InputStream in) throws IOException, ClassNotFoundException {
+        PushbackInputStream pin = new PushbackInputStream(in, 2);
+        int b0 = pin.read();
+        if (b0 == -1) {
+            return null;
+        }
+        int b1 = pin.read();
+        if (b0 != MAGIC_0 || b1 != MAGIC_1) {
+            if (b1 != -1) {
+                pin.unread(b1);
+            }
+            pin.unread(b0);
+            ObjectInputStream legacy = new ObjectInputStream(pin);
+            try {
+                return legacy.readObject();
+            } finally {
+                legacy.close();
+            }
+        }
+
+        int version = pin.read();
+        int flags = pin.read();
+        if (flags == -1) {
+            throw new EOFException("Truncated job data header");
+        }
+        if (version != FORMAT_VERSION) {
+            throw new StreamCorruptedException("Unsupported job data format version: " + version);
+        }
+
+        InputStream body = ((flags & FLAG_DEFLATED) != 0) ? new InflaterInputStream(pin) : pin;
+        try {
+            return readValue(new DataInputStream(body));
+        } finally {
+            body.close();
+        }
+    }
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Encoding.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    private static void writeHeader(OutputStream out, int flags) throws IOException {
+        out.write(MAGIC_0);
+        out.write(MAGIC_1);
+        out.write(FORMAT_VERSION);
+        out.write(flags);
+    }
+
+    private void writeValue(ByteArrayOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.write(TAG_NULL);
+            return;
+        }
+
+        Class<?> type = value.getClass();
+        if (type == String.class) {
+            out.write(TAG_STRING);
+            writeString(out, (String) value);
+        } else if (type == Integer.class) {
+            out.write(TAG_INTEGER);
+            writeVarLong(out, zigZag(((Integer) value).intValue()));
+        } else if (type == Long.class) {
+            out.write(TAG_LONG);
+            writeVarLong(out, zigZag(((Long) value).longValue()));
+        } else if (type == Boolean.class) {
+            out.write(((Boolean) value).booleanValue() ? TAG_TRUE : TAG_FALSE);
+        } else if (type == Double.class) {
+            out.write(TAG_DOUBLE);
+            writeFixedLong(out, Double.doubleToLongBits(((Double) value).doubleValue()));
+        } else if (type == Float.class) {
+            out.write(TAG_FLOAT);
+            writeVarLong(out, Float.floatToIntBits(((Float) value).floatValue()) & 0xFFFFFFFFL);
+        } else if (type == Short.class) {
+            out.write(TAG_SHORT);
+            writeVarLong(out, zigZag(((Short) value).shortValue()));
+        } else if (type == Byte.class) {
+            out.write(TAG_BYTE);
+            out.write(((Byte) value).byteValue());
+        } else if (type == Character.class) {
+            out.write(TAG_CHARACTER);
+            writeVarLong(out, ((Character) value).charValue());
+        } else if (type == Date.class) {
+            out.write(TAG_DATE);
+            writeVarLong(out, zigZag(((Date) value).getTime()));
+        } else if (type == byte[].class) {
+            byte[] bytes = (byte[]) value;
+            out.write(TAG_BYTES);
+            writeVarLong(out, bytes.length);
+            out.write(bytes, 0, bytes.length);
+        } else if (type == HashMap.class || type == JobDataMap.class) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            out.write(type == HashMap.class ? TAG_HASH_MAP : TAG_JOB_DATA_MAP);
+            writeVarLong(out, map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                writeValue(out, entry.getKey());
+                writeValue(out, entry.getValue());
+            }
+        } else {
+            ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+            ObjectOutputStream oos = new ObjectOutputStream(serialized);
+            oos.writeObject(value);
+            oos.close();
+            out.write(TAG_SERIALIZED);
+            writeVarLong(out, serialized.size());
+            serialized.writeTo(out);
+        }
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes("UTF-8");
+        writeVarLong(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static void writeVarLong(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static void writeFixedLong(OutputStream out, long value) throws IOException {
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            out.write((int) (value >>> shift) & 0xFF);
+        }
+    }
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Decoding.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    private Object readValue(DataInputStream in) throws IOException, ClassNotFoundException {
+        int tag = in.read();
+        switch (tag) {
+            case TAG_NULL:
+                return null;
+            case TAG_STRING:
+                return new String(readBytes(in), "UTF-8");
+            case TAG_INTEGER:
+                return Integer.valueOf((int) unZigZag(readVarLong(in)));
+            case TAG_LONG:
+                return Long.valueOf(unZigZag(readVarLong(in)));
+            case TAG_TRUE:
+                return Boolean.TRUE;
+            case TAG_FALSE:
+                return Boolean.FALSE;
+            case TAG_DOUBLE:
+                return Double.valueOf(Double.longBitsToDouble(in.readLong()));
+            case TAG_FLOAT:
+                return Float.valueOf(Float.intBitsToFloat((int) readVarLong(in)));
+            case TAG_SHORT:
+                return Short.valueOf((short) unZigZag(readVarLong(in)));
+            case TAG_BYTE:
+                return Byte.valueOf(in.readByte());
+            case TAG_CHARACTER:
+                return Character.valueOf((char) readVarLong(in));
+            case TAG_DATE:
+                return new Date(unZigZag(readVarLong(in)));
+            case TAG_BYTES:
+                return readBytes(in);
+            case TAG_HASH_MAP: {
+                int size = readLength(in);
+                HashMap<Object, Object> map = new HashMap<Object, Object>(Math.max(16, (int) (size / 0.75f) + 1));
+                for (int i = 0; i < size; i++) {
+                    Object key = readValue(in);
+                    map.put(key, readValue(in));
+                }
+                return map;
+            }
+            case TAG_JOB_DATA_MAP: {
+                int size = readLength(in);
+                JobDataMap map = new JobDataMap();
+                for (int i = 0; i < size; i++) {
+                    Object key = readValue(in);
+                    map.put((String) key, readValue(in));
+                }
+                map.clearDirtyFlag();
+                return map;
+            }
+            case TAG_SERIALIZED: {
+                ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(readBytes(in)));
+                try {
+                    return ois.readObject();
+                } finally {
+                    ois.close();
+                }
+            }
+            case -1:
+                throw new EOFException("Truncated job data");
+            default:
+                throw new StreamCorruptedException("Unknown job data type tag: " + tag);
+        }
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[readLength(in)];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private static int readLength(DataInputStream in) throws IOException {
+        long length = readVarLong(in);
+        if (length < 0 || length > Integer.MAX_VALUE) {
+            throw new StreamCorruptedException("Invalid job data length: " + length);
+        }
+        return (int) length;
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new StreamCorruptedException("Invalid variable length integer in job data");
+    }
+}
@@ -0,0 +1,909 @@
+/*
+ * Copyright 2001-2009 Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.quartz.simpl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+
+import org.quartz.JobDataMap;
+import org.quartz.JobKey;
+import org.quartz.TriggerKey;
+import org.quartz.impl.triggers.SimpleTriggerImpl;
+import org.quartz.spi.ClassLoadHelper;
+import org.quartz.spi.OperableTrigger;
+
+/**
+ * <p>
+ * Trigger storage for <code>{@link OffHeapRAMJobStore}</code>: one
+ * fixed-layout record per trigger in direct <code>ByteBuffer</code> slabs,
+ * plus primitive-array indexes on the heap.
+ * </p>
+ *
+ * <p>
+ * A record holds the fire times as primitive longs, the priority, state and
+ * misfire instruction, interned ids for the trigger group, job and calendar,
+ * the links of the per-job trigger list, and the UTF-8 trigger name.
+ * Plain <code>SimpleTriggerImpl</code>s are stored field by field (their
+ * description and <code>JobDataMap</code>, if any, serialized after the
+ * name); any other trigger type is stored as its serialized form, with the
+ * fields needed for indexing copied into the fixed part.  Triggers are only
+ * turned back into objects by <code>{@link #materialize(int)}</code>.
+ * </p>
+ *
+ * <p>
+ * Records are allocated from per-size-class free lists (power-of-two
+ * chunks, from 64 bytes up to the slab size) carved out of slabs.  Freed
+ * chunks are reused, but slabs are never returned.  Each trigger has an int
+ * id; lookup by key uses an open-addressing table of ids, and the waiting
+ * triggers are kept in a binary heap of ids ordered like
+ * <code>{@link TriggerWrapperComparator}</code>.
+ * </p>
+ *
+ * <p>
+ * Not thread-safe; the store's lock guards every call.
+ * </p>
+ */
+class CompactTriggerTable {
+
+    static final long NO_TIME = Long.MIN_VALUE;
+
+    static final byte KIND_SIMPLE = 0;
+
+    static final byte KIND_SERIALIZED = 1;
+
+    private static final int NEXT_FIRE = 0;
+    private static final int PREV_FIRE = 8;
+    private static final int START = 16;
+    private static final int END = 24;
+    private static final int INTERVAL = 32;
+    private static final int REPEAT_COUNT = 40;
+    private static final int TIMES_TRIGGERED = 44;
+    private static final int PRIORITY = 48;
+    private static final int GROUP = 52;
+    private static final int JOB = 56;
+    private static final int CALENDAR = 60;
+    private static final int NEXT_OF_JOB = 64;
+    private static final int PREV_OF_JOB = 68;
+    private static final int STATE = 72;
+    private static final int MISFIRE = 73;
+    private static final int KIND = 74;
+    private static final int NAME_LENGTH = 76;
+    private static final int DATA_LENGTH = 78;
+    private static final int HEADER = 82;
+
+    private static final int MIN_CHUNK = 64;
+
+    private static final long FREE = -1L;
+
+    private static final int EMPTY = 0;
+
+    private static final int DELETED = -1;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Data members.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    private final int slabSize;
+
+    private ClassLoadHelper loadHelper;
+
+    private ByteBuffer[] slabs = new ByteBuffer[16];
+
+    private int slabCount;
+
+    private final SizeClass[] sizeClasses;
+
+    /** id -> slab address of the record, or FREE */
+    private long[] addresses = new long[1024];
+
+    /** id -> hash of the trigger key */
+    private int[] hashes = new int[1024];
+
+    /** id -> position in the time heap, or -1 */
+    private int[] heapPositions = new int[1024];
+
+    private int idLimit;
+
+    private int[] freeIds = new int[64];
+
+    private int freeIdCount;
+
+    private int size;
+
+    /** open-addressing key table holding id + 1 */
+    private int[] table = new int[2048];
+
+    private int tableUsed;
+
+    private int[] heap = new int[1024];
+
+    private int heapSize;
+
+    final InternTable<String> groups = new InternTable<String>();
+
+    final InternTable<JobKey> jobs = new InternTable<JobKey>();
+
+    final InternTable<String> calendars = new InternTable<String>();
+
+    /** job id -> first trigger id of the job, or -1 */
+    private int[] jobHeads = new int[64];
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Constructors.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    CompactTriggerTable(int slabSize, ClassLoadHelper loadHelper) {
+        if (slabSize < MIN_CHUNK * 16 || Integer.bitCount(slabSize) != 1) {
+            throw new IllegalArgumentException("Slab size must be a power of two, at least " + (MIN_CHUNK * 16) + ".");
+        }
+        this.slabSize = slabSize;
+        this.loadHelper = loadHelper;
+
+        int classes = Integer.numberOfTrailingZeros(slabSize) - Integer.numberOfTrailingZeros(MIN_CHUNK) + 1;
+        sizeClasses = new SizeClass[classes];
+        for (int i = 0; i < classes; i++) {
+            sizeClasses[i] = new SizeClass(MIN_CHUNK << i);
+        }
+        Arrays.fill(addresses, FREE);
+        Arrays.fill(jobHeads, -1);
+    }
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Interface.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    void setClassLoadHelper(ClassLoadHelper loadHelper) {
+        this.loadHelper = loadHelper;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /** all ids in use are below this */
+    int idLimit() {
+        return idLimit;
+    }
+
+    boolean exists(int id) {
+        return addresses[id] != FREE;
+    }
+
+    /**
+     * Encode a trigger, without storing it yet.  Fails if the trigger (or its
+     * <code>JobDataMap</code>) is not serializable or is too large for a slab.
+     */
+    Encoded encode(OperableTrigger trigger) throws IOException {
+        byte kind = trigger.getClass() == SimpleTriggerImpl.class ? KIND_SIMPLE : KIND_SERIALIZED;
+        byte[] name = trigger.getKey().getName().getBytes(UTF8);
+        if (name.length > Short.MAX_VALUE) {
+            throw new IOException("Trigger name is too long: " + trigger.getKey());
+        }
+
+        byte[] data;
+        if (kind == KIND_SIMPLE) {
+            JobDataMap map = trigger.getJobDataMap();
+            if (map != null && map.isEmpty()) {
+                map = null;
+            }
+            data = (trigger.getDescription() == null && map == null)
+                    ? new byte[0] : serialize(new Object[] {trigger.getDescription(), map});
+        } else {
+            data = serialize(trigger);
+        }
+
+        int length = HEADER + name.length + data.length;
+        if (length > slabSize) {
+            throw new IOException("Trigger " + trigger.getKey() + " needs " + length
+                    + " bytes, more than the slab size of " + slabSize + ".");
+        }
+        return new Encoded(trigger, kind, name, data);
+    }
+
+    /**
+     * Store an encoded trigger, whose key must not already be present.
+     *
+     * @return the new trigger's id
+     */
+    int add(Encoded encoded, int state) {
+        OperableTrigger trigger = encoded.trigger;
+        int id = newId();
+        long address = allocate(HEADER + encoded.name.length + encoded.data.length);
+        addresses[id] = address;
+
+        int jobId = jobs.intern(trigger.getJobKey());
+        ensureJobHeads(jobId);
+
+        ByteBuffer buf = slab(address);
+        int off = offset(address);
+        writeFields(buf, off, trigger);
+        buf.putInt(off + GROUP, groups.intern(trigger.getKey().getGroup()));
+        buf.putInt(off + JOB, jobId);
+        buf.putInt(off + CALENDAR, trigger.getCalendarName() == null ? -1 : calendars.intern(trigger.getCalendarName()));
+        buf.put(off + STATE, (byte) state);
+        buf.put(off + KIND, encoded.kind);
+        buf.putShort(off + NAME_LENGTH, (short) encoded.name.length);
+        buf.putInt(off + DATA_LENGTH, encoded.data.length);
+        putBytes(buf, off + HEADER, encoded.name);
+        putBytes(buf, off + HEADER + encoded.name.length, encoded.data);
+
+        // push onto the front of the job's trigger list
+        int head = jobHeads[jobId];
+        buf.putInt(off + NEXT_OF_JOB, head);
+        buf.putInt(off + PREV_OF_JOB, -1);
+        if (head >= 0) {
+            setInt(head, PREV_OF_JOB, id);
+        }
+        jobHeads[jobId] = id;
+
+        hashes[id] = hash(trigger.getKey().getName(), trigger.getKey().getGroup());
+        heapPositions[id] = -1;
+        tableInsert(id);
+        size++;
+        return id;
+    }
+
+    /**
+     * Write back a trigger's changed schedule (fire times, times triggered,
+     * and so on) after it has been fired, misfired or re-calendared.  The
+     * trigger must not be in the time index while this happens, and its key,
+     * job and calendar must be unchanged.
+     */
+    void update(int id, OperableTrigger trigger) throws IOException {
+        long address = addresses[id];
+        ByteBuffer buf = slab(address);
+        int off = offset(address);
+
+        if (buf.get(off + KIND) == KIND_SERIALIZED) {
+            byte[] data = serialize(trigger);
+            int nameLength = buf.getShort(off + NAME_LENGTH);
+            int oldLength = HEADER + nameLength + buf.getInt(off + DATA_LENGTH);
+            int newLength = HEADER + nameLength + data.length;
+            if (newLength > slabSize) {
+                throw new IOException("Trigger " + trigger.getKey() + " needs " + newLength
+                        + " bytes, more than the slab size of " + slabSize + ".");
+            }
+            if (sizeClassFor(newLength) != sizeClassFor(oldLength)) {
+                // move the record to a chunk of the right size
+                long moved = allocate(newLength);
+                ByteBuffer to = slab(moved);
+                int toOff = offset(moved);
+                putBytes(to, toOff, getBytes(buf, off, HEADER + nameLength));
+                free(address, oldLength);
+                address = moved;
+                addresses[id] = moved;
+                buf = to;
+                off = toOff;
+            }
+            buf.putInt(off + DATA_LENGTH, data.length);
+            putBytes(buf, off + HEADER + nameLength, data);
+        }
+
+        writeFields(buf, off, trigger);
+    }
+
+    /**
+     * Remove a trigger, including from the time index.
+     */
+    void remove(int id) {
+        removeFromTimeIndex(id);
+
+        long address = addresses[id];
+        ByteBuffer buf = slab(address);
+        int off = offset(address);
+
+        int jobId = buf.getInt(off + JOB);
+        int next = buf.getInt(off + NEXT_OF_JOB);
+        int prev = buf.getInt(off + PREV_OF_JOB);
+        if (prev >= 0) {
+            setInt(prev, NEXT_OF_JOB, next);
+        } else {
+            jobHeads[jobId] = next;
+        }
+        if (next >= 0) {
+            setInt(next, PREV_OF_JOB, prev);
+        }
+
+        jobs.release(jobId);
+        groups.release(buf.getInt(off + GROUP));
+        int calId = buf.getInt(off + CALENDAR);
+        if (calId >= 0) {
+            calendars.release(calId);
+        }
+
+        tableRemove(id);
+        free(address, HEADER + buf.getShort(off + NAME_LENGTH) + buf.getInt(off + DATA_LENGTH));
+        addresses[id] = FREE;
+        if (freeIdCount == freeIds.length) {
+            freeIds = Arrays.copyOf(freeIds, freeIds.length * 2);
+        }
+        freeIds[freeIdCount++] = id;
+        size--;
+    }
+
+    /**
+     * @return the id of the trigger with the given key, or -1
+     */
+    int find(TriggerKey key) {
+        int groupId = groups.find(key.getGroup());
+        if (groupId < 0) {
+            return -1;
+        }
+        int h = hash(key.getName(), key.getGroup());
+        int mask = table.length - 1;
+        for (int i = h & mask; table[i] != EMPTY; i = (i + 1) & mask) {
+            int id = table[i] - 1;
+            if (table[i] != DELETED && hashes[id] == h
+                    && getInt(id, GROUP) == groupId && name(id).equals(key.getName())) {
+                return id;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Rebuild a trigger from its record.  Every call returns a new instance.
+     */
+    OperableTrigger materialize(int id) {
+        long address = addresses[id];
+        ByteBuffer buf = slab(address);
+        int off = offset(address);
+        int nameLength = buf.getShort(off + NAME_LENGTH);
+        int dataLength = buf.getInt(off + DATA_LENGTH);
+        byte[] data = getBytes(buf, off + HEADER + nameLength, dataLength);
+
+        try {
+            if (buf.get(off + KIND) == KIND_SERIALIZED) {
+                return (OperableTrigger) deserialize(data);
+            }
+
+            SimpleTriggerImpl trigger = new SimpleTriggerImpl();
+            trigger.setKey(new TriggerKey(name(id), groups.get(buf.getInt(off + GROUP))));
+            trigger.setJobKey(jobs.get(buf.getInt(off + JOB)));
+            int calId = buf.getInt(off + CALENDAR);
+            if (calId >= 0) {
+                trigger.setCalendarName(calendars.get(calId));
+            }
+            trigger.setPriority(buf.getInt(off + PRIORITY));
+            trigger.setMisfireInstruction(buf.get(off + MISFIRE));
+            trigger.setStartTime(new Date(buf.getLong(off + START)));
+            trigger.setEndTime(toDate(buf.getLong(off + END)));
+            trigger.setRepeatCount(buf.getInt(off + REPEAT_COUNT));
+            trigger.setRepeatInterval(buf.getLong(off + INTERVAL));
+            trigger.setTimesTriggered(buf.getInt(off + TIMES_TRIGGERED));
+            trigger.setNextFireTime(toDate(buf.getLong(off + NEXT_FIRE)));
+            trigger.setPreviousFireTime(toDate(buf.getLong(off + PREV_FIRE)));
+            if (dataLength > 0) {
+                Object[] extra = (Object[]) deserialize(data);
+                trigger.setDescription((String) extra[0]);
+                if (extra[1] != null) {
+                    trigger.setJobDataMap((JobDataMap) extra[1]);
+                }
+            }
+            return trigger;
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not restore stored trigger " + key(id), e);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Could not restore stored trigger " + key(id), e);
+        }
+    }
+
+    TriggerKey key(int id) {
+        return new TriggerKey(name(id), groups.get(getInt(id, GROUP)));
+    }
+
+    JobKey jobKey(int id) {
+        return jobs.get(getInt(id, JOB));
+    }
+
+    int groupId(int id) {
+        return getInt(id, GROUP);
+    }
+
+    int calendarId(int id) {
+        return getInt(id, CALENDAR);
+    }
+
+    /** the next fire time, or <code>NO_TIME</code> */
+    long nextFireTime(int id) {
+        long address = addresses[id];
+        return slab(address).getLong(offset(address) + NEXT_FIRE);
+    }
+
+    int misfireInstruction(int id) {
+        long address = addresses[id];
+        return slab(address).get(offset(address) + MISFIRE);
+    }
+
+    int state(int id) {
+        long address = addresses[id];
+        return slab(address).get(offset(address) + STATE);
+    }
+
+    void setState(int id, int state) {
+        long address = addresses[id];
+        slab(address).put(offset(address) + STATE, (byte) state);
+    }
+
+    /** @return the first trigger id of the job, or -1 */
+    int firstOfJob(JobKey jobKey) {
+        int jobId = jobs.find(jobKey);
+        return jobId < 0 ? -1 : jobHeads[jobId];
+    }
+
+    /** @return the next trigger id of the same job, or -1 */
+    int nextOfJob(int id) {
+        return getInt(id, NEXT_OF_JOB);
+    }
+
+    /** the ids of the job's triggers, safe to use while changing them */
+    int[] idsOfJob(JobKey jobKey) {
+        int count = 0;
+        int[] ids = new int[4];
+        for (int id = firstOfJob(jobKey); id >= 0; id = nextOfJob(id)) {
+            if (count == ids.length) {
+                ids = Arrays.copyOf(ids, count * 2);
+            }
+            ids[count++] = id;
+        }
+        return Arrays.copyOf(ids, count);
+    }
+
+    /** @return whether the trigger was added, i.e. wasn't already in the index */
+    boolean addToTimeIndex(int id) {
+        if (heapPositions[id] >= 0) {
+            return false;
+        }
+        if (heapSize == heap.length) {
+            heap = Arrays.copyOf(heap, heap.length * 2);
+        }
+        heap[heapSize] = id;
+        heapPositions[id] = heapSize;
+        heapSize++;
+        siftUp(heapSize - 1);
+        return true;
+    }
+
+    /** @return whether the trigger was in the index */
+    boolean removeFromTimeIndex(int id) {
+        int pos = heapPositions[id];
+        if (pos < 0) {
+            return false;
+        }
+        heapPositions[id] = -1;
+        heapSize--;
+        if (pos < heapSize) {
+            heap[pos] = heap[heapSize];
+            heapPositions[heap[pos]] = pos;
+            siftDown(pos);
+            siftUp(pos);
+        }
+        return true;
+    }
+
+    /** @return the id of the earliest waiting trigger, or -1 */
+    int firstInTimeIndex() {
+        return heapSize == 0 ? -1 : heap[0];
+    }
+
+    int timeIndexSize() {
+        return heapSize;
+    }
+
+    /** bytes of direct memory held in slabs */
+    long getOffHeapBytes() {
+        return (long) slabCount * slabSize;
+    }
+
+    /** bytes of direct memory holding live records */
+    long getUsedOffHeapBytes() {
+        long used = 0;
+        for (int id = 0; id < idLimit; id++) {
+            if (addresses[id] != FREE) {
+                ByteBuffer buf = slab(addresses[id]);
+                int off = offset(addresses[id]);
+                used += sizeClassFor(HEADER + buf.getShort(off + NAME_LENGTH) + buf.getInt(off + DATA_LENGTH)).chunkSize;
+            }
+        }
+        return used;
+    }
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Helper methods.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    private void writeFields(ByteBuffer buf, int off, OperableTrigger trigger) {
+        buf.putLong(off + NEXT_FIRE, toTime(trigger.getNextFireTime()));
+        buf.putLong(off + PREV_FIRE, toTime(trigger.getPreviousFireTime()));
+        buf.putLong(off + START, toTime(trigger.getStartTime()));
+        buf.putLong(off + END, toTime(trigger.getEndTime()));
+        buf.putInt(off + PRIORITY, trigger.getPriority());
+        buf.put(off + MISFIRE, (byte) trigger.getMisfireInstruction());
+        if (trigger instanceof SimpleTriggerImpl) {
+            SimpleTriggerImpl simple = (SimpleTriggerImpl) trigger;
+            buf.putLong(off + INTERVAL, simple.getRepeatInterval());
+            buf.putInt(off + REPEAT_COUNT, simple.getRepeatCount());
+            buf.putInt(off + TIMES_TRIGGERED, simple.getTimesTriggered());
+        }
+    }
+
+    private int compare(int a, int b) {
+        long fa = nextFireTime(a);
+        long fb = nextFireTime(b);
+        if (fa != fb) {
+            if (fa == NO_TIME) {
+                return 1;
+            }
+            if (fb == NO_TIME) {
+                return -1;
+            }
+            return fa < fb ? -1 : 1;
+        }
+        int comp = getInt(b, PRIORITY) - getInt(a, PRIORITY);
+        if (comp != 0) {
+            return comp;
+        }
+        return key(a).compareTo(key(b));
+    }
+
+    private void siftUp(int pos) {
+        int id = heap[pos];
+        while (pos > 0) {
+            int parent = (pos - 1) >>> 1;
+            if (compare(id, heap[parent]) >= 0) {
+                break;
+            }
+            heap[pos] = heap[parent];
+            heapPositions[heap[pos]] = pos;
+            pos = parent;
+        }
+        heap[pos] = id;
+        heapPositions[id] = pos;
+    }
+
+    private void siftDown(int pos) {
+        int id = heap[pos];
+        while (true) {
+            int child = 2 * pos + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && compare(heap[child + 1], heap[child]) < 0) {
+                child++;
+            }
+            if (compare(heap[child], id) >= 0) {
+                break;
+            }
+            heap[pos] = heap[child];
+            heapPositions[heap[pos]] = pos;
+            pos = child;
+        }
+        heap[pos] = id;
+        heapPositions[id] = pos;
+    }
+
+    private int newId() {
+        if (freeIdCount > 0) {
+            return freeIds[--freeIdCount];
+        }
+        if (idLimit == addresses.length) {
+            int capacity = addresses.length * 2;
+            addresses = Arrays.copyOf(addresses, capacity);
+            Arrays.fill(addresses, idLimit, capacity, FREE);
+            hashes = Arrays.copyOf(hashes, capacity);
+            heapPositions = Arrays.copyOf(heapPositions, capacity);
+        }
+        return idLimit++;
+    }
+
+    private void ensureJobHeads(int jobId) {
+        if (jobId >= jobHeads.length) {
+            int old = jobHeads.length;
+            jobHeads = Arrays.copyOf(jobHeads, Math.max(old * 2, jobId + 1));
+            Arrays.fill(jobHeads, old, jobHeads.length, -1);
+        }
+    }
+
+    private static int hash(String name, String group) {
+        int h = 31 * group.hashCode() + name.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private void tableInsert(int id) {
+        if ((tableUsed + 1) * 2 > table.length) {
+            rehash();
+        }
+        int mask = table.length - 1;
+        int i = hashes[id] & mask;
+        while (table[i] > 0) {
+            i = (i + 1) & mask;
+        }
+        if (table[i] == EMPTY) {
+            tableUsed++;
+        }
+        table[i] = id + 1;
+    }
+
+    private void tableRemove(int id) {
+        int mask = table.length - 1;
+        for (int i = hashes[id] & mask; table[i] != EMPTY; i = (i + 1) & mask) {
+            if (table[i] == id + 1) {
+                table[i] = DELETED;
+                return;
+            }
+        }
+    }
+
+    private void rehash() {
+        int capacity = 16;
+        while (capacity < (size + 1) * 4) {
+            capacity <<= 1;
+        }
+        table = new int[capacity];
+        tableUsed = 0;
+        int mask = capacity - 1;
+        for (int id = 0; id < idLimit; id++) {
+            if (addresses[id] != FREE) {
+                int i = hashes[id] & mask;
+                while (table[i] != EMPTY) {
+                    i = (i + 1) & mask;
+                }
+                table[i] = id + 1;
+                tableUsed++;
+            }
+        }
+    }
+
+    private SizeClass sizeClassFor(int length) {
+        int i = 0;
+        while ((MIN_CHUNK << i) < length) {
+            i++;
+        }
+        return sizeClasses[i];
+    }
+
+    private long allocate(int length) {
+        SizeClass sc = sizeClassFor(length);
+        if (sc.freeCount > 0) {
+            return sc.free[--sc.freeCount];
+        }
+        if (sc.slab < 0 || sc.nextOffset + sc.chunkSize > slabSize) {
+            if (slabCount == slabs.length) {
+                slabs = Arrays.copyOf(slabs, slabs.length * 2);
+            }
+            slabs[slabCount] = ByteBuffer.allocateDirect(slabSize);
+            sc.slab = slabCount++;
+            sc.nextOffset = 0;
+        }
+        long address = ((long) sc.slab << 32) | sc.nextOffset;
+        sc.nextOffset += sc.chunkSize;
+        return address;
+    }
+
+    private void free(long address, int length) {
+        SizeClass sc = sizeClassFor(length);
+        if (sc.freeCount == sc.free.length) {
+            sc.free = Arrays.copyOf(sc.free, sc.free.length * 2);
+        }
+        sc.free[sc.freeCount++] = address;
+    }
+
+    private ByteBuffer slab(long address) {
+        return slabs[(int) (address >>> 32)];
+    }
+
+    private static int offset(long address) {
+        return (int) address;
+    }
+
+    private int getInt(int id, int field) {
+        long address = addresses[id];
+        return slab(address).getInt(offset(address) + field);
+    }
+
+    private void setInt(int id, int field, int value) {
+        long address = addresses[id];
+        slab(address).putInt(offset(address) + field, value);
+    }
+
+    private String name(int id) {
+        long address = addresses[id];
+        ByteBuffer buf = slab(address);
+        int off = offset(address);
+        return new String(getBytes(buf, off + HEADER, buf.getShort(off + NAME_LENGTH)), UTF8);
+    }
+
+    private static byte[] getBytes(ByteBuffer buf, int index, int length) {
+        byte[] bytes = new byte[length];
+        ByteBuffer view = buf.duplicate();
+        view.position(index);
+        view.get(bytes);
+        return bytes;
+    }
+
+    private static void putBytes(ByteBuffer buf, int index, byte[] bytes) {
+        ByteBuffer view = buf.duplicate();
+        view.position(index);
+        view.put(bytes);
+    }
+
+    private static long toTime(Date date) {
+        return date == null ? NO_TIME : date.getTime();
+    }
+
+    private static Date toDate(long time) {
+        return time == NO_TIME ? null : new Date(time);
+    }
+
+    private static byte[] serialize(Object obj) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(256);
+        ObjectOutputStream out = new ObjectOutputStream(baos);
+        try {
+            out.writeObject(obj);
+        } finally {
+            out.close();
+        }
+        return baos.toByteArray();
+    }
+
+    private Object deserialize(byte[] data) throws IOException, ClassNotFoundException {
+        ObjectInputStream in = new ClassLoadHelperObjectInputStream(new ByteArrayInputStream(data), loadHelper);
+        try {
+            return in.readObject();
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * A trigger that has been checked and encoded, ready to be stored.
+     */
+    static final class Encoded {
+
+        final OperableTrigger trigger;
+
+        final byte kind;
+
+        final byte[] name;
+
+        final byte[] data;
+
+        Encoded(OperableTrigger trigger, byte kind, byte[] name, byte[] data) {
+            this.trigger = trigger;
+            this.kind = kind;
+            this.name = name;
+            this.data = data;
+        }
+    }
+
+    private static final class SizeClass {
+
+        final int chunkSize;
+
+        long[] free = new long[16];
+
+        int freeCount;
+
+        int slab = -1;
+
+        int nextOffset;
+
+        SizeClass(int chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+    }
+
+    /**
+     * Maps values that many triggers share (groups, job keys, calendar
+     * names) to small reference-counted int ids.
+     */
+    static final class InternTable<T> {
+
+        private final HashMap<T, Integer> ids = new HashMap<T, Integer>();
+
+        private final List<T> values = new ArrayList<T>();
+
+        private int[] refs = new int[16];
+
+        private int[] freeIds = new int[16];
+
+        private int freeIdCount;
+
+        int intern(T value) {
+            Integer existing = ids.get(value);
+            if (existing != null) {
+                refs[existing]++;
+                return existing;
+            }
+
+            int id;
+            if (freeIdCount > 0) {
+                id = freeIds[--freeIdCount];
+                values.set(id, value);
+            } else {
+                id = values.size();
+                values.add(value);
+                if (id == refs.length) {
+                    refs = Arrays.copyOf(refs, id * 2);
+                }
+            }
+            refs[id] = 1;
+            ids.put(value, id);
+            return id;
+        }
+
+        void release(int id) {
+            if (--refs[id] == 0) {
+                ids.remove(values.get(id));
+                values.set(id, null);
+                if (freeIdCount == freeIds.length) {
+                    freeIds = Arrays.copyOf(freeIds, freeIdCount * 2);
+                }
+                freeIds[freeIdCount++] = id;
+            }
+        }
+
+        /** @return the value's id, or -1 if no trigger refers to it */
+        int find(T value) {
+            Integer id = ids.get(value);
+            return id == null ? -1 : id;
+        }
+
+        T get(int id) {
+            return values.get(id);
+        }
+
+        /** the values currently referenced, in no particular order */
+        List<T> values() {
+            return new ArrayList<T>(ids.keySet());
+        }
+
+        /** all ids in use are below this */
+        int idLimit() {
+            return values.size();
+        }
+    }
+}
@@ -0,0 +1,1286 @@
+/*
+ * Copyright 2001-2009 Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.quartz.simpl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.quartz.Calendar;
+import org.quartz.JobDetail;
+import org.quartz.JobKey;
+import org.quartz.JobPersistenceException;
+import org.quartz.ObjectAlreadyExistsException;
+import org.quartz.Trigger;
+import org.quartz.TriggerKey;
+import org.quartz.Trigger.CompletedExecutionInstruction;
+import org.quartz.Trigger.TriggerState;
+import org.quartz.impl.matchers.GroupMatcher;
+import org.quartz.impl.matchers.StringMatcher;
+import org.quartz.spi.ClassLoadHelper;
+import org.quartz.spi.JobStore;
+import org.quartz.spi.OperableTrigger;
+import org.quartz.spi.SchedulerSignaler;
+import org.quartz.spi.TriggerFiredBundle;
+import org.quartz.spi.TriggerFiredResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * A <code>{@link org.quartz.spi.JobStore}</code> that, like
+ * <code>{@link RAMJobStore}</code>, keeps all of its data in RAM, but does
+ * not serialize every operation on a single monitor.
+ * </p>
+ *
+ * <p>
+ * Jobs, triggers and calendars are held in concurrent maps, so lookups such
+ * as <code>retrieveJob</code>, <code>checkExists</code>,
+ * <code>getJobKeys</code> and <code>getTriggerState</code> take no lock at
+ * all.  Mutations of a job and its triggers are guarded by one of a fixed
+ * number of lock stripes, chosen by the <code>JobKey</code>, so that
+ * operations on unrelated jobs proceed in parallel.  Only the time-ordered
+ * index of waiting triggers is shared, and it is held just long enough to
+ * peek at, add or remove a single entry.  Operations spanning many jobs
+ * (pausing or resuming groups, calendar changes, bulk stores) take every
+ * stripe.
+ * </p>
+ *
+ * <p>
+ * Locks are always taken in the order stripe(s), then group-index monitor or
+ * time-index monitor, and several stripes are taken lowest index first, only
+ * by a thread holding none or all of them, so the store cannot deadlock
+ * against itself.
+ * </p>
+ *
+ * @see RAMJobStore
+ */
+public class ConcurrentRAMJobStore implements JobStore {
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Data members.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    private static final int LOCK_STRIPES = 64;
+
+    private static final AtomicLong ftrCtr = new AtomicLong(System.currentTimeMillis());
+
+    protected final ConcurrentMap<JobKey, JobWrapper> jobsByKey = new ConcurrentHashMap<JobKey, JobWrapper>(1000);
+
+    protected final ConcurrentMap<TriggerKey, TriggerWrapper> triggersByKey = new ConcurrentHashMap<TriggerKey, TriggerWrapper>(1000);
+
+    protected final ConcurrentMap<String, ConcurrentMap<JobKey, JobWrapper>> jobsByGroup = new ConcurrentHashMap<String, ConcurrentMap<JobKey, JobWrapper>>(25);
+
+    protected final ConcurrentMap<String, ConcurrentMap<TriggerKey, TriggerWrapper>> triggersByGroup = new ConcurrentHashMap<String, ConcurrentMap<TriggerKey, TriggerWrapper>>(25);
+
+    /** the triggers of each job, guarded by the job's stripe */
+    protected final ConcurrentMap<JobKey, Set<TriggerWrapper>> triggersByJob = new ConcurrentHashMap<JobKey, Set<TriggerWrapper>>(1000);
+
+    protected final ConcurrentMap<String, Calendar> calendarsByName = new ConcurrentHashMap<String, Calendar>(25);
+
+    /** guarded by timeLock; a wrapper's membership only changes while its job's stripe is held */
+    protected final TimeTriggerIndex timeTriggers = new TreeSetTriggerIndex();
+
+    protected final Object timeLock = new Object();
+
+    protected final Set<String> pausedTriggerGroups = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    protected final Set<String> pausedJobGroups = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    protected final Set<JobKey> blockedJobs = Collections.newSetFromMap(new ConcurrentHashMap<JobKey, Boolean>());
+
+    private final ReentrantLock[] stripes = new ReentrantLock[LOCK_STRIPES];
+
+    private final Object[] groupLocks = new Object[LOCK_STRIPES];
+
+    protected volatile long misfireThreshold = 5000l;
+
+    protected SchedulerSignaler signaler;
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Constructors.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    /**
+     * <p>
+     * Create a new <code>ConcurrentRAMJobStore</code>.
+     * </p>
+     */
+    public ConcurrentRAMJobStore() {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+            groupLocks[i] = new Object();
+        }
+    }
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Interface.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    protected Logger getLog() {
+        return log;
+    }
+
+    public void initialize(ClassLoadHelper loadHelper, SchedulerSignaler schedSignaler) {
+
+        this.signaler = schedSignaler;
+
+        getLog().info("ConcurrentRAMJobStore initialized.");
+    }
+
+    public void schedulerStarted() {
+        // nothing to do
+    }
+
+    public void schedulerPaused() {
+        // nothing to do
+    }
+
+    public void schedulerResumed() {
+        // nothing to do
+    }
+
+    public long getMisfireThreshold() {
+        return misfireThreshold;
+    }
+
+    /**
+     * The number of milliseconds by which a trigger must have missed its
+     * next-fire-time, in order for it to be considered "misfired" and thus
+     * have its misfire instruction applied.
+     *
+     * @param misfireThreshold the new misfire threshold
+     */
+    @SuppressWarnings("UnusedDeclaration")
+    public void setMisfireThreshold(long misfireThreshold) {
+        if (misfireThreshold < 1) {
+            throw new IllegalArgumentException("Misfire threshold must be larger than 0");
+        }
+        this.misfireThreshold = misfireThreshold;
+    }
+
+    public void shutdown() {
+    }
+
+    public boolean supportsPersistence() {
+        return false;
+    }
+
+    public long getEstimatedTimeToReleaseAndAcquireTrigger() {
+        return 5;
+    }
+
+    public boolean isClustered() {
+        return false;
+    }
+
+    public void setInstanceId(String schedInstId) {
+        //
+    }
+
+    public void setInstanceName(String schedName) {
+        //
+    }
+
+    public void setThreadPoolSize(final int poolSize) {
+        //
+    }
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Locking.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    private static int stripeIndex(Object key) {
+        int h = key.hashCode();
+        h ^= (h >>> 20) ^ (h >>> 12);
+        h ^= (h >>> 7) ^ (h >>> 4);
+        return h & (LOCK_STRIPES - 1);
+    }
+
+    protected ReentrantLock lockFor(JobKey jobKey) {
+        ReentrantLock stripe = stripes[stripeIndex(jobKey)];
+        stripe.lock();
+        return stripe;
+    }
+
+    /**
+     * Lock the stripes of both jobs, lowest index first.  The caller holds
+     * no stripe, or every stripe.
+     */
+    protected void lockBoth(JobKey jobKey, JobKey otherJobKey) {
+        int i = stripeIndex(jobKey);
+        int j = stripeIndex(otherJobKey);
+        stripes[Math.min(i, j)].lock();
+        if (i != j) {
+            stripes[Math.max(i, j)].lock();
+        }
+    }
+
+    protected void unlockBoth(JobKey jobKey, JobKey otherJobKey) {
+        int i = stripeIndex(jobKey);
+        int j = stripeIndex(otherJobKey);
+        if (i != j) {
+            stripes[Math.max(i, j)].unlock();
+        }
+        stripes[Math.min(i, j)].unlock();
+    }
+
+    protected void lockAll() {
+        for (ReentrantLock stripe : stripes) {
+            stripe.lock();
+        }
+    }
+
+    protected void unlockAll() {
+        for (int i = stripes.length - 1; i >= 0; i--) {
+            stripes[i].unlock();
+        }
+    }
+
+    private Object groupLock(String group) {
+        return groupLocks[stripeIndex(group)];
+    }
+
+    private <K, V> void addToGroup(ConcurrentMap<String, ConcurrentMap<K, V>> groups, String group, K key, V value) {
+        synchronized (groupLock(group)) {
+            ConcurrentMap<K, V> grpMap = groups.get(group);
+            if (grpMap == null) {
+                grpMap = new ConcurrentHashMap<K, V>(100);
+                groups.put(group, grpMap);
+            }
+            grpMap.put(key, value);
+        }
+    }
+
+    private <K, V> void removeFromGroup(ConcurrentMap<String, ConcurrentMap<K, V>> groups, String group, K key) {
+        synchronized (groupLock(group)) {
+            ConcurrentMap<K, V> grpMap = groups.get(group);
+            if (grpMap != null) {
+                grpMap.remove(key);
+                if (grpMap.isEmpty()) {
+                    groups.remove(group);
+                }
+            }
+        }
+    }
+
+    /**
+     * Look up the current wrapper for the given key and lock its job's
+     * stripe, retrying if the trigger is replaced while we wait.  Returns
+     * <code>null</code> (holding no lock) if there is no such trigger.
+     */
+    private TriggerWrapper lockTrigger(TriggerKey triggerKey) {
+        while (true) {
+            TriggerWrapper tw = triggersByKey.get(triggerKey);
+            if (tw == null) {
+                return null;
+            }
+            ReentrantLock stripe = lockFor(tw.jobKey);
+            if (triggersByKey.get(triggerKey) == tw) {
+                return tw;
+            }
+            stripe.unlock();
+        }
+    }
+
+    private void unlockTrigger(TriggerWrapper tw) {
+        stripes[stripeIndex(tw.jobKey)].unlock();
+    }
+
+    private void addToTimeIndex(TriggerWrapper tw) {
+        synchronized (timeLock) {
+            timeTriggers.add(tw);
+        }
+    }
+
+    private boolean removeFromTimeIndex(TriggerWrapper tw) {
+        synchronized (timeLock) {
+            return timeTriggers.remove(tw);
+        }
+    }
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Jobs and triggers.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    public void clearAllSchedulingData() throws JobPersistenceException {
+        lockAll();
+        try {
+            for (TriggerKey key : new ArrayList<TriggerKey>(triggersByKey.keySet())) {
+                removeTrigger(key);
+            }
+            for (JobKey key : new ArrayList<JobKey>(jobsByKey.keySet())) {
+                removeJob(key);
+            }
+            calendarsByName.clear();
+        } finally {
+            unlockAll();
+        }
+    }
+
+    public void storeJobAndTrigger(JobDetail newJob,
+            OperableTrigger newTrigger) throws JobPersistenceException {
+        storeJob(newJob, false);
+        storeTrigger(newTrigger, false);
+    }
+
+    public void storeJob(JobDetail newJob,
+            boolean replaceExisting) throws ObjectAlreadyExistsException {
+        JobWrapper jw = new JobWrapper((JobDetail)newJob.clone());
+
+        ReentrantLock stripe = lockFor(jw.key);
+        try {
+            JobWrapper orig = jobsByKey.get(jw.key);
+            if (orig != null) {
+                if (!replaceExisting) {
+                    throw new ObjectAlreadyExistsException(newJob);
+                }
+                // update job detail
+                orig.jobDetail = jw.jobDetail; // already cloned
+            } else {
+                addToGroup(jobsByGroup, jw.key.getGroup(), jw.key, jw);
+                jobsByKey.put(jw.key, jw);
+            }
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    public boolean removeJob(JobKey jobKey) {
+        boolean found = false;
+
+        ReentrantLock stripe = lockFor(jobKey);
+        try {
+            for (TriggerWrapper tw : getTriggerWrappersForJob(jobKey)) {
+                removeTrigger(tw, false);
+                found = true;
+            }
+
+            found = (jobsByKey.remove(jobKey) != null) | found;
+            if (found) {
+                removeFromGroup(jobsByGroup, jobKey.getGroup(), jobKey);
+            }
+        } finally {
+            stripe.unlock();
+        }
+
+        return found;
+    }
+
+    public boolean removeJobs(List<JobKey> jobKeys) throws JobPersistenceException {
+        boolean allFound = true;
+
+        for (JobKey key : jobKeys) {
+            allFound = removeJob(key) && allFound;
+        }
+
+        return allFound;
+    }
+
+    public boolean removeTriggers(List<TriggerKey> triggerKeys) throws JobPersistenceException {
+        boolean allFound = true;
+
+        for (TriggerKey key : triggerKeys) {
+            allFound = removeTrigger(key) && allFound;
+        }
+
+        return allFound;
+    }
+
+    public void storeJobsAndTriggers(
+            Map<JobDetail, Set<? extends Trigger>> triggersAndJobs, boolean replace)
+            throws JobPersistenceException {
+
+        lockAll();
+        try {
+            // make sure there are no collisions...
+            if (!replace) {
+                for (Entry<JobDetail, Set<? extends Trigger>> e : triggersAndJobs.entrySet()) {
+                    if (checkExists(e.getKey().getKey()))
+                        throw new ObjectAlreadyExistsException(e.getKey());
+                    for (Trigger trigger : e.getValue()) {
+                        if (checkExists(trigger.getKey()))
+                            throw new ObjectAlreadyExistsException(trigger);
+                    }
+                }
+            }
+            // do bulk add...
+            for (Entry<JobDetail, Set<? extends Trigger>> e : triggersAndJobs.entrySet()) {
+                storeJob(e.getKey(), true);
+                for (Trigger trigger : e.getValue()) {
+                    storeTrigger((OperableTrigger) trigger, true);
+                }
+            }
+        } finally {
+            unlockAll();
+        }
+    }
+
+    public void storeTrigger(OperableTrigger newTrigger,
+            boolean replaceExisting) throws JobPersistenceException {
+        TriggerWrapper tw = new TriggerWrapper((OperableTrigger)newTrigger.clone());
+
+        // replacing a trigger of another job needs that job's stripe too
+        while (true) {
+            TriggerWrapper existing = triggersByKey.get(tw.key);
+            JobKey otherJobKey = (existing != null) ? existing.jobKey : tw.jobKey;
+            lockBoth(tw.jobKey, otherJobKey);
+            try {
+                existing = triggersByKey.get(tw.key);
+                if ((existing == null || existing.jobKey.equals(tw.jobKey)
+                        || existing.jobKey.equals(otherJobKey))
+                        && storeTrigger(tw, replaceExisting)) {
+                    return;
+                }
+                // the key was taken, or re-pointed at yet another job, while we waited; start over
+            } finally {
+                unlockBoth(tw.jobKey, otherJobKey);
+            }
+        }
+    }
+
+    /**
+     * The caller holds the stripe of <code>tw.jobKey</code> and, if an
+     * existing trigger is to be replaced, the stripe of its job.  The key is
+     * claimed atomically, as a thread storing the same new key for a job in
+     * another stripe does not hold our stripe.  Returns <code>false</code>,
+     * having changed nothing, if such a thread claimed the key first and
+     * <code>replaceExisting</code> is set.
+     */
+    private boolean storeTrigger(TriggerWrapper tw,
+            boolean replaceExisting) throws JobPersistenceException {
+        if (jobsByKey.get(tw.jobKey) == null) {
+            throw new JobPersistenceException("The job ("
+                    + tw.jobKey
+                    + ") referenced by the trigger does not exist.");
+        }
+
+        if (pausedTriggerGroups.contains(tw.key.getGroup())
+                || pausedJobGroups.contains(tw.jobKey.getGroup())) {
+            tw.state = TriggerWrapper.STATE_PAUSED;
+            if (blockedJobs.contains(tw.jobKey)) {
+                tw.state = TriggerWrapper.STATE_PAUSED_BLOCKED;
+            }
+        } else if (blockedJobs.contains(tw.jobKey)) {
+            tw.state = TriggerWrapper.STATE_BLOCKED;
+        }
+
+        TriggerWrapper existing = triggersByKey.get(tw.key);
+        if (existing != null) {
+            if (!replaceExisting) {
+                throw new ObjectAlreadyExistsException(tw.trigger);
+            }
+            // nobody else can remove the existing trigger, we hold its stripe
+            triggersByKey.replace(tw.key, existing, tw);
+            removeTrigger(existing, false);
+        } else if (triggersByKey.putIfAbsent(tw.key, tw) != null) {
+            if (!replaceExisting) {
+                throw new ObjectAlreadyExistsException(tw.trigger);
+            }
+            return false;
+        }
+
+        Set<TriggerWrapper> jobTriggers = triggersByJob.get(tw.jobKey);
+        if (jobTriggers == null) {
+            jobTriggers = new HashSet<TriggerWrapper>();
+            triggersByJob.put(tw.jobKey, jobTriggers);
+        }
+        jobTriggers.add(tw);
+        addToGroup(triggersByGroup, tw.key.getGroup(), tw.key, tw);
+
+        if (tw.state == TriggerWrapper.STATE_WAITING) {
+            addToTimeIndex(tw);
+        }
+        return true;
+    }
+
+    public boolean removeTrigger(TriggerKey triggerKey) {
+        TriggerWrapper tw = lockTrigger(triggerKey);
+        if (tw == null) {
+            return false;
+        }
+        try {
+            removeTrigger(tw, true);
+            return true;
+        } finally {
+            unlockTrigger(tw);
+        }
+    }
+
+    /**
+     * Remove the given wrapper from every index.  The caller holds the
+     * stripe of <code>tw.jobKey</code>.
+     */
+    private void removeTrigger(TriggerWrapper tw, boolean removeOrphanedJob) {
+        // wrappers are equal by key, so compare identities; the key's
+        // mapping to tw cannot change while we hold its stripe
+        if (triggersByKey.get(tw.key) == tw) {
+            triggersByKey.remove(tw.key);
+            removeFromGroup(triggersByGroup, tw.key.getGroup(), tw.key);
+        }
+        Set<TriggerWrapper> jobTriggers = triggersByJob.get(tw.jobKey);
+        if (jobTriggers != null) {
+            jobTriggers.remove(tw);
+            if (jobTriggers.isEmpty()) {
+                triggersByJob.remove(tw.jobKey);
+            }
+        }
+        removeFromTimeIndex(tw);
+
+        if (removeOrphanedJob) {
+            JobWrapper jw = jobsByKey.get(tw.jobKey);
+            if (jw != null && !triggersByJob.containsKey(tw.jobKey) && !jw.jobDetail.isDurable()) {
+                if (removeJob(jw.key)) {
+                    signaler.notifySchedulerListenersJobDeleted(jw.key);
+                }
+            }
+        }
+    }
+
+    public boolean replaceTrigger(TriggerKey triggerKey, OperableTrigger newTrigger) throws JobPersistenceException {
+        TriggerWrapper tw = lockTrigger(triggerKey);
+        if (tw == null) {
+            return false;
+        }
+        try {
+            if (!tw.jobKey.equals(newTrigger.getJobKey())) {
+                throw new JobPersistenceException("New trigger is not related to the same job as the old trigger.");
+            }
+
+            // both wrappers belong to the job whose stripe we hold, so no
+            // other stripe is needed; the new trigger goes in before the old
+            // one comes out, leaving no moment in which the key is free
+            TriggerWrapper newTw = new TriggerWrapper((OperableTrigger)newTrigger.clone());
+            if (newTw.key.equals(tw.key)) {
+                storeTrigger(newTw, true);
+            } else {
+                storeTrigger(newTw, false);
+                removeTrigger(tw, false);
+            }
+            return true;
+        } finally {
+            unlockTrigger(tw);
+        }
+    }
+
+    /**
+     * Lock-free; <code>JobDetail</code>s held by the store are never
+     * modified in place, only replaced.
+     */
+    public JobDetail retrieveJob(JobKey jobKey) {
+        JobWrapper jw = jobsByKey.get(jobKey);
+        return (jw != null) ? (JobDetail)jw.jobDetail.clone() : null;
+    }
+
+    public OperableTrigger retrieveTrigger(TriggerKey triggerKey) {
+        TriggerWrapper tw = lockTrigger(triggerKey);
+        if (tw == null) {
+            return null;
+        }
+        try {
+            return (OperableTrigger)tw.getTrigger().clone();
+        } finally {
+            unlockTrigger(tw);
+        }
+    }
+
+    public boolean checkExists(JobKey jobKey) throws JobPersistenceException {
+        return jobsByKey.containsKey(jobKey);
+    }
+
+    public boolean checkExists(TriggerKey triggerKey) throws JobPersistenceException {
+        return triggersByKey.containsKey(triggerKey);
+    }
+
+    public TriggerState getTriggerState(TriggerKey triggerKey) throws JobPersistenceException {
+        TriggerWrapper tw = triggersByKey.get(triggerKey);
+
+        return (tw == null) ? TriggerState.NONE : tw.getTriggerState();
+    }
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Calendars.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    public void storeCalendar(String name,
+            Calendar calendar, boolean replaceExisting, boolean updateTriggers)
+        throws ObjectAlreadyExistsException {
+
+        calendar = (Calendar) calendar.clone();
+
+        lockAll();
+        try {
+            Object obj = calendarsByName.get(name);
+
+            if (obj != null && !replaceExisting) {
+                throw new ObjectAlreadyExistsException(
+                    "Calendar with name '" + name + "' already exists.");
+            }
+
+            calendarsByName.put(name, calendar);
+
+            if (obj != null && updateTriggers) {
+                for (TriggerWrapper tw : getTriggerWrappersForCalendar(name)) {
+                    OperableTrigger trig = tw.getTrigger();
+                    boolean removed = removeFromTimeIndex(tw);
+
+                    trig.updateWithNewCalendar(calendar, getMisfireThreshold());
+
+                    if (removed) {
+                        addToTimeIndex(tw);
+                    }
+                }
+            }
+        } finally {
+            unlockAll();
+        }
+    }
+
+    public boolean removeCalendar(String calName) throws JobPersistenceException {
+        lockAll();
+        try {
+            if (!getTriggerWrappersForCalendar(calName).isEmpty()) {
+                throw new JobPersistenceException(
+                        "Calender cannot be removed if it referenced by a Trigger!");
+            }
+
+            return (calendarsByName.remove(calName) != null);
+        } finally {
+            unlockAll();
+        }
+    }
+
+    /**
+     * Lock-free; stored <code>Calendar</code>s are never modified in place.
+     */
+    public Calendar retrieveCalendar(String calName) {
+        Calendar cal = calendarsByName.get(calName);
+        return (cal != null) ? (Calendar) cal.clone() : null;
+    }
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Lookups - none of these take a lock.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    public int getNumberOfJobs() {
+        return jobsByKey.size();
+    }
+
+    public int getNumberOfTriggers() {
+        return triggersByKey.size();
+    }
+
+    public int getNumberOfCalendars() {
+        return calendarsByName.size();
+    }
+
+    public Set<JobKey> getJobKeys(GroupMatcher<JobKey> matcher) {
+        return RAMJobStore.keysOf(jobsByGroup, matcher.getCompareWithOperator(), matcher.getCompareToValue());
+    }
+
+    public Set<TriggerKey> getTriggerKeys(GroupMatcher<TriggerKey> matcher) {
+        return RAMJobStore.keysOf(triggersByGroup, matcher.getCompareWithOperator(), matcher.getCompareToValue());
+    }
+
+    public List<String> getJobGroupNames() {
+        return new LinkedList<String>(jobsByGroup.keySet());
+    }
+
+    public List<String> getTriggerGroupNames() {
+        return new LinkedList<String>(triggersByGroup.keySet());
+    }
+
+    public List<String> getCalendarNames() {
+        return new LinkedList<String>(calendarsByName.keySet());
+    }
+
+    public Set<String> getPausedTriggerGroups() throws JobPersistenceException {
+        return new HashSet<String>(pausedTriggerGroups);
+    }
+
+    public List<OperableTrigger> getTriggersForJob(JobKey jobKey) {
+        ArrayList<OperableTrigger> trigList = new ArrayList<OperableTrigger>();
+
+        ReentrantLock stripe = lockFor(jobKey);
+        try {
+            for (TriggerWrapper tw : getTriggerWrappersForJob(jobKey)) {
+                trigList.add((OperableTrigger) tw.trigger.clone());
+            }
+        } finally {
+            stripe.unlock();
+        }
+
+        return trigList;
+    }
+
+    /**
+     * The caller holds the stripe of <code>jobKey</code>.
+     */
+    protected List<TriggerWrapper> getTriggerWrappersForJob(JobKey jobKey) {
+        Set<TriggerWrapper> jobTriggers = triggersByJob.get(jobKey);
+        return (jobTriggers == null) ? new ArrayList<TriggerWrapper>() : new ArrayList<TriggerWrapper>(jobTriggers);
+    }
+
+    /**
+     * The caller holds every stripe.
+     */
+    protected List<TriggerWrapper> getTriggerWrappersForCalendar(String calName) {
+        ArrayList<TriggerWrapper> trigList = new ArrayList<TriggerWrapper>();
+
+        for (TriggerWrapper tw : triggersByKey.values()) {
+            String tcalName = tw.getTrigger().getCalendarName();
+            if (tcalName != null && tcalName.equals(calName)) {
+                trigList.add(tw);
+            }
+        }
+
+        return trigList;
+    }
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Pausing and resuming.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    public void pauseTrigger(TriggerKey triggerKey) {
+        TriggerWrapper tw = lockTrigger(triggerKey);
+        if (tw == null) {
+            return;
+        }
+        try {
+            pauseTrigger(tw);
+        } finally {
+            unlockTrigger(tw);
+        }
+    }
+
+    private void pauseTrigger(TriggerWrapper tw) {
+        // if the trigger is "complete" pausing it does not make sense...
+        if (tw.pause()) {
+            removeFromTimeIndex(tw);
+        }
+    }
+
+    public List<String> pauseTriggers(GroupMatcher<TriggerKey> matcher) {
+        List<String> pausedGroups = new LinkedList<String>();
+
+        lockAll();
+        try {
+            StringMatcher.StringOperatorName operator = matcher.getCompareWithOperator();
+            switch (operator) {
+                case EQUALS:
+                    if (pausedTriggerGroups.add(matcher.getCompareToValue())) {
+                        pausedGroups.add(matcher.getCompareToValue());
+                    }
+                    break;
+                default :
+                    for (String group : triggersByGroup.keySet()) {
+                        if (operator.evaluate(group, matcher.getCompareToValue())) {
+                            if (pausedTriggerGroups.add(group)) {
+                                pausedGroups.add(group);
+                            }
+                        }
+                    }
+            }
+
+            for (String pausedGroup : pausedGroups) {
+                for (TriggerKey key : getTriggerKeys(GroupMatcher.triggerGroupEquals(pausedGroup))) {
+                    pauseTrigger(key);
+                }
+            }
+        } finally {
+            unlockAll();
+        }
+
+        return pausedGroups;
+    }
+
+    public void pauseJob(JobKey jobKey) {
+        ReentrantLock stripe = lockFor(jobKey);
+        try {
+            for (TriggerWrapper tw : getTriggerWrappersForJob(jobKey)) {
+                pauseTrigger(tw);
+            }
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    public List<String> pauseJobs(GroupMatcher<JobKey> matcher) {
+        List<String> pausedGroups = new LinkedList<String>();
+
+        lockAll();
+        try {
+            StringMatcher.StringOperatorName operator = matcher.getCompareWithOperator();
+            switch (operator) {
+                case EQUALS:
+                    if (pausedJobGroups.add(matcher.getCompareToValue())) {
+                        pausedGroups.add(matcher.getCompareToValue());
+                    }
+                    break;
+                default :
+                    for (String group : jobsByGroup.keySet()) {
+                        if (operator.evaluate(group, matcher.getCompareToValue())) {
+                            if (pausedJobGroups.add(group)) {
+                                pausedGroups.add(group);
+                            }
+                        }
+                    }
+            }
+
+            for (String groupName : pausedGroups) {
+                for (JobKey jobKey : getJobKeys(GroupMatcher.jobGroupEquals(groupName))) {
+                    pauseJob(jobKey);
+                }
+            }
+        } finally {
+            unlockAll();
+        }
+
+        return pausedGroups;
+    }
+
+    public void resumeTrigger(TriggerKey triggerKey) {
+        TriggerWrapper tw = lockTrigger(triggerKey);
+        if (tw == null) {
+            return;
+        }
+        try {
+            resumeTrigger(tw);
+        } finally {
+            unlockTrigger(tw);
+        }
+    }
+
+    private void resumeTrigger(TriggerWrapper tw) {
+        // if the trigger is not paused resuming it does not make sense...
+        if (!tw.resume(blockedJobs.contains(tw.jobKey))) {
+            return;
+        }
+
+        applyMisfire(tw);
+
+        if (tw.state == TriggerWrapper.STATE_WAITING) {
+            addToTimeIndex(tw);
+        }
+    }
+
+    public List<String> resumeTriggers(GroupMatcher<TriggerKey> matcher) {
+        Set<String> groups = new HashSet<String>();
+
+        lockAll();
+        try {
+            for (TriggerKey triggerKey : getTriggerKeys(matcher)) {
+                groups.add(triggerKey.getGroup());
+                TriggerWrapper tw = triggersByKey.get(triggerKey);
+                if (tw != null && pausedJobGroups.contains(tw.jobKey.getGroup())) {
+                    continue;
+                }
+                resumeTrigger(triggerKey);
+            }
+            for (String group : groups) {
+                pausedTriggerGroups.remove(group);
+            }
+        } finally {
+            unlockAll();
+        }
+
+        return new ArrayList<String>(groups);
+    }
+
+    public void resumeJob(JobKey jobKey) {
+        ReentrantLock stripe = lockFor(jobKey);
+        try {
+            for (TriggerWrapper tw : getTriggerWrappersForJob(jobKey)) {
+                resumeTrigger(tw);
+            }
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    public Collection<String> resumeJobs(GroupMatcher<JobKey> matcher) {
+        Set<String> resumedGroups = new HashSet<String>();
+
+        lockAll();
+        try {
+            Set<JobKey> keys = getJobKeys(matcher);
+
+            for (String pausedJobGroup : pausedJobGroups) {
+                if (matcher.getCompareWithOperator().evaluate(pausedJobGroup, matcher.getCompareToValue())) {
+                    resumedGroups.add(pausedJobGroup);
+                }
+            }
+
+            for (String resumedGroup : resumedGroups) {
+                pausedJobGroups.remove(resumedGroup);
+            }
+
+            for (JobKey key : keys) {
+                resumeJob(key);
+            }
+        } finally {
+            unlockAll();
+        }
+
+        return resumedGroups;
+    }
+
+    public void pauseAll() {
+        lockAll();
+        try {
+            for (String name : getTriggerGroupNames()) {
+                pauseTriggers(GroupMatcher.triggerGroupEquals(name));
+            }
+        } finally {
+            unlockAll();
+        }
+    }
+
+    public void resumeAll() {
+        lockAll();
+        try {
+            pausedJobGroups.clear();
+            resumeTriggers(GroupMatcher.anyTriggerGroup());
+        } finally {
+            unlockAll();
+        }
+    }
+
+    /**
+     * The caller holds the stripe of <code>tw.jobKey</code>, and
+     * <code>tw</code> is not in the time index.
+     */
+    protected boolean applyMisfire(TriggerWrapper tw) {
+
+        long misfireTime = System.currentTimeMillis();
+        if (getMisfireThreshold() > 0) {
+            misfireTime -= getMisfireThreshold();
+        }
+
+        Date tnft = tw.trigger.getNextFireTime();
+        if (tnft == null || tnft.getTime() > misfireTime
+                || tw.trigger.getMisfireInstruction() == Trigger.MISFIRE_INSTRUCTION_IGNORE_MISFIRE_POLICY) {
+            return false;
+        }
+
+        Calendar cal = null;
+        if (tw.trigger.getCalendarName() != null) {
+            cal = retrieveCalendar(tw.trigger.getCalendarName());
+        }
+
+        signaler.notifyTriggerListenersMisfired((OperableTrigger)tw.trigger.clone());
+
+        tw.trigger.updateAfterMisfire(cal);
+
+        if (tw.trigger.getNextFireTime() == null) {
+            tw.state = TriggerWrapper.STATE_COMPLETE;
+            signaler.notifySchedulerListenersFinalized(tw.trigger);
+        } else if (tnft.equals(tw.trigger.getNextFireTime())) {
+            return false;
+        }
+
+        return true;
+    }
+
+    protected String getFiredTriggerRecordId() {
+        return String.valueOf(ftrCtr.incrementAndGet());
+    }
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Firing.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    /**
+     * <p>
+     * Get a handle to the next trigger to be fired, and mark it as 'reserved'
+     * by the calling scheduler.
+     * </p>
+     *
+     * <p>
+     * The time index is only held to peek at its head; each candidate is
+     * then claimed under its own job's stripe, so concurrent store and
+     * admin operations on other jobs are not held up.
+     * </p>
+     *
+     * @see #releaseAcquiredTrigger(OperableTrigger)
+     */
+    public List<OperableTrigger> acquireNextTriggers(long noLaterThan, int maxCount, long timeWindow) {
+        List<OperableTrigger> result = new ArrayList<OperableTrigger>();
+        Set<JobKey> acquiredJobKeysForNoConcurrentExec = new HashSet<JobKey>();
+        List<TriggerWrapper> excludedTriggers = new ArrayList<TriggerWrapper>();
+
+        while (result.size() < maxCount) {
+            TriggerWrapper tw;
+            synchronized (timeLock) {
+                tw = timeTriggers.first();
+            }
+            if (tw == null) {
+                break;
+            }
+
+            ReentrantLock stripe = lockFor(tw.jobKey);
+            try {
+                // claim it; if it's gone, another thread got there first
+                if (!removeFromTimeIndex(tw)) {
+                    continue;
+                }
+
+                if (tw.trigger.getNextFireTime() == null) {
+                    continue;
+                }
+
+                if (applyMisfire(tw)) {
+                    if (tw.trigger.getNextFireTime() != null) {
+                        addToTimeIndex(tw);
+                    }
+                    continue;
+                }
+
+                if (tw.getTrigger().getNextFireTime().getTime() > noLaterThan + timeWindow) {
+                    addToTimeIndex(tw);
+                    break;
+                }
+
+                // If trigger's job is set as @DisallowConcurrentExecution, and it has already been added to result, then
+                // put it back into the time index (once we are done) and continue to search for next trigger.
+                JobWrapper jw = jobsByKey.get(tw.jobKey);
+                if (jw != null && jw.jobDetail.isConcurrentExectionDisallowed()) {
+                    if (!acquiredJobKeysForNoConcurrentExec.add(tw.jobKey)) {
+                        excludedTriggers.add(tw);
+                        continue;
+                    }
+                }
+
+                tw.state = TriggerWrapper.STATE_ACQUIRED;
+                tw.trigger.setFireInstanceId(getFiredTriggerRecordId());
+                result.add((OperableTrigger) tw.trigger.clone());
+            } finally {
+                stripe.unlock();
+            }
+        }
+
+        // put back the triggers we skipped, unless something changed them in the meantime
+        for (TriggerWrapper tw : excludedTriggers) {
+            ReentrantLock stripe = lockFor(tw.jobKey);
+            try {
+                if (tw.state == TriggerWrapper.STATE_WAITING && triggersByKey.get(tw.key) == tw) {
+                    addToTimeIndex(tw);
+                }
+            } finally {
+                stripe.unlock();
+            }
+        }
+
+        return result;
+    }
+
+    public void releaseAcquiredTrigger(OperableTrigger trigger) {
+        TriggerWrapper tw = lockTrigger(trigger.getKey());
+        if (tw == null) {
+            return;
+        }
+        try {
+            if (tw.state == TriggerWrapper.STATE_ACQUIRED) {
+                tw.state = TriggerWrapper.STATE_WAITING;
+                addToTimeIndex(tw);
+            }
+        } finally {
+            unlockTrigger(tw);
+        }
+    }
+
+    public List<TriggerFiredResult> triggersFired(List<OperableTrigger> firedTriggers) {
+        List<TriggerFiredResult> results = new ArrayList<TriggerFiredResult>();
+
+        for (OperableTrigger trigger : firedTriggers) {
+            TriggerWrapper tw = lockTrigger(trigger.getKey());
+            // was the trigger deleted since being acquired?
+            if (tw == null) {
+                continue;
+            }
+            try {
+                // was the trigger completed, paused, blocked, etc. since being acquired?
+                if (tw.state != TriggerWrapper.STATE_ACQUIRED) {
+                    continue;
+                }
+
+                Calendar cal = null;
+                if (tw.trigger.getCalendarName() != null) {
+                    cal = retrieveCalendar(tw.trigger.getCalendarName());
+                    if (cal == null)
+                        continue;
+                }
+                Date prevFireTime = trigger.getPreviousFireTime();
+                // in case trigger was replaced between acquiring and firing
+                removeFromTimeIndex(tw);
+                // call triggered on our copy, and the scheduler's copy
+                tw.trigger.triggered(cal);
+                trigger.triggered(cal);
+                tw.state = TriggerWrapper.STATE_WAITING;
+
+                TriggerFiredBundle bndle = new TriggerFiredBundle(retrieveJob(
+                        tw.jobKey), trigger, cal,
+                        false, new Date(), trigger.getPreviousFireTime(), prevFireTime,
+                        trigger.getNextFireTime());
+
+                JobDetail job = bndle.getJobDetail();
+
+                if (job.isConcurrentExectionDisallowed()) {
+                    for (TriggerWrapper ttw : getTriggerWrappersForJob(job.getKey())) {
+                        ttw.block();
+                        removeFromTimeIndex(ttw);
+                    }
+                    blockedJobs.add(job.getKey());
+                } else if (tw.trigger.getNextFireTime() != null) {
+                    addToTimeIndex(tw);
+                }
+
+                results.add(new TriggerFiredResult(bndle));
+            } finally {
+                unlockTrigger(tw);
+            }
+        }
+        return results;
+    }
+
+    public void triggeredJobComplete(OperableTrigger trigger,
+            JobDetail jobDetail, CompletedExecutionInstruction triggerInstCode) {
+
+        ReentrantLock stripe = lockFor(jobDetail.getKey());
+        try {
+            JobWrapper jw = jobsByKey.get(jobDetail.getKey());
+            TriggerWrapper tw = triggersByKey.get(trigger.getKey());
+
+            // It's possible that the job is null if:
+            //   1- it was deleted during execution
+            //   2- the store is being used only for volatile jobs / triggers
+            //      from the JDBC job store
+            if (jw != null) {
+                JobDetail jd = jw.jobExecuted(jobDetail);
+
+                if (jd.isConcurrentExectionDisallowed()) {
+                    blockedJobs.remove(jd.getKey());
+                    for (TriggerWrapper ttw : getTriggerWrappersForJob(jd.getKey())) {
+                        if (ttw.unblock()) {
+                            addToTimeIndex(ttw);
+                        }
+                    }
+                    signaler.signalSchedulingChange(0L);
+                }
+            } else { // even if it was deleted, there may be cleanup to do
+                blockedJobs.remove(jobDetail.getKey());
+            }
+
+            // check for trigger deleted during execution...
+            if (tw != null && tw.jobKey.equals(jobDetail.getKey())) {
+                if (triggerInstCode == CompletedExecutionInstruction.DELETE_TRIGGER) {
+
+                    if (trigger.getNextFireTime() == null) {
+                        // double check for possible reschedule within job
+                        // execution, which would cancel the need to delete...
+                        if (tw.getTrigger().getNextFireTime() == null) {
+                            removeTrigger(trigger.getKey());
+                        }
+                    } else {
+                        removeTrigger(trigger.getKey());
+                        signaler.signalSchedulingChange(0L);
+                    }
+                } else if (triggerInstCode == CompletedExecutionInstruction.SET_TRIGGER_COMPLETE) {
+                    tw.state = TriggerWrapper.STATE_COMPLETE;
+                    removeFromTimeIndex(tw);
+                    signaler.signalSchedulingChange(0L);
+                } else if (triggerInstCode == CompletedExecutionInstruction.SET_TRIGGER_ERROR) {
+                    getLog().info("Trigger " + trigger.getKey() + " set to ERROR state.");
+                    tw.state = TriggerWrapper.STATE_ERROR;
+                    signaler.signalSchedulingChange(0L);
+                } else if (triggerInstCode == CompletedExecutionInstruction.SET_ALL_JOB_TRIGGERS_ERROR) {
+                    getLog().info("All triggers of Job "
+                            + trigger.getJobKey() + " set to ERROR state.");
+                    setAllTriggersOfJobToState(trigger.getJobKey(), TriggerWrapper.STATE_ERROR);
+                    signaler.signalSchedulingChange(0L);
+                } else if (triggerInstCode == CompletedExecutionInstruction.SET_ALL_JOB_TRIGGERS_COMPLETE) {
+                    setAllTriggersOfJobToState(trigger.getJobKey(), TriggerWrapper.STATE_COMPLETE);
+                    signaler.signalSchedulingChange(0L);
+                }
+            }
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    /**
+     * The caller holds the stripe of <code>jobKey</code>.
+     */
+    protected void setAllTriggersOfJobToState(JobKey jobKey, int state) {
+        for (TriggerWrapper tw : getTriggerWrappersForJob(jobKey)) {
+            tw.state = state;
+            if (state != TriggerWrapper.STATE_WAITING) {
+                removeFromTimeIndex(tw);
+            }
+        }
+    }
+}
@@ -0,0 +1,790 @@
+/*
+ * Copyright 2001-2009 Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.quartz.simpl;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.quartz.Calendar;
+import org.quartz.JobDetail;
+import org.quartz.JobKey;
+import org.quartz.JobPersistenceException;
+import org.quartz.ObjectAlreadyExistsException;
+import org.quartz.Trigger;
+import org.quartz.Trigger.CompletedExecutionInstruction;
+import org.quartz.TriggerKey;
+import org.quartz.impl.matchers.GroupMatcher;
+import org.quartz.spi.ClassLoadHelper;
+import org.quartz.spi.OperableTrigger;
+import org.quartz.spi.SchedulerSignaler;
+import org.quartz.spi.TriggerFiredResult;
+
+/**
+ * <p>
+ * A <code>{@link RAMJobStore}</code> whose contents survive a restart of the
+ * scheduler, while reads and trigger acquisition keep running at in-memory
+ * speed.
+ * </p>
+ *
+ * <p>
+ * Every change to the store's jobs, triggers, calendars and paused groups
+ * is appended to a write-ahead log before the changing call returns.  Log
+ * writes from concurrent callers are batched into a single
+ * <code>FileChannel.force()</code> (group commit), so the cost of durability
+ * is one disk flush per batch rather than per operation.  Periodically, and
+ * on shutdown, the whole store is written to a memory-mapped snapshot file
+ * and the logs it covers are deleted.  On startup the snapshot is loaded and
+ * the remaining logs replayed; a torn record at the end of the last log
+ * (from a crash mid-write) is ignored.
+ * </p>
+ *
+ * <p>
+ * Acquisition and release of triggers are not logged - after a restart every
+ * acquired, executing or blocked trigger is simply waiting again, and
+ * misfire handling applies as usual.  Jobs, triggers and calendars must be
+ * <code>Serializable</code>, as with the JDBC job stores.
+ * </p>
+ *
+ * <p>
+ * Where a <code>RAMJobStore</code> method does not allow a
+ * <code>JobPersistenceException</code>, a failure to write the log is
+ * reported to the scheduler listeners instead, and the in-memory change
+ * stands.  A store whose files cannot be recovered fails
+ * <code>initialize</code> with an <code>IllegalStateException</code>.
+ * </p>
+ *
+ * <p>
+ * Configure it with <code>org.quartz.jobStore.class = org.quartz.simpl.DurableRAMJobStore</code>
+ * and <code>org.quartz.jobStore.dataDirectory</code>; optionally set
+ * <code>org.quartz.jobStore.snapshotIntervalMillis</code> and
+ * <code>org.quartz.jobStore.forceWrites</code> (turning the latter off
+ * survives a crash of the JVM but not of the machine).  Each scheduler
+ * instance name gets its own files within the directory.
+ * </p>
+ *
+ * @see RAMJobStore
+ */
+public class DurableRAMJobStore extends RAMJobStore {
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Data members.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    public static final long DEFAULT_SNAPSHOT_INTERVAL_MILLIS = 5 * 60 * 1000L;
+
+    private String dataDirectory = "quartz-data";
+
+    private boolean forceWrites = true;
+
+    private long snapshotIntervalMillis = DEFAULT_SNAPSHOT_INTERVAL_MILLIS;
+
+    private String instanceName = "QuartzScheduler";
+
+    /** null while recovering and after shutdown, which turns logging off */
+    private volatile JobStoreJournal journal;
+
+    private final Object snapshotLock = new Object();
+
+    private SnapshotThread snapshotThread;
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Interface.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    public String getDataDirectory() {
+        return dataDirectory;
+    }
+
+    /**
+     * The directory holding the snapshot and log files.  Created if it does
+     * not exist.
+     */
+    public void setDataDirectory(String dataDirectory) {
+        this.dataDirectory = dataDirectory;
+    }
+
+    public boolean isForceWrites() {
+        return forceWrites;
+    }
+
+    /**
+     * Whether log writes are forced to the storage device before a change
+     * returns.  Defaults to <code>true</code>.
+     */
+    public void setForceWrites(boolean forceWrites) {
+        this.forceWrites = forceWrites;
+    }
+
+    public long getSnapshotIntervalMillis() {
+        return snapshotIntervalMillis;
+    }
+
+    /**
+     * How often the store is snapshotted (if it changed), which bounds the
+     * length of the logs to replay on startup.  Zero or less means only on
+     * startup and shutdown.
+     */
+    public void setSnapshotIntervalMillis(long snapshotIntervalMillis) {
+        this.snapshotIntervalMillis = snapshotIntervalMillis;
+    }
+
+    @Override
+    public void setInstanceName(String schedName) {
+        super.setInstanceName(schedName);
+        this.instanceName = schedName;
+    }
+
+    @Override
+    public boolean supportsPersistence() {
+        return true;
+    }
+
+    @Override
+    public void initialize(ClassLoadHelper loadHelper, SchedulerSignaler schedSignaler) {
+
+        super.initialize(loadHelper, schedSignaler);
+
+        File directory = new File(dataDirectory);
+        JobStoreJournal j = new JobStoreJournal(directory,
+                instanceName.replaceAll("[^A-Za-z0-9._-]", "_"), forceWrites, loadHelper);
+        try {
+            long replayed;
+            synchronized (lock) {
+                replayed = j.recover(new Replayer());
+            }
+            j.open();
+            journal = j;
+            snapshot();
+
+            getLog().info("DurableRAMJobStore recovered " + getNumberOfJobs() + " jobs, "
+                    + getNumberOfTriggers() + " triggers and " + getNumberOfCalendars()
+                    + " calendars from " + directory.getAbsolutePath() + " (" + replayed
+                    + " log records replayed).");
+        } catch (IOException e) {
+            journal = null;
+            throw new IllegalStateException("Could not recover the job store from "
+                    + directory.getAbsolutePath() + ": " + e.getMessage(), e);
+        }
+
+        if (snapshotIntervalMillis > 0) {
+            snapshotThread = new SnapshotThread();
+            snapshotThread.start();
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        if (snapshotThread != null) {
+            snapshotThread.halt();
+            snapshotThread = null;
+        }
+
+        JobStoreJournal j = journal;
+        if (j != null) {
+            try {
+                if (j.getRecordsSinceSnapshot() > 0) {
+                    snapshot();
+                }
+            } catch (IOException e) {
+                getLog().warn("Could not snapshot the job store on shutdown; the log will be replayed instead.", e);
+            }
+            try {
+                j.close();
+            } catch (IOException e) {
+                getLog().error("Could not close the job store journal.", e);
+            }
+            journal = null;
+        }
+
+        super.shutdown();
+    }
+
+    /**
+     * <p>
+     * Write a snapshot of the store now, and delete the logs it makes
+     * redundant.
+     * </p>
+     */
+    public void snapshot() throws IOException {
+        synchronized (snapshotLock) {
+            JobStoreJournal j = journal;
+            if (j == null) {
+                return;
+            }
+
+            List<String> calNames = new ArrayList<String>();
+            List<Calendar> cals = new ArrayList<Calendar>();
+            List<JobDetail> jobs = new ArrayList<JobDetail>();
+            List<OperableTrigger> trigs = new ArrayList<OperableTrigger>();
+            List<Integer> states = new ArrayList<Integer>();
+            Object[] pausedGroups;
+            long nextGeneration;
+
+            // capture a consistent copy, then do the slow part outside the lock
+            synchronized (lock) {
+                for (Map.Entry<String, Calendar> entry : calendarsByName.entrySet()) {
+                    calNames.add(entry.getKey());
+                    cals.add((Calendar) entry.getValue().clone());
+                }
+                for (JobWrapper jw : jobsByKey.values()) {
+                    jobs.add(jw.jobDetail);
+                }
+                for (TriggerWrapper tw : triggers) {
+                    trigs.add((OperableTrigger) tw.trigger.clone());
+                    states.add(tw.state);
+                }
+                pausedGroups = pausedGroups();
+                nextGeneration = j.rotate();
+            }
+
+            List<byte[]> records = new ArrayList<byte[]>(cals.size() + jobs.size() + trigs.size() + 1);
+            records.add(JobStoreJournal.frame(JobStoreJournal.PAUSED_GROUPS, 0,
+                    JobStoreJournal.serialize(pausedGroups)));
+            for (int i = 0; i < cals.size(); i++) {
+                records.add(JobStoreJournal.frame(JobStoreJournal.PUT_CALENDAR, 0,
+                        JobStoreJournal.serialize(new Object[] {calNames.get(i), cals.get(i)})));
+            }
+            for (JobDetail job : jobs) {
+                records.add(JobStoreJournal.frame(JobStoreJournal.PUT_JOB, 0, JobStoreJournal.serialize(job)));
+            }
+            for (int i = 0; i < trigs.size(); i++) {
+                records.add(JobStoreJournal.frame(JobStoreJournal.PUT_TRIGGER, states.get(i),
+                        JobStoreJournal.serialize(trigs.get(i))));
+            }
+
+            j.writeSnapshot(nextGeneration, records);
+        }
+    }
+
+    /*
+     * Mutators: each applies the change under the store lock, appends the
+     * resulting state to the journal while still holding it (so log order
+     * matches the order of changes), and syncs the journal after letting go
+     * of the lock.  Calls nested inside another mutator leave the sync to the
+     * outermost one.
+     */
+
+    @Override
+    public void storeJob(JobDetail newJob, boolean replaceExisting) throws ObjectAlreadyExistsException {
+        byte[] payload = serializeForJournalOrReport(newJob);
+        synchronized (lock) {
+            super.storeJob(newJob, replaceExisting);
+            append(JobStoreJournal.PUT_JOB, 0, payload);
+        }
+        commitOrReport();
+    }
+
+    @Override
+    public void storeJobAndTrigger(JobDetail newJob, OperableTrigger newTrigger) throws JobPersistenceException {
+        synchronized (lock) {
+            super.storeJobAndTrigger(newJob, newTrigger);
+        }
+        commit();
+    }
+
+    @Override
+    public void storeJobsAndTriggers(Map<JobDetail, Set<? extends Trigger>> triggersAndJobs,
+            boolean replace) throws JobPersistenceException {
+        synchronized (lock) {
+            super.storeJobsAndTriggers(triggersAndJobs, replace);
+        }
+        commit();
+    }
+
+    @Override
+    public boolean removeJob(JobKey jobKey) {
+        boolean found;
+        synchronized (lock) {
+            found = super.removeJob(jobKey);
+            if (found) {
+                appendObject(JobStoreJournal.REMOVE_JOB, 0, jobKey);
+            }
+        }
+        commitOrReport();
+        return found;
+    }
+
+    @Override
+    public boolean removeJobs(List<JobKey> jobKeys) throws JobPersistenceException {
+        boolean allFound;
+        synchronized (lock) {
+            allFound = super.removeJobs(jobKeys);
+        }
+        commit();
+        return allFound;
+    }
+
+    @Override
+    public void storeTrigger(OperableTrigger newTrigger, boolean replaceExisting) throws JobPersistenceException {
+        byte[] payload = serializeForJournal(newTrigger);
+        synchronized (lock) {
+            super.storeTrigger(newTrigger, replaceExisting);
+            if (payload != null) {
+                append(JobStoreJournal.PUT_TRIGGER, triggersByKey.get(newTrigger.getKey()).state, payload);
+            }
+        }
+        commit();
+    }
+
+    @Override
+    public boolean removeTrigger(TriggerKey triggerKey) {
+        boolean found;
+        synchronized (lock) {
+            found = super.removeTrigger(triggerKey);
+            if (found) {
+                appendObject(JobStoreJournal.REMOVE_TRIGGER, 0, triggerKey);
+            }
+        }
+        commitOrReport();
+        return found;
+    }
+
+    @Override
+    public boolean removeTriggers(List<TriggerKey> triggerKeys) throws JobPersistenceException {
+        boolean allFound;
+        synchronized (lock) {
+            allFound = super.removeTriggers(triggerKeys);
+        }
+        commit();
+        return allFound;
+    }
+
+    @Override
+    public boolean replaceTrigger(TriggerKey triggerKey, OperableTrigger newTrigger) throws JobPersistenceException {
+        boolean found;
+        synchronized (lock) {
+            // the new trigger is journaled by the nested storeTrigger()
+            found = super.replaceTrigger(triggerKey, newTrigger);
+            if (found && !triggerKey.equals(newTrigger.getKey())) {
+                appendObject(JobStoreJournal.REMOVE_TRIGGER, 0, triggerKey);
+            }
+        }
+        commit();
+        return found;
+    }
+
+    @Override
+    public void storeCalendar(String name, Calendar calendar, boolean replaceExisting, boolean updateTriggers)
+        throws ObjectAlreadyExistsException {
+        byte[] payload = serializeForJournalOrReport(new Object[] {name, calendar});
+        synchronized (lock) {
+            super.storeCalendar(name, calendar, replaceExisting, updateTriggers);
+            append(JobStoreJournal.PUT_CALENDAR, 0, payload);
+            if (updateTriggers) {
+                for (TriggerWrapper tw : getTriggerWrappersForCalendar(name)) {
+                    logTrigger(tw.key);
+                }
+            }
+        }
+        commitOrReport();
+    }
+
+    @Override
+    public boolean removeCalendar(String calName) throws JobPersistenceException {
+        boolean found;
+        synchronized (lock) {
+            found = super.removeCalendar(calName);
+            if (found) {
+                appendObject(JobStoreJournal.REMOVE_CALENDAR, 0, calName);
+            }
+        }
+        commit();
+        return found;
+    }
+
+    @Override
+    public void clearAllSchedulingData() throws JobPersistenceException {
+        synchronized (lock) {
+            super.clearAllSchedulingData();
+        }
+        commit();
+    }
+
+    @Override
+    public void pauseTrigger(TriggerKey triggerKey) {
+        synchronized (lock) {
+            super.pauseTrigger(triggerKey);
+            logTrigger(triggerKey);
+        }
+        commitOrReport();
+    }
+
+    @Override
+    public List<String> pauseTriggers(GroupMatcher<TriggerKey> matcher) {
+        List<String> pausedGroups;
+        synchronized (lock) {
+            pausedGroups = super.pauseTriggers(matcher);
+            logPausedGroups();
+        }
+        commitOrReport();
+        return pausedGroups;
+    }
+
+    @Override
+    public void pauseJob(JobKey jobKey) {
+        synchronized (lock) {
+            super.pauseJob(jobKey);
+        }
+        commitOrReport();
+    }
+
+    @Override
+    public List<String> pauseJobs(GroupMatcher<JobKey> matcher) {
+        List<String> pausedGroups;
+        synchronized (lock) {
+            pausedGroups = super.pauseJobs(matcher);
+            logPausedGroups();
+        }
+        commitOrReport();
+        return pausedGroups;
+    }
+
+    @Override
+    public void resumeTrigger(TriggerKey triggerKey) {
+        synchronized (lock) {
+            super.resumeTrigger(triggerKey);
+            logTrigger(triggerKey);
+        }
+        commitOrReport();
+    }
+
+    @Override
+    public List<String> resumeTriggers(GroupMatcher<TriggerKey> matcher) {
+        List<String> groups;
+        synchronized (lock) {
+            groups = super.resumeTriggers(matcher);
+            logPausedGroups();
+        }
+        commitOrReport();
+        return groups;
+    }
+
+    @Override
+    public void resumeJob(JobKey jobKey) {
+        synchronized (lock) {
+            super.resumeJob(jobKey);
+        }
+        commitOrReport();
+    }
+
+    @Override
+    public Collection<String> resumeJobs(GroupMatcher<JobKey> matcher) {
+        Collection<String> groups;
+        synchronized (lock) {
+            groups = super.resumeJobs(matcher);
+            logPausedGroups();
+        }
+        commitOrReport();
+        return groups;
+    }
+
+    @Override
+    public void pauseAll() {
+        synchronized (lock) {
+            super.pauseAll();
+            logPausedGroups();
+        }
+        commitOrReport();
+    }
+
+    @Override
+    public void resumeAll() {
+        synchronized (lock) {
+            super.resumeAll();
+            logPausedGroups();
+        }
+        commitOrReport();
+    }
+
+    @Override
+    public List<TriggerFiredResult> triggersFired(List<OperableTrigger> firedTriggers) {
+        List<TriggerFiredResult> results;
+        synchronized (lock) {
+            results = super.triggersFired(firedTriggers);
+            for (TriggerFiredResult result : results) {
+                logTrigger(result.getTriggerFiredBundle().getTrigger().getKey());
+            }
+        }
+        commitOrReport();
+        return results;
+    }
+
+    @Override
+    public void triggeredJobComplete(OperableTrigger trigger, JobDetail jobDetail,
+            CompletedExecutionInstruction triggerInstCode) {
+        synchronized (lock) {
+            // trigger deletion is journaled by the nested removeTrigger()
+            super.triggeredJobComplete(trigger, jobDetail, triggerInstCode);
+
+            JobWrapper jw = jobsByKey.get(jobDetail.getKey());
+            if (jw != null && jw.jobDetail.isPersistJobDataAfterExecution()) {
+                logJob(jw.key);
+            }
+            if (triggerInstCode == CompletedExecutionInstruction.SET_TRIGGER_COMPLETE
+                    || triggerInstCode == CompletedExecutionInstruction.SET_TRIGGER_ERROR) {
+                logTrigger(trigger.getKey());
+            } else if (triggerInstCode == CompletedExecutionInstruction.SET_ALL_JOB_TRIGGERS_COMPLETE
+                    || triggerInstCode == CompletedExecutionInstruction.SET_ALL_JOB_TRIGGERS_ERROR) {
+                for (TriggerWrapper tw : getTriggerWrappersForJob(trigger.getJobKey())) {
+                    logTrigger(tw.key);
+                }
+            }
+        }
+        commitOrReport();
+    }
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Helper methods.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    private byte[] serializeForJournal(Object payload) throws JobPersistenceException {
+        if (journal == null) {
+            return null;
+        }
+        try {
+            return JobStoreJournal.serialize(payload);
+        } catch (IOException e) {
+            throw new JobPersistenceException("Couldn't journal " + payload + " - it must be Serializable: " + e, e);
+        }
+    }
+
+    private byte[] serializeForJournalOrReport(Object payload) {
+        try {
+            return serializeForJournal(payload);
+        } catch (JobPersistenceException e) {
+            reportJournalFailure(e);
+            return null;
+        }
+    }
+
+    /** caller must hold the lock */
+    private void append(byte type, int aux, byte[] payload) {
+        JobStoreJournal j = journal;
+        if (j != null && payload != null) {
+            j.append(JobStoreJournal.frame(type, aux, payload));
+        }
+    }
+
+    /** caller must hold the lock */
+    private void appendObject(byte type, int aux, Object payload) {
+        if (journal == null) {
+            return;
+        }
+        try {
+            append(type, aux, JobStoreJournal.serialize(payload));
+        } catch (IOException e) {
+            reportJournalFailure(new JobPersistenceException("Couldn't journal " + payload + ": " + e, e));
+        }
+    }
+
+    /** caller must hold the lock */
+    private void logJob(JobKey jobKey) {
+        JobWrapper jw = jobsByKey.get(jobKey);
+        if (jw == null) {
+            appendObject(JobStoreJournal.REMOVE_JOB, 0, jobKey);
+        } else {
+            appendObject(JobStoreJournal.PUT_JOB, 0, jw.jobDetail);
+        }
+    }
+
+    /** caller must hold the lock */
+    private void logTrigger(TriggerKey triggerKey) {
+        TriggerWrapper tw = triggersByKey.get(triggerKey);
+        if (tw == null) {
+            appendObject(JobStoreJournal.REMOVE_TRIGGER, 0, triggerKey);
+        } else {
+            appendObject(JobStoreJournal.PUT_TRIGGER, tw.state, tw.trigger);
+        }
+    }
+
+    /** caller must hold the lock */
+    private void logPausedGroups() {
+        appendObject(JobStoreJournal.PAUSED_GROUPS, 0, pausedGroups());
+    }
+
+    private Object[] pausedGroups() {
+        return new Object[] {new HashSet<String>(pausedTriggerGroups), new HashSet<String>(pausedJobGroups)};
+    }
+
+    private void commit() throws JobPersistenceException {
+        JobStoreJournal j = journal;
+        if (j == null || Thread.holdsLock(lock)) {
+            return;
+        }
+        try {
+            j.sync();
+        } catch (IOException e) {
+            throw new JobPersistenceException("Couldn't write the job store journal: " + e, e);
+        }
+    }
+
+    private void commitOrReport() {
+        try {
+            commit();
+        } catch (JobPersistenceException e) {
+            reportJournalFailure(e);
+        }
+    }
+
+    /**
+     * For mutators whose signature doesn't allow a <code>JobPersistenceException</code>:
+     * the in-memory change stands, but may not survive a restart.
+     */
+    private void reportJournalFailure(JobPersistenceException e) {
+        String msg = "The job store journal could not be written; recent changes may be lost on restart.";
+        getLog().error(msg, e);
+        if (signaler != null) {
+            signaler.notifySchedulerListenersError(msg, e);
+        }
+    }
+
+    /** caller must hold the lock */
+    private void restoreTriggerState(TriggerKey triggerKey, int state) {
+        TriggerWrapper tw = triggersByKey.get(triggerKey);
+        switch (state) {
+            case TriggerWrapper.STATE_PAUSED:
+            case TriggerWrapper.STATE_PAUSED_BLOCKED:
+                tw.state = TriggerWrapper.STATE_PAUSED;
+                break;
+            case TriggerWrapper.STATE_COMPLETE:
+            case TriggerWrapper.STATE_ERROR:
+                tw.state = state;
+                break;
+            default:
+                // nothing is acquired, executing or blocked after a restart
+                tw.state = TriggerWrapper.STATE_WAITING;
+        }
+
+        if (tw.state == TriggerWrapper.STATE_WAITING) {
+            timeTriggers.add(tw);
+        } else {
+            timeTriggers.remove(tw);
+        }
+    }
+
+    /**
+     * Applies recovered records through the regular mutators, with the
+     * journal still switched off.
+     */
+    private class Replayer implements JobStoreJournal.RecordHandler {
+
+        @SuppressWarnings("unchecked")
+        public void apply(byte type, int aux, Object payload) throws Exception {
+            switch (type) {
+                case JobStoreJournal.PUT_JOB:
+                    storeJob((JobDetail) payload, true);
+                    break;
+                case JobStoreJournal.REMOVE_JOB:
+                    removeJob((JobKey) payload);
+                    break;
+                case JobStoreJournal.PUT_TRIGGER:
+                    OperableTrigger trigger = (OperableTrigger) payload;
+                    storeTrigger(trigger, true);
+                    restoreTriggerState(trigger.getKey(), aux);
+                    break;
+                case JobStoreJournal.REMOVE_TRIGGER:
+                    removeTrigger((TriggerKey) payload);
+                    break;
+                case JobStoreJournal.PUT_CALENDAR:
+                    Object[] cal = (Object[]) payload;
+                    storeCalendar((String) cal[0], (Calendar) cal[1], true, false);
+                    break;
+                case JobStoreJournal.REMOVE_CALENDAR:
+                    removeCalendar((String) payload);
+                    break;
+                case JobStoreJournal.PAUSED_GROUPS:
+                    Object[] groups = (Object[]) payload;
+                    pausedTriggerGroups = new HashSet<String>((Set<String>) groups[0]);
+                    pausedJobGroups = new HashSet<String>((Set<String>) groups[1]);
+                    break;
+                default:
+                    throw new IOException("Unknown job store journal record type " + type);
+            }
+        }
+    }
+
+    /**
+     * Snapshots the store every <code>snapshotIntervalMillis</code>, if it
+     * has changed since the last snapshot.
+     */
+    private class SnapshotThread extends Thread {
+
+        private volatile boolean halted;
+
+        SnapshotThread() {
+            super(instanceName + "_DurableRAMJobStore-Snapshotter");
+            setDaemon(true);
+        }
+
+        void halt() {
+            halted = true;
+            synchronized (this) {
+                notifyAll();
+            }
+            try {
+                join();
+            } catch (InterruptedException ignore) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void run() {
+            while (!halted) {
+                synchronized (this) {
+                    try {
+                        if (!halted) {
+                            wait(snapshotIntervalMillis);
+                        }
+                    } catch (InterruptedException ignore) {
+                        // check halted
+                    }
+                }
+                JobStoreJournal j = journal;
+                if (halted || j == null || j.getRecordsSinceSnapshot() == 0) {
+                    continue;
+                }
+                try {
+                    snapshot();
+                } catch (IOException e) {
+                    getLog().error("Could not snapshot the job store; will retry.", e);
+                } catch (RuntimeException e) {
+                    getLog().error("Could not snapshot the job store; will retry.", e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,518 @@
+/*
+ * Copyright 2001-2009 Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.quartz.simpl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import org.quartz.spi.ClassLoadHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * The on-disk half of <code>{@link DurableRAMJobStore}</code>: an append-only
+ * write-ahead log of store mutations plus periodic memory-mapped snapshots.
+ * </p>
+ *
+ * <p>
+ * Every record is framed as <code>[int length][int crc32][byte type][int aux][payload]</code>,
+ * where the payload is a Java-serialized object.  Log files are named
+ * <code>&lt;name&gt;.wal.&lt;generation&gt;</code>; the snapshot file
+ * <code>&lt;name&gt;.snapshot</code> records the first log generation that is
+ * not contained in it.  Recovery loads the snapshot and replays the logs of
+ * that generation and later, stopping at the first torn or corrupt record.
+ * </p>
+ *
+ * <p>
+ * Records are appended to an in-memory buffer (cheap, done while the store's
+ * lock is held) and made durable by <code>{@link #sync()}</code>, which
+ * writes and forces the buffered records of all waiting threads at once
+ * (group commit).
+ * </p>
+ */
+class JobStoreJournal {
+
+    static final byte PUT_JOB = 1;
+
+    static final byte REMOVE_JOB = 2;
+
+    static final byte PUT_TRIGGER = 3;
+
+    static final byte REMOVE_TRIGGER = 4;
+
+    static final byte PUT_CALENDAR = 5;
+
+    static final byte REMOVE_CALENDAR = 6;
+
+    static final byte PAUSED_GROUPS = 7;
+
+    private static final int SNAPSHOT_MAGIC = 0x51534e50;
+
+    private static final int FORMAT_VERSION = 1;
+
+    private static final int SNAPSHOT_HEADER_LENGTH = 16;
+
+    private static final int FRAME_OVERHEAD = 8;
+
+    private static final int MAX_RECORD_LENGTH = 64 * 1024 * 1024;
+
+    /**
+     * Callback through which recovered records are applied to the store.
+     */
+    interface RecordHandler {
+        void apply(byte type, int aux, Object payload) throws Exception;
+    }
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Data members.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    private final File directory;
+
+    private final String name;
+
+    private final boolean forceWrites;
+
+    private final ClassLoadHelper loadHelper;
+
+    /** guards pending, appendedSeq and recordsSinceSnapshot */
+    private final Object appendLock = new Object();
+
+    /** serializes writers of the log file, and rotation */
+    private final Object syncLock = new Object();
+
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream(4096);
+
+    private long appendedSeq;
+
+    private volatile long durableSeq;
+
+    private long recordsSinceSnapshot;
+
+    private RandomAccessFile logFile;
+
+    private FileChannel channel;
+
+    private long generation;
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Constructors.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    JobStoreJournal(File directory, String name, boolean forceWrites, ClassLoadHelper loadHelper) {
+        this.directory = directory;
+        this.name = name;
+        this.forceWrites = forceWrites;
+        this.loadHelper = loadHelper;
+    }
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Interface.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    /**
+     * Serialize the payload of a record.  Done before the store is changed,
+     * so that a payload that cannot be serialized fails the operation rather
+     * than leaving a change that would not survive a restart.
+     */
+    static byte[] serialize(Object payload) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(256);
+        ObjectOutputStream out = new ObjectOutputStream(baos);
+        try {
+            out.writeObject(payload);
+        } finally {
+            out.close();
+        }
+        return baos.toByteArray();
+    }
+
+    static byte[] frame(byte type, int aux, byte[] payload) {
+        int length = 5 + payload.length;
+        ByteBuffer buf = ByteBuffer.allocate(FRAME_OVERHEAD + length);
+        buf.putInt(length);
+        buf.putInt(0);
+        buf.put(type);
+        buf.putInt(aux);
+        buf.put(payload);
+
+        CRC32 crc = new CRC32();
+        crc.update(buf.array(), FRAME_OVERHEAD, length);
+        buf.putInt(4, (int) crc.getValue());
+        return buf.array();
+    }
+
+    /**
+     * Load the snapshot and replay the logs into the given handler.
+     *
+     * @return the number of log records replayed
+     */
+    long recover(RecordHandler handler) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create data directory " + directory.getAbsolutePath());
+        }
+
+        long firstGeneration = 0;
+        File snapshot = snapshotFile();
+        if (snapshot.exists()) {
+            firstGeneration = readSnapshot(snapshot, handler);
+        }
+
+        long replayed = 0;
+        long lastGeneration = firstGeneration - 1;
+        for (long gen : logGenerations()) {
+            if (gen < firstGeneration) {
+                continue;
+            }
+            replayed += replayLog(logFile(gen), handler);
+            lastGeneration = gen;
+        }
+
+        generation = lastGeneration + 1;
+        return replayed;
+    }
+
+    /**
+     * Start appending to a fresh log file; called once recovery is complete.
+     */
+    void open() throws IOException {
+        synchronized (syncLock) {
+            openLog(generation);
+        }
+    }
+
+    /**
+     * Buffer a framed record for the next <code>{@link #sync()}</code>.
+     */
+    void append(byte[] record) {
+        synchronized (appendLock) {
+            pending.write(record, 0, record.length);
+            appendedSeq++;
+            recordsSinceSnapshot++;
+        }
+    }
+
+    /**
+     * Make every record appended so far by the calling thread durable.  If
+     * another thread is already writing, the caller waits for it and then
+     * finds its records either already written or writes the whole backlog
+     * of buffered records itself.
+     */
+    void sync() throws IOException {
+        long target;
+        synchronized (appendLock) {
+            target = appendedSeq;
+        }
+        if (durableSeq >= target) {
+            return;
+        }
+
+        synchronized (syncLock) {
+            if (durableSeq >= target) {
+                return;
+            }
+            writePending(true);
+        }
+    }
+
+    long getRecordsSinceSnapshot() {
+        synchronized (appendLock) {
+            return recordsSinceSnapshot;
+        }
+    }
+
+    /**
+     * Switch to a new log file; everything appended up to this point is
+     * written to the old one.  Must be called while the store's state is
+     * being captured for a snapshot, so that the snapshot reflects exactly
+     * the records of the generations before the returned one.
+     *
+     * @return the first log generation that is not covered by the snapshot
+     */
+    long rotate() throws IOException {
+        synchronized (syncLock) {
+            writePending(true);
+            closeLog();
+            generation++;
+            openLog(generation);
+            synchronized (appendLock) {
+                recordsSinceSnapshot = 0;
+            }
+            return generation;
+        }
+    }
+
+    /**
+     * Write the given framed records as the new snapshot, then delete the
+     * log files it supersedes.
+     */
+    void writeSnapshot(long nextGeneration, List<byte[]> records) throws IOException {
+        long size = SNAPSHOT_HEADER_LENGTH;
+        for (byte[] record : records) {
+            size += record.length;
+        }
+
+        File tmp = new File(directory, name + ".snapshot.tmp");
+        if (tmp.exists() && !tmp.delete()) {
+            throw new IOException("Could not delete stale snapshot " + tmp.getAbsolutePath());
+        }
+
+        RandomAccessFile raf = new RandomAccessFile(tmp, "rw");
+        try {
+            FileChannel fc = raf.getChannel();
+            MappedByteBuffer map = fc.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            map.putInt(SNAPSHOT_MAGIC);
+            map.putInt(FORMAT_VERSION);
+            map.putLong(nextGeneration);
+            for (byte[] record : records) {
+                map.put(record);
+            }
+            map.force();
+        } finally {
+            raf.close();
+        }
+
+        File snapshot = snapshotFile();
+        if (!tmp.renameTo(snapshot)) {
+            // some platforms refuse to rename over an existing file
+            if (!snapshot.delete() || !tmp.renameTo(snapshot)) {
+                throw new IOException("Could not replace snapshot " + snapshot.getAbsolutePath());
+            }
+        }
+
+        for (long gen : logGenerations()) {
+            if (gen < nextGeneration && !logFile(gen).delete()) {
+                log.warn("Could not delete superseded log file " + logFile(gen).getAbsolutePath());
+            }
+        }
+    }
+
+    void close() throws IOException {
+        synchronized (syncLock) {
+            try {
+                writePending(true);
+            } finally {
+                closeLog();
+            }
+        }
+    }
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Helper methods.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    /** caller must hold syncLock */
+    private void writePending(boolean force) throws IOException {
+        byte[] data;
+        long upTo;
+        synchronized (appendLock) {
+            data = pending.toByteArray();
+            pending.reset();
+            upTo = appendedSeq;
+        }
+
+        if (data.length > 0) {
+            if (channel == null) {
+                throw new IOException("The job store journal is not open.");
+            }
+            ByteBuffer buf = ByteBuffer.wrap(data);
+            while (buf.hasRemaining()) {
+                channel.write(buf);
+            }
+            if (force && forceWrites) {
+                channel.force(false);
+            }
+        }
+        durableSeq = upTo;
+    }
+
+    private void openLog(long gen) throws IOException {
+        logFile = new RandomAccessFile(logFile(gen), "rw");
+        channel = logFile.getChannel();
+        channel.position(channel.size());
+    }
+
+    private void closeLog() throws IOException {
+        if (logFile != null) {
+            try {
+                logFile.close();
+            } finally {
+                logFile = null;
+                channel = null;
+            }
+        }
+    }
+
+    private File snapshotFile() {
+        return new File(directory, name + ".snapshot");
+    }
+
+    private File logFile(long gen) {
+        return new File(directory, name + ".wal." + gen);
+    }
+
+    private List<Long> logGenerations() {
+        List<Long> gens = new ArrayList<Long>();
+        String prefix = name + ".wal.";
+        String[] files = directory.list();
+        if (files != null) {
+            for (String file : files) {
+                if (file.startsWith(prefix)) {
+                    try {
+                        gens.add(Long.valueOf(file.substring(prefix.length())));
+                    } catch (NumberFormatException ignore) {
+                        // not one of ours
+                    }
+                }
+            }
+        }
+        Collections.sort(gens);
+        return gens;
+    }
+
+    private long readSnapshot(File snapshot, RecordHandler handler) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(snapshot, "r");
+        try {
+            FileChannel fc = raf.getChannel();
+            MappedByteBuffer map = fc.map(FileChannel.MapMode.READ_ONLY, 0, fc.size());
+            if (map.remaining() < SNAPSHOT_HEADER_LENGTH || map.getInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Not a job store snapshot: " + snapshot.getAbsolutePath());
+            }
+            int version = map.getInt();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported job store snapshot version " + version);
+            }
+            long nextGeneration = map.getLong();
+
+            // the snapshot is complete or it would not have been renamed into place
+            if (replay(map, handler, snapshot) < 0) {
+                throw new IOException("Corrupt job store snapshot: " + snapshot.getAbsolutePath());
+            }
+            return nextGeneration;
+        } finally {
+            raf.close();
+        }
+    }
+
+    private long replayLog(File file, RecordHandler handler) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel fc = raf.getChannel();
+            ByteBuffer buf = ByteBuffer.allocate((int) fc.size());
+            while (buf.hasRemaining() && fc.read(buf) >= 0) {
+                // keep reading
+            }
+            buf.flip();
+            long count = replay(buf, handler, file);
+            if (count < 0) {
+                count = -count - 1;
+                log.warn("Ignoring torn or corrupt tail of job store log " + file.getAbsolutePath()
+                        + " after " + count + " records.");
+            }
+            return count;
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * @return the number of records applied, or <code>-(count + 1)</code> if
+     *         a bad record was found before the end of the buffer
+     */
+    private long replay(ByteBuffer buf, RecordHandler handler, File source) throws IOException {
+        long count = 0;
+        CRC32 crc = new CRC32();
+        while (buf.hasRemaining()) {
+            byte[] body;
+            try {
+                int length = buf.getInt();
+                int checksum = buf.getInt();
+                if (length < 5 || length > MAX_RECORD_LENGTH || length > buf.remaining()) {
+                    return -count - 1;
+                }
+                body = new byte[length];
+                buf.get(body);
+                crc.reset();
+                crc.update(body, 0, length);
+                if ((int) crc.getValue() != checksum) {
+                    return -count - 1;
+                }
+            } catch (BufferUnderflowException e) {
+                return -count - 1;
+            }
+
+            ByteBuffer record = ByteBuffer.wrap(body);
+            byte type = record.get();
+            int aux = record.getInt();
+            try {
+                Object payload = deserialize(body, record.position());
+                handler.apply(type, aux, payload);
+            } catch (IOException e) {
+                throw e;
+            } catch (Exception e) {
+                IOException ioe = new IOException("Could not apply record " + count + " of "
+                        + source.getAbsolutePath() + ": " + e);
+                ioe.initCause(e);
+                throw ioe;
+            }
+            count++;
+        }
+        return count;
+    }
+
+    private Object deserialize(byte[] body, int offset) throws IOException, ClassNotFoundException {
+        ObjectInputStream in = new ClassLoadHelperObjectInputStream(
+                new ByteArrayInputStream(body, offset, body.length - offset), loadHelper);
+        try {
+            return in.readObject();
+        } finally {
+            in.close();
+        }
+    }
+}
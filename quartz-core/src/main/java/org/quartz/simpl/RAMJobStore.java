@@ -19,8 +19,6 @@ package org.quartz.simpl;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -29,13 +27,11 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeSet;
 import java.util.Map.Entry;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.quartz.Calendar;
 import org.quartz.Job;
-import org.quartz.JobDataMap;
 import org.quartz.JobDetail;
 import org.quartz.JobKey;
 import org.quartz.JobPersistenceException;
@@ -44,7 +40,6 @@ import org.quartz.Trigger;
 import org.quartz.TriggerKey;
 import org.quartz.Trigger.CompletedExecutionInstruction;
 import org.quartz.Trigger.TriggerState;
-import org.quartz.Trigger.TriggerTimeComparator;
 import org.quartz.impl.JobDetailImpl;
 import org.quartz.impl.matchers.GroupMatcher;
 import org.quartz.impl.matchers.StringMatcher;
@@ -52,6 +47,7 @@ import org.quartz.spi.ClassLoadHelper;
 import org.quartz.spi.JobStore;
 import org.quartz.spi.OperableTrigger;
 import org.quartz.spi.SchedulerSignaler;
+import org.quartz.spi.ShardedJobStore;
 import org.quartz.spi.TriggerFiredBundle;
 import org.quartz.spi.TriggerFiredResult;
 import org.slf4j.Logger;
@@ -76,7 +72,7 @@ import static org.quartz.impl.matchers.EverythingMatcher.allTriggers;
  * @author Sharada Jambula
  * @author Eric Mueller
  */
-public class RAMJobStore implements JobStore {
+public class RAMJobStore implements ShardedJobStore {
 
     /*
      * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
@@ -94,12 +90,16 @@ public class RAMJobStore implements JobStore {
 
     protected HashMap<String, HashMap<TriggerKey, TriggerWrapper>> triggersByGroup = new HashMap<String, HashMap<TriggerKey, TriggerWrapper>>(25);
 
-    protected TreeSet<TriggerWrapper> timeTriggers = new TreeSet<TriggerWrapper>(new TriggerWrapperComparator());
+    protected TimeTriggerIndex timeTriggers = new TreeSetTriggerIndex();
 
     protected HashMap<String, Calendar> calendarsByName = new HashMap<String, Calendar>(25);
 
     protected ArrayList<TriggerWrapper> triggers = new ArrayList<TriggerWrapper>(1000);
 
+    protected HashMap<JobKey, List<TriggerWrapper>> triggersByJob = new HashMap<JobKey, List<TriggerWrapper>>(1000);
+
+    protected HashMap<String, HashSet<TriggerWrapper>> triggersByCalendar = new HashMap<String, HashSet<TriggerWrapper>>(25);
+
     protected final Object lock = new Object();
 
     protected HashSet<String> pausedTriggerGroups = new HashSet<String>();
@@ -426,6 +426,8 @@ public class RAMJobStore implements JobStore {
 
             // add to triggers array
             triggers.add(tw);
+            // add to triggers by job and by calendar
+            addToSecondaryIndexes(tw);
             // add to triggers by group
             HashMap<TriggerKey, TriggerWrapper> grpMap = triggersByGroup.get(newTrigger.getKey().getGroup());
             if (grpMap == null) {
@@ -489,12 +491,12 @@ public class RAMJobStore implements JobStore {
                         break;
                     }
                 }
+                removeFromSecondaryIndexes(tw);
                 timeTriggers.remove(tw);
 
                 if (removeOrphanedJob) {
                     JobWrapper jw = jobsByKey.get(tw.jobKey);
-                    List<OperableTrigger> trigs = getTriggersForJob(tw.jobKey);
-                    if ((trigs == null || trigs.size() == 0) && !jw.jobDetail.isDurable()) {
+                    if (!triggersByJob.containsKey(tw.jobKey) && !jw.jobDetail.isDurable()) {
                         if (removeJob(jw.key)) {
                             signaler.notifySchedulerListenersJobDeleted(jw.key);
                         }
@@ -543,6 +545,7 @@ public class RAMJobStore implements JobStore {
                         break;
                     }
                 }
+                removeFromSecondaryIndexes(tw);
                 timeTriggers.remove(tw);
 
                 try {
@@ -639,27 +642,7 @@ public class RAMJobStore implements JobStore {
                 return TriggerState.NONE;
             }
     
-            if (tw.state == TriggerWrapper.STATE_COMPLETE) {
-                return TriggerState.COMPLETE;
-            }
-    
-            if (tw.state == TriggerWrapper.STATE_PAUSED) {
-                return TriggerState.PAUSED;
-            }
-    
-            if (tw.state == TriggerWrapper.STATE_PAUSED_BLOCKED) {
-                return TriggerState.PAUSED;
-            }
-    
-            if (tw.state == TriggerWrapper.STATE_BLOCKED) {
-                return TriggerState.BLOCKED;
-            }
-    
-            if (tw.state == TriggerWrapper.STATE_ERROR) {
-                return TriggerState.ERROR;
-            }
-    
-            return TriggerState.NORMAL;
+            return tw.getTriggerState();
         }
     }
 
@@ -734,16 +717,11 @@ public class RAMJobStore implements JobStore {
      */
     public boolean removeCalendar(String calName)
         throws JobPersistenceException {
-        int numRefs = 0;
+        int numRefs;
 
         synchronized (lock) {
-            for (TriggerWrapper trigger : triggers) {
-                OperableTrigger trigg = trigger.trigger;
-                if (trigg.getCalendarName() != null
-                        && trigg.getCalendarName().equals(calName)) {
-                    numRefs++;
-                }
-            }
+            HashSet<TriggerWrapper> calTriggers = triggersByCalendar.get(calName);
+            numRefs = (calTriggers == null) ? 0 : calTriggers.size();
         }
 
         if (numRefs > 0) {
@@ -816,44 +794,33 @@ public class RAMJobStore implements JobStore {
      * </p>
      */
     public Set<JobKey> getJobKeys(GroupMatcher<JobKey> matcher) {
-        Set<JobKey> outList = null;
         synchronized (lock) {
+            return keysOf(jobsByGroup, matcher.getCompareWithOperator(), matcher.getCompareToValue());
+        }
+    }
 
-            StringMatcher.StringOperatorName operator = matcher.getCompareWithOperator();
-            String compareToValue = matcher.getCompareToValue();
-
-            switch(operator) {
-                case EQUALS:
-                    HashMap<JobKey, JobWrapper> grpMap = jobsByGroup.get(compareToValue);
-                    if (grpMap != null) {
-                        outList = new HashSet<JobKey>();
-
-                        for (JobWrapper jw : grpMap.values()) {
-
-                            if (jw != null) {
-                                outList.add(jw.jobDetail.getKey());
-                            }
-                        }
-                    }
-                    break;
-
-                default:
-                    for (Map.Entry<String, HashMap<JobKey, JobWrapper>> entry : jobsByGroup.entrySet()) {
-                        if(operator.evaluate(entry.getKey(), compareToValue) && entry.getValue() != null) {
-                            if(outList == null) {
-                                outList = new HashSet<JobKey>();
-                            }
-                            for (JobWrapper jobWrapper : entry.getValue().values()) {
-                                if(jobWrapper != null) {
-                                    outList.add(jobWrapper.jobDetail.getKey());
-                                }
-                            }
-                        }
-                    }
+    /**
+     * Collect the keys of the groups matching the given operator and value;
+     * shared with <code>{@link ConcurrentRAMJobStore}</code>.
+     */
+    static <K, V> Set<K> keysOf(Map<String, ? extends Map<K, V>> groups,
+            StringMatcher.StringOperatorName operator, String compareToValue) {
+        Set<K> outList = new HashSet<K>();
+
+        if (operator == StringMatcher.StringOperatorName.EQUALS) {
+            Map<K, V> grpMap = groups.get(compareToValue);
+            if (grpMap != null) {
+                outList.addAll(grpMap.keySet());
+            }
+        } else {
+            for (Map.Entry<String, ? extends Map<K, V>> entry : groups.entrySet()) {
+                if (operator.evaluate(entry.getKey(), compareToValue) && entry.getValue() != null) {
+                    outList.addAll(entry.getValue().keySet());
+                }
             }
         }
 
-        return outList == null ? java.util.Collections.<JobKey>emptySet() : outList;
+        return outList;
     }
 
     /**
@@ -880,44 +847,9 @@ public class RAMJobStore implements JobStore {
      * </p>
      */
     public Set<TriggerKey> getTriggerKeys(GroupMatcher<TriggerKey> matcher) {
-        Set<TriggerKey> outList = null;
         synchronized (lock) {
-
-            StringMatcher.StringOperatorName operator = matcher.getCompareWithOperator();
-            String compareToValue = matcher.getCompareToValue();
-
-            switch(operator) {
-                case EQUALS:
-                    HashMap<TriggerKey, TriggerWrapper> grpMap = triggersByGroup.get(compareToValue);
-                    if (grpMap != null) {
-                        outList = new HashSet<TriggerKey>();
-
-                        for (TriggerWrapper tw : grpMap.values()) {
-
-                            if (tw != null) {
-                                outList.add(tw.trigger.getKey());
-                            }
-                        }
-                    }
-                    break;
-
-                default:
-                    for (Map.Entry<String, HashMap<TriggerKey, TriggerWrapper>> entry : triggersByGroup.entrySet()) {
-                        if(operator.evaluate(entry.getKey(), compareToValue) && entry.getValue() != null) {
-                            if(outList == null) {
-                                outList = new HashSet<TriggerKey>();
-                            }
-                            for (TriggerWrapper triggerWrapper : entry.getValue().values()) {
-                                if(triggerWrapper != null) {
-                                    outList.add(triggerWrapper.trigger.getKey());
-                                }
-                            }
-                        }
-                    }
-            }
+            return keysOf(triggersByGroup, matcher.getCompareWithOperator(), matcher.getCompareToValue());
         }
-
-        return outList == null ? Collections.<TriggerKey>emptySet() : outList;
     }
 
     /**
@@ -965,8 +897,9 @@ public class RAMJobStore implements JobStore {
         ArrayList<OperableTrigger> trigList = new ArrayList<OperableTrigger>();
 
         synchronized (lock) {
-            for (TriggerWrapper tw : triggers) {
-                if (tw.jobKey.equals(jobKey)) {
+            List<TriggerWrapper> jobTriggers = triggersByJob.get(jobKey);
+            if (jobTriggers != null) {
+                for (TriggerWrapper tw : jobTriggers) {
                     trigList.add((OperableTrigger) tw.trigger.clone());
                 }
             }
@@ -976,32 +909,65 @@ public class RAMJobStore implements JobStore {
     }
 
     protected ArrayList<TriggerWrapper> getTriggerWrappersForJob(JobKey jobKey) {
-        ArrayList<TriggerWrapper> trigList = new ArrayList<TriggerWrapper>();
+        synchronized (lock) {
+            List<TriggerWrapper> jobTriggers = triggersByJob.get(jobKey);
+            return (jobTriggers == null) ? new ArrayList<TriggerWrapper>() : new ArrayList<TriggerWrapper>(jobTriggers);
+        }
+    }
 
+    protected ArrayList<TriggerWrapper> getTriggerWrappersForCalendar(String calName) {
         synchronized (lock) {
-            for (TriggerWrapper trigger : triggers) {
-                if (trigger.jobKey.equals(jobKey)) {
-                    trigList.add(trigger);
-                }
-            }
+            HashSet<TriggerWrapper> calTriggers = triggersByCalendar.get(calName);
+            return (calTriggers == null) ? new ArrayList<TriggerWrapper>() : new ArrayList<TriggerWrapper>(calTriggers);
         }
+    }
 
-        return trigList;
+    /**
+     * Add the given wrapper to the by-job and by-calendar indexes.  Must be
+     * called while holding the lock.
+     */
+    private void addToSecondaryIndexes(TriggerWrapper tw) {
+        List<TriggerWrapper> jobTriggers = triggersByJob.get(tw.jobKey);
+        if (jobTriggers == null) {
+            jobTriggers = new ArrayList<TriggerWrapper>(4);
+            triggersByJob.put(tw.jobKey, jobTriggers);
+        }
+        jobTriggers.add(tw);
+
+        String calName = tw.trigger.getCalendarName();
+        if (calName != null) {
+            HashSet<TriggerWrapper> calTriggers = triggersByCalendar.get(calName);
+            if (calTriggers == null) {
+                calTriggers = new HashSet<TriggerWrapper>();
+                triggersByCalendar.put(calName, calTriggers);
+            }
+            calTriggers.add(tw);
+        }
     }
 
-    protected ArrayList<TriggerWrapper> getTriggerWrappersForCalendar(String calName) {
-        ArrayList<TriggerWrapper> trigList = new ArrayList<TriggerWrapper>();
+    /**
+     * Remove the given wrapper from the by-job and by-calendar indexes.  Must
+     * be called while holding the lock.
+     */
+    private void removeFromSecondaryIndexes(TriggerWrapper tw) {
+        List<TriggerWrapper> jobTriggers = triggersByJob.get(tw.jobKey);
+        if (jobTriggers != null) {
+            jobTriggers.remove(tw);
+            if (jobTriggers.isEmpty()) {
+                triggersByJob.remove(tw.jobKey);
+            }
+        }
 
-        synchronized (lock) {
-            for (TriggerWrapper tw : triggers) {
-                String tcalName = tw.getTrigger().getCalendarName();
-                if (tcalName != null && tcalName.equals(calName)) {
-                    trigList.add(tw);
+        String calName = tw.trigger.getCalendarName();
+        if (calName != null) {
+            HashSet<TriggerWrapper> calTriggers = triggersByCalendar.get(calName);
+            if (calTriggers != null) {
+                calTriggers.remove(tw);
+                if (calTriggers.isEmpty()) {
+                    triggersByCalendar.remove(calName);
                 }
             }
         }
-
-        return trigList;
     }
 
     /**
@@ -1021,16 +987,10 @@ public class RAMJobStore implements JobStore {
             }
     
             // if the trigger is "complete" pausing it does not make sense...
-            if (tw.state == TriggerWrapper.STATE_COMPLETE) {
+            if (!tw.pause()) {
                 return;
             }
 
-            if(tw.state == TriggerWrapper.STATE_BLOCKED) {
-                tw.state = TriggerWrapper.STATE_PAUSED_BLOCKED;
-            } else {
-                tw.state = TriggerWrapper.STATE_PAUSED;
-            }
-
             timeTriggers.remove(tw);
         }
     }
@@ -1170,17 +1130,10 @@ public class RAMJobStore implements JobStore {
             OperableTrigger trig = tw.getTrigger();
     
             // if the trigger is not paused resuming it does not make sense...
-            if (tw.state != TriggerWrapper.STATE_PAUSED &&
-                    tw.state != TriggerWrapper.STATE_PAUSED_BLOCKED) {
+            if (!tw.resume(blockedJobs.contains(trig.getJobKey()))) {
                 return;
             }
 
-            if(blockedJobs.contains( trig.getJobKey() )) {
-                tw.state = TriggerWrapper.STATE_BLOCKED;
-            } else {
-                tw.state = TriggerWrapper.STATE_WAITING;
-            }
-
             applyMisfire(tw);
 
             if (tw.state == TriggerWrapper.STATE_WAITING) {
@@ -1370,6 +1323,14 @@ public class RAMJobStore implements JobStore {
 
     private static final AtomicLong ftrCtr = new AtomicLong(System.currentTimeMillis());
 
+    /**
+     * Creates an empty time index, one for each shard once the store is
+     * used by several scheduler threads.
+     */
+    protected TimeTriggerIndex newTimeTriggerIndex() {
+        return new TreeSetTriggerIndex();
+    }
+
     protected String getFiredTriggerRecordId() {
         return String.valueOf(ftrCtr.incrementAndGet());
     }
@@ -1384,72 +1345,111 @@ public class RAMJobStore implements JobStore {
      */
     public List<OperableTrigger> acquireNextTriggers(long noLaterThan, int maxCount, long timeWindow) {
         synchronized (lock) {
-            List<OperableTrigger> result = new ArrayList<OperableTrigger>();
-            Set<JobKey> acquiredJobKeysForNoConcurrentExec = new HashSet<JobKey>();
-            Set<TriggerWrapper> excludedTriggers = new HashSet<TriggerWrapper>();
-            long firstAcquiredTriggerFireTime = 0;
-            
-            // return empty list if store has no triggers.
-            if (timeTriggers.size() == 0)
-                return result;
-            
-            while (true) {
-                TriggerWrapper tw;
+            return acquireNextTriggers(timeTriggers, noLaterThan, maxCount, timeWindow);
+        }
+    }
 
-                try {
-                    tw = timeTriggers.first();
-                    if (tw == null)
-                        break;
+    /**
+     * <p>
+     * Get a handle to the next triggers of the given shard to be fired.  The
+     * first call with a new shard count splits the time index into one
+     * index per shard, so each shard's acquisitions only look at its own
+     * triggers.
+     * </p>
+     *
+     * @see org.quartz.spi.ShardedJobStore
+     */
+    public List<OperableTrigger> acquireNextTriggers(long noLaterThan, int maxCount, long timeWindow,
+            int shard, int shardCount) {
+        synchronized (lock) {
+            if (shardCount <= 1) {
+                return acquireNextTriggers(timeTriggers, noLaterThan, maxCount, timeWindow);
+            }
+
+            if (!(timeTriggers instanceof ShardedTriggerIndex)
+                    || ((ShardedTriggerIndex) timeTriggers).getShardCount() != shardCount) {
+                TimeTriggerIndex[] shards = new TimeTriggerIndex[shardCount];
+                for (int i = 0; i < shardCount; i++) {
+                    shards[i] = newTimeTriggerIndex();
+                }
+                ShardedTriggerIndex sharded = new ShardedTriggerIndex(shards);
+                List<TriggerWrapper> waiting = new ArrayList<TriggerWrapper>(timeTriggers.size());
+                for (TriggerWrapper tw : timeTriggers) {
+                    waiting.add(tw);
+                }
+                for (TriggerWrapper tw : waiting) {
                     timeTriggers.remove(tw);
-                } catch (java.util.NoSuchElementException nsee) {
-                    break;
+                    sharded.add(tw);
                 }
+                timeTriggers = sharded;
+            }
 
-                if (tw.trigger.getNextFireTime() == null) {
-                    continue;
-                }
+            return acquireNextTriggers(((ShardedTriggerIndex) timeTriggers).shard(shard),
+                    noLaterThan, maxCount, timeWindow);
+        }
+    }
 
-                if (applyMisfire(tw)) {
-                    if (tw.trigger.getNextFireTime() != null) {
-                        timeTriggers.add(tw);
-                    }
-                    continue;
-                }
+    private List<OperableTrigger> acquireNextTriggers(TimeTriggerIndex index, long noLaterThan, int maxCount, long timeWindow) {
+        List<OperableTrigger> result = new ArrayList<OperableTrigger>();
+        Set<JobKey> acquiredJobKeysForNoConcurrentExec = new HashSet<JobKey>();
+        Set<TriggerWrapper> excludedTriggers = new HashSet<TriggerWrapper>();
+        long firstAcquiredTriggerFireTime = 0;
+        
+        // return empty list if store has no triggers.
+        if (index.size() == 0)
+            return result;
+        
+        while (true) {
+            TriggerWrapper tw = index.first();
+            if (tw == null)
+                break;
+            index.remove(tw);
+
+            if (tw.trigger.getNextFireTime() == null) {
+                continue;
+            }
 
-                if (tw.getTrigger().getNextFireTime().getTime() > noLaterThan + timeWindow) {
-                    timeTriggers.add(tw);
-                    break;
+            if (applyMisfire(tw)) {
+                if (tw.trigger.getNextFireTime() != null) {
+                    index.add(tw);
                 }
-                
-                // If trigger's job is set as @DisallowConcurrentExecution, and it has already been added to result, then
-                // put it back into the timeTriggers set and continue to search for next trigger.
-                JobKey jobKey = tw.trigger.getJobKey();
-                JobDetail job = jobsByKey.get(tw.trigger.getJobKey()).jobDetail;
-                if (job.isConcurrentExectionDisallowed()) {
-                    if (acquiredJobKeysForNoConcurrentExec.contains(jobKey)) {
-                        excludedTriggers.add(tw);
-                        continue; // go to next trigger in store.
-                    } else {
-                        acquiredJobKeysForNoConcurrentExec.add(jobKey);
-                    }
-                }
-
-                tw.state = TriggerWrapper.STATE_ACQUIRED;
-                tw.trigger.setFireInstanceId(getFiredTriggerRecordId());
-                OperableTrigger trig = (OperableTrigger) tw.trigger.clone();
-                result.add(trig);
-                if(firstAcquiredTriggerFireTime == 0)
-                    firstAcquiredTriggerFireTime = tw.trigger.getNextFireTime().getTime();
+                continue;
+            }
 
-                if (result.size() == maxCount)
-                    break;
+            if (tw.getTrigger().getNextFireTime().getTime() > noLaterThan + timeWindow) {
+                index.add(tw);
+                break;
             }
             
-            // If we did excluded triggers to prevent ACQUIRE state due to DisallowConcurrentExecution, we need to add them back to store.
-            if (excludedTriggers.size() > 0)
-                timeTriggers.addAll(excludedTriggers);
-            return result;
+            // If trigger's job is set as @DisallowConcurrentExecution, and it has already been added to result, then
+            // put it back into the timeTriggers set and continue to search for next trigger.
+            JobKey jobKey = tw.trigger.getJobKey();
+            JobDetail job = jobsByKey.get(tw.trigger.getJobKey()).jobDetail;
+            if (job.isConcurrentExectionDisallowed()) {
+                if (acquiredJobKeysForNoConcurrentExec.contains(jobKey)) {
+                    excludedTriggers.add(tw);
+                    continue; // go to next trigger in store.
+                } else {
+                    acquiredJobKeysForNoConcurrentExec.add(jobKey);
+                }
+            }
+
+            tw.state = TriggerWrapper.STATE_ACQUIRED;
+            tw.trigger.setFireInstanceId(getFiredTriggerRecordId());
+            OperableTrigger trig = (OperableTrigger) tw.trigger.clone();
+            result.add(trig);
+            if(firstAcquiredTriggerFireTime == 0)
+                firstAcquiredTriggerFireTime = tw.trigger.getNextFireTime().getTime();
+
+            if (result.size() == maxCount)
+                break;
         }
+        
+        // If we did excluded triggers to prevent ACQUIRE state due to DisallowConcurrentExecution, we need to add them back to store.
+        for (TriggerWrapper excluded : excludedTriggers) {
+            index.add(excluded);
+        }
+        return result;
     }
 
     /**
@@ -1517,12 +1517,7 @@ public class RAMJobStore implements JobStore {
                 if (job.isConcurrentExectionDisallowed()) {
                     ArrayList<TriggerWrapper> trigs = getTriggerWrappersForJob(job.getKey());
                     for (TriggerWrapper ttw : trigs) {
-                        if (ttw.state == TriggerWrapper.STATE_WAITING) {
-                            ttw.state = TriggerWrapper.STATE_BLOCKED;
-                        }
-                        if (ttw.state == TriggerWrapper.STATE_PAUSED) {
-                            ttw.state = TriggerWrapper.STATE_PAUSED_BLOCKED;
-                        }
+                        ttw.block();
                         timeTriggers.remove(ttw);
                     }
                     blockedJobs.add(job.getKey());
@@ -1560,28 +1555,15 @@ public class RAMJobStore implements JobStore {
             //   2- RAMJobStore is being used only for volatile jobs / triggers
             //      from the JDBC job store
             if (jw != null) {
-                JobDetail jd = jw.jobDetail;
+                JobDetail jd = jw.jobExecuted(jobDetail);
 
-                if (jd.isPersistJobDataAfterExecution()) {
-                    JobDataMap newData = jobDetail.getJobDataMap();
-                    if (newData != null) {
-                        newData = (JobDataMap)newData.clone();
-                        newData.clearDirtyFlag();
-                    }
-                    jd = jd.getJobBuilder().setJobData(newData).build();
-                    jw.jobDetail = jd;
-                }
                 if (jd.isConcurrentExectionDisallowed()) {
                     blockedJobs.remove(jd.getKey());
                     ArrayList<TriggerWrapper> trigs = getTriggerWrappersForJob(jd.getKey());
                     for(TriggerWrapper ttw : trigs) {
-                        if (ttw.state == TriggerWrapper.STATE_BLOCKED) {
-                            ttw.state = TriggerWrapper.STATE_WAITING;
+                        if (ttw.unblock()) {
                             timeTriggers.add(ttw);
                         }
-                        if (ttw.state == TriggerWrapper.STATE_PAUSED_BLOCKED) {
-                            ttw.state = TriggerWrapper.STATE_PAUSED;
-                        }
                     }
                     signaler.signalSchedulingChange(0L);
                 }
@@ -1688,117 +1670,3 @@ public class RAMJobStore implements JobStore {
     }
 
 }
-
-/*******************************************************************************
- * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
- * 
- * Helper Classes. * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *
- */
-
-class TriggerWrapperComparator implements Comparator<TriggerWrapper>, java.io.Serializable {
-  
-    private static final long serialVersionUID = 8809557142191514261L;
-
-    TriggerTimeComparator ttc = new TriggerTimeComparator();
-    
-    public int compare(TriggerWrapper trig1, TriggerWrapper trig2) {
-        return ttc.compare(trig1.trigger, trig2.trigger);
-    }
-
-    @Override
-    public boolean equals(Object obj) {
-        return (obj instanceof TriggerWrapperComparator);
-    }
-
-    @Override
-    public int hashCode() {
-        return super.hashCode();
-    }
-}
-
-class JobWrapper {
-
-    public JobKey key;
-
-    public JobDetail jobDetail;
-
-    JobWrapper(JobDetail jobDetail) {
-        this.jobDetail = jobDetail;
-        key = jobDetail.getKey();
-    }
-
-    @Override
-    public boolean equals(Object obj) {
-        if (obj instanceof JobWrapper) {
-            JobWrapper jw = (JobWrapper) obj;
-            if (jw.key.equals(this.key)) {
-                return true;
-            }
-        }
-
-        return false;
-    }
-    
-    @Override
-    public int hashCode() {
-        return key.hashCode(); 
-    }
-}
-
-class TriggerWrapper {
-
-    public final TriggerKey key;
-
-    public final JobKey jobKey;
-
-    public final OperableTrigger trigger;
-
-    public int state = STATE_WAITING;
-
-    public static final int STATE_WAITING = 0;
-
-    public static final int STATE_ACQUIRED = 1;
-
-    @SuppressWarnings("UnusedDeclaration")
-    public static final int STATE_EXECUTING = 2;
-
-    public static final int STATE_COMPLETE = 3;
-
-    public static final int STATE_PAUSED = 4;
-
-    public static final int STATE_BLOCKED = 5;
-
-    public static final int STATE_PAUSED_BLOCKED = 6;
-
-    public static final int STATE_ERROR = 7;
-    
-    TriggerWrapper(OperableTrigger trigger) {
-        if(trigger == null)
-            throw new IllegalArgumentException("Trigger cannot be null!");
-        this.trigger = trigger;
-        key = trigger.getKey();
-        this.jobKey = trigger.getJobKey();
-    }
-
-    @Override
-    public boolean equals(Object obj) {
-        if (obj instanceof TriggerWrapper) {
-            TriggerWrapper tw = (TriggerWrapper) obj;
-            if (tw.key.equals(this.key)) {
-                return true;
-            }
-        }
-
-        return false;
-    }
-
-    @Override
-    public int hashCode() {
-        return key.hashCode(); 
-    }
-
-    
-    public OperableTrigger getTrigger() {
-        return this.trigger;
-    }
-}
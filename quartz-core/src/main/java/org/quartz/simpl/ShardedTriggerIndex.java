@@ -0,0 +1,90 @@
+/*
+ * Copyright 2001-2009 Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.quartz.simpl;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.quartz.utils.TriggerShards;
+
+/**
+ * An index split into one sub-index per shard of a
+ * <code>{@link org.quartz.spi.ShardedJobStore}</code>, so that each
+ * scheduler thread only looks at the triggers of its own shard.  Iteration
+ * visits one shard after the other, not in overall time order.
+ */
+class ShardedTriggerIndex implements TimeTriggerIndex {
+
+    private final TimeTriggerIndex[] shards;
+
+    private final TriggerWrapperComparator comparator = new TriggerWrapperComparator();
+
+    ShardedTriggerIndex(TimeTriggerIndex[] shards) {
+        this.shards = shards;
+    }
+
+    int getShardCount() {
+        return shards.length;
+    }
+
+    TimeTriggerIndex shard(int shard) {
+        return shards[shard];
+    }
+
+    private TimeTriggerIndex shardOf(TriggerWrapper tw) {
+        return shards[TriggerShards.shardOf(tw.key, shards.length)];
+    }
+
+    public boolean add(TriggerWrapper tw) {
+        return shardOf(tw).add(tw);
+    }
+
+    public boolean remove(TriggerWrapper tw) {
+        return shardOf(tw).remove(tw);
+    }
+
+    public TriggerWrapper first() {
+        TriggerWrapper first = null;
+        for (TimeTriggerIndex shard : shards) {
+            TriggerWrapper candidate = shard.first();
+            if (candidate != null && (first == null || comparator.compare(candidate, first) < 0)) {
+                first = candidate;
+            }
+        }
+        return first;
+    }
+
+    public int size() {
+        int size = 0;
+        for (TimeTriggerIndex shard : shards) {
+            size += shard.size();
+        }
+        return size;
+    }
+
+    public Iterator<TriggerWrapper> iterator() {
+        List<TriggerWrapper> all = new ArrayList<TriggerWrapper>(size());
+        for (TimeTriggerIndex shard : shards) {
+            for (TriggerWrapper tw : shard) {
+                all.add(tw);
+            }
+        }
+        return all.iterator();
+    }
+}
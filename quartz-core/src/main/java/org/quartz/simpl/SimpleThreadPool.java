@@ -14,7 +14,6 @@
  * under the License.
  * 
  */
-
 package org.quartz.simpl;
 
 import org.slf4j.Logger;
@@ -22,10 +21,17 @@ import org.slf4j.LoggerFactory;
 import org.quartz.SchedulerConfigException;
 import org.quartz.spi.ThreadPool;
 
-import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * <p>
@@ -39,8 +45,20 @@ import java.util.concurrent.atomic.AtomicBoolean;
  * </p>
  * 
  * <p>
- * The pool has a fixed number of <code>Thread</code>s, and does not grow or
- * shrink based on demand.
+ * The pool keeps <code>threadCount</code> <code>Thread</code>s, and grows
+ * to at most <code>maxThreadCount</code> of them while all are busy. The
+ * <code>Thread</code>s beyond <code>threadCount</code> retire once they have
+ * been idle for <code>threadKeepAliveTime</code> millis. Unless
+ * <code>maxThreadCount</code> is set the pool has a fixed number of
+ * <code>Thread</code>s. Both counts may be changed while the pool runs, e.g.
+ * through JMX.
+ * </p>
+ * 
+ * <p>
+ * Idle <code>Thread</code>s wait on a lock free stack, and a semaphore counts
+ * the idle <code>Thread</code>s plus those the pool may still grow by, so
+ * handing a <code>Runnable</code> to a <code>Thread</code> neither takes a
+ * shared monitor nor polls.
  * </p>
  * 
  * @author James House
@@ -56,12 +74,17 @@ public class SimpleThreadPool implements ThreadPool {
      * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
      */
 
-    private int count = -1;
+    private volatile int count = -1;
+
+    private volatile int maxCount = -1;
+
+    private volatile long keepAliveTime = 60000L;
 
     private int prio = Thread.NORM_PRIORITY;
 
-    private boolean isShutdown = false;
-    private boolean handoffPending = false;
+    private volatile boolean isShutdown = false;
+
+    private boolean initialized = false;
 
     private boolean inheritLoader = false;
 
@@ -71,11 +94,20 @@ public class SimpleThreadPool implements ThreadPool {
 
     private ThreadGroup threadGroup;
 
-    private final Object nextRunnableLock = new Object();
+    private ClassLoader initializingLoader;
+
+    private final Set<WorkerThread> workers =
+        Collections.newSetFromMap(new ConcurrentHashMap<WorkerThread, Boolean>());
 
-    private List<WorkerThread> workers;
-    private LinkedList<WorkerThread> availWorkers = new LinkedList<WorkerThread>();
-    private LinkedList<WorkerThread> busyWorkers = new LinkedList<WorkerThread>();
+    // the top of the stack of idle workers, most recently idle first
+    private final AtomicReference<IdleWorker> idleWorkers = new AtomicReference<IdleWorker>();
+
+    // the idle workers plus the workers the pool may still start
+    private final AvailableThreads availableThreads = new AvailableThreads();
+
+    private final AtomicInteger liveWorkerCount = new AtomicInteger();
+
+    private final AtomicInteger workerNumber = new AtomicInteger();
 
     private String threadNamePrefix;
 
@@ -133,29 +165,99 @@ public class SimpleThreadPool implements ThreadPool {
         return log;
     }
 
+    /**
+     * <p>
+     * Get the number of worker threads the pool may grow to, that is
+     * <code>maxThreadCount</code>, rather than the number of threads it has
+     * right now, as callers size the resources the threads share, such as
+     * job store connections, with it.  An elastic pool may have fewer; see
+     * <code>{@link #getCurrentThreadCount()}</code>.
+     * </p>
+     */
     public int getPoolSize() {
-        return getThreadCount();
+        return getMaxThreadCount();
     }
 
     /**
      * <p>
-     * Set the number of worker threads in the pool - has no effect after
-     * <code>initialize()</code> has been called.
+     * Set the number of worker threads the pool keeps. If called after
+     * <code>initialize()</code> the pool starts the additional threads right
+     * away, or lets the idle threads beyond the new count retire, and the
+     * maximum thread count is raised to the new count if it is below it.
      * </p>
      */
     public void setThreadCount(int count) {
-        this.count = count;
+        synchronized (this) {
+            if (!initialized) {
+                this.count = count;
+                return;
+            }
+        }
+        resize(count, Math.max(count, maxCount));
     }
 
     /**
      * <p>
-     * Get the number of worker threads in the pool.
+     * Get the number of worker threads the pool keeps.
      * </p>
      */
     public int getThreadCount() {
         return count;
     }
 
+    /**
+     * <p>
+     * Set the number of worker threads the pool may grow to while all of its
+     * threads are busy, which defaults to the thread count. If called after
+     * <code>initialize()</code> the thread count is lowered to the new
+     * maximum if it is above it.
+     * </p>
+     */
+    public void setMaxThreadCount(int maxCount) {
+        synchronized (this) {
+            if (!initialized) {
+                this.maxCount = maxCount;
+                return;
+            }
+        }
+        resize(Math.min(count, maxCount), maxCount);
+    }
+
+    /**
+     * <p>
+     * Get the number of worker threads the pool may grow to.
+     * </p>
+     */
+    public int getMaxThreadCount() {
+        return maxCount > 0 ? maxCount : count;
+    }
+
+    /**
+     * <p>
+     * Set how many millis the worker threads beyond the thread count may be
+     * idle before they retire, 60 seconds by default.
+     * </p>
+     */
+    public void setThreadKeepAliveTime(long keepAliveTime) {
+        if (keepAliveTime <= 0) {
+            throw new IllegalArgumentException("Thread keep alive time must be > 0");
+        }
+        this.keepAliveTime = keepAliveTime;
+    }
+
+    public long getThreadKeepAliveTime() {
+        return keepAliveTime;
+    }
+
+    /**
+     * <p>
+     * Get the number of worker threads currently in the pool.
+     * </p>
+     */
+    public int getCurrentThreadCount() {
+        return liveWorkerCount.get();
+    }
+
     /**
      * <p>
      * Set the thread priority of worker threads in the pool - has no effect
@@ -233,15 +335,19 @@ public class SimpleThreadPool implements ThreadPool {
         schedulerInstanceName = schedName;
     }
 
-    public void initialize() throws SchedulerConfigException {
+    public synchronized void initialize() throws SchedulerConfigException {
 
-        if(workers != null && workers.size() > 0) // already initialized...
+        if(initialized) // already initialized...
             return;
         
         if (count <= 0) {
             throw new SchedulerConfigException(
                     "Thread count must be > 0");
         }
+        if (maxCount > 0 && maxCount < count) {
+            throw new SchedulerConfigException(
+                    "Max thread count must be >= thread count");
+        }
         if (prio <= 0 || prio > 9) {
             throw new SchedulerConfigException(
                     "Thread priority must be > 0 and <= 9");
@@ -265,39 +371,101 @@ public class SimpleThreadPool implements ThreadPool {
 
 
         if (isThreadsInheritContextClassLoaderOfInitializingThread()) {
+            initializingLoader = Thread.currentThread().getContextClassLoader();
             getLog().info(
                     "Job execution threads will use class loader of thread: "
                             + Thread.currentThread().getName());
         }
 
+        maxCount = getMaxThreadCount();
+        availableThreads.release(maxCount);
+        initialized = true;
+
         // create the worker threads and start them
-        Iterator<WorkerThread> workerThreads = createWorkerThreads(count).iterator();
-        while(workerThreads.hasNext()) {
-            WorkerThread wt = workerThreads.next();
-            wt.start();
-            availWorkers.add(wt);
+        for (WorkerThread wt : createWorkerThreads(count)) {
+            startIdleWorker(wt);
         }
     }
 
     protected List<WorkerThread> createWorkerThreads(int createCount) {
-        workers = new LinkedList<WorkerThread>();
+        List<WorkerThread> created = new ArrayList<WorkerThread>(createCount);
         for (int i = 1; i<= createCount; ++i) {
-            String threadPrefix = getThreadNamePrefix();
-            if (threadPrefix == null) {
-                threadPrefix = schedulerInstanceName + "_Worker";
-            }
-            WorkerThread wt = new WorkerThread(this, threadGroup,
-                threadPrefix + "-" + i,
-                getThreadPriority(),
-                isMakeThreadsDaemons());
-            if (isThreadsInheritContextClassLoaderOfInitializingThread()) {
-                wt.setContextClassLoader(Thread.currentThread()
-                        .getContextClassLoader());
-            }
-            workers.add(wt);
+            created.add(newWorkerThread(null));
         }
 
-        return workers;
+        return created;
+    }
+
+    private WorkerThread newWorkerThread(Runnable runnable) {
+        String threadPrefix = getThreadNamePrefix();
+        if (threadPrefix == null) {
+            threadPrefix = schedulerInstanceName + "_Worker";
+        }
+        WorkerThread wt = new WorkerThread(this, threadGroup,
+            threadPrefix + "-" + workerNumber.incrementAndGet(),
+            getThreadPriority(),
+            isMakeThreadsDaemons(), runnable, false);
+        if (initializingLoader != null) {
+            wt.setContextClassLoader(initializingLoader);
+        }
+        return wt;
+    }
+
+    private void startIdleWorker(WorkerThread wt) {
+        // an idle worker doesn't change the available thread count, as it
+        // takes up one of the threads the pool could have started
+        liveWorkerCount.incrementAndGet();
+        workers.add(wt);
+        pushIdleWorker(wt);
+        wt.start();
+    }
+
+    private void startBusyWorker(Runnable runnable) {
+        WorkerThread wt = newWorkerThread(runnable);
+        liveWorkerCount.incrementAndGet();
+        workers.add(wt);
+        wt.start();
+    }
+
+    /**
+     * <p>
+     * Change the number of worker threads the pool keeps and may grow to,
+     * starting threads up to the new thread count right away. Idle threads
+     * beyond the new thread count retire after the keep alive time, and busy
+     * threads beyond the new maximum after their current work.
+     * </p>
+     */
+    public synchronized void resize(int newCount, int newMaxCount) {
+        if (newCount <= 0) {
+            throw new IllegalArgumentException("Thread count must be > 0");
+        }
+        if (newMaxCount < newCount) {
+            throw new IllegalArgumentException("Max thread count must be >= thread count");
+        }
+
+        int delta = newMaxCount - getMaxThreadCount();
+        count = newCount;
+        maxCount = newMaxCount;
+        if (!initialized || isShutdown) {
+            return;
+        }
+
+        getLog().info("Resizing thread pool to " + newCount + " threads, growing to at most "
+                + newMaxCount + " threads.");
+        if (delta > 0) {
+            availableThreads.release(delta);
+        } else if (delta < 0) {
+            availableThreads.reducePermits(-delta);
+        }
+
+        while (liveWorkerCount.get() < newCount) {
+            startIdleWorker(newWorkerThread(null));
+        }
+
+        // let idle workers beyond the new thread count see they may retire
+        for (IdleWorker idle = idleWorkers.get(); idle != null; idle = idle.next) {
+            LockSupport.unpark(idle.worker);
+        }
     }
 
     /**
@@ -324,43 +492,36 @@ public class SimpleThreadPool implements ThreadPool {
      */
     public void shutdown(boolean waitForJobsToComplete) {
 
-        synchronized (nextRunnableLock) {
-            getLog().debug("Shutting down threadpool...");
-
-            isShutdown = true;
+        getLog().debug("Shutting down threadpool...");
 
-            if(workers == null) // case where the pool wasn't even initialize()ed
-                return;
-
-            // signal each worker thread to shut down
-            Iterator<WorkerThread> workerThreads = workers.iterator();
-            while(workerThreads.hasNext()) {
-                WorkerThread wt = workerThreads.next();
-                wt.shutdown();
-                availWorkers.remove(wt);
+        synchronized (this) {
+            if (!isShutdown) {
+                isShutdown = true;
+                // release anyone blocked for an available thread, they'll
+                // find the pool shut down
+                availableThreads.release(Integer.MAX_VALUE / 2);
             }
+        }
 
-            // Give waiting (wait(1000)) worker threads a chance to shut down.
-            // Active worker threads will shut down after finishing their
-            // current job.
-            nextRunnableLock.notifyAll();
+        // signal each worker thread to shut down, idle worker threads do so
+        // right away, active worker threads after finishing their current job
+        for (WorkerThread wt : workers) {
+            wt.shutdown();
+        }
 
-            if (waitForJobsToComplete == true) {
+        if (waitForJobsToComplete == true) {
 
-                boolean interrupted = false;
-                try {
-                    // wait for hand-off in runInThread to complete...
-                    while(handoffPending) {
-                        try {
-                            nextRunnableLock.wait(100);
-                        } catch(InterruptedException _) {
-                            interrupted = true;
+            boolean interrupted = false;
+            try {
+                // Wait until all worker threads are shut down
+                boolean waiting = true;
+                while (waiting) {
+                    waiting = false;
+                    for (WorkerThread wt : workers) {
+                        if (wt == Thread.currentThread()) {
+                            continue;
                         }
-                    }
-
-                    // Wait until all worker threads are shut down
-                    while (busyWorkers.size() > 0) {
-                        WorkerThread wt = (WorkerThread) busyWorkers.getFirst();
+                        waiting = true;
                         try {
                             getLog().debug(
                                     "Waiting for thread " + wt.getName()
@@ -368,32 +529,21 @@ public class SimpleThreadPool implements ThreadPool {
 
                             // note: with waiting infinite time the
                             // application may appear to 'hang'.
-                            nextRunnableLock.wait(2000);
-                        } catch (InterruptedException _) {
-                            interrupted = true;
-                        }
-                    }
-
-                    workerThreads = workers.iterator();
-                    while(workerThreads.hasNext()) {
-                        WorkerThread wt = (WorkerThread) workerThreads.next();
-                        try {
                             wt.join();
-                            workerThreads.remove();
                         } catch (InterruptedException _) {
                             interrupted = true;
                         }
                     }
-                } finally {
-                    if (interrupted) {
-                        Thread.currentThread().interrupt();
-                    }
                 }
-
-                getLog().debug("No executing jobs remaining, all threads stopped.");
+            } finally {
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
             }
-            getLog().debug("Shutdown of threadpool complete.");
+
+            getLog().debug("No executing jobs remaining, all threads stopped.");
         }
+        getLog().debug("Shutdown of threadpool complete.");
     }
 
     /**
@@ -412,66 +562,120 @@ public class SimpleThreadPool implements ThreadPool {
             return false;
         }
 
-        synchronized (nextRunnableLock) {
-
-            handoffPending = true;
-
-            // Wait until a worker thread is available
-            while ((availWorkers.size() < 1) && !isShutdown) {
-                try {
-                    nextRunnableLock.wait(500);
-                } catch (InterruptedException ignore) {
-                }
-            }
+        // Wait until a worker thread is available
+        availableThreads.acquireUninterruptibly();
 
-            if (!isShutdown) {
-                WorkerThread wt = (WorkerThread)availWorkers.removeFirst();
-                busyWorkers.add(wt);
+        if (!isShutdown) {
+            WorkerThread wt = popIdleWorker();
+            if (wt != null) {
                 wt.run(runnable);
             } else {
-                // If the thread pool is going down, execute the Runnable
-                // within a new additional worker thread (no thread from the pool).
-                WorkerThread wt = new WorkerThread(this, threadGroup,
-                        "WorkerThread-LastJob", prio, isMakeThreadsDaemons(), runnable);
-                busyWorkers.add(wt);
-                workers.add(wt);
-                wt.start();
+                // the available thread is one the pool may still start
+                startBusyWorker(runnable);
             }
-            nextRunnableLock.notifyAll();
-            handoffPending = false;
+        } else {
+            // If the thread pool is going down, execute the Runnable
+            // within a new additional worker thread (no thread from the pool).
+            WorkerThread wt = new WorkerThread(this, threadGroup,
+                    "WorkerThread-LastJob", prio, isMakeThreadsDaemons(), runnable);
+            workers.add(wt);
+            wt.start();
         }
 
         return true;
     }
 
     public int blockForAvailableThreads() {
-        synchronized(nextRunnableLock) {
-
-            while((availWorkers.size() < 1 || handoffPending) && !isShutdown) {
-                try {
-                    nextRunnableLock.wait(500);
-                } catch (InterruptedException ignore) {
-                }
-            }
+        if (isShutdown) {
+            return 0;
+        }
 
-            return availWorkers.size();
+        availableThreads.acquireUninterruptibly();
+        try {
+            return isShutdown ? 0 : availableThreads.availablePermits() + 1;
+        } finally {
+            availableThreads.release();
         }
     }
 
+    /**
+     * <p>
+     * Return the worker thread to the idle workers, unless the pool is
+     * shutting down.
+     * </p>
+     */
     protected void makeAvailable(WorkerThread wt) {
-        synchronized(nextRunnableLock) {
-            if(!isShutdown) {
-                availWorkers.add(wt);
-            }
-            busyWorkers.remove(wt);
-            nextRunnableLock.notifyAll();
-        }
+        wt.available = returnToIdleWorkers(wt);
     }
 
+    /**
+     * <p>
+     * Called when a worker thread that will not wait for more work is done
+     * with its runnable.  The pool keeps no list of busy workers any more,
+     * so there is nothing to clear.
+     * </p>
+     */
     protected void clearFromBusyWorkersList(WorkerThread wt) {
-        synchronized(nextRunnableLock) {
-            busyWorkers.remove(wt);
-            nextRunnableLock.notifyAll();
+    }
+
+    // returns whether the worker thread should wait for more work
+    private boolean returnToIdleWorkers(WorkerThread wt) {
+        if (isShutdown) {
+            return false;
+        }
+        wt.idle();
+        pushIdleWorker(wt);
+        availableThreads.release();
+        return true;
+    }
+
+    /**
+     * Retire the idle worker thread if the pool has more than the thread
+     * count of them, or is shutting down.
+     */
+    boolean retireIdleWorker(WorkerThread wt, boolean force) {
+        if (force) {
+            liveWorkerCount.decrementAndGet();
+        } else {
+            int live;
+            do {
+                live = liveWorkerCount.get();
+                if (live <= count) {
+                    return false;
+                }
+            } while (!liveWorkerCount.compareAndSet(live, live - 1));
+        }
+
+        if (wt.retireIfIdle()) {
+            return true;
+        }
+
+        // a runnable is on its way to the worker
+        liveWorkerCount.incrementAndGet();
+        return false;
+    }
+
+    void workerExited(WorkerThread wt) {
+        workers.remove(wt);
+    }
+
+    private void pushIdleWorker(WorkerThread wt) {
+        IdleWorker idle = new IdleWorker(wt);
+        do {
+            idle.next = idleWorkers.get();
+        } while (!idleWorkers.compareAndSet(idle.next, idle));
+    }
+
+    private WorkerThread popIdleWorker() {
+        while (true) {
+            IdleWorker idle = idleWorkers.get();
+            if (idle == null) {
+                return null;
+            }
+            // workers that retired meanwhile are skipped and dropped
+            if (idleWorkers.compareAndSet(idle, idle.next) && idle.worker.claim()) {
+                return idle.worker;
+            }
         }
     }
 
@@ -490,17 +694,24 @@ public class SimpleThreadPool implements ThreadPool {
      */
     class WorkerThread extends Thread {
 
-        private final Object lock = new Object();
+        private static final int IDLE = 0;
+        private static final int BUSY = 1;
+        private static final int RETIRED = 2;
+
+        private final AtomicInteger state;
 
         // A flag that signals the WorkerThread to terminate.
         private AtomicBoolean run = new AtomicBoolean(true);
 
         private SimpleThreadPool tp;
 
-        private Runnable runnable = null;
+        private volatile Runnable runnable = null;
         
         private boolean runOnce = false;
 
+        // whether makeAvailable() returned this worker to the idle workers
+        private boolean available = false;
+
         /**
          * <p>
          * Create a worker thread and start it. Waiting for the next Runnable,
@@ -511,7 +722,7 @@ public class SimpleThreadPool implements ThreadPool {
         WorkerThread(SimpleThreadPool tp, ThreadGroup threadGroup, String name,
                      int prio, boolean isDaemon) {
 
-            this(tp, threadGroup, name, prio, isDaemon, null);
+            this(tp, threadGroup, name, prio, isDaemon, null, false);
         }
 
         /**
@@ -523,11 +734,22 @@ public class SimpleThreadPool implements ThreadPool {
         WorkerThread(SimpleThreadPool tp, ThreadGroup threadGroup, String name,
                      int prio, boolean isDaemon, Runnable runnable) {
 
+            this(tp, threadGroup, name, prio, isDaemon, runnable, true);
+        }
+
+        /**
+         * <p>
+         * Create a worker thread that executes the runnable, if any, first.
+         * </p>
+         */
+        WorkerThread(SimpleThreadPool tp, ThreadGroup threadGroup, String name,
+                     int prio, boolean isDaemon, Runnable runnable, boolean runOnce) {
+
             super(threadGroup, name);
             this.tp = tp;
             this.runnable = runnable;
-            if(runnable != null)
-                runOnce = true;
+            this.runOnce = runOnce && runnable != null;
+            this.state = new AtomicInteger(runnable == null ? IDLE : BUSY);
             setPriority(prio);
             setDaemon(isDaemon);
         }
@@ -539,17 +761,32 @@ public class SimpleThreadPool implements ThreadPool {
          */
         void shutdown() {
             run.set(false);
+            LockSupport.unpark(this);
         }
 
-        public void run(Runnable newRunnable) {
-            synchronized(lock) {
-                if(runnable != null) {
-                    throw new IllegalStateException("Already running a Runnable!");
-                }
+        boolean claim() {
+            return state.compareAndSet(IDLE, BUSY);
+        }
+
+        boolean retireIfIdle() {
+            return state.compareAndSet(IDLE, RETIRED);
+        }
 
-                runnable = newRunnable;
-                lock.notifyAll();
+        void idle() {
+            state.set(IDLE);
+        }
+
+        void retire() {
+            state.set(RETIRED);
+        }
+
+        public void run(Runnable newRunnable) {
+            if(runnable != null) {
+                throw new IllegalStateException("Already running a Runnable!");
             }
+
+            runnable = newRunnable;
+            LockSupport.unpark(this);
         }
 
         /**
@@ -559,52 +796,43 @@ public class SimpleThreadPool implements ThreadPool {
          */
         @Override
         public void run() {
-            boolean ran = false;
-            
-            while (run.get()) {
-                try {
-                    synchronized(lock) {
-                        while (runnable == null && run.get()) {
-                            lock.wait(500);
-                        }
-
-                        if (runnable != null) {
-                            ran = true;
-                            runnable.run();
-                        }
-                    }
-                } catch (InterruptedException unblock) {
-                    // do nothing (loop will terminate if shutdown() was called
-                    try {
-                        getLog().error("Worker thread was interrupt()'ed.", unblock);
-                    } catch(Exception e) {
-                        // ignore to help with a tomcat glitch
-                    }
-                } catch (Throwable exceptionInRunnable) {
+            try {
+                Runnable target = runnable;
+                while (target != null || (target = waitForRunnable()) != null) {
                     try {
-                        getLog().error("Error while executing the Runnable: ",
-                            exceptionInRunnable);
-                    } catch(Exception e) {
-                        // ignore to help with a tomcat glitch
-                    }
-                } finally {
-                    synchronized(lock) {
+                        target.run();
+                    } catch (Throwable exceptionInRunnable) {
+                        try {
+                            getLog().error("Error while executing the Runnable: ",
+                                exceptionInRunnable);
+                        } catch(Exception e) {
+                            // ignore to help with a tomcat glitch
+                        }
+                    } finally {
+                        target = null;
                         runnable = null;
-                    }
-                    // repair the thread in case the runnable mucked it up...
-                    if(getPriority() != tp.getThreadPriority()) {
-                        setPriority(tp.getThreadPriority());
+                        // repair the thread in case the runnable mucked it up...
+                        if(getPriority() != tp.getThreadPriority()) {
+                            setPriority(tp.getThreadPriority());
+                        }
                     }
 
-                    if (runOnce) {
-                           run.set(false);
+                    if (runOnce || !run.get()) {
                         clearFromBusyWorkersList(this);
-                    } else if(ran) {
-                        ran = false;
-                        makeAvailable(this);
+                        break;
                     }
-
+                    makeAvailable(this);
+                    if (!available) {
+                        break;
+                    }
+                }
+            } finally {
+                if (!runOnce && state.get() != RETIRED) {
+                    // told to shut down while busy
+                    liveWorkerCount.decrementAndGet();
+                    retire();
                 }
+                workerExited(this);
             }
 
             //if (log.isDebugEnabled())
@@ -614,5 +842,82 @@ public class SimpleThreadPool implements ThreadPool {
                 // ignore to help with a tomcat glitch
             }
         }
+
+        /**
+         * Park until a runnable is handed over, or return <code>null</code>
+         * once the worker retired.
+         */
+        private Runnable waitForRunnable() {
+            long idleSince = System.nanoTime();
+            while (true) {
+                Runnable target = runnable;
+                if (target != null) {
+                    return target;
+                }
+
+                if (Thread.interrupted()) {
+                    try {
+                        getLog().error("Worker thread was interrupt()'ed.");
+                    } catch(Exception e) {
+                        // ignore to help with a tomcat glitch
+                    }
+                }
+
+                if (state.get() != IDLE) {
+                    // claimed, the runnable is on its way
+                    LockSupport.park(this);
+                    continue;
+                }
+
+                boolean stopping = !run.get() || isShutdown;
+                long keepAliveNanos = TimeUnit.MILLISECONDS.toNanos(getThreadKeepAliveTime());
+                long remaining = keepAliveNanos - (System.nanoTime() - idleSince);
+                if (stopping || remaining <= 0) {
+                    if (retireIdleWorker(this, stopping)) {
+                        return null;
+                    }
+                    if (state.get() != IDLE) {
+                        continue;
+                    }
+                }
+
+                if (liveWorkerCount.get() > getThreadCount()) {
+                    LockSupport.parkNanos(this, remaining > 0 ? remaining : keepAliveNanos);
+                } else {
+                    LockSupport.park(this);
+                }
+            }
+        }
+    }
+
+    /**
+     * A node of the stack of idle workers.
+     */
+    private static final class IdleWorker {
+
+        private final WorkerThread worker;
+
+        private IdleWorker next;
+
+        IdleWorker(WorkerThread worker) {
+            this.worker = worker;
+        }
+    }
+
+    /**
+     * A semaphore whose permits can also be taken away while held.
+     */
+    private static final class AvailableThreads extends Semaphore {
+
+        private static final long serialVersionUID = 1L;
+
+        AvailableThreads() {
+            super(0);
+        }
+
+        @Override
+        protected void reducePermits(int reduction) {
+            super.reducePermits(reduction);
+        }
     }
 }
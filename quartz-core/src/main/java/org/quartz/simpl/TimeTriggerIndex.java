@@ -0,0 +1,55 @@
+/*
+ * Copyright 2001-2009 Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.quartz.simpl;
+
+/**
+ * <p>
+ * The time-ordered index of waiting triggers used by <code>{@link RAMJobStore}</code>
+ * to find the next trigger(s) to fire.
+ * </p>
+ *
+ * <p>
+ * Implementations are not thread-safe; the owning <code>JobStore</code>
+ * guards all access with its own lock.  A wrapper's next fire time must not
+ * be changed while the wrapper is held by the index - it must be removed,
+ * updated and then re-added.
+ * </p>
+ *
+ * @see TimingWheelTriggerIndex
+ */
+public interface TimeTriggerIndex extends Iterable<TriggerWrapper> {
+
+    /**
+     * Add the given wrapper, returning <code>false</code> if it was already present.
+     */
+    boolean add(TriggerWrapper tw);
+
+    /**
+     * Remove the given wrapper, returning <code>true</code> if it was present.
+     */
+    boolean remove(TriggerWrapper tw);
+
+    /**
+     * The wrapper with the earliest next fire time (ties broken by priority
+     * and then key, as by <code>{@link TriggerWrapperComparator}</code>),
+     * or <code>null</code> if the index is empty.
+     */
+    TriggerWrapper first();
+
+    int size();
+}
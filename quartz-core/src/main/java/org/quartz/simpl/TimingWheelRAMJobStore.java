@@ -0,0 +1,87 @@
+/*
+ * Copyright 2001-2009 Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.quartz.simpl;
+
+/**
+ * <p>
+ * A <code>{@link RAMJobStore}</code> that keeps its waiting triggers in a
+ * hierarchical timing wheel rather than a <code>TreeSet</code>, giving
+ * amortized O(1) insertion and expiry of triggers.
+ * </p>
+ *
+ * <p>
+ * This pays off for stores holding very large numbers of triggers (millions
+ * of short-interval <code>SimpleTrigger</code>s, for example), where the
+ * O(log n) cost of each <code>TreeSet</code> operation inside
+ * <code>acquireNextTriggers</code> dominates the scheduler thread.  The order
+ * in which triggers are acquired - fire time, then priority - is the same as
+ * with <code>RAMJobStore</code>.
+ * </p>
+ *
+ * <p>
+ * Configure it with <code>org.quartz.jobStore.class = org.quartz.simpl.TimingWheelRAMJobStore</code>,
+ * optionally setting <code>org.quartz.jobStore.tickMillis</code> (the
+ * granularity of the lowest wheel, 1 millisecond by default).
+ * </p>
+ *
+ * @see RAMJobStore
+ */
+public class TimingWheelRAMJobStore extends RAMJobStore {
+
+    public static final long DEFAULT_TICK_MILLIS = 1L;
+
+    private long tickMillis = DEFAULT_TICK_MILLIS;
+
+    /**
+     * <p>
+     * Create a new <code>TimingWheelRAMJobStore</code>.
+     * </p>
+     */
+    public TimingWheelRAMJobStore() {
+        timeTriggers = newTimeTriggerIndex();
+    }
+
+    public long getTickMillis() {
+        synchronized (lock) {
+            return tickMillis;
+        }
+    }
+
+    /**
+     * The number of milliseconds covered by each slot of the lowest wheel.
+     * Coarser ticks mean fewer slot advances between widely spaced triggers,
+     * at the cost of larger exactly-ordered batches.  May only be changed
+     * while the store holds no triggers.
+     *
+     * @param tickMillis the tick length, at least 1 millisecond
+     */
+    public void setTickMillis(long tickMillis) {
+        synchronized (lock) {
+            if (timeTriggers.size() > 0) {
+                throw new IllegalStateException("The tick length cannot be changed once triggers have been stored.");
+            }
+            timeTriggers = new TimingWheelTriggerIndex(tickMillis);
+            this.tickMillis = tickMillis;
+        }
+    }
+
+    @Override
+    protected TimeTriggerIndex newTimeTriggerIndex() {
+        return new TimingWheelTriggerIndex(tickMillis);
+    }
+}
@@ -0,0 +1,278 @@
+/*
+ * Copyright 2001-2009 Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.quartz.simpl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * <p>
+ * A hierarchical timing wheel implementation of <code>{@link TimeTriggerIndex}</code>.
+ * </p>
+ *
+ * <p>
+ * Time is divided into ticks of <code>tickMillis</code>.  Everything that
+ * fires before the current <i>horizon</i> tick lives in a small, exactly
+ * ordered "ready" set; everything at or after the horizon is hashed into
+ * one of <code>LEVELS</code> wheels of <code>WHEEL_SIZE</code> unordered
+ * slots, each level's slots spanning <code>WHEEL_SIZE</code> times as many
+ * ticks as the level below it.  Triggers too far out for the top wheel go
+ * into an ordered overflow set.
+ * </p>
+ *
+ * <p>
+ * Adding or removing a future trigger is O(1).  When the ready set runs dry
+ * the horizon advances to the next occupied slot, whose triggers are either
+ * moved into the ready set (level 0) or cascaded down a level.  Each trigger
+ * cascades at most <code>LEVELS</code> times, so expiry is amortized O(1),
+ * while <code>first()</code> still returns exactly what a
+ * <code>TreeSet</code> ordered by <code>{@link TriggerWrapperComparator}</code>
+ * would - fire time, then priority, then key.
+ * </p>
+ *
+ * @see TimingWheelRAMJobStore
+ */
+class TimingWheelTriggerIndex implements TimeTriggerIndex {
+
+    static final int BITS = 8;
+
+    static final int WHEEL_SIZE = 1 << BITS;
+
+    static final int LEVELS = 4;
+
+    private static final int MASK = WHEEL_SIZE - 1;
+
+    private static final int TOP_SHIFT = BITS * LEVELS;
+
+    private static final Slot READY = new Slot(-1);
+
+    private static final Slot OVERFLOW = new Slot(-2);
+
+    private final long tickMillis;
+
+    private final TreeSet<TriggerWrapper> ready = new TreeSet<TriggerWrapper>(new TriggerWrapperComparator());
+
+    private final TreeSet<TriggerWrapper> overflow = new TreeSet<TriggerWrapper>(new TriggerWrapperComparator());
+
+    private final Slot[][] wheels = new Slot[LEVELS][WHEEL_SIZE];
+
+    private final int[] levelCounts = new int[LEVELS];
+
+    private int wheelCount;
+
+    /** every tick before this one is in the ready set */
+    private long horizon = -1;
+
+    TimingWheelTriggerIndex(long tickMillis) {
+        if (tickMillis < 1) {
+            throw new IllegalArgumentException("Tick must be at least 1 millisecond.");
+        }
+        this.tickMillis = tickMillis;
+        for (int level = 0; level < LEVELS; level++) {
+            for (int i = 0; i < WHEEL_SIZE; i++) {
+                wheels[level][i] = new Slot(level);
+            }
+        }
+    }
+
+    long getTickMillis() {
+        return tickMillis;
+    }
+
+    public boolean add(TriggerWrapper tw) {
+        if (tw.timeSlot != null) {
+            return false;
+        }
+        if (horizon < 0) {
+            // first use - start the wheels at the current time
+            horizon = System.currentTimeMillis() / tickMillis;
+        }
+        place(tw);
+        return true;
+    }
+
+    public boolean remove(TriggerWrapper tw) {
+        if (tw == null || tw.timeSlot == null) {
+            return false;
+        }
+
+        Slot slot = tw.timeSlot;
+        if (slot == READY) {
+            ready.remove(tw);
+        } else if (slot == OVERFLOW) {
+            overflow.remove(tw);
+        } else {
+            slot.entries.remove(tw);
+            levelCounts[slot.level]--;
+            wheelCount--;
+        }
+        tw.timeSlot = null;
+        return true;
+    }
+
+    public TriggerWrapper first() {
+        if (ready.isEmpty()) {
+            advance();
+        }
+        return ready.isEmpty() ? null : ready.first();
+    }
+
+    public int size() {
+        return ready.size() + wheelCount + overflow.size();
+    }
+
+    /**
+     * Iterates over a sorted snapshot of the index; intended for diagnostics only.
+     */
+    public Iterator<TriggerWrapper> iterator() {
+        List<TriggerWrapper> all = new ArrayList<TriggerWrapper>(size());
+        all.addAll(ready);
+        for (Slot[] wheel : wheels) {
+            for (Slot slot : wheel) {
+                all.addAll(slot.entries);
+            }
+        }
+        all.addAll(overflow);
+        Collections.sort(all, new TriggerWrapperComparator());
+        return Collections.unmodifiableList(all).iterator();
+    }
+
+    private long tickOf(TriggerWrapper tw) {
+        long time = tw.trigger.getNextFireTime() == null ? 0 : tw.trigger.getNextFireTime().getTime();
+        return time < 0 ? 0 : time / tickMillis;
+    }
+
+    private void place(TriggerWrapper tw) {
+        long tick = tickOf(tw);
+
+        if (tick < horizon) {
+            ready.add(tw);
+            tw.timeSlot = READY;
+            return;
+        }
+
+        // lowest level whose current rotation (relative to the horizon) contains the tick
+        for (int level = 0; level < LEVELS; level++) {
+            int shift = BITS * level;
+            if ((tick >>> (shift + BITS)) == (horizon >>> (shift + BITS))) {
+                Slot slot = wheels[level][(int) ((tick >>> shift) & MASK)];
+                slot.entries.add(tw);
+                tw.timeSlot = slot;
+                levelCounts[level]++;
+                wheelCount++;
+                return;
+            }
+        }
+
+        overflow.add(tw);
+        tw.timeSlot = OVERFLOW;
+    }
+
+    /**
+     * Move the horizon forward until the ready set holds the earliest
+     * trigger(s), or the index is found to be empty.
+     */
+    private void advance() {
+        while (ready.isEmpty()) {
+            if (wheelCount == 0) {
+                if (overflow.isEmpty()) {
+                    return;
+                }
+                // nothing in the wheels, so jump straight to the earliest far-out trigger
+                moveHorizon(Math.max(horizon, tickOf(overflow.first())));
+                continue;
+            }
+
+            int level = 0;
+            while (levelCounts[level] == 0) {
+                level++;
+            }
+
+            int shift = BITS * level;
+            long position = horizon >>> shift;
+            int index = (int) (position & MASK);
+            while (wheels[level][index].entries.isEmpty()) {
+                index++;
+            }
+            Slot slot = wheels[level][index];
+            long slotStart = ((position & ~((long) MASK)) | index) << shift;
+
+            List<TriggerWrapper> moving = new ArrayList<TriggerWrapper>(slot.entries);
+            slot.entries.clear();
+            levelCounts[level] -= moving.size();
+            wheelCount -= moving.size();
+
+            if (level == 0) {
+                moveHorizon(slotStart + 1);
+            } else {
+                moveHorizon(Math.max(horizon, slotStart));
+            }
+
+            for (TriggerWrapper tw : moving) {
+                place(tw);
+            }
+        }
+    }
+
+    private void moveHorizon(long newHorizon) {
+        long oldHorizon = horizon;
+        horizon = newHorizon;
+
+        // the triggers of any higher-level slot the horizon moved into, e.g.
+        // by rolling over into the next rotation of a lower level, now belong
+        // further down
+        for (int level = LEVELS - 1; level > 0; level--) {
+            int shift = BITS * level;
+            if ((oldHorizon >>> shift) != (newHorizon >>> shift)) {
+                Slot slot = wheels[level][(int) ((newHorizon >>> shift) & MASK)];
+                if (!slot.entries.isEmpty()) {
+                    List<TriggerWrapper> moving = new ArrayList<TriggerWrapper>(slot.entries);
+                    slot.entries.clear();
+                    levelCounts[level] -= moving.size();
+                    wheelCount -= moving.size();
+                    for (TriggerWrapper tw : moving) {
+                        place(tw);
+                    }
+                }
+            }
+        }
+
+        // pull in any far-out triggers that the top wheel now covers
+        long topEnd = ((horizon >>> TOP_SHIFT) + 1) << TOP_SHIFT;
+        while (!overflow.isEmpty() && tickOf(overflow.first()) < topEnd) {
+            TriggerWrapper tw = overflow.pollFirst();
+            tw.timeSlot = null;
+            place(tw);
+        }
+    }
+
+    static final class Slot {
+
+        final int level;
+
+        final HashSet<TriggerWrapper> entries = new HashSet<TriggerWrapper>();
+
+        Slot(int level) {
+            this.level = level;
+        }
+    }
+}
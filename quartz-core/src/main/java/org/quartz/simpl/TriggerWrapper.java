@@ -0,0 +1,155 @@
+/*
+ * Copyright 2001-2009 Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.quartz.simpl;
+
+import org.quartz.JobKey;
+import org.quartz.TriggerKey;
+import org.quartz.Trigger.TriggerState;
+import org.quartz.spi.OperableTrigger;
+
+class TriggerWrapper {
+
+    public final TriggerKey key;
+
+    public final JobKey jobKey;
+
+    public final OperableTrigger trigger;
+
+    public volatile int state = STATE_WAITING;
+
+    /** where this wrapper currently sits in a {@link TimingWheelTriggerIndex}, if anywhere */
+    TimingWheelTriggerIndex.Slot timeSlot;
+
+    public static final int STATE_WAITING = 0;
+
+    public static final int STATE_ACQUIRED = 1;
+
+    @SuppressWarnings("UnusedDeclaration")
+    public static final int STATE_EXECUTING = 2;
+
+    public static final int STATE_COMPLETE = 3;
+
+    public static final int STATE_PAUSED = 4;
+
+    public static final int STATE_BLOCKED = 5;
+
+    public static final int STATE_PAUSED_BLOCKED = 6;
+
+    public static final int STATE_ERROR = 7;
+    
+    TriggerWrapper(OperableTrigger trigger) {
+        if(trigger == null)
+            throw new IllegalArgumentException("Trigger cannot be null!");
+        this.trigger = trigger;
+        key = trigger.getKey();
+        this.jobKey = trigger.getJobKey();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj instanceof TriggerWrapper) {
+            TriggerWrapper tw = (TriggerWrapper) obj;
+            if (tw.key.equals(this.key)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        return key.hashCode(); 
+    }
+
+    
+    public OperableTrigger getTrigger() {
+        return this.trigger;
+    }
+
+    /*
+     * State transitions shared by the RAM job stores.  The caller holds
+     * whatever lock guards this wrapper, and keeps the time index in step.
+     */
+
+    TriggerState getTriggerState() {
+        switch (state) {
+            case STATE_COMPLETE:
+                return TriggerState.COMPLETE;
+            case STATE_PAUSED:
+            case STATE_PAUSED_BLOCKED:
+                return TriggerState.PAUSED;
+            case STATE_BLOCKED:
+                return TriggerState.BLOCKED;
+            case STATE_ERROR:
+                return TriggerState.ERROR;
+            default:
+                return TriggerState.NORMAL;
+        }
+    }
+
+    /**
+     * Returns <code>false</code> if the trigger is complete, and so cannot be
+     * paused.
+     */
+    boolean pause() {
+        if (state == STATE_COMPLETE) {
+            return false;
+        }
+        state = (state == STATE_BLOCKED) ? STATE_PAUSED_BLOCKED : STATE_PAUSED;
+        return true;
+    }
+
+    /**
+     * Returns <code>false</code> if the trigger was not paused.
+     */
+    boolean resume(boolean jobBlocked) {
+        if (state != STATE_PAUSED && state != STATE_PAUSED_BLOCKED) {
+            return false;
+        }
+        state = jobBlocked ? STATE_BLOCKED : STATE_WAITING;
+        return true;
+    }
+
+    /**
+     * The trigger's job, which disallows concurrent execution, has started.
+     * (acquired means acquired by another scheduler thread)
+     */
+    void block() {
+        if (state == STATE_WAITING || state == STATE_ACQUIRED) {
+            state = STATE_BLOCKED;
+        } else if (state == STATE_PAUSED) {
+            state = STATE_PAUSED_BLOCKED;
+        }
+    }
+
+    /**
+     * The trigger's job has completed.  Returns <code>true</code> if the
+     * trigger is now waiting, and belongs back in the time index.
+     */
+    boolean unblock() {
+        if (state == STATE_BLOCKED) {
+            state = STATE_WAITING;
+            return true;
+        }
+        if (state == STATE_PAUSED_BLOCKED) {
+            state = STATE_PAUSED;
+        }
+        return false;
+    }
+}
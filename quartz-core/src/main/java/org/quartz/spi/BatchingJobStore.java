@@ -0,0 +1,49 @@
+/*
+ * Copyright 2001-2009 Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.quartz.spi;
+
+import java.util.List;
+
+/**
+ * <p>
+ * A <code>{@link JobStore}</code> that can complete the jobs of several
+ * fired triggers at once, e.g. in a single transaction.
+ * </p>
+ *
+ * <p>
+ * When <code>org.quartz.scheduler.batchTriggerCompletionMaxCount</code> is
+ * more than 1, the scheduler queues the completions of the jobs it runs and
+ * hands them over a batch at a time, once the batch is full or the oldest
+ * completion has waited
+ * <code>org.quartz.scheduler.batchTriggerCompletionMaxWait</code> millis.
+ * With other <code>JobStore</code>s it then calls
+ * <code>{@link JobStore#triggeredJobComplete(OperableTrigger, org.quartz.JobDetail, org.quartz.Trigger.CompletedExecutionInstruction)}</code>
+ * for each of the batch.
+ * </p>
+ *
+ * @see org.quartz.core.QuartzSchedulerResources#getMaxCompletionBatchSize()
+ */
+public interface BatchingJobStore extends JobStore {
+
+    /**
+     * Inform the <code>JobStore</code> that the scheduler has completed the
+     * firing of each of the given triggers, as
+     * <code>{@link JobStore#triggeredJobComplete(OperableTrigger, org.quartz.JobDetail, org.quartz.Trigger.CompletedExecutionInstruction)}</code>
+     * does for one.
+     */
+    void triggeredJobsComplete(List<TriggerCompletedBundle> completions);
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2001-2009 Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.quartz.spi;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * <p>
+ * The interface to be implemented by classes that turn the
+ * <code>{@link org.quartz.JobDataMap}</code>s and
+ * <code>{@link org.quartz.Calendar}</code>s of a persistent
+ * <code>{@link JobStore}</code> into bytes, and back.
+ * </p>
+ *
+ * <p>
+ * Implementations must be able to read what the store wrote before they
+ * were configured, which for the JDBC job stores is standard Java
+ * serialization. They must be thread safe.
+ * </p>
+ *
+ * @see org.quartz.impl.jdbcjobstore.JobStoreSupport#setJobDataSerializer(JobDataSerializer)
+ * @see org.quartz.simpl.CompactJobDataSerializer
+ */
+public interface JobDataSerializer {
+
+    /**
+     * Serializes the given object.
+     *
+     * @param obj the object to serialize, never null
+     * @throws java.io.NotSerializableException if the object, or an object
+     * it refers to, can not be serialized
+     */
+    byte[] serialize(Object obj) throws IOException;
+
+    /**
+     * Reads an object from the given stream, which holds bytes written by
+     * <code>{@link #serialize(Object)}</code> or by standard Java
+     * serialization.
+     *
+     * @return the object read, or null if the stream is empty
+     */
+    Object deserialize(InputStream in) throws IOException, ClassNotFoundException;
+}
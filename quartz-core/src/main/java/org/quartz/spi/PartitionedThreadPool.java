@@ -0,0 +1,63 @@
+/*
+ * Copyright 2001-2009 Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.quartz.spi;
+
+/**
+ * <p>
+ * A <code>{@link ThreadPool}</code> whose threads are split into partitions,
+ * each running the jobs of its own job or trigger groups, so that the jobs
+ * of one partition can't take up the threads of another.
+ * </p>
+ *
+ * <p>
+ * <code>{@link #blockForAvailableThreads()}</code> reports the room of all
+ * partitions together.  Of each batch of triggers it acquires, the
+ * <code>QuartzSchedulerThread</code> keeps only as many for each partition
+ * as <code>{@link #getAvailableThreads(int)}</code> reports, and releases the
+ * others to be acquired again once the partition has room.
+ * </p>
+ *
+ * @see org.quartz.simpl.BulkheadThreadPool
+ */
+public interface PartitionedThreadPool extends ThreadPool {
+
+    /**
+     * Get the number of partitions.
+     */
+    int getPartitionCount();
+
+    /**
+     * Get the partition that runs the job fired by the given trigger, between
+     * 0 and <code>getPartitionCount() - 1</code>.
+     */
+    int getPartition(OperableTrigger trigger);
+
+    /**
+     * Get the number of <code>Runnable</code>s the given partition takes
+     * right now without <code>runInThread(Runnable)</code> blocking.
+     */
+    int getAvailableThreads(int partition);
+
+    /**
+     * Have the given listener run, once, as soon as the given partition has
+     * room for another <code>Runnable</code>; right away if it has room now.
+     * The listener runs on the thread that made the room, so it should
+     * return quickly.
+     */
+    void notifyWhenAvailable(int partition, Runnable listener);
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2001-2009 Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.quartz.spi;
+
+import java.util.List;
+
+import org.quartz.JobPersistenceException;
+
+/**
+ * <p>
+ * A <code>{@link JobStore}</code> that can serve several scheduler threads at
+ * once, each acquiring only the triggers of its own shard.
+ * </p>
+ *
+ * <p>
+ * Triggers are partitioned by group: a trigger belongs to shard
+ * <code>{@link org.quartz.utils.TriggerShards#shardOf(String, int)}</code>
+ * of its group name, so that all the triggers of a group are acquired by the
+ * same scheduler thread.  Everything other than acquisition (firing,
+ * releasing, completing) is shared by all shards and goes through the usual
+ * <code>JobStore</code> methods.
+ * </p>
+ *
+ * @see org.quartz.core.QuartzSchedulerResources#getSchedulerThreadCount()
+ */
+public interface ShardedJobStore extends JobStore {
+
+    /**
+     * Get a handle to the next triggers of the given shard to be fired, and
+     * mark them as 'reserved' by the calling scheduler thread.  The
+     * parameters have the same meaning as with
+     * <code>{@link JobStore#acquireNextTriggers(long, int, long)}</code>.
+     *
+     * @param shard the shard to acquire triggers from, between 0 and
+     * <code>shardCount - 1</code>
+     * @param shardCount the number of shards; the same for every call from
+     * a given scheduler
+     */
+    List<OperableTrigger> acquireNextTriggers(long noLaterThan, int maxCount, long timeWindow,
+            int shard, int shardCount) throws JobPersistenceException;
+}
@@ -140,7 +140,11 @@ public class DBConnectionManager {
 
     }
 
-    ConnectionProvider getConnectionProvider(String key) {
+    /**
+     * Get the provider of the DataSource with the given name, or null if
+     * there is none.
+     */
+    public ConnectionProvider getConnectionProvider(String key) {
         return providers.get(key);
     }
 }
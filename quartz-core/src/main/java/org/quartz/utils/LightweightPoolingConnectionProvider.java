@@ -0,0 +1,542 @@
+/*
+ * Copyright 2001-2009 Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.quartz.utils;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.quartz.SchedulerException;
+import org.quartz.utils.counter.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * A <code>ConnectionProvider</code> implementation that keeps its own small
+ * pool of connections, without helper threads, as an alternative to the
+ * C3P0 pool of <code>{@link PoolingConnectionProvider}</code>.
+ * </p>
+ *
+ * <p>
+ * Handing out an idle connection takes a permit from a
+ * <code>Semaphore</code> and polls a lock free queue, so it does not block
+ * unless all the connections are in use.  An idle connection is validated
+ * only when it has been idle longer than the idle validation period.
+ * Histograms of how long callers waited for a connection and how long they
+ * used it are kept, and exposed through the scheduler's MBean.
+ * </p>
+ *
+ * <p>
+ * It is selected by setting the {@link PoolingConnectionProvider#POOLING_PROVIDER}
+ * property of a data source to {@link #POOLING_PROVIDER_NAME}, and takes the
+ * same <code>org.quartz.dataSource.NAME.*</code> properties as
+ * <code>PoolingConnectionProvider</code>, plus {@link #DB_MAX_WAIT_MILLIS}.
+ * </p>
+ *
+ * @see DBConnectionManager
+ * @see ConnectionProvider
+ */
+public class LightweightPoolingConnectionProvider implements ConnectionProvider {
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Constants.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    /** The value of the {@link PoolingConnectionProvider#POOLING_PROVIDER} property selecting this pool. */
+    public static final String POOLING_PROVIDER_NAME = "lightweight";
+
+    /**
+     * The maximum number of milliseconds to wait for a connection when all
+     * of them are in use.  Default is 30000.
+     */
+    public static final String DB_MAX_WAIT_MILLIS = "maxWaitMillis";
+
+    /** Default maximum number of milliseconds to wait for a connection. */
+    public static final long DEFAULT_DB_MAX_WAIT_MILLIS = 30000L;
+
+    private static final String DB_DISCARD_IDLE_CONNECTIONS_SECONDS = "discardIdleConnectionsSeconds";
+
+    // the seconds given to Connection.isValid() when there is no validation query
+    private static final int VALIDATION_TIMEOUT_SECONDS = 5;
+
+    private static final Constructor<?> CONNECTION_PROXY_CONSTRUCTOR;
+
+    static {
+        try {
+            CONNECTION_PROXY_CONSTRUCTOR = Proxy.getProxyClass(
+                    LightweightPoolingConnectionProvider.class.getClassLoader(), Connection.class)
+                    .getConstructor(InvocationHandler.class);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Data members.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private final String dbURL;
+
+    private final Properties connectionProperties = new Properties();
+
+    private final int maxConnections;
+
+    private final String validationQuery;
+
+    private final long idleValidationNanos;
+
+    private final long maxIdleNanos;
+
+    private final long maxWaitMillis;
+
+    // one permit per connection that may be handed out
+    private final Semaphore permits;
+
+    private final ConcurrentLinkedQueue<PooledConnection> idleConnections = new ConcurrentLinkedQueue<PooledConnection>();
+
+    private final AtomicInteger openConnections = new AtomicInteger();
+
+    // microseconds
+    private final Histogram acquisitionWait = new Histogram();
+
+    // microseconds
+    private final Histogram usage = new Histogram();
+
+    private volatile boolean shutdown = false;
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Constructors.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    /**
+     * Create a connection pool using the given properties, which are those
+     * of <code>{@link PoolingConnectionProvider#PoolingConnectionProvider(Properties)}</code>,
+     * plus {@link #DB_MAX_WAIT_MILLIS}.  C3P0 specific properties are
+     * ignored.
+     *
+     * @param config
+     *            configuration properties
+     */
+    public LightweightPoolingConnectionProvider(Properties config) throws SchedulerException, SQLException {
+        PropertiesParser cfg = new PropertiesParser(config);
+        String dbDriver = cfg.getStringProperty(PoolingConnectionProvider.DB_DRIVER);
+        dbURL = cfg.getStringProperty(PoolingConnectionProvider.DB_URL);
+        maxConnections = cfg.getIntProperty(PoolingConnectionProvider.DB_MAX_CONNECTIONS, PoolingConnectionProvider.DEFAULT_DB_MAX_CONNECTIONS);
+        validationQuery = cfg.getStringProperty(PoolingConnectionProvider.DB_VALIDATION_QUERY);
+        idleValidationNanos = TimeUnit.SECONDS.toNanos(cfg.getIntProperty(PoolingConnectionProvider.DB_IDLE_VALIDATION_SECONDS, 50));
+        maxIdleNanos = TimeUnit.SECONDS.toNanos(cfg.getIntProperty(DB_DISCARD_IDLE_CONNECTIONS_SECONDS, 0));
+        maxWaitMillis = cfg.getLongProperty(DB_MAX_WAIT_MILLIS, DEFAULT_DB_MAX_WAIT_MILLIS);
+
+        if (dbURL == null) {
+            throw new SQLException(
+                "DBPool could not be created: DB URL cannot be null");
+        }
+
+        if (dbDriver == null) {
+            throw new SQLException(
+                "DBPool '" + dbURL + "' could not be created: " +
+                "DB driver class name cannot be null!");
+        }
+
+        if (maxConnections <= 0) {
+            throw new SQLException(
+                "DBPool '" + dbURL + "' could not be created: " +
+                "Max connections must be greater than zero!");
+        }
+
+        try {
+            Class.forName(dbDriver, true, Thread.currentThread().getContextClassLoader());
+        } catch (ClassNotFoundException e) {
+            try {
+                Class.forName(dbDriver);
+            } catch (ClassNotFoundException e2) {
+                throw new SchedulerException("Problem loading driver class '" + dbDriver + "': " + e2.getMessage(), e2);
+            }
+        }
+
+        connectionProperties.setProperty("user", cfg.getStringProperty(PoolingConnectionProvider.DB_USER, ""));
+        connectionProperties.setProperty("password", cfg.getStringProperty(PoolingConnectionProvider.DB_PASSWORD, ""));
+        permits = new Semaphore(maxConnections);
+    }
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Interface.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        if (shutdown) {
+            throw new SQLException("DBPool '" + dbURL + "' has been shut down");
+        }
+
+        if (!permits.tryAcquire()) {
+            try {
+                if (!permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS)) {
+                    throw new SQLException("Timed out after " + maxWaitMillis + " ms waiting for a connection of DBPool '"
+                            + dbURL + "': all " + maxConnections + " connections are in use");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted waiting for a connection of DBPool '" + dbURL + "'");
+            }
+        }
+
+        PooledConnection pooled;
+        try {
+            pooled = checkOut();
+        } catch (SQLException e) {
+            permits.release();
+            throw e;
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+
+        long now = System.nanoTime();
+        acquisitionWait.record(TimeUnit.NANOSECONDS.toMicros(now - start));
+        try {
+            return (Connection) CONNECTION_PROXY_CONSTRUCTOR.newInstance(new ConnectionHandle(pooled, now));
+        } catch (Exception e) {
+            release(pooled, false);
+            throw new SQLException("Could not create a connection proxy: " + e);
+        }
+    }
+
+    public void shutdown() throws SQLException {
+        shutdown = true;
+        PooledConnection pooled;
+        while ((pooled = idleConnections.poll()) != null) {
+            discard(pooled);
+        }
+    }
+
+    public void initialize() throws SQLException {
+        // do nothing, already initialized during constructor call
+    }
+
+    /**
+     * @return the histogram of the microseconds callers of
+     * <code>{@link #getConnection()}</code> waited for a connection
+     */
+    public Histogram getAcquisitionWaitHistogram() {
+        return acquisitionWait;
+    }
+
+    /**
+     * @return the histogram of the microseconds connections were in use,
+     * from being handed out to being closed
+     */
+    public Histogram getUsageHistogram() {
+        return usage;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * @return the number of open connections, in use or idle
+     */
+    public int getOpenConnectionCount() {
+        return openConnections.get();
+    }
+
+    /**
+     * @return the number of connections in use
+     */
+    public int getActiveConnectionCount() {
+        return maxConnections - permits.availablePermits();
+    }
+
+    /**
+     * @return an estimate of the number of threads waiting for a connection
+     */
+    public int getWaitingThreadCount() {
+        return permits.getQueueLength();
+    }
+
+    // takes an idle connection that is still usable, or opens one; the caller holds a permit
+    private PooledConnection checkOut() throws SQLException {
+        PooledConnection pooled;
+        while ((pooled = idleConnections.poll()) != null) {
+            if (isUsable(pooled)) {
+                return pooled;
+            }
+            discard(pooled);
+        }
+
+        Connection conn = DriverManager.getConnection(dbURL, connectionProperties);
+        openConnections.incrementAndGet();
+        return new PooledConnection(conn);
+    }
+
+    private boolean isUsable(PooledConnection pooled) {
+        long idleNanos = System.nanoTime() - pooled.lastUsed;
+        if (maxIdleNanos > 0 && idleNanos >= maxIdleNanos) {
+            return false;
+        }
+        if (idleNanos < idleValidationNanos) {
+            return true;
+        }
+        return isValid(pooled);
+    }
+
+    private boolean isValid(PooledConnection pooled) {
+        try {
+            if (validationQuery != null) {
+                Statement stmt = pooled.connection.createStatement();
+                try {
+                    stmt.execute(validationQuery);
+                } finally {
+                    stmt.close();
+                }
+                return true;
+            }
+            return pooled.connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            log.info("Discarding a connection of DBPool '" + dbURL + "' that failed validation: " + e.getMessage());
+            return false;
+        } catch (AbstractMethodError e) {
+            // a pre JDBC 4 driver, without isValid()
+            try {
+                return !pooled.connection.isClosed();
+            } catch (SQLException e2) {
+                return false;
+            }
+        }
+    }
+
+    private void release(PooledConnection pooled, boolean reusable) {
+        try {
+            if (reusable && !shutdown) {
+                pooled.lastUsed = System.nanoTime();
+                idleConnections.offer(pooled);
+            } else {
+                discard(pooled);
+            }
+        } finally {
+            permits.release();
+        }
+        if (shutdown && idleConnections.remove(pooled)) {
+            discard(pooled);
+        }
+    }
+
+    private void discard(PooledConnection pooled) {
+        openConnections.decrementAndGet();
+        try {
+            pooled.connection.close();
+        } catch (SQLException ignore) {
+        }
+    }
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Helper classes.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    private static class PooledConnection {
+
+        final Connection connection;
+
+        // System.nanoTime() when the connection was last returned to the pool
+        volatile long lastUsed;
+
+        PooledConnection(Connection connection) {
+            this.connection = connection;
+            this.lastUsed = System.nanoTime();
+        }
+    }
+
+    /**
+     * The handle of a checked out connection, which returns it to the pool
+     * when it is closed.
+     */
+    private class ConnectionHandle implements InvocationHandler {
+
+        private final PooledConnection pooled;
+
+        private final long checkedOut;
+
+        private boolean closed = false;
+
+        // whether the connection failed with an SQL state of class 08, connection exception
+        private boolean broken = false;
+
+        // whether the connection, or one of its statements, failed with any SQLException
+        private boolean failed = false;
+
+        ConnectionHandle(PooledConnection pooled, long checkedOut) {
+            this.pooled = pooled;
+            this.checkedOut = checkedOut;
+        }
+
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("close")) {
+                close();
+                return null;
+            } else if (name.equals("isClosed")) {
+                return Boolean.valueOf(closed || pooled.connection.isClosed());
+            } else if (name.equals("equals")) {
+                return Boolean.valueOf(proxy == args[0]);
+            } else if (name.equals("hashCode")) {
+                return Integer.valueOf(System.identityHashCode(proxy));
+            } else if (name.equals("toString")) {
+                return "Pooled connection of " + dbURL + (closed ? " (closed)" : "");
+            }
+
+            if (closed) {
+                throw new SQLException("Connection is closed");
+            }
+            try {
+                Object result = method.invoke(pooled.connection, args);
+                if (result instanceof Statement) {
+                    return StatementHandle.wrap(result, method.getReturnType(), proxy, this);
+                }
+                return result;
+            } catch (InvocationTargetException e) {
+                throw failure(e.getCause());
+            }
+        }
+
+        /**
+         * Notes that the connection, or one of its statements or result sets,
+         * threw the given exception, which is returned to be rethrown.
+         */
+        Throwable failure(Throwable cause) {
+            if (cause instanceof SQLException) {
+                failed = true;
+                String sqlState = ((SQLException) cause).getSQLState();
+                if (sqlState != null && sqlState.startsWith("08")) {
+                    broken = true;
+                }
+            }
+            return cause;
+        }
+
+        private void close() throws SQLException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            usage.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - checkedOut));
+
+            // not every driver reports a dead socket with a connection exception
+            boolean reusable = !broken && (!failed || isValid(pooled));
+            try {
+                if (reusable && !pooled.connection.getAutoCommit()) {
+                    pooled.connection.rollback();
+                    pooled.connection.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                reusable = false;
+            } finally {
+                release(pooled, reusable);
+            }
+        }
+    }
+
+    /**
+     * The handle of a statement, or of a result set, of a checked out
+     * connection, which notes its failures on the connection's handle so
+     * that a connection whose socket died is not returned to the pool.
+     */
+    private static class StatementHandle implements InvocationHandler {
+
+        private final Object target;
+
+        // the proxy of the connection or statement this was obtained from
+        private final Object parent;
+
+        private final ConnectionHandle connection;
+
+        StatementHandle(Object target, Object parent, ConnectionHandle connection) {
+            this.target = target;
+            this.parent = parent;
+            this.connection = connection;
+        }
+
+        /**
+         * Wraps the given statement or result set, returned as the given
+         * interface by the given connection or statement proxy.
+         */
+        static Object wrap(Object target, Class<?> type, Object parent, ConnectionHandle connection) {
+            if (!type.isInterface()) {
+                return target;
+            }
+            return Proxy.newProxyInstance(LightweightPoolingConnectionProvider.class.getClassLoader(),
+                    new Class<?>[] {type}, new StatementHandle(target, parent, connection));
+        }
+
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("getConnection") || name.equals("getStatement")) {
+                return parent;
+            } else if (name.equals("equals")) {
+                return Boolean.valueOf(proxy == args[0]);
+            } else if (name.equals("hashCode")) {
+                return Integer.valueOf(System.identityHashCode(proxy));
+            }
+
+            try {
+                Object result = method.invoke(target, args);
+                if (result instanceof ResultSet) {
+                    return StatementHandle.wrap(result, method.getReturnType(), proxy, connection);
+                }
+                return result;
+            } catch (InvocationTargetException e) {
+                throw connection.failure(e.getCause());
+            }
+        }
+    }
+}
@@ -53,6 +53,16 @@ public class PoolingConnectionProvider implements ConnectionProvider {
      * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
      */
 
+    /**
+     * The pool implementation of a data source configured with a driver and
+     * URL: {@link #C3P0_POOLING_PROVIDER}, the default, or
+     * {@link LightweightPoolingConnectionProvider#POOLING_PROVIDER_NAME}.
+     */
+    public static final String POOLING_PROVIDER = "provider";
+
+    /** The value of the {@link #POOLING_PROVIDER} property selecting this C3P0 pool. */
+    public static final String C3P0_POOLING_PROVIDER = "c3p0";
+
     /** The JDBC database driver. */
     public static final String DB_DRIVER = "driver";
 
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2001-2009 Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+
+package org.quartz.utils;
+
+import org.quartz.TriggerKey;
+
+/**
+ * Maps triggers to the shards of a <code>{@link org.quartz.spi.ShardedJobStore}</code>.
+ *
+ * <p>
+ * The mapping only depends on the trigger's group name (through
+ * <code>String.hashCode()</code>, which is the same in every JVM), so all
+ * the nodes of a cluster agree on it.
+ * </p>
+ */
+public final class TriggerShards {
+
+    private TriggerShards() {
+    }
+
+    public static int shardOf(String triggerGroup, int shardCount) {
+        if (shardCount <= 1) {
+            return 0;
+        }
+        return (triggerGroup.hashCode() & Integer.MAX_VALUE) % shardCount;
+    }
+
+    public static int shardOf(TriggerKey triggerKey, int shardCount) {
+        return shardOf(triggerKey.getGroup(), shardCount);
+    }
+}
@@ -16,6 +16,7 @@
 package org.quartz;
 
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -40,6 +41,8 @@ import org.quartz.spi.ClassLoadHelper;
 import org.quartz.spi.JobStore;
 import org.quartz.spi.OperableTrigger;
 import org.quartz.spi.SchedulerSignaler;
+import org.quartz.spi.ShardedJobStore;
+import org.quartz.utils.TriggerShards;
 
 /**
  * Unit test for JobStores.  These tests were submitted by Johannes Zillmann
@@ -542,6 +545,44 @@ public abstract class AbstractJobStoreTest extends TestCase {
 			Assert.assertEquals("job" + i, triggers.get(i).getKey().getName());
 		}
 	}
+
+	public void testAcquireTriggersByShard() throws Exception {
+		SchedulerSignaler schedSignaler = new SampleSignaler();
+		ClassLoadHelper loadHelper = new CascadingClassLoadHelper();
+		loadHelper.initialize();
+
+		JobStore store = createJobStore("testAcquireTriggersByShard");
+		if (!(store instanceof ShardedJobStore)) {
+			return;
+		}
+		store.initialize(loadHelper, schedSignaler);
+		ShardedJobStore shardedStore = (ShardedJobStore) store;
+
+		// Setup: Store jobs and triggers in several groups.
+		long MIN = 60 * 1000L;
+		Date startTime0 = new Date(System.currentTimeMillis() + MIN); // a min from now.
+		for (int i=0; i < 12; i++) {
+			Date startTime = new Date(startTime0.getTime() + i * 1000L);
+			JobDetail job = JobBuilder.newJob(MyJob.class).withIdentity("job" + i).build();
+			OperableTrigger trigger = (OperableTrigger)TriggerBuilder.newTrigger().withIdentity("job" + i, "group" + (i % 6)).forJob(job).startAt(startTime).build();
+			trigger.computeFirstFireTime(null);
+			store.storeJobAndTrigger(job, trigger);
+		}
+
+		// Each shard only acquires triggers of its own groups, and between
+		// them the shards acquire every trigger once.
+		int shardCount = 3;
+		long noLaterThan = startTime0.getTime() + 12 * 1000L;
+		Set<TriggerKey> acquired = new HashSet<TriggerKey>();
+		for (int shard=0; shard < shardCount; shard++) {
+			List<OperableTrigger> triggers = shardedStore.acquireNextTriggers(noLaterThan, 12, MIN, shard, shardCount);
+			for (OperableTrigger trigger : triggers) {
+				Assert.assertEquals(shard, TriggerShards.shardOf(trigger.getKey(), shardCount));
+				Assert.assertTrue(acquired.add(trigger.getKey()));
+			}
+		}
+		Assert.assertEquals(12, acquired.size());
+	}
     
     public static class SampleSignaler implements SchedulerSignaler {
         volatile int fMisfireCount = 0;
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2001-2009 Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.quartz;
+
+import static org.quartz.JobBuilder.newJob;
+import static org.quartz.TriggerBuilder.newTrigger;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import junit.framework.TestCase;
+
+import org.quartz.impl.StdSchedulerFactory;
+import org.quartz.impl.matchers.EverythingMatcher;
+import org.quartz.listeners.JobListenerSupport;
+
+/**
+ * Test jobs that complete on another thread than the worker thread.
+ */
+public class AsyncJobTest extends TestCase {
+
+    static final List<JobCompletion> completions = new CopyOnWriteArrayList<JobCompletion>();
+
+    static CountDownLatch started;
+
+    public static class TestAsyncJob implements AsyncJob {
+
+        public JobCompletion executeAsync(JobExecutionContext context) {
+            JobCompletion completion = new JobCompletion(context.getMergedJobDataMap().getLong("timeout"));
+            completions.add(completion);
+            started.countDown();
+            return completion;
+        }
+
+        public void execute(JobExecutionContext context) throws JobExecutionException {
+            executeAsync(context).await();
+        }
+    }
+
+    public static class TestInterruptableAsyncJob extends TestAsyncJob implements InterruptableJob {
+
+        public static final AtomicBoolean interrupted = new AtomicBoolean(false);
+
+        public void interrupt() {
+            interrupted.set(true);
+        }
+    }
+
+    private Scheduler sched;
+
+    private RecordingJobListener listener;
+
+    @Override
+    protected void setUp() throws Exception {
+        completions.clear();
+
+        Properties config = new Properties();
+        config.setProperty("org.quartz.scheduler.instanceName", "AsyncJobTest_Scheduler");
+        config.setProperty("org.quartz.scheduler.skipUpdateCheck", "true");
+        config.setProperty("org.quartz.threadPool.threadCount", "1");
+        config.setProperty("org.quartz.threadPool.class", "org.quartz.simpl.SimpleThreadPool");
+        sched = new StdSchedulerFactory(config).getScheduler();
+        listener = new RecordingJobListener();
+        sched.getListenerManager().addJobListener(listener, EverythingMatcher.allJobs());
+        sched.start();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        sched.shutdown(false);
+    }
+
+    public void testJobsReleaseTheWorkerThread() throws Exception {
+        started = new CountDownLatch(3);
+        listener.executed = new CountDownLatch(3);
+        for (int i = 0; i < 3; i++) {
+            schedule(TestAsyncJob.class, "j" + i, 0L);
+        }
+
+        // three jobs are running on a single thread
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertEquals(3, sched.getCurrentlyExecutingJobs().size());
+        assertEquals(3, listener.executed.getCount());
+
+        for (JobCompletion completion : completions) {
+            assertTrue(completion.complete());
+            assertFalse(completion.complete());
+        }
+        assertTrue(listener.executed.await(5, TimeUnit.SECONDS));
+        assertTrue(listener.exceptions.isEmpty());
+        assertEquals(0, sched.getCurrentlyExecutingJobs().size());
+        // the non-durable jobs' only triggers are complete
+        for (int i = 0; i < 3; i++) {
+            assertFalse(sched.checkExists(new JobKey("j" + i)));
+        }
+    }
+
+    public void testTimeoutInterruptsTheJob() throws Exception {
+        started = new CountDownLatch(1);
+        listener.executed = new CountDownLatch(1);
+        schedule(TestInterruptableAsyncJob.class, "j1", 200L);
+
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertTrue(listener.executed.await(5, TimeUnit.SECONDS));
+        assertTrue(TestInterruptableAsyncJob.interrupted.get());
+        assertEquals(1, listener.exceptions.size());
+        assertTrue(listener.exceptions.get(0).getMessage().contains("timed out"));
+        assertTrue(completions.get(0).isDone());
+        // only the expiry check runs on the timer thread
+        assertTrue(listener.threadNames.get(0).contains("_AsyncJobTimeout-"));
+    }
+
+    private void schedule(Class<? extends Job> jobClass, String name, long timeout) throws SchedulerException {
+        JobDetail job = newJob(jobClass)
+            .withIdentity(name)
+            .usingJobData("timeout", timeout)
+            .build();
+        sched.scheduleJob(job, newTrigger().forJob(job).startNow().build());
+    }
+
+    static class RecordingJobListener extends JobListenerSupport {
+
+        volatile CountDownLatch executed;
+
+        final List<JobExecutionException> exceptions = new CopyOnWriteArrayList<JobExecutionException>();
+
+        final List<String> threadNames = new CopyOnWriteArrayList<String>();
+
+        public String getName() {
+            return "recorder";
+        }
+
+        @Override
+        public void jobWasExecuted(JobExecutionContext context, JobExecutionException jobException) {
+            if (jobException != null) {
+                exceptions.add(jobException);
+            }
+            threadNames.add(Thread.currentThread().getName());
+            executed.countDown();
+        }
+    }
+}
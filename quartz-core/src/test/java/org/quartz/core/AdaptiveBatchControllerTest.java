@@ -0,0 +1,86 @@
+/*
+ * Copyright 2001-2009 Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.quartz.core;
+
+import junit.framework.TestCase;
+
+public class AdaptiveBatchControllerTest extends TestCase {
+
+    public void testFixedWhenNotAdaptive() {
+        AdaptiveBatchController controller = new AdaptiveBatchController(false, 1, 10, 50L, 30000L);
+        for (int i = 0; i < 100; i++) {
+            controller.recordFireLag(500L);
+            controller.recordAcquisition(20L, 10, 10, 10, 20, 0L, false);
+        }
+        assertEquals(10, controller.getBatchSize());
+        assertEquals(10, controller.getTargetBatchSize());
+        assertEquals(50L, controller.getBatchTimeWindow());
+        assertEquals(30000L, controller.getIdleWaitTime());
+        assertEquals(20L, controller.getAverageAcquisitionLatency());
+    }
+
+    public void testGrowsUnderLoadAndShrinksWhenIdle() {
+        AdaptiveBatchController controller = new AdaptiveBatchController(true, 2, 64, 100L, 30000L);
+        assertEquals(2, controller.getBatchSize());
+        assertEquals(0L, controller.getBatchTimeWindow());
+
+        // full batches, firing later than an acquisition takes
+        for (int i = 0; i < 200; i++) {
+            controller.recordFireLag(200L);
+            controller.recordAcquisition(20L, controller.getBatchSize(), controller.getBatchSize(), 40, 50, 0L, false);
+        }
+        assertEquals(64, controller.getBatchSize());
+        assertEquals(64, controller.getTargetBatchSize());
+        assertEquals(100L, controller.getBatchTimeWindow());
+
+        // mostly empty batches, firing on time
+        for (int i = 0; i < 200; i++) {
+            controller.recordFireLag(0L);
+            controller.recordAcquisition(20L, controller.getBatchSize(), 0, 50, 50, 0L, false);
+        }
+        assertEquals(2, controller.getBatchSize());
+        assertEquals(0L, controller.getBatchTimeWindow());
+    }
+
+    public void testShrinksWhenPoolSaturated() {
+        AdaptiveBatchController controller = new AdaptiveBatchController(true, 1, 16, 0L, 30000L);
+        for (int i = 0; i < 100; i++) {
+            controller.recordFireLag(200L);
+            controller.recordAcquisition(20L, controller.getBatchSize(), controller.getBatchSize(), 40, 50, 0L, false);
+        }
+        assertEquals(16, controller.getBatchSize());
+        assertEquals(0L, controller.getBatchTimeWindow());
+
+        for (int i = 0; i < 100; i++) {
+            controller.recordFireLag(200L);
+            controller.recordAcquisition(20L, 1, 1, 1, 50, 0L, false);
+        }
+        assertEquals(1, controller.getBatchSize());
+    }
+
+    public void testIdleWaitShrinksWhenTriggersFoundOverdue() {
+        AdaptiveBatchController controller = new AdaptiveBatchController(true, 1, 1, 0L, 30000L);
+        for (int i = 0; i < 400; i++) {
+            controller.recordAcquisition(5L, 1, 1, 10, 10, 5000L, true);
+        }
+        assertEquals(AdaptiveBatchController.MIN_IDLE_WAIT_TIME, controller.getIdleWaitTime());
+
+        for (int i = 0; i < 400; i++) {
+            controller.recordAcquisition(5L, 1, 0, 10, 10, 0L, true);
+        }
+        assertEquals(30000L, controller.getIdleWaitTime());
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2001-2009 Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.quartz.core;
+
+import static org.quartz.JobBuilder.newJob;
+import static org.quartz.TriggerBuilder.newTrigger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.quartz.AbstractJobStoreTest.MyJob;
+import org.quartz.JobDetail;
+import org.quartz.Trigger.CompletedExecutionInstruction;
+import org.quartz.simpl.RAMJobStore;
+import org.quartz.spi.BatchingJobStore;
+import org.quartz.spi.OperableTrigger;
+import org.quartz.spi.TriggerCompletedBundle;
+
+public class CompletionBatcherTest extends TestCase {
+
+    private final JobDetail job = newJob(MyJob.class).withIdentity("job").build();
+
+    public void testHandsOverFullBatches() throws Exception {
+        BatchRecordingJobStore store = new BatchRecordingJobStore();
+        CompletionBatcher batcher = new CompletionBatcher(store, 3, 60000L, "testHandsOverFullBatches");
+        try {
+            for (int i = 0; i < 7; i++) {
+                batcher.triggeredJobComplete(trigger(i), job, CompletedExecutionInstruction.NOOP);
+            }
+            assertEquals(2, store.batches.size());
+            assertEquals(3, store.batches.get(0).size());
+            assertEquals("t0", store.batches.get(0).get(0).getTrigger().getKey().getName());
+            assertEquals(3, store.batches.get(1).size());
+        } finally {
+            batcher.shutdown();
+        }
+        // the last completion is handed over on shutdown
+        assertEquals(3, store.batches.size());
+        assertEquals("t6", store.batches.get(2).get(0).getTrigger().getKey().getName());
+    }
+
+    public void testHandsOverAfterMaxWait() throws Exception {
+        BatchRecordingJobStore store = new BatchRecordingJobStore();
+        CompletionBatcher batcher = new CompletionBatcher(store, 100, 50L, "testHandsOverAfterMaxWait");
+        try {
+            batcher.triggeredJobComplete(trigger(0), job, CompletedExecutionInstruction.NOOP);
+            batcher.triggeredJobComplete(trigger(1), job, CompletedExecutionInstruction.NOOP);
+            long deadline = System.currentTimeMillis() + 5000L;
+            while (store.batches.isEmpty() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10L);
+            }
+            assertEquals(1, store.batches.size());
+            assertEquals(2, store.batches.get(0).size());
+        } finally {
+            batcher.shutdown();
+        }
+    }
+
+    public void testCompletesOneAtATimeWithOtherJobStores() throws Exception {
+        final List<String> completed = Collections.synchronizedList(new ArrayList<String>());
+        RAMJobStore store = new RAMJobStore() {
+            @Override
+            public void triggeredJobComplete(OperableTrigger trigger, JobDetail jobDetail,
+                    CompletedExecutionInstruction triggerInstCode) {
+                completed.add(trigger.getKey().getName());
+            }
+        };
+        CompletionBatcher batcher = new CompletionBatcher(store, 2, 60000L, "testCompletesOneAtATimeWithOtherJobStores");
+        try {
+            batcher.triggeredJobComplete(trigger(0), job, CompletedExecutionInstruction.NOOP);
+            assertTrue(completed.isEmpty());
+            batcher.triggeredJobComplete(trigger(1), job, CompletedExecutionInstruction.NOOP);
+            assertEquals(2, completed.size());
+        } finally {
+            batcher.shutdown();
+        }
+    }
+
+    private OperableTrigger trigger(int i) {
+        return (OperableTrigger) newTrigger().withIdentity("t" + i).forJob(job).build();
+    }
+
+    static class BatchRecordingJobStore extends RAMJobStore implements BatchingJobStore {
+
+        final List<List<TriggerCompletedBundle>> batches =
+            Collections.synchronizedList(new ArrayList<List<TriggerCompletedBundle>>());
+
+        public void triggeredJobsComplete(List<TriggerCompletedBundle> completions) {
+            batches.add(completions);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2001-2009 Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.quartz.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.quartz.Job;
+import org.quartz.JobBuilder;
+import org.quartz.JobDetail;
+import org.quartz.JobExecutionContext;
+import org.quartz.Scheduler;
+import org.quartz.TriggerBuilder;
+import org.quartz.impl.StdSchedulerFactory;
+import org.quartz.listeners.JobListenerSupport;
+
+/**
+ * Tests for the pipelined trigger acquisition mode of the
+ * {@link QuartzSchedulerThread}.
+ */
+public class PipelinedTriggerAcquisitionTest {
+
+    public static class NoOpJob implements Job {
+        public void execute(JobExecutionContext context) {
+        }
+    }
+
+    private static class RecordingListener extends JobListenerSupport {
+
+        private final List<String> fired = Collections.synchronizedList(new ArrayList<String>());
+        private final CountDownLatch latch;
+
+        RecordingListener(int expected) {
+            latch = new CountDownLatch(expected);
+        }
+
+        public String getName() {
+            return "RecordingListener";
+        }
+
+        @Override
+        public void jobToBeExecuted(JobExecutionContext context) {
+            fired.add(context.getTrigger().getKey().getName());
+            latch.countDown();
+        }
+    }
+
+    private Scheduler createScheduler(String name) throws Exception {
+        Properties props = new Properties();
+        props.setProperty(StdSchedulerFactory.PROP_SCHED_INSTANCE_NAME, name);
+        props.setProperty(StdSchedulerFactory.PROP_SCHED_PIPELINE_TRIGGER_ACQUISITION, "true");
+        props.setProperty("org.quartz.threadPool.threadCount", "3");
+        return new StdSchedulerFactory(props).getScheduler();
+    }
+
+    @Test
+    public void testAllTriggersFire() throws Exception {
+        Scheduler scheduler = createScheduler("testAllTriggersFire");
+        RecordingListener listener = new RecordingListener(5);
+        scheduler.getListenerManager().addJobListener(listener);
+        try {
+            JobDetail job = JobBuilder.newJob(NoOpJob.class).withIdentity("job").storeDurably().build();
+            scheduler.addJob(job, false);
+            long start = System.currentTimeMillis() + 500L;
+            for (int i = 0; i < 5; i++) {
+                scheduler.scheduleJob(TriggerBuilder.newTrigger().withIdentity("t" + i).forJob(job)
+                        .startAt(new Date(start + i * 100L)).build());
+            }
+            scheduler.start();
+
+            Assert.assertTrue(listener.latch.await(10, TimeUnit.SECONDS));
+            Assert.assertEquals(5, listener.fired.size());
+        } finally {
+            scheduler.shutdown(true);
+        }
+    }
+
+    @Test
+    public void testPrefetchedTriggersReleasedForEarlierTrigger() throws Exception {
+        Scheduler scheduler = createScheduler("testPrefetchedTriggersReleased");
+        RecordingListener listener = new RecordingListener(3);
+        scheduler.getListenerManager().addJobListener(listener);
+        try {
+            JobDetail job = JobBuilder.newJob(NoOpJob.class).withIdentity("job").storeDurably().build();
+            scheduler.addJob(job, false);
+            long start = System.currentTimeMillis();
+            scheduler.scheduleJob(TriggerBuilder.newTrigger().withIdentity("late").forJob(job)
+                    .startAt(new Date(start + 2500L)).build());
+            scheduler.scheduleJob(TriggerBuilder.newTrigger().withIdentity("later").forJob(job)
+                    .startAt(new Date(start + 3000L)).build());
+            scheduler.start();
+
+            // let the scheduler acquire "late" and prefetch "later"
+            Thread.sleep(500L);
+            scheduler.scheduleJob(TriggerBuilder.newTrigger().withIdentity("early").forJob(job)
+                    .startAt(new Date(start + 1000L)).build());
+
+            Assert.assertTrue(listener.latch.await(10, TimeUnit.SECONDS));
+            Assert.assertEquals(3, listener.fired.size());
+            Assert.assertEquals("early", listener.fired.get(0));
+            Assert.assertEquals("late", listener.fired.get(1));
+            Assert.assertEquals("later", listener.fired.get(2));
+        } finally {
+            scheduler.shutdown(true);
+        }
+    }
+}
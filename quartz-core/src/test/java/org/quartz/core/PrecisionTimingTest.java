@@ -0,0 +1,149 @@
+/*
+ * Copyright 2001-2009 Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.quartz.core;
+
+import java.lang.management.ManagementFactory;
+import java.util.Date;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.Attribute;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.quartz.Job;
+import org.quartz.JobBuilder;
+import org.quartz.JobDetail;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.quartz.Scheduler;
+import org.quartz.TriggerBuilder;
+import org.quartz.impl.StdSchedulerFactory;
+import org.quartz.listeners.JobListenerSupport;
+
+/**
+ * Tests for the precision timing mode of the {@link QuartzSchedulerThread}.
+ */
+public class PrecisionTimingTest {
+
+    public static class NoOpJob implements Job {
+        public void execute(JobExecutionContext context) {
+        }
+    }
+
+    private static class CountingListener extends JobListenerSupport {
+
+        private final CountDownLatch latch;
+
+        CountingListener(int expected) {
+            latch = new CountDownLatch(expected);
+        }
+
+        public String getName() {
+            return "CountingListener";
+        }
+
+        @Override
+        public void jobWasExecuted(JobExecutionContext context, JobExecutionException jobException) {
+            latch.countDown();
+        }
+    }
+
+    @Test
+    public void testTriggersFireAndLatenciesAreRecorded() throws Exception {
+        Properties props = new Properties();
+        props.setProperty(StdSchedulerFactory.PROP_SCHED_INSTANCE_NAME, "testTriggersFireAndLagIsRecorded");
+        props.setProperty(StdSchedulerFactory.PROP_SCHED_PRECISION_TIMING, "true");
+        props.setProperty("org.quartz.threadPool.threadCount", "2");
+        props.setProperty("org.quartz.scheduler.jmx.export", "true");
+        Scheduler scheduler = new StdSchedulerFactory(props).getScheduler();
+        CountingListener listener = new CountingListener(10);
+        scheduler.getListenerManager().addJobListener(listener);
+        try {
+            JobDetail job = JobBuilder.newJob(NoOpJob.class).withIdentity("job").storeDurably().build();
+            scheduler.addJob(job, false);
+            MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(QuartzSchedulerResources.generateJMXObjectName(
+                    scheduler.getSchedulerName(), scheduler.getSchedulerInstanceId()));
+            mbs.setAttribute(name, new Attribute("SampledStatisticsEnabled", Boolean.TRUE));
+            scheduler.start();
+
+            long start = System.currentTimeMillis() + 300L;
+            for (int i = 0; i < 10; i++) {
+                scheduler.scheduleJob(TriggerBuilder.newTrigger().withIdentity("t" + i).forJob(job)
+                        .startAt(new Date(start + i * 20L)).build());
+            }
+
+            Assert.assertTrue(listener.latch.await(10, TimeUnit.SECONDS));
+            Map<?, ?> histogram = (Map<?, ?>) mbs.getAttribute(name, "TriggerFireLagHistogram");
+            long fired = 0;
+            for (Object count : histogram.values()) {
+                fired += ((Long) count).longValue();
+            }
+            Assert.assertEquals(10, fired);
+
+            Map<?, ?> fireLag = (Map<?, ?>) mbs.getAttribute(name, "TriggerFireLagPercentiles");
+            Assert.assertEquals(Long.valueOf(10), fireLag.get("count"));
+            Assert.assertTrue(((Long) fireLag.get("p50")).longValue() <= ((Long) fireLag.get("p999")).longValue());
+            Map<?, ?> jobExecution = (Map<?, ?>) mbs.getAttribute(name, "JobExecutionTimePercentiles");
+            Assert.assertEquals(Long.valueOf(10), ((Map<?, ?>) jobExecution.get("DEFAULT")).get("count"));
+            Map<?, ?> acquisition = (Map<?, ?>) mbs.getAttribute(name, "TriggerAcquisitionLatencyPercentiles");
+            Assert.assertTrue(((Long) acquisition.get("count")).longValue() > 0);
+            Map<?, ?> triggersFired = (Map<?, ?>) mbs.getAttribute(name, "TriggersFiredLatencyPercentiles");
+            Assert.assertTrue(((Long) triggersFired.get("count")).longValue() > 0);
+        } finally {
+            scheduler.shutdown(true);
+        }
+    }
+
+    @Test
+    public void testFireLagIsRecordedWithoutSampledStatistics() throws Exception {
+        Properties props = new Properties();
+        props.setProperty(StdSchedulerFactory.PROP_SCHED_INSTANCE_NAME, "testFireLagIsRecordedWithoutSampledStatistics");
+        props.setProperty(StdSchedulerFactory.PROP_SCHED_PRECISION_TIMING, "true");
+        props.setProperty("org.quartz.threadPool.threadCount", "2");
+        props.setProperty("org.quartz.scheduler.jmx.export", "true");
+        Scheduler scheduler = new StdSchedulerFactory(props).getScheduler();
+        CountingListener listener = new CountingListener(5);
+        scheduler.getListenerManager().addJobListener(listener);
+        try {
+            JobDetail job = JobBuilder.newJob(NoOpJob.class).withIdentity("job").storeDurably().build();
+            scheduler.addJob(job, false);
+            scheduler.start();
+
+            long start = System.currentTimeMillis() + 300L;
+            for (int i = 0; i < 5; i++) {
+                scheduler.scheduleJob(TriggerBuilder.newTrigger().withIdentity("t" + i).forJob(job)
+                        .startAt(new Date(start + i * 20L)).build());
+            }
+
+            Assert.assertTrue(listener.latch.await(10, TimeUnit.SECONDS));
+            MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(QuartzSchedulerResources.generateJMXObjectName(
+                    scheduler.getSchedulerName(), scheduler.getSchedulerInstanceId()));
+            Assert.assertEquals(Boolean.FALSE, mbs.getAttribute(name, "SampledStatisticsEnabled"));
+            Map<?, ?> fireLag = (Map<?, ?>) mbs.getAttribute(name, "TriggerFireLagPercentiles");
+            Assert.assertEquals(Long.valueOf(5), fireLag.get("count"));
+            Assert.assertTrue(((Map<?, ?>) mbs.getAttribute(name, "JobExecutionTimePercentiles")).isEmpty());
+        } finally {
+            scheduler.shutdown(true);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2001-2009 Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.quartz.core;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.quartz.Job;
+import org.quartz.JobBuilder;
+import org.quartz.JobDetail;
+import org.quartz.JobExecutionContext;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.TriggerBuilder;
+import org.quartz.impl.StdSchedulerFactory;
+import org.quartz.listeners.JobListenerSupport;
+
+/**
+ * Tests for running several {@link QuartzSchedulerThread}s, each acquiring
+ * the triggers of its own share of the trigger groups.
+ */
+public class ShardedSchedulerThreadsTest {
+
+    public static class NoOpJob implements Job {
+        public void execute(JobExecutionContext context) {
+        }
+    }
+
+    private static class RecordingListener extends JobListenerSupport {
+
+        private final Set<String> fired = Collections.synchronizedSet(new HashSet<String>());
+        private final CountDownLatch latch;
+
+        RecordingListener(int expected) {
+            latch = new CountDownLatch(expected);
+        }
+
+        public String getName() {
+            return "RecordingListener";
+        }
+
+        @Override
+        public void jobToBeExecuted(JobExecutionContext context) {
+            fired.add(context.getTrigger().getKey().toString());
+            latch.countDown();
+        }
+    }
+
+    private Scheduler createScheduler(String name, String jobStoreClass) throws Exception {
+        Properties props = new Properties();
+        props.setProperty(StdSchedulerFactory.PROP_SCHED_INSTANCE_NAME, name);
+        props.setProperty(StdSchedulerFactory.PROP_SCHED_SCHEDULER_THREAD_COUNT, "4");
+        props.setProperty(StdSchedulerFactory.PROP_JOB_STORE_CLASS, jobStoreClass);
+        props.setProperty("org.quartz.threadPool.threadCount", "4");
+        return new StdSchedulerFactory(props).getScheduler();
+    }
+
+    @Test
+    public void testTriggersOfAllGroupsFire() throws Exception {
+        Scheduler scheduler = createScheduler("testTriggersOfAllGroupsFire", "org.quartz.simpl.RAMJobStore");
+        RecordingListener listener = new RecordingListener(20);
+        scheduler.getListenerManager().addJobListener(listener);
+        try {
+            JobDetail job = JobBuilder.newJob(NoOpJob.class).withIdentity("job").storeDurably().build();
+            scheduler.addJob(job, false);
+            scheduler.start();
+
+            long start = System.currentTimeMillis() + 500L;
+            for (int i = 0; i < 20; i++) {
+                scheduler.scheduleJob(TriggerBuilder.newTrigger().withIdentity("t" + i, "group" + (i % 7))
+                        .forJob(job).startAt(new Date(start + i * 50L)).build());
+            }
+
+            Assert.assertTrue(listener.latch.await(10, TimeUnit.SECONDS));
+            Assert.assertEquals(20, listener.fired.size());
+        } finally {
+            scheduler.shutdown(true);
+        }
+    }
+
+    @Test(expected = SchedulerException.class)
+    public void testRejectsUnshardedJobStore() throws Exception {
+        createScheduler("testRejectsUnshardedJobStore", "org.quartz.simpl.ConcurrentRAMJobStore");
+    }
+}
@@ -0,0 +1,270 @@
+package org.quartz.impl.jdbcjobstore;
+
+import static org.quartz.CalendarIntervalScheduleBuilder.calendarIntervalSchedule;
+import static org.quartz.CronScheduleBuilder.cronSchedule;
+import static org.quartz.JobBuilder.newJob;
+import static org.quartz.SimpleScheduleBuilder.simpleSchedule;
+import static org.quartz.TriggerBuilder.newTrigger;
+import static org.quartz.TriggerKey.triggerKey;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.quartz.CalendarIntervalTrigger;
+import org.quartz.CronTrigger;
+import org.quartz.DisallowConcurrentExecution;
+import org.quartz.Job;
+import org.quartz.JobDetail;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.quartz.ObjectAlreadyExistsException;
+import org.quartz.Trigger;
+import org.quartz.Trigger.CompletedExecutionInstruction;
+import org.quartz.Trigger.TriggerState;
+import org.quartz.TriggerKey;
+import org.quartz.impl.matchers.GroupMatcher;
+import org.quartz.simpl.CascadingClassLoadHelper;
+import org.quartz.spi.BatchingJobStore;
+import org.quartz.spi.ClassLoadHelper;
+import org.quartz.spi.JobStore;
+import org.quartz.spi.OperableTrigger;
+import org.quartz.spi.TriggerCompletedBundle;
+import org.quartz.spi.TriggerFiredBundle;
+import org.quartz.spi.TriggerFiredResult;
+
+/**
+ * Runs the job store tests with fired triggers written by JDBC batches, and
+ * tests storing many jobs and triggers at once.
+ */
+public class JdbcJobStoreBatchTest extends JdbcJobStoreTest {
+
+    @Override
+    protected JobStore createJobStore(String name) {
+        JobStoreTX jdbcJobStore = (JobStoreTX) super.createJobStore(name);
+        jdbcJobStore.setBatchTriggersFired(true);
+        return jdbcJobStore;
+    }
+
+    public void testStoreJobsAndTriggersInBatches() throws Exception {
+        JobStore store = initializedJobStore("testStoreJobsAndTriggersInBatches");
+        store.pauseTriggers(GroupMatcher.triggerGroupEquals("paused"));
+
+        JobDetail job = newJob(MyJob.class).withIdentity("job", "batch").build();
+        JobDetail otherJob = newJob(MyJob.class).withIdentity("otherJob", "batch").build();
+        Set<Trigger> triggers = new LinkedHashSet<Trigger>();
+        long base = System.currentTimeMillis() + 60000L;
+        int count = JobStoreSupport.STORE_BATCH_SIZE + 100;
+        for (int i = 0; i < count; i++) {
+            triggers.add(operableTrigger(newTrigger().withIdentity("simple" + i, "batch").forJob(job)
+                .startAt(new Date(base + i)).usingJobData("index", i)
+                .withSchedule(simpleSchedule().withIntervalInSeconds(5).withRepeatCount(i % 10)).build()));
+        }
+        Set<Trigger> otherTriggers = new LinkedHashSet<Trigger>();
+        otherTriggers.add(operableTrigger(newTrigger().withIdentity("cron", "batch").forJob(otherJob)
+            .withSchedule(cronSchedule("0/5 * * * * ?")).build()));
+        otherTriggers.add(operableTrigger(newTrigger().withIdentity("calendar", "paused").forJob(otherJob)
+            .startAt(new Date(base)).withSchedule(calendarIntervalSchedule().withIntervalInHours(2)).build()));
+        Map<JobDetail, Set<? extends Trigger>> triggersAndJobs = new HashMap<JobDetail, Set<? extends Trigger>>();
+        triggersAndJobs.put(job, triggers);
+        triggersAndJobs.put(otherJob, otherTriggers);
+
+        store.storeJobsAndTriggers(triggersAndJobs, false);
+
+        assertNotNull(store.retrieveJob(job.getKey()));
+        assertNotNull(store.retrieveJob(otherJob.getKey()));
+        assertEquals(count + 1, store.getTriggerKeys(GroupMatcher.triggerGroupEquals("batch")).size());
+        assertEquals(count, store.getTriggersForJob(job.getKey()).size());
+
+        OperableTrigger simple = store.retrieveTrigger(triggerKey("simple7", "batch"));
+        assertEquals(7, simple.getJobDataMap().getInt("index"));
+        assertEquals(7, ((org.quartz.SimpleTrigger) simple).getRepeatCount());
+        assertEquals(TriggerState.NORMAL, store.getTriggerState(simple.getKey()));
+        assertEquals("0/5 * * * * ?", ((CronTrigger) store.retrieveTrigger(triggerKey("cron", "batch"))).getCronExpression());
+        CalendarIntervalTrigger calendar = (CalendarIntervalTrigger) store.retrieveTrigger(triggerKey("calendar", "paused"));
+        assertEquals(2, calendar.getRepeatInterval());
+        assertEquals(TriggerState.PAUSED, store.getTriggerState(calendar.getKey()));
+
+        destroyJobStore("testStoreJobsAndTriggersInBatches");
+    }
+
+    public void testStoreJobsAndTriggersRejectsExistingTriggers() throws Exception {
+        JobStore store = initializedJobStore("testStoreJobsAndTriggersRejectsExistingTriggers");
+
+        JobDetail job = newJob(MyJob.class).withIdentity("job", "batch").storeDurably().build();
+        store.storeJobAndTrigger(job, operableTrigger(newTrigger().withIdentity("existing", "batch").forJob(job)
+            .withSchedule(simpleSchedule().withIntervalInSeconds(5).repeatForever()).build()));
+
+        JobDetail newJob = newJob(MyJob.class).withIdentity("newJob", "batch").build();
+        Set<Trigger> triggers = new LinkedHashSet<Trigger>();
+        triggers.add(operableTrigger(newTrigger().withIdentity("new", "batch").forJob(newJob).build()));
+        triggers.add(operableTrigger(newTrigger().withIdentity("existing", "batch").forJob(newJob).build()));
+        Map<JobDetail, Set<? extends Trigger>> triggersAndJobs = new HashMap<JobDetail, Set<? extends Trigger>>();
+        triggersAndJobs.put(newJob, triggers);
+
+        try {
+            store.storeJobsAndTriggers(triggersAndJobs, false);
+            fail("Expected ObjectAlreadyExistsException");
+        } catch (ObjectAlreadyExistsException expected) {
+        }
+        assertNull(store.retrieveJob(newJob.getKey()));
+        assertNull(store.retrieveTrigger(triggerKey("new", "batch")));
+
+        destroyJobStore("testStoreJobsAndTriggersRejectsExistingTriggers");
+    }
+
+    public void testTriggersFiredInBatch() throws Exception {
+        JobStore store = initializedJobStore("testTriggersFiredInBatch");
+
+        JobDetail job = newJob(MyJob.class).withIdentity("job", "batch").storeDurably().build();
+        JobDetail nonConcurrentJob = newJob(NonConcurrentJob.class).withIdentity("nonConcurrentJob", "batch").storeDurably().build();
+        store.storeJob(job, false);
+        store.storeJob(nonConcurrentJob, false);
+
+        long base = System.currentTimeMillis() - 1000L;
+        storeTrigger(store, newTrigger().withIdentity("repeating", "batch").forJob(job).startAt(new Date(base))
+            .withSchedule(simpleSchedule().withIntervalInSeconds(5).repeatForever()).build());
+        storeTrigger(store, newTrigger().withIdentity("once", "batch").forJob(job).startAt(new Date(base + 1L))
+            .withSchedule(simpleSchedule()).build());
+        storeTrigger(store, newTrigger().withIdentity("deleted", "batch").forJob(job).startAt(new Date(base + 2L))
+            .withSchedule(simpleSchedule().withIntervalInSeconds(5).repeatForever()).build());
+        storeTrigger(store, newTrigger().withIdentity("nonConcurrent1", "batch").forJob(nonConcurrentJob).startAt(new Date(base + 3L))
+            .withSchedule(simpleSchedule().withIntervalInSeconds(5).repeatForever()).build());
+        storeTrigger(store, newTrigger().withIdentity("nonConcurrent2", "batch").forJob(nonConcurrentJob).startAt(new Date(base + 60000L))
+            .withSchedule(simpleSchedule().withIntervalInSeconds(5).repeatForever()).build());
+
+        List<OperableTrigger> acquired = store.acquireNextTriggers(base + 10000L, 10, 0L);
+        assertEquals(4, acquired.size());
+        store.removeTrigger(triggerKey("deleted", "batch"));
+
+        List<TriggerFiredResult> results = store.triggersFired(acquired);
+        assertEquals(acquired.size(), results.size());
+        Set<TriggerKey> fired = new HashSet<TriggerKey>();
+        for (int i = 0; i < results.size(); i++) {
+            TriggerFiredResult result = results.get(i);
+            assertNull(result.getException());
+            if (result.getTriggerFiredBundle() != null) {
+                assertEquals(acquired.get(i).getKey(), result.getTriggerFiredBundle().getTrigger().getKey());
+                fired.add(result.getTriggerFiredBundle().getTrigger().getKey());
+            }
+        }
+        assertEquals(3, fired.size());
+        assertFalse(fired.contains(triggerKey("deleted", "batch")));
+
+        assertEquals(TriggerState.NORMAL, store.getTriggerState(triggerKey("repeating", "batch")));
+        assertEquals(TriggerState.COMPLETE, store.getTriggerState(triggerKey("once", "batch")));
+        assertEquals(TriggerState.BLOCKED, store.getTriggerState(triggerKey("nonConcurrent1", "batch")));
+        assertEquals(TriggerState.BLOCKED, store.getTriggerState(triggerKey("nonConcurrent2", "batch")));
+        OperableTrigger repeating = store.retrieveTrigger(triggerKey("repeating", "batch"));
+        assertEquals(1, ((org.quartz.SimpleTrigger) repeating).getTimesTriggered());
+
+        destroyJobStore("testTriggersFiredInBatch");
+    }
+
+    public void testTriggersOfOneJobFiredInBatchGetJobDetailsOfTheirOwn() throws Exception {
+        JobStore store = initializedJobStore("testTriggersOfOneJobFiredInBatchGetJobDetailsOfTheirOwn");
+
+        JobDetail job = newJob(MyJob.class).withIdentity("job", "batch").usingJobData("count", 0).storeDurably().build();
+        store.storeJob(job, false);
+
+        long base = System.currentTimeMillis() - 1000L;
+        storeTrigger(store, newTrigger().withIdentity("first", "batch").forJob(job).startAt(new Date(base))
+            .withSchedule(simpleSchedule().withIntervalInSeconds(5).repeatForever()).build());
+        storeTrigger(store, newTrigger().withIdentity("second", "batch").forJob(job).startAt(new Date(base + 1L))
+            .withSchedule(simpleSchedule().withIntervalInSeconds(5).repeatForever()).build());
+
+        List<OperableTrigger> acquired = store.acquireNextTriggers(base + 10000L, 10, 0L);
+        assertEquals(2, acquired.size());
+        List<TriggerFiredResult> results = store.triggersFired(acquired);
+        JobDetail first = results.get(0).getTriggerFiredBundle().getJobDetail();
+        JobDetail second = results.get(1).getTriggerFiredBundle().getJobDetail();
+        assertEquals(job.getKey(), first.getKey());
+        assertEquals(job.getKey(), second.getKey());
+        assertNotSame(first, second);
+        assertNotSame(first.getJobDataMap(), second.getJobDataMap());
+
+        first.getJobDataMap().put("count", 1);
+        assertEquals(0, second.getJobDataMap().getInt("count"));
+        assertFalse(second.getJobDataMap().isDirty());
+
+        destroyJobStore("testTriggersOfOneJobFiredInBatchGetJobDetailsOfTheirOwn");
+    }
+
+    public void testTriggeredJobsCompleteInBatch() throws Exception {
+        JobStore store = initializedJobStore("testTriggeredJobsCompleteInBatch");
+
+        JobDetail job = newJob(MyJob.class).withIdentity("job", "batch").storeDurably().build();
+        JobDetail nonConcurrentJob = newJob(NonConcurrentJob.class).withIdentity("nonConcurrentJob", "batch").storeDurably().build();
+        store.storeJob(job, false);
+        store.storeJob(nonConcurrentJob, false);
+
+        long base = System.currentTimeMillis() - 1000L;
+        storeTrigger(store, newTrigger().withIdentity("repeating", "batch").forJob(job).startAt(new Date(base))
+            .withSchedule(simpleSchedule().withIntervalInSeconds(5).repeatForever()).build());
+        storeTrigger(store, newTrigger().withIdentity("once", "batch").forJob(job).startAt(new Date(base + 1L))
+            .withSchedule(simpleSchedule()).build());
+        storeTrigger(store, newTrigger().withIdentity("nonConcurrent1", "batch").forJob(nonConcurrentJob).startAt(new Date(base + 2L))
+            .withSchedule(simpleSchedule().withIntervalInSeconds(5).repeatForever()).build());
+        storeTrigger(store, newTrigger().withIdentity("nonConcurrent2", "batch").forJob(nonConcurrentJob).startAt(new Date(base + 60000L))
+            .withSchedule(simpleSchedule().withIntervalInSeconds(5).repeatForever()).build());
+
+        List<OperableTrigger> acquired = store.acquireNextTriggers(base + 10000L, 10, 0L);
+        assertEquals(3, acquired.size());
+        List<TriggerCompletedBundle> completions = new ArrayList<TriggerCompletedBundle>();
+        for (TriggerFiredResult result : store.triggersFired(acquired)) {
+            TriggerFiredBundle bundle = result.getTriggerFiredBundle();
+            CompletedExecutionInstruction instruction = bundle.getTrigger().getNextFireTime() == null
+                ? CompletedExecutionInstruction.DELETE_TRIGGER : CompletedExecutionInstruction.NOOP;
+            completions.add(new TriggerCompletedBundle(bundle.getTrigger(), bundle.getJobDetail(), instruction));
+        }
+        assertEquals(TriggerState.BLOCKED, store.getTriggerState(triggerKey("nonConcurrent2", "batch")));
+
+        ((BatchingJobStore) store).triggeredJobsComplete(completions);
+
+        assertEquals(TriggerState.NORMAL, store.getTriggerState(triggerKey("repeating", "batch")));
+        assertNull(store.retrieveTrigger(triggerKey("once", "batch")));
+        assertEquals(TriggerState.NORMAL, store.getTriggerState(triggerKey("nonConcurrent1", "batch")));
+        assertEquals(TriggerState.NORMAL, store.getTriggerState(triggerKey("nonConcurrent2", "batch")));
+        JobStoreSupport jobStoreSupport = (JobStoreSupport) store;
+        Connection conn = jobStoreSupport.getNonManagedTXConnection();
+        try {
+            assertTrue(jobStoreSupport.getDelegate().selectFiredTriggerRecordsByJob(conn, null, "batch").isEmpty());
+        } finally {
+            jobStoreSupport.cleanupConnection(conn);
+        }
+
+        destroyJobStore("testTriggeredJobsCompleteInBatch");
+    }
+
+    private JobStore initializedJobStore(String name) throws Exception {
+        ClassLoadHelper loadHelper = new CascadingClassLoadHelper();
+        loadHelper.initialize();
+
+        JobStore store = createJobStore(name);
+        store.initialize(loadHelper, new SampleSignaler());
+        store.schedulerStarted();
+        return store;
+    }
+
+    private static OperableTrigger operableTrigger(Trigger trigger) {
+        OperableTrigger operableTrigger = (OperableTrigger) trigger;
+        operableTrigger.computeFirstFireTime(null);
+        return operableTrigger;
+    }
+
+    private void storeTrigger(JobStore store, Trigger trigger) throws Exception {
+        store.storeTrigger(operableTrigger(trigger), false);
+    }
+
+    @DisallowConcurrentExecution
+    public static class NonConcurrentJob implements Job {
+        public void execute(JobExecutionContext context) throws JobExecutionException {
+        }
+    }
+}
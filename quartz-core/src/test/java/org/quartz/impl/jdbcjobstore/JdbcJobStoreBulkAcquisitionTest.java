@@ -0,0 +1,124 @@
+package org.quartz.impl.jdbcjobstore;
+
+import static org.quartz.CalendarIntervalScheduleBuilder.calendarIntervalSchedule;
+import static org.quartz.CronScheduleBuilder.cronSchedule;
+import static org.quartz.DailyTimeIntervalScheduleBuilder.dailyTimeIntervalSchedule;
+import static org.quartz.JobBuilder.newJob;
+import static org.quartz.SimpleScheduleBuilder.simpleSchedule;
+import static org.quartz.TriggerBuilder.newTrigger;
+
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.quartz.CalendarIntervalTrigger;
+import org.quartz.CronTrigger;
+import org.quartz.DailyTimeIntervalTrigger;
+import org.quartz.DateBuilder.IntervalUnit;
+import org.quartz.DisallowConcurrentExecution;
+import org.quartz.Job;
+import org.quartz.JobDetail;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.quartz.SimpleTrigger;
+import org.quartz.Trigger;
+import org.quartz.simpl.CascadingClassLoadHelper;
+import org.quartz.spi.ClassLoadHelper;
+import org.quartz.spi.JobStore;
+import org.quartz.spi.OperableTrigger;
+
+/**
+ * Runs the job store tests with triggers acquired by one joined query and
+ * JDBC batches.
+ */
+public class JdbcJobStoreBulkAcquisitionTest extends JdbcJobStoreTest {
+
+    @Override
+    protected JobStore createJobStore(String name) {
+        JobStoreTX jdbcJobStore = (JobStoreTX) super.createJobStore(name);
+        jdbcJobStore.setBulkTriggerAcquisition(true);
+        return jdbcJobStore;
+    }
+
+    public void testBulkAcquisitionOfMixedTriggerTypes() throws Exception {
+        ClassLoadHelper loadHelper = new CascadingClassLoadHelper();
+        loadHelper.initialize();
+
+        JobStore store = createJobStore("testBulkAcquisitionOfMixedTriggerTypes");
+        store.initialize(loadHelper, new SampleSignaler());
+        store.schedulerStarted();
+
+        JobDetail job = newJob(MyJob.class).withIdentity("job", "bulk").storeDurably().build();
+        JobDetail nonConcurrentJob = newJob(NonConcurrentJob.class).withIdentity("nonConcurrentJob", "bulk").storeDurably().build();
+        store.storeJob(job, false);
+        store.storeJob(nonConcurrentJob, false);
+
+        long base = System.currentTimeMillis() + 60000L;
+        storeTrigger(store, newTrigger().withIdentity("simple", "bulk").forJob(job)
+            .startAt(new Date(base)).usingJobData("key", "value")
+            .withSchedule(simpleSchedule().withIntervalInSeconds(5).withRepeatCount(3)).build());
+        storeTrigger(store, newTrigger().withIdentity("cron", "bulk").forJob(job)
+            .startAt(new Date(base - 1000L)).withSchedule(cronSchedule("0/5 * * * * ?")).build());
+        storeTrigger(store, newTrigger().withIdentity("calendar", "bulk").forJob(job)
+            .startAt(new Date(base + 1000L)).withSchedule(calendarIntervalSchedule().withIntervalInHours(2)).build());
+        storeTrigger(store, newTrigger().withIdentity("daily", "bulk").forJob(job)
+            .startAt(new Date(base + 2000L)).withSchedule(dailyTimeIntervalSchedule().withInterval(1, IntervalUnit.SECOND)).build());
+        storeTrigger(store, newTrigger().withIdentity("nonConcurrent1", "bulk").forJob(nonConcurrentJob)
+            .startAt(new Date(base + 3000L)).withSchedule(simpleSchedule()).build());
+        storeTrigger(store, newTrigger().withIdentity("nonConcurrent2", "bulk").forJob(nonConcurrentJob)
+            .startAt(new Date(base + 4000L)).withSchedule(simpleSchedule()).build());
+
+        List<OperableTrigger> acquired = store.acquireNextTriggers(base + 10000L, 10, 0L);
+        Set<String> names = new HashSet<String>();
+        long lastFireTime = 0L;
+        for (OperableTrigger trigger : acquired) {
+            names.add(trigger.getKey().getName());
+            assertNotNull(trigger.getFireInstanceId());
+            assertTrue(trigger.getNextFireTime().getTime() >= lastFireTime);
+            lastFireTime = trigger.getNextFireTime().getTime();
+        }
+        assertEquals(5, acquired.size());
+        assertTrue(names.contains("simple"));
+        assertTrue(names.contains("cron"));
+        assertTrue(names.contains("calendar"));
+        assertTrue(names.contains("daily"));
+        assertTrue(names.contains("nonConcurrent1"));
+
+        for (OperableTrigger trigger : acquired) {
+            if (trigger instanceof SimpleTrigger && trigger.getKey().getName().equals("simple")) {
+                assertEquals(3, ((SimpleTrigger) trigger).getRepeatCount());
+                assertEquals(5000L, ((SimpleTrigger) trigger).getRepeatInterval());
+                assertEquals("value", trigger.getJobDataMap().getString("key"));
+            } else if (trigger instanceof CronTrigger) {
+                assertEquals("0/5 * * * * ?", ((CronTrigger) trigger).getCronExpression());
+            } else if (trigger instanceof CalendarIntervalTrigger) {
+                assertEquals(2, ((CalendarIntervalTrigger) trigger).getRepeatInterval());
+                assertEquals(IntervalUnit.HOUR, ((CalendarIntervalTrigger) trigger).getRepeatIntervalUnit());
+            } else if (trigger instanceof DailyTimeIntervalTrigger) {
+                assertEquals(IntervalUnit.SECOND, ((DailyTimeIntervalTrigger) trigger).getRepeatIntervalUnit());
+            }
+        }
+
+        // the acquired triggers are no longer waiting, except the second
+        // trigger of the job that disallows concurrent execution
+        acquired = store.acquireNextTriggers(base + 10000L, 10, 0L);
+        assertEquals(1, acquired.size());
+        assertEquals("nonConcurrent2", acquired.get(0).getKey().getName());
+        assertTrue(store.acquireNextTriggers(base + 10000L, 10, 0L).isEmpty());
+
+        destroyJobStore("testBulkAcquisitionOfMixedTriggerTypes");
+    }
+
+    private void storeTrigger(JobStore store, Trigger trigger) throws Exception {
+        OperableTrigger operableTrigger = (OperableTrigger) trigger;
+        operableTrigger.computeFirstFireTime(null);
+        store.storeTrigger(operableTrigger, false);
+    }
+
+    @DisallowConcurrentExecution
+    public static class NonConcurrentJob implements Job {
+        public void execute(JobExecutionContext context) throws JobExecutionException {
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package org.quartz.impl.jdbcjobstore;
+
+import static org.quartz.JobBuilder.newJob;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import org.quartz.JobDetail;
+import org.quartz.impl.calendar.BaseCalendar;
+import org.quartz.simpl.CascadingClassLoadHelper;
+import org.quartz.spi.ClassLoadHelper;
+import org.quartz.spi.JobStore;
+import org.quartz.utils.DBConnectionManager;
+
+/**
+ * Runs the job store tests with the job and calendar cache enabled, and
+ * tests that changes made by other nodes invalidate the cache.
+ */
+public class JdbcJobStoreCacheTest extends JdbcJobStoreTest {
+
+    @Override
+    protected JobStore createJobStore(String name) {
+        JobStoreTX jdbcJobStore = (JobStoreTX) super.createJobStore(name);
+        jdbcJobStore.setJobAndCalendarCacheSize(10);
+        return jdbcJobStore;
+    }
+
+    public void testJobCacheInvalidatedByOtherNode() throws Exception {
+        String name = "testJobCacheInvalidatedByOtherNode";
+        JobStore store = initializedJobStore(name);
+
+        JobDetail job = newJob(MyJob.class).withIdentity("job", "cache").withDescription("original").storeDurably().build();
+        store.storeJob(job, false);
+        assertEquals("original", store.retrieveJob(job.getKey()).getDescription());
+
+        execute(name, "UPDATE QRTZ_JOB_DETAILS SET DESCRIPTION = 'changed' WHERE SCHED_NAME = '" + name + "'");
+        assertEquals("original", store.retrieveJob(job.getKey()).getDescription());
+
+        incrementDataVersion(name, JobStoreSupport.VERSION_JOBS);
+        assertEquals("changed", store.retrieveJob(job.getKey()).getDescription());
+
+        destroyJobStore(name);
+    }
+
+    public void testJobCacheInvalidatedByReplace() throws Exception {
+        String name = "testJobCacheInvalidatedByReplace";
+        JobStore store = initializedJobStore(name);
+
+        JobDetail job = newJob(MyJob.class).withIdentity("job", "cache").withDescription("original").storeDurably().build();
+        store.storeJob(job, false);
+        store.retrieveJob(job.getKey()).getJobDataMap().put("modified", "copy");
+        assertFalse(store.retrieveJob(job.getKey()).getJobDataMap().containsKey("modified"));
+
+        store.storeJob(job.getJobBuilder().withDescription("replaced").build(), true);
+        assertEquals("replaced", store.retrieveJob(job.getKey()).getDescription());
+
+        store.removeJob(job.getKey());
+        assertNull(store.retrieveJob(job.getKey()));
+
+        destroyJobStore(name);
+    }
+
+    public void testCalendarCacheInvalidatedByOtherNode() throws Exception {
+        String name = "testCalendarCacheInvalidatedByOtherNode";
+        JobStore store = initializedJobStore(name);
+
+        BaseCalendar calendar = new BaseCalendar();
+        calendar.setDescription("original");
+        store.storeCalendar("calendar", calendar, false, false);
+        assertEquals("original", store.retrieveCalendar("calendar").getDescription());
+
+        execute(name, "DELETE FROM QRTZ_CALENDARS WHERE SCHED_NAME = '" + name + "'");
+        assertNotNull(store.retrieveCalendar("calendar"));
+
+        incrementDataVersion(name, JobStoreSupport.VERSION_CALENDARS);
+        assertNull(store.retrieveCalendar("calendar"));
+
+        destroyJobStore(name);
+    }
+
+    private JobStore initializedJobStore(String name) throws Exception {
+        ClassLoadHelper loadHelper = new CascadingClassLoadHelper();
+        loadHelper.initialize();
+
+        JobStore store = createJobStore(name);
+        store.initialize(loadHelper, new SampleSignaler());
+        store.schedulerStarted();
+        return store;
+    }
+
+    private static void incrementDataVersion(String name, String versionName) throws SQLException {
+        if (execute(name, "UPDATE QRTZ_DATA_VERSIONS SET DATA_VERSION = DATA_VERSION + 1 WHERE SCHED_NAME = '"
+                + name + "' AND VERSION_NAME = '" + versionName + "'") == 0) {
+            execute(name, "INSERT INTO QRTZ_DATA_VERSIONS VALUES ('" + name + "', '" + versionName + "', 1)");
+        }
+    }
+
+    private static int execute(String name, String sql) throws SQLException {
+        Connection conn = DBConnectionManager.getInstance().getConnection(name);
+        try {
+            conn.setAutoCommit(true);
+            PreparedStatement ps = conn.prepareStatement(sql);
+            try {
+                return ps.executeUpdate();
+            } finally {
+                ps.close();
+            }
+        } finally {
+            conn.close();
+        }
+    }
+}
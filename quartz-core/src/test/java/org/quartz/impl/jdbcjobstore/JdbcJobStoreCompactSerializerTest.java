@@ -0,0 +1,54 @@
+package org.quartz.impl.jdbcjobstore;
+
+import static org.quartz.JobBuilder.newJob;
+
+import org.quartz.JobDetail;
+import org.quartz.impl.calendar.BaseCalendar;
+import org.quartz.simpl.CascadingClassLoadHelper;
+import org.quartz.simpl.CompactJobDataSerializer;
+import org.quartz.spi.ClassLoadHelper;
+import org.quartz.spi.JobStore;
+
+/**
+ * Runs the job store tests with the compact job data serializer, and tests
+ * that it reads data written with Java serialization.
+ */
+public class JdbcJobStoreCompactSerializerTest extends JdbcJobStoreTest {
+
+    @Override
+    protected JobStore createJobStore(String name) {
+        JobStoreTX jdbcJobStore = (JobStoreTX) super.createJobStore(name);
+        jdbcJobStore.setJobDataSerializer(new CompactJobDataSerializer());
+        return jdbcJobStore;
+    }
+
+    public void testReadsJavaSerializedData() throws Exception {
+        String name = "testReadsJavaSerializedData";
+        ClassLoadHelper loadHelper = new CascadingClassLoadHelper();
+        loadHelper.initialize();
+
+        JobStoreTX legacyStore = (JobStoreTX) super.createJobStore(name);
+        legacyStore.initialize(loadHelper, new SampleSignaler());
+        JobDetail job = newJob(MyJob.class).withIdentity("job", "legacy").usingJobData("answer", 42).storeDurably().build();
+        legacyStore.storeJob(job, false);
+        BaseCalendar calendar = new BaseCalendar();
+        calendar.setDescription("legacy");
+        legacyStore.storeCalendar("calendar", calendar, false, false);
+
+        JobStoreTX store = new JobStoreTX();
+        store.setDataSource(name);
+        store.setTablePrefix("QRTZ_");
+        store.setInstanceId("SINGLE_NODE_TEST");
+        store.setInstanceName(name);
+        store.setJobDataSerializer(new CompactJobDataSerializer());
+        store.initialize(loadHelper, new SampleSignaler());
+
+        assertEquals(42, store.retrieveJob(job.getKey()).getJobDataMap().getInt("answer"));
+        assertEquals("legacy", store.retrieveCalendar("calendar").getDescription());
+
+        store.storeJob(newJob(MyJob.class).withIdentity("job", "legacy").usingJobData("answer", 43).storeDurably().build(), true);
+        assertEquals(43, store.retrieveJob(job.getKey()).getJobDataMap().getInt("answer"));
+
+        destroyJobStore(name);
+    }
+}
@@ -0,0 +1,133 @@
+package org.quartz.impl.jdbcjobstore;
+
+import static org.quartz.JobBuilder.newJob;
+import static org.quartz.SimpleScheduleBuilder.simpleSchedule;
+import static org.quartz.TriggerBuilder.newTrigger;
+import static org.quartz.TriggerKey.triggerKey;
+
+import java.sql.SQLException;
+import java.util.Date;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.quartz.AbstractJobStoreTest.MyJob;
+import org.quartz.AbstractJobStoreTest.SampleSignaler;
+import org.quartz.JobDetail;
+import org.quartz.Trigger;
+import org.quartz.Trigger.TriggerState;
+import org.quartz.impl.jdbcjobstore.JobStoreSupport.RecoverMisfiredJobsResult;
+import org.quartz.simpl.CascadingClassLoadHelper;
+import org.quartz.spi.OperableTrigger;
+
+/**
+ * Tests the misfire handler's paginated handling of misfired triggers.
+ */
+public class JdbcJobStoreMisfireHandlingTest extends TestCase {
+
+    private static final int MISFIRED = 45;
+
+    private JobStoreTX store;
+
+    private String name;
+
+    @Override
+    protected void setUp() throws Exception {
+        name = getName();
+        JdbcQuartzTestUtilities.createDatabase(name);
+        store = new JobStoreTX();
+        store.setDataSource(name);
+        store.setTablePrefix("QRTZ_");
+        store.setInstanceId("SINGLE_NODE_TEST");
+        store.setInstanceName(name);
+        store.setUseDBLocks(true);
+        store.setMaxMisfiresToHandleAtATime(10);
+
+        CascadingClassLoadHelper loadHelper = new CascadingClassLoadHelper();
+        loadHelper.initialize();
+        store.initialize(loadHelper, new SampleSignaler());
+
+        JobDetail job = newJob(MyJob.class).withIdentity("job", "misfire").storeDurably().build();
+        store.storeJob(job, false);
+
+        // all but the last of these fire at the same time, so that pages end amid equal fire times
+        long past = System.currentTimeMillis() - 3600000L;
+        for (int i = 0; i < MISFIRED; i++) {
+            storeTrigger(newTrigger().withIdentity("misfired" + i, "misfire").forJob(job)
+                .startAt(new Date(i < MISFIRED - 1 ? past : past + 1000L))
+                .withSchedule(simpleSchedule().withIntervalInMinutes(1).repeatForever()
+                    .withMisfireHandlingInstructionNextWithRemainingCount()).build());
+        }
+        storeTrigger(newTrigger().withIdentity("once", "misfire").forJob(job).startAt(new Date(past))
+            .withSchedule(simpleSchedule().withMisfireHandlingInstructionNextWithRemainingCount()).build());
+        storeTrigger(newTrigger().withIdentity("ignored", "misfire").forJob(job).startAt(new Date(past))
+            .withSchedule(simpleSchedule().withIntervalInMinutes(1).repeatForever()
+                .withMisfireHandlingInstructionIgnoreMisfires()).build());
+        storeTrigger(newTrigger().withIdentity("future", "misfire").forJob(job)
+            .startAt(new Date(System.currentTimeMillis() + 3600000L)).build());
+    }
+
+    @Override
+    protected void tearDown() throws SQLException {
+        store.shutdown();
+        JdbcQuartzTestUtilities.destroyDatabase(name);
+    }
+
+    public void testHandlesAllMisfiredTriggersInPages() throws Exception {
+        store.setMisfireHandlingTimeBudget(60000L);
+
+        RecoverMisfiredJobsResult result = store.doRecoverMisfires();
+
+        assertFalse(result.hasMoreMisfiredTriggers());
+        assertEquals(MISFIRED + 1, result.getProcessedMisfiredTriggerCount());
+        assertMisfiresHandled();
+
+        Map<String, Long> progress = store.getMisfireHandlingProgress();
+        assertEquals(Long.valueOf(MISFIRED + 1), progress.get("handled"));
+        assertEquals(Long.valueOf(5), progress.get("pages"));
+        assertEquals(Long.valueOf(0), progress.get("remaining"));
+
+        assertEquals(0, store.doRecoverMisfires().getProcessedMisfiredTriggerCount());
+        assertEquals(Long.valueOf(0), store.getMisfireHandlingProgress().get("sweepInProgress"));
+    }
+
+    public void testYieldsAfterTimeBudget() throws Exception {
+        store.setMisfireHandlingTimeBudget(0L);
+
+        RecoverMisfiredJobsResult result = store.doRecoverMisfires();
+        assertTrue(result.hasMoreMisfiredTriggers());
+        assertEquals(10, result.getProcessedMisfiredTriggerCount());
+        Map<String, Long> progress = store.getMisfireHandlingProgress();
+        assertEquals(Long.valueOf(1), progress.get("sweepInProgress"));
+        assertEquals(Long.valueOf(MISFIRED + 1 - 10), progress.get("remaining"));
+
+        int processed = result.getProcessedMisfiredTriggerCount();
+        int passes = 1;
+        while (result.hasMoreMisfiredTriggers()) {
+            result = store.doRecoverMisfires();
+            processed += result.getProcessedMisfiredTriggerCount();
+            assertTrue(++passes < 10);
+        }
+
+        assertEquals(MISFIRED + 1, processed);
+        assertMisfiresHandled();
+        assertEquals(Long.valueOf(0), store.getMisfireHandlingProgress().get("remaining"));
+    }
+
+    private void assertMisfiresHandled() throws Exception {
+        long misfireTime = System.currentTimeMillis() - store.getMisfireThreshold();
+        for (int i = 0; i < MISFIRED; i++) {
+            OperableTrigger trigger = store.retrieveTrigger(triggerKey("misfired" + i, "misfire"));
+            assertTrue(trigger.getNextFireTime().getTime() >= misfireTime);
+            assertEquals(TriggerState.NORMAL, store.getTriggerState(trigger.getKey()));
+        }
+        assertEquals(TriggerState.COMPLETE, store.getTriggerState(triggerKey("once", "misfire")));
+        assertTrue(store.retrieveTrigger(triggerKey("ignored", "misfire")).getNextFireTime().getTime() < misfireTime);
+    }
+
+    private void storeTrigger(Trigger trigger) throws Exception {
+        OperableTrigger operableTrigger = (OperableTrigger) trigger;
+        operableTrigger.computeFirstFireTime(null);
+        store.storeTrigger(operableTrigger, false);
+    }
+}
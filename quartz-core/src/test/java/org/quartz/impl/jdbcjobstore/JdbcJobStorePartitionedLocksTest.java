@@ -0,0 +1,169 @@
+package org.quartz.impl.jdbcjobstore;
+
+import static org.quartz.JobBuilder.newJob;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.quartz.JobDetail;
+import org.quartz.impl.triggers.SimpleTriggerImpl;
+import org.quartz.simpl.CascadingClassLoadHelper;
+import org.quartz.spi.ClassLoadHelper;
+import org.quartz.spi.JobStore;
+import org.quartz.spi.OperableTrigger;
+import org.quartz.spi.TriggerFiredResult;
+
+/**
+ * Runs the job store tests with the TRIGGER_ACCESS lock split in partitions.
+ */
+public class JdbcJobStorePartitionedLocksTest extends JdbcJobStoreTest {
+
+    private static final int PARTITIONS = 4;
+
+    private final List<String> obtainedLocks = Collections.synchronizedList(new ArrayList<String>());
+
+    /** how many more partition locks to obtain before failing the next one, or -1 to never fail */
+    private volatile int partitionLocksBeforeFailure = -1;
+
+    private volatile String failedLock;
+
+    @Override
+    protected JobStore createJobStore(String name) {
+        JobStoreTX jdbcJobStore = (JobStoreTX) super.createJobStore(name);
+        jdbcJobStore.setTriggerAccessLockPartitions(PARTITIONS);
+        jdbcJobStore.setLockHandler(new StdRowLockSemaphore("QRTZ_", name, null) {
+            @Override
+            public boolean obtainLock(Connection conn, String lockName) throws LockException {
+                if (lockName.startsWith(JobStoreSupport.LOCK_TRIGGER_ACCESS + "_") && partitionLocksBeforeFailure >= 0
+                        && partitionLocksBeforeFailure-- == 0) {
+                    failedLock = lockName;
+                    throw new LockException("Failure obtaining " + lockName);
+                }
+                obtainedLocks.add(lockName);
+                return super.obtainLock(conn, lockName);
+            }
+        });
+        return jdbcJobStore;
+    }
+
+    public void testSemaphoreObtainsAllPartitionsForTriggerAccess() throws Exception {
+        final List<String> events = new ArrayList<String>();
+        PartitionedTriggerAccessSemaphore semaphore = new PartitionedTriggerAccessSemaphore(new Semaphore() {
+            public boolean obtainLock(Connection conn, String lockName) {
+                events.add("+" + lockName);
+                return true;
+            }
+            public void releaseLock(String lockName) {
+                events.add("-" + lockName);
+            }
+            public boolean requiresConnection() {
+                return false;
+            }
+        }, 3);
+
+        assertTrue(semaphore.obtainLock(null, JobStoreSupport.LOCK_TRIGGER_ACCESS));
+        semaphore.releaseLock(JobStoreSupport.LOCK_TRIGGER_ACCESS);
+        semaphore.obtainLock(null, JobStoreSupport.LOCK_STATE_ACCESS);
+        semaphore.obtainLock(null, semaphore.getPartitionLockName(1));
+        assertEquals(java.util.Arrays.asList(
+                "+TRIGGER_ACCESS_0", "+TRIGGER_ACCESS_1", "+TRIGGER_ACCESS_2",
+                "-TRIGGER_ACCESS_2", "-TRIGGER_ACCESS_1", "-TRIGGER_ACCESS_0",
+                "+STATE_ACCESS", "+TRIGGER_ACCESS_1"), events);
+        assertFalse(semaphore.requiresConnection());
+    }
+
+    public void testAcquireAndFireUnderPartitionLocks() throws Exception {
+        ClassLoadHelper loadHelper = new CascadingClassLoadHelper();
+        loadHelper.initialize();
+
+        JobStore store = createJobStore("testAcquireAndFireUnderPartitionLocks");
+        store.initialize(loadHelper, new SampleSignaler());
+        store.schedulerStarted();
+
+        long base = System.currentTimeMillis() + 60000L;
+        Set<String> expected = new HashSet<String>();
+        for (int i = 0; i < 12; i++) {
+            JobDetail job = newJob(MyJob.class).withIdentity("job" + i, "partitioned").storeDurably().build();
+            store.storeJob(job, false);
+            OperableTrigger trigger = new SimpleTriggerImpl("trigger" + i, "partitioned", job.getKey().getName(),
+                    job.getKey().getGroup(), new Date(base + i * 100L), null, 0, 0L);
+            trigger.computeFirstFireTime(null);
+            store.storeTrigger(trigger, false);
+            expected.add(trigger.getKey().getName());
+        }
+
+        obtainedLocks.clear();
+        Set<String> acquiredNames = new HashSet<String>();
+        List<OperableTrigger> acquired;
+        while (!(acquired = store.acquireNextTriggers(base + 10000L, 1, 0L)).isEmpty()) {
+            PartitionedTriggerAccessSemaphore partitioned = ((JobStoreSupport) store).getPartitionedLockHandler();
+            int partition = partitioned.partitionOf(acquired.get(0).getJobKey());
+            for (OperableTrigger trigger : acquired) {
+                assertEquals(partition, partitioned.partitionOf(trigger.getJobKey()));
+                assertTrue(acquiredNames.add(trigger.getKey().getName()));
+            }
+            for (TriggerFiredResult result : store.triggersFired(acquired)) {
+                assertNotNull(result.getTriggerFiredBundle());
+            }
+        }
+        assertEquals(expected, acquiredNames);
+        assertFalse(obtainedLocks.isEmpty());
+        assertFalse(obtainedLocks.contains(JobStoreSupport.LOCK_TRIGGER_ACCESS));
+
+        destroyJobStore("testAcquireAndFireUnderPartitionLocks");
+    }
+
+    public void testFailedPartitionKeepsTheTriggersAlreadyAcquired() throws Exception {
+        ClassLoadHelper loadHelper = new CascadingClassLoadHelper();
+        loadHelper.initialize();
+
+        JobStore store = createJobStore("testFailedPartitionKeepsTheTriggersAlreadyAcquired");
+        store.initialize(loadHelper, new SampleSignaler());
+        store.schedulerStarted();
+        PartitionedTriggerAccessSemaphore partitioned = ((JobStoreSupport) store).getPartitionedLockHandler();
+
+        long base = System.currentTimeMillis() + 60000L;
+        Map<String, String> partitionLockByTrigger = new HashMap<String, String>();
+        for (int i = 0; i < 12; i++) {
+            JobDetail job = newJob(MyJob.class).withIdentity("job" + i, "failing").storeDurably().build();
+            store.storeJob(job, false);
+            OperableTrigger trigger = new SimpleTriggerImpl("trigger" + i, "failing", job.getKey().getName(),
+                    job.getKey().getGroup(), new Date(base + i * 100L), null, 0, 0L);
+            trigger.computeFirstFireTime(null);
+            store.storeTrigger(trigger, false);
+            partitionLockByTrigger.put(trigger.getKey().getName(),
+                    partitioned.getPartitionLockName(partitioned.partitionOf(job.getKey())));
+        }
+        assertTrue(new HashSet<String>(partitionLockByTrigger.values()).size() > 1);
+
+        // the second partition visited fails
+        partitionLocksBeforeFailure = 1;
+        List<OperableTrigger> acquired = store.acquireNextTriggers(base + 10000L, 12, 0L);
+        assertNotNull(failedLock);
+        assertFalse(acquired.isEmpty());
+        assertTrue(acquired.size() < 12);
+        Set<String> acquiredNames = new HashSet<String>();
+        for (OperableTrigger trigger : acquired) {
+            assertFalse(failedLock.equals(partitionLockByTrigger.get(trigger.getKey().getName())));
+            assertTrue(acquiredNames.add(trigger.getKey().getName()));
+        }
+
+        // the rest, including the failed partition's, are still there to acquire
+        partitionLocksBeforeFailure = -1;
+        while (!(acquired = store.acquireNextTriggers(base + 10000L, 12, 0L)).isEmpty()) {
+            for (OperableTrigger trigger : acquired) {
+                assertTrue(acquiredNames.add(trigger.getKey().getName()));
+            }
+        }
+        assertEquals(partitionLockByTrigger.keySet(), acquiredNames);
+
+        destroyJobStore("testFailedPartitionKeepsTheTriggersAlreadyAcquired");
+    }
+}
@@ -0,0 +1,114 @@
+package org.quartz.impl.jdbcjobstore;
+
+import static org.quartz.JobBuilder.newJob;
+
+import java.sql.SQLException;
+
+import junit.framework.TestCase;
+
+import org.quartz.AbstractJobStoreTest.MyJob;
+import org.quartz.AbstractJobStoreTest.SampleSignaler;
+import org.quartz.JobDetail;
+import org.quartz.impl.matchers.GroupMatcher;
+import org.quartz.simpl.CascadingClassLoadHelper;
+
+/**
+ * Tests the routing of the reads that need no lock to the read data source.
+ */
+public class JdbcJobStoreReadDataSourceTest extends TestCase {
+
+    private JobStoreTX store;
+
+    private String name;
+
+    @Override
+    protected void setUp() throws Exception {
+        name = getName();
+        // a separate database stands in for a replica that lags behind the primary
+        JdbcQuartzTestUtilities.createDatabase(name);
+        JdbcQuartzTestUtilities.createDatabase(name + "Replica");
+        store = new JobStoreTX();
+        store.setDataSource(name);
+        store.setReadDataSource(name + "Replica");
+        store.setTablePrefix("QRTZ_");
+        store.setInstanceId("SINGLE_NODE_TEST");
+        store.setInstanceName(name);
+
+        CascadingClassLoadHelper loadHelper = new CascadingClassLoadHelper();
+        loadHelper.initialize();
+        store.initialize(loadHelper, new SampleSignaler());
+    }
+
+    @Override
+    protected void tearDown() throws SQLException {
+        store.shutdown();
+        JdbcQuartzTestUtilities.destroyDatabase(name);
+        JdbcQuartzTestUtilities.destroyDatabase(name + "Replica");
+    }
+
+    public void testReadsFromPrimaryWithinMaxLagOfChange() throws Exception {
+        store.setReadDataSourceMaxLag(60000L);
+        JobDetail job = newJob(MyJob.class).withIdentity("job", "read").storeDurably().build();
+
+        assertTrue(store.getJobKeys(GroupMatcher.jobGroupEquals("read")).isEmpty());
+        store.storeJob(job, false);
+
+        assertTrue(store.checkExists(job.getKey()));
+        assertEquals(1, store.getJobKeys(GroupMatcher.jobGroupEquals("read")).size());
+    }
+
+    public void testReadsFromReadDataSource() throws Exception {
+        store.setReadDataSourceMaxLag(0L);
+        JobDetail job = newJob(MyJob.class).withIdentity("job", "read").storeDurably().build();
+        store.storeJob(job, false);
+
+        assertFalse(store.checkExists(job.getKey()));
+        assertEquals(0, store.getNumberOfJobs());
+        assertTrue(store.getPausedTriggerGroups().isEmpty());
+    }
+
+    public void testFallsBackToPrimaryWithoutReadDataSource() throws Exception {
+        store.setReadDataSourceMaxLag(0L);
+        JobDetail job = newJob(MyJob.class).withIdentity("job", "read").storeDurably().build();
+        store.storeJob(job, false);
+
+        store.setReadDataSource("noSuchDataSource");
+        assertTrue(store.checkExists(job.getKey()));
+    }
+
+    public void testLaggingReplicaDoesNotRollBackJobCache() throws Exception {
+        store.shutdown();
+        store = new JobStoreTX();
+        store.setDataSource(name);
+        store.setReadDataSource(name + "Replica");
+        store.setTablePrefix("QRTZ_");
+        store.setInstanceId("SINGLE_NODE_TEST");
+        store.setInstanceName(name);
+        store.setJobAndCalendarCacheSize(10);
+        CascadingClassLoadHelper loadHelper = new CascadingClassLoadHelper();
+        loadHelper.initialize();
+        store.initialize(loadHelper, new SampleSignaler());
+
+        // the replica has replayed the first change to the job only
+        JobStoreTX replica = new JobStoreTX();
+        replica.setDataSource(name + "Replica");
+        replica.setTablePrefix("QRTZ_");
+        replica.setInstanceId("SINGLE_NODE_TEST");
+        replica.setInstanceName(name);
+        replica.setJobAndCalendarCacheSize(10);
+        replica.initialize(loadHelper, new SampleSignaler());
+        JobDetail job = newJob(MyJob.class).withIdentity("job", "read").withDescription("stale").storeDurably().build();
+        replica.storeJob(job, false);
+
+        store.setReadDataSourceMaxLag(60000L);
+        store.storeJob(job, false);
+        store.storeJob(job.getJobBuilder().withDescription("fresh").build(), true);
+        assertEquals("fresh", store.retrieveJob(job.getKey()).getDescription());
+
+        store.setReadDataSourceMaxLag(0L);
+        assertEquals("fresh", store.retrieveJob(job.getKey()).getDescription());
+
+        store.setReadDataSourceMaxLag(60000L);
+        assertEquals("fresh", store.retrieveJob(job.getKey()).getDescription());
+    }
+}
@@ -0,0 +1,84 @@
+package org.quartz.impl.jdbcjobstore;
+
+import java.sql.Connection;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.quartz.JobDetail;
+import org.quartz.impl.triggers.SimpleTriggerImpl;
+import org.quartz.simpl.CascadingClassLoadHelper;
+import org.quartz.spi.ClassLoadHelper;
+import org.quartz.spi.JobStore;
+import org.quartz.spi.OperableTrigger;
+
+import static org.quartz.JobBuilder.newJob;
+
+/**
+ * Runs the job store tests with triggers acquired without the
+ * TRIGGER_ACCESS lock.  Derby cannot skip locked rows, so the delegate
+ * emulates it with a plain select, which is enough for a single scheduler.
+ */
+public class JdbcJobStoreSkipLockedAcquisitionTest extends JdbcJobStoreTest {
+
+    private final AtomicInteger triggerAccessLocks = new AtomicInteger();
+
+    @Override
+    protected JobStore createJobStore(String name) {
+        JobStoreTX jdbcJobStore = (JobStoreTX) super.createJobStore(name);
+        try {
+            jdbcJobStore.setDriverDelegateClass(SkipLockedEmulatingDelegate.class.getName());
+        } catch (InvalidConfigurationException e) {
+            throw new AssertionError(e);
+        }
+        jdbcJobStore.setAcquireTriggersWithSkipLocked(true);
+        jdbcJobStore.setLockHandler(new StdRowLockSemaphore("QRTZ_", name, null) {
+            @Override
+            public boolean obtainLock(Connection conn, String lockName) throws LockException {
+                if (JobStoreSupport.LOCK_TRIGGER_ACCESS.equals(lockName)) {
+                    triggerAccessLocks.incrementAndGet();
+                }
+                return super.obtainLock(conn, lockName);
+            }
+        });
+        return jdbcJobStore;
+    }
+
+    public void testAcquireWithoutTriggerAccessLock() throws Exception {
+        ClassLoadHelper loadHelper = new CascadingClassLoadHelper();
+        loadHelper.initialize();
+
+        JobStore store = createJobStore("testAcquireWithoutTriggerAccessLock");
+        store.initialize(loadHelper, new SampleSignaler());
+        store.schedulerStarted();
+
+        JobDetail job = newJob(MyJob.class).withIdentity("job", "skipLocked").storeDurably().build();
+        store.storeJob(job, false);
+        long base = System.currentTimeMillis() + 60000L;
+        for (int i = 0; i < 5; i++) {
+            OperableTrigger trigger = new SimpleTriggerImpl("trigger" + i, "skipLocked", job.getKey().getName(),
+                    job.getKey().getGroup(), new Date(base + i * 1000L), null, 0, 0L);
+            trigger.computeFirstFireTime(null);
+            store.storeTrigger(trigger, false);
+        }
+
+        triggerAccessLocks.set(0);
+        List<OperableTrigger> acquired = store.acquireNextTriggers(base + 10000L, 3, 0L);
+        assertEquals(3, acquired.size());
+        assertEquals("trigger0", acquired.get(0).getKey().getName());
+        assertEquals("trigger2", acquired.get(2).getKey().getName());
+        acquired = store.acquireNextTriggers(base + 10000L, 3, 0L);
+        assertEquals(2, acquired.size());
+        assertEquals("trigger3", acquired.get(0).getKey().getName());
+        assertEquals(0, triggerAccessLocks.get());
+
+        destroyJobStore("testAcquireWithoutTriggerAccessLock");
+    }
+
+    public static class SkipLockedEmulatingDelegate extends StdJDBCDelegate {
+        @Override
+        protected String getSkipLockedClause() {
+            return "";
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package org.quartz.impl.jdbcjobstore;
+
+import org.quartz.spi.JobStore;
+
+/**
+ * Runs the job store tests with the statements of the delegate cached.
+ */
+public class JdbcJobStoreStatementCacheTest extends JdbcJobStoreTest {
+
+    @Override
+    protected JobStore createJobStore(String name) {
+        JobStoreTX jdbcJobStore = (JobStoreTX) super.createJobStore(name);
+        jdbcJobStore.setCacheStatements(true);
+        return jdbcJobStore;
+    }
+}
@@ -18,6 +18,8 @@ package org.quartz.impl.jdbcjobstore;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -28,6 +30,7 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 
+import org.mockito.ArgumentCaptor;
 import org.quartz.JobPersistenceException;
 import org.quartz.TriggerKey;
 import org.quartz.spi.OperableTrigger;
@@ -135,6 +138,75 @@ public class StdJDBCDelegateTest extends TestCase {
         verify(persistenceDelegate).loadExtendedTriggerProperties(any(Connection.class), any(TriggerKey.class));
     }
 
+    public void testSkipLockedClauses() throws Exception {
+        StdJDBCDelegate stdDelegate = new StdJDBCDelegate();
+        stdDelegate.initialize(LoggerFactory.getLogger(getClass()), "QRTZ_", "TESTSCHED", "INSTANCE", new SimpleClassLoadHelper(), false, "");
+        assertFalse(stdDelegate.supportsSkipLocked());
+        try {
+            stdDelegate.selectTriggersToAcquireSkipLocked(mock(Connection.class), 0L, 0L, 1);
+            fail();
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+
+        StdJDBCDelegate[] delegates = { new PostgreSQLDelegate(), new MySQL8Delegate() };
+        for (StdJDBCDelegate jdbcDelegate : delegates) {
+            jdbcDelegate.initialize(LoggerFactory.getLogger(getClass()), "QRTZ_", "TESTSCHED", "INSTANCE", new SimpleClassLoadHelper(), false, "");
+            assertTrue(jdbcDelegate.supportsSkipLocked());
+
+            Connection conn = mock(Connection.class);
+            PreparedStatement preparedStatement = mock(PreparedStatement.class);
+            ResultSet resultSet = mock(ResultSet.class);
+            when(conn.prepareStatement(anyString())).thenReturn(preparedStatement);
+            when(preparedStatement.executeQuery()).thenReturn(resultSet);
+            when(resultSet.next()).thenReturn(false);
+
+            assertTrue(jdbcDelegate.selectTriggersToAcquireSkipLocked(conn, 0L, 0L, 1).isEmpty());
+            ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+            verify(conn).prepareStatement(sql.capture());
+            assertTrue(sql.getValue().startsWith("SELECT T.*"));
+            assertTrue(sql.getValue().contains("QRTZ_TRIGGERS T JOIN QRTZ_JOB_DETAILS J"));
+            assertTrue(sql.getValue().endsWith("ORDER BY T.NEXT_FIRE_TIME ASC, T.PRIORITY DESC FOR UPDATE OF T SKIP LOCKED"));
+        }
+    }
+
+    public void testCompiledSql() throws Exception {
+        StdJDBCDelegate stdDelegate = new StdJDBCDelegate();
+        stdDelegate.initialize(LoggerFactory.getLogger(getClass()), "QRTZ_", "TESTSCHED", "INSTANCE", new SimpleClassLoadHelper(), false, "");
+
+        String[] queries = { StdJDBCConstants.SELECT_JOB_DETAIL, StdJDBCConstants.UPDATE_TRIGGER_STATE,
+            StdJDBCConstants.INSERT_FIRED_TRIGGER, StdJDBCConstants.SELECT_TRIGGER_STATUSES };
+        for (String query : queries) {
+            String sql = stdDelegate.rtp(query);
+            assertEquals(Util.rtp(query, "QRTZ_", "'TESTSCHED'"), sql);
+            assertSame(sql, stdDelegate.rtp(query));
+        }
+        assertEquals("SELECT * FROM QRTZ_LOCKS", stdDelegate.rtp("SELECT * FROM {0}LOCKS"));
+    }
+
+    public void testCachedStatements() throws Exception {
+        StdJDBCDelegate stdDelegate = new StdJDBCDelegate();
+        stdDelegate.initialize(LoggerFactory.getLogger(getClass()), "QRTZ_", "TESTSCHED", "INSTANCE", new SimpleClassLoadHelper(), false, "");
+        stdDelegate.setCacheStatements(true);
+
+        Connection conn = mock(Connection.class);
+        PreparedStatement preparedStatement = mock(PreparedStatement.class);
+        when(conn.prepareStatement(anyString())).thenReturn(preparedStatement);
+
+        stdDelegate.updateTriggerState(conn, TriggerKey.triggerKey("t1"), StdJDBCConstants.STATE_WAITING);
+        stdDelegate.updateTriggerState(conn, TriggerKey.triggerKey("t2"), StdJDBCConstants.STATE_PAUSED);
+        verify(conn, times(1)).prepareStatement(anyString());
+        verify(preparedStatement, times(2)).executeUpdate();
+        verify(preparedStatement, times(2)).clearParameters();
+        verify(preparedStatement, never()).close();
+
+        stdDelegate.closeCachedStatements(conn);
+        verify(preparedStatement).close();
+
+        stdDelegate.updateTriggerState(conn, TriggerKey.triggerKey("t1"), StdJDBCConstants.STATE_WAITING);
+        verify(conn, times(2)).prepareStatement(anyString());
+    }
+
     static class TestStdJDBCDelegate extends StdJDBCDelegate {
 
         private final TriggerPersistenceDelegate testDelegate;
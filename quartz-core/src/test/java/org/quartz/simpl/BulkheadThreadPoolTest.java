@@ -0,0 +1,314 @@
+/*
+ * Copyright 2001-2009 Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.quartz.simpl;
+
+import static org.quartz.JobBuilder.newJob;
+import static org.quartz.SimpleScheduleBuilder.simpleSchedule;
+import static org.quartz.TriggerBuilder.newTrigger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.quartz.Job;
+import org.quartz.JobDetail;
+import org.quartz.JobExecutionContext;
+import org.quartz.Scheduler;
+import org.quartz.AbstractJobStoreTest.MyJob;
+import org.quartz.core.JobRunShell;
+import org.quartz.impl.StdSchedulerFactory;
+import org.quartz.spi.OperableTrigger;
+import org.quartz.spi.TriggerFiredBundle;
+
+/**
+ * Unit test for BulkheadThreadPool.
+ */
+public class BulkheadThreadPoolTest extends TestCase {
+
+    private static CountDownLatch criticalFired;
+
+    private BulkheadThreadPool pool;
+
+    private int reports;
+
+    @Override
+    protected void setUp() throws Exception {
+        pool = new BulkheadThreadPool();
+        pool.setInstanceName(getName());
+        pool.setThreadCount(1);
+        BulkheadThreadPool.Partition partition = new BulkheadThreadPool.Partition("reports");
+        partition.setThreadCount(1);
+        partition.setQueueSize(3);
+        partition.setJobGroups("reports, *-export");
+        pool.addPartition(partition);
+        pool.initialize();
+        reports = 1;
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        pool.shutdown(true);
+    }
+
+    public void testRoutesByGroup() throws Exception {
+        assertEquals(2, pool.getPartitionCount());
+        assertEquals(2, pool.getPoolSize());
+        assertEquals(reports, pool.getPartition(shell("reports", 5, null).getTrigger()));
+        assertEquals(reports, pool.getPartition(shell("daily-export", 5, null).getTrigger()));
+        assertEquals(0, pool.getPartition(shell("alerts", 5, null).getTrigger()));
+    }
+
+    public void testQueuesByPriority() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        pool.runInThread(shell("reports", 5, new Runnable() {
+            public void run() {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    // let the worker go
+                }
+            }
+        }));
+        waitForAvailableThreads(reports, 3);
+
+        final List<Integer> order = Collections.synchronizedList(new ArrayList<Integer>());
+        final CountDownLatch done = new CountDownLatch(3);
+        for (final int priority : new int[] {1, 10, 5}) {
+            pool.runInThread(shell("reports", priority, new Runnable() {
+                public void run() {
+                    order.add(priority);
+                    done.countDown();
+                }
+            }));
+        }
+        assertEquals(0, pool.getAvailableThreads(reports));
+        // the default partition still has room
+        assertEquals(1, pool.getAvailableThreads(0));
+        assertEquals(1, pool.blockForAvailableThreads());
+
+        final CountDownLatch available = new CountDownLatch(1);
+        pool.notifyWhenAvailable(reports, new Runnable() {
+            public void run() {
+                available.countDown();
+            }
+        });
+        assertEquals(1, available.getCount());
+
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(10, order.get(0).intValue());
+        assertEquals(5, order.get(1).intValue());
+        assertEquals(1, order.get(2).intValue());
+        assertTrue(available.await(5, TimeUnit.SECONDS));
+    }
+
+    public void testBlocksUntilAnyPartitionHasRoom() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        Runnable blocker = new Runnable() {
+            public void run() {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    // let the worker go
+                }
+            }
+        };
+        pool.runInThread(shell("alerts", 5, blocker));
+        for (int i = 0; i < 4; i++) {
+            pool.runInThread(shell("reports", 5, blocker));
+        }
+
+        final CountDownLatch available = new CountDownLatch(1);
+        Thread waiter = new Thread() {
+            @Override
+            public void run() {
+                if (pool.blockForAvailableThreads() > 0) {
+                    available.countDown();
+                }
+            }
+        };
+        waiter.start();
+        assertFalse(available.await(200, TimeUnit.MILLISECONDS));
+
+        release.countDown();
+        assertTrue(available.await(5, TimeUnit.SECONDS));
+        waiter.join();
+    }
+
+    public void testSlowPartitionDoesNotDelayOthers() throws Exception {
+        Properties props = new Properties();
+        props.setProperty("org.quartz.scheduler.instanceName", "bulkheadScheduler");
+        props.setProperty("org.quartz.scheduler.skipUpdateCheck", "true");
+        props.setProperty("org.quartz.scheduler.batchTriggerAcquisitionMaxCount", "10");
+        props.setProperty("org.quartz.threadPool.class", BulkheadThreadPool.class.getName());
+        props.setProperty("org.quartz.threadPool.threadCount", "2");
+        props.setProperty("org.quartz.threadPool.partition.reports.threadCount", "1");
+        props.setProperty("org.quartz.threadPool.partition.reports.jobGroups", "reports");
+
+        Scheduler scheduler = new StdSchedulerFactory(props).getScheduler();
+        try {
+            criticalFired = new CountDownLatch(1);
+            for (int i = 0; i < 5; i++) {
+                JobDetail report = newJob(SlowJob.class).withIdentity("report" + i, "reports").build();
+                scheduler.scheduleJob(report, newTrigger().startNow().build());
+            }
+            scheduler.start();
+            Thread.sleep(200L);
+
+            JobDetail critical = newJob(CriticalJob.class).withIdentity("critical", "alerts").build();
+            scheduler.scheduleJob(critical, newTrigger().startNow()
+                .withSchedule(simpleSchedule().withMisfireHandlingInstructionFireNow()).build());
+            assertTrue(criticalFired.await(1, TimeUnit.SECONDS));
+            // the critical job may still be finishing, so count reports only
+            int runningReports = 0;
+            for (JobExecutionContext context : scheduler.getCurrentlyExecutingJobs()) {
+                if ("reports".equals(context.getJobDetail().getKey().getGroup())) {
+                    runningReports++;
+                }
+            }
+            assertEquals(1, runningReports);
+        } finally {
+            scheduler.shutdown(false);
+        }
+    }
+
+    public void testSaturatedPartitionDoesNotSpinTheSchedulerThread() throws Exception {
+        Properties props = new Properties();
+        props.setProperty("org.quartz.scheduler.instanceName", "saturatedBulkheadScheduler");
+        props.setProperty("org.quartz.scheduler.skipUpdateCheck", "true");
+        props.setProperty("org.quartz.scheduler.batchTriggerAcquisitionMaxCount", "4");
+        props.setProperty("org.quartz.jobStore.class", CountingRAMJobStore.class.getName());
+        props.setProperty("org.quartz.threadPool.class", BulkheadThreadPool.class.getName());
+        props.setProperty("org.quartz.threadPool.threadCount", "2");
+        props.setProperty("org.quartz.threadPool.partition.reports.threadCount", "1");
+        props.setProperty("org.quartz.threadPool.partition.reports.jobGroups", "reports");
+
+        Scheduler scheduler = new StdSchedulerFactory(props).getScheduler();
+        blockerStarted = new CountDownLatch(1);
+        releaseBlocker = new CountDownLatch(1);
+        try {
+            for (int i = 0; i < 50; i++) {
+                JobDetail report = newJob(BlockingJob.class).withIdentity("report" + i, "reports").build();
+                scheduler.scheduleJob(report, newTrigger().startNow().build());
+            }
+            CountingRAMJobStore.reset();
+            scheduler.start();
+            assertTrue(blockerStarted.await(5, TimeUnit.SECONDS));
+
+            // the partition is full and 49 triggers wait for it
+            int acquisitions = CountingRAMJobStore.acquisitions.get();
+            int releases = CountingRAMJobStore.releases.get();
+            Thread.sleep(1000L);
+            assertTrue("acquisitions: " + (CountingRAMJobStore.acquisitions.get() - acquisitions),
+                    CountingRAMJobStore.acquisitions.get() - acquisitions <= 2);
+            assertTrue("releases: " + (CountingRAMJobStore.releases.get() - releases),
+                    CountingRAMJobStore.releases.get() - releases <= 8);
+            assertEquals(4, CountingRAMJobStore.maxCount.get());
+        } finally {
+            releaseBlocker.countDown();
+            scheduler.shutdown(false);
+        }
+    }
+
+    private void waitForAvailableThreads(int partition, int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000L;
+        while (pool.getAvailableThreads(partition) != count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10L);
+        }
+        assertEquals(count, pool.getAvailableThreads(partition));
+    }
+
+    private static JobRunShell shell(String jobGroup, int priority, final Runnable body) {
+        JobDetail job = newJob(MyJob.class).withIdentity("job", jobGroup).build();
+        OperableTrigger trigger = (OperableTrigger) newTrigger().forJob(job).withPriority(priority).build();
+        return new JobRunShell(null, new TriggerFiredBundle(job, trigger, null, false, null, null, null, null)) {
+            @Override
+            public void run() {
+                body.run();
+            }
+        };
+    }
+
+    public static class SlowJob implements Job {
+        public void execute(JobExecutionContext context) {
+            try {
+                Thread.sleep(3000L);
+            } catch (InterruptedException e) {
+                // shutting down
+            }
+        }
+    }
+
+    private static CountDownLatch blockerStarted;
+
+    private static CountDownLatch releaseBlocker;
+
+    public static class BlockingJob implements Job {
+        public void execute(JobExecutionContext context) {
+            blockerStarted.countDown();
+            try {
+                releaseBlocker.await();
+            } catch (InterruptedException e) {
+                // shutting down
+            }
+        }
+    }
+
+    public static class CountingRAMJobStore extends RAMJobStore {
+
+        static final AtomicInteger acquisitions = new AtomicInteger();
+
+        static final AtomicInteger releases = new AtomicInteger();
+
+        static final AtomicInteger maxCount = new AtomicInteger();
+
+        static void reset() {
+            acquisitions.set(0);
+            releases.set(0);
+            maxCount.set(0);
+        }
+
+        @Override
+        public List<OperableTrigger> acquireNextTriggers(long noLaterThan, int maxCount, long timeWindow) {
+            acquisitions.incrementAndGet();
+            synchronized (CountingRAMJobStore.maxCount) {
+                if (maxCount > CountingRAMJobStore.maxCount.get()) {
+                    CountingRAMJobStore.maxCount.set(maxCount);
+                }
+            }
+            return super.acquireNextTriggers(noLaterThan, maxCount, timeWindow);
+        }
+
+        @Override
+        public void releaseAcquiredTrigger(OperableTrigger trigger) {
+            releases.incrementAndGet();
+            super.releaseAcquiredTrigger(trigger);
+        }
+    }
+
+    public static class CriticalJob implements Job {
+        public void execute(JobExecutionContext context) {
+            criticalFired.countDown();
+        }
+    }
+}
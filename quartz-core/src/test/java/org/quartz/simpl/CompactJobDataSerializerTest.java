@@ -0,0 +1,148 @@
+/*
+ * Copyright 2001-2009 Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.quartz.simpl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectOutputStream;
+import java.io.StreamCorruptedException;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import junit.framework.TestCase;
+
+import org.quartz.JobDataMap;
+import org.quartz.impl.calendar.HolidayCalendar;
+
+/**
+ * Unit test for CompactJobDataSerializer.
+ */
+public class CompactJobDataSerializerTest extends TestCase {
+
+    private CompactJobDataSerializer serializer = new CompactJobDataSerializer();
+
+    public void testRoundTripOfTypedValues() throws Exception {
+        HashMap<Object, Object> nested = new HashMap<Object, Object>();
+        nested.put("inner", Integer.valueOf(-7));
+        nested.put(Long.valueOf(3), null);
+
+        JobDataMap data = new JobDataMap();
+        data.put("string", "café");
+        data.put("int", Integer.MIN_VALUE);
+        data.put("long", Long.MAX_VALUE);
+        data.put("true", true);
+        data.put("false", false);
+        data.put("double", -1.5d);
+        data.put("float", 2.25f);
+        data.put("short", Short.valueOf((short) -300));
+        data.put("byte", Byte.valueOf((byte) -1));
+        data.put("char", 'x');
+        data.put("date", new Date(1234567890123L));
+        data.put("bytes", new byte[] {1, 2, 3});
+        data.put("map", nested);
+        data.put("null", null);
+        data.put("decimal", new BigDecimal("1.10"));
+        data.put("timestamp", new Timestamp(1234567890123L));
+        data.put("treeMap", new TreeMap<String, String>());
+
+        JobDataMap copy = (JobDataMap) roundTrip(data);
+
+        assertEquals(data.size(), copy.size());
+        for (Map.Entry<String, Object> entry : data.entrySet()) {
+            Object value = copy.get(entry.getKey());
+            if (entry.getValue() instanceof byte[]) {
+                assertTrue(Arrays.equals((byte[]) entry.getValue(), (byte[]) value));
+            } else {
+                assertEquals(entry.getKey(), entry.getValue(), value);
+                if (value != null) {
+                    assertEquals(entry.getKey(), entry.getValue().getClass(), value.getClass());
+                }
+            }
+        }
+        assertFalse(copy.isDirty());
+    }
+
+    public void testSmallerThanJavaSerialization() throws Exception {
+        JobDataMap data = new JobDataMap();
+        data.put("count", 42);
+        data.put("last", new Date());
+        data.put("name", "report");
+
+        assertTrue(serializer.serialize(data).length * 4 < javaSerialize(data).length);
+    }
+
+    public void testCompressesAboveThreshold() throws Exception {
+        JobDataMap data = new JobDataMap();
+        for (int i = 0; i < 100; i++) {
+            data.put("key" + i, "a fairly repetitive value");
+        }
+
+        byte[] compressed = serializer.serialize(data);
+        assertEquals(CompactJobDataSerializer.FLAG_DEFLATED, compressed[3]);
+        assertEquals(data, roundTrip(data));
+
+        serializer.setCompressionThreshold(-1);
+        byte[] uncompressed = serializer.serialize(data);
+        assertEquals(0, uncompressed[3]);
+        assertTrue(compressed.length < uncompressed.length);
+        assertEquals(data, serializer.deserialize(new ByteArrayInputStream(uncompressed)));
+    }
+
+    public void testCalendarsAreJavaSerialized() throws Exception {
+        HolidayCalendar calendar = new HolidayCalendar();
+        calendar.addExcludedDate(new Date(1234567890123L));
+        calendar.setDescription("holidays");
+
+        HolidayCalendar copy = (HolidayCalendar) roundTrip(calendar);
+        assertEquals("holidays", copy.getDescription());
+        assertEquals(calendar.getExcludedDates(), copy.getExcludedDates());
+    }
+
+    public void testReadsJavaSerializedData() throws Exception {
+        JobDataMap data = new JobDataMap();
+        data.put("legacy", "value");
+
+        assertEquals(data, serializer.deserialize(new ByteArrayInputStream(javaSerialize(data))));
+        assertNull(serializer.deserialize(new ByteArrayInputStream(new byte[0])));
+    }
+
+    public void testRejectsUnknownFormatVersion() throws Exception {
+        byte[] bytes = serializer.serialize("value");
+        bytes[2] = (byte) (CompactJobDataSerializer.FORMAT_VERSION + 1);
+        try {
+            serializer.deserialize(new ByteArrayInputStream(bytes));
+            fail("Expected StreamCorruptedException");
+        } catch (StreamCorruptedException expected) {
+        }
+    }
+
+    private Object roundTrip(Object value) throws Exception {
+        return serializer.deserialize(new ByteArrayInputStream(serializer.serialize(value)));
+    }
+
+    private static byte[] javaSerialize(Object value) throws Exception {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(baos);
+        out.writeObject(value);
+        out.close();
+        return baos.toByteArray();
+    }
+}
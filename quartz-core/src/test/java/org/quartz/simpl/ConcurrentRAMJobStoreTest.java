@@ -0,0 +1,250 @@
+/*
+ * Copyright 2001-2009 Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.quartz.simpl;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.quartz.AbstractJobStoreTest;
+import org.quartz.Job;
+import org.quartz.JobDetail;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobKey;
+import org.quartz.JobPersistenceException;
+import org.quartz.ObjectAlreadyExistsException;
+import org.quartz.Trigger.CompletedExecutionInstruction;
+import org.quartz.TriggerKey;
+import org.quartz.impl.JobDetailImpl;
+import org.quartz.impl.matchers.GroupMatcher;
+import org.quartz.impl.triggers.SimpleTriggerImpl;
+import org.quartz.spi.JobStore;
+import org.quartz.spi.OperableTrigger;
+import org.quartz.spi.TriggerFiredResult;
+
+public class ConcurrentRAMJobStoreTest extends AbstractJobStoreTest {
+
+    @Override
+    protected JobStore createJobStore(String name) {
+        return new ConcurrentRAMJobStore();
+    }
+
+    @Override
+    protected void destroyJobStore(String name) {
+
+    }
+
+    @SuppressWarnings("deprecation")
+    public void testConcurrentStoreAndFire() throws Exception {
+        final ConcurrentRAMJobStore store = new ConcurrentRAMJobStore();
+        store.initialize(null, new SampleSignaler());
+
+        final int writers = 4;
+        final int triggersPerWriter = 500;
+        final long fireTime = System.currentTimeMillis();
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+        Thread[] threads = new Thread[writers];
+        for (int w = 0; w < writers; w++) {
+            final int writer = w;
+            threads[w] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int i = 0; i < triggersPerWriter; i++) {
+                            JobDetailImpl job = new JobDetailImpl("job" + i, "writer" + writer, NoOpJob.class);
+                            SimpleTriggerImpl trigger = new SimpleTriggerImpl("trigger" + i, "writer" + writer,
+                                    job.getName(), job.getGroup(), new Date(fireTime), null, 0, 0);
+                            trigger.computeFirstFireTime(null);
+                            store.storeJobAndTrigger(job, trigger);
+                            // readers never block behind the writers
+                            assertTrue(store.checkExists(job.getKey()));
+                            store.getTriggerState(trigger.getKey());
+                        }
+                    } catch (Throwable t) {
+                        failure.compareAndSet(null, t);
+                    }
+                }
+            };
+            threads[w].start();
+        }
+
+        Set<TriggerKey> fired = Collections.synchronizedSet(new HashSet<TriggerKey>());
+        start.countDown();
+
+        int expected = writers * triggersPerWriter;
+        long deadline = System.currentTimeMillis() + 30000L;
+        while (fired.size() < expected && System.currentTimeMillis() < deadline) {
+            List<OperableTrigger> acquired = store.acquireNextTriggers(fireTime + 1000L, 50, 0L);
+            for (TriggerFiredResult result : store.triggersFired(acquired)) {
+                OperableTrigger trigger = result.getTriggerFiredBundle().getTrigger();
+                JobDetail job = result.getTriggerFiredBundle().getJobDetail();
+                assertTrue("fired twice: " + trigger.getKey(), fired.add(trigger.getKey()));
+                store.triggeredJobComplete(trigger, job, CompletedExecutionInstruction.DELETE_TRIGGER);
+            }
+        }
+
+        for (Thread t : threads) {
+            t.join();
+        }
+        assertNull(failure.get());
+        assertEquals(expected, fired.size());
+        assertEquals(0, store.getNumberOfTriggers());
+        assertEquals(0, store.getNumberOfJobs());
+        assertTrue(store.getJobKeys(GroupMatcher.<JobKey>anyGroup()).isEmpty());
+    }
+
+    @SuppressWarnings("deprecation")
+    public void testConcurrentCrossJobReplacesDoNotDeadlock() throws Exception {
+        final ConcurrentRAMJobStore store = new ConcurrentRAMJobStore();
+        store.initialize(null, new SampleSignaler());
+
+        final int jobs = 8;
+        final long fireTime = System.currentTimeMillis() + 60000L;
+        for (int i = 0; i < jobs; i++) {
+            store.storeJob(new JobDetailImpl("job" + i, "cross", NoOpJob.class, true, false), false);
+            store.storeTrigger(newTrigger("trigger" + i, "job" + i, fireTime), false);
+        }
+
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        Thread[] threads = new Thread[6];
+        for (int w = 0; w < threads.length; w++) {
+            final boolean replacer = (w % 2 == 0);
+            final int seed = w;
+            threads[w] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int n = 0; n < 2000; n++) {
+                            int i = (seed + n) % jobs;
+                            int k = (seed * 3 + n * 5) % jobs;
+                            if (replacer) {
+                                // collides with a trigger that may belong to another job
+                                TriggerKey key = new TriggerKey("trigger" + i, "cross");
+                                OperableTrigger current = store.retrieveTrigger(key);
+                                if (current == null) {
+                                    continue; // being replaced right now
+                                }
+                                try {
+                                    store.replaceTrigger(key,
+                                            newTrigger("trigger" + k, current.getJobKey().getName(), fireTime));
+                                } catch (JobPersistenceException expected) {
+                                }
+                            } else {
+                                // re-points a trigger at another job
+                                store.storeTrigger(newTrigger("trigger" + i, "job" + k, fireTime), true);
+                            }
+                        }
+                    } catch (Throwable t) {
+                        failure.compareAndSet(null, t);
+                    }
+                }
+            };
+            threads[w].setDaemon(true);
+            threads[w].start();
+        }
+        start.countDown();
+
+        for (Thread t : threads) {
+            t.join(30000L);
+            assertFalse("deadlocked", t.isAlive());
+        }
+        assertNull(failure.get());
+        assertEquals(jobs, store.getNumberOfJobs());
+        assertTrue(store.getNumberOfTriggers() > 0);
+    }
+
+    @SuppressWarnings("deprecation")
+    public void testConcurrentStoresOfOneNewKeyForDifferentJobs() throws Exception {
+        final ConcurrentRAMJobStore store = new ConcurrentRAMJobStore();
+        store.initialize(null, new SampleSignaler());
+
+        final int writers = 4;
+        final int keys = 2000;
+        final long fireTime = System.currentTimeMillis() + 60000L;
+        for (int w = 0; w < writers; w++) {
+            store.storeJob(new JobDetailImpl("job" + w, "cross", NoOpJob.class, true, false), false);
+        }
+
+        // line the writers up on every key
+        final CyclicBarrier next = new CyclicBarrier(writers);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        final AtomicInteger stored = new AtomicInteger();
+        Thread[] threads = new Thread[writers];
+        for (int w = 0; w < writers; w++) {
+            final String jobName = "job" + w;
+            // half the writers replace, so a replace can race a plain store too
+            final boolean replace = (w % 2 == 0);
+            threads[w] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < keys; i++) {
+                            next.await();
+                            try {
+                                store.storeTrigger(newTrigger("trigger" + i, jobName, fireTime + i), replace);
+                                stored.incrementAndGet();
+                            } catch (ObjectAlreadyExistsException expected) {
+                                assertFalse(replace);
+                            }
+                        }
+                    } catch (Throwable t) {
+                        failure.compareAndSet(null, t);
+                    }
+                }
+            };
+            threads[w].start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        assertNull(failure.get());
+
+        // each key ends up with exactly one wrapper, in every index
+        assertTrue(stored.get() >= keys);
+        assertEquals(keys, store.getNumberOfTriggers());
+        int byJob = 0;
+        for (int w = 0; w < writers; w++) {
+            byJob += store.getTriggersForJob(new JobKey("job" + w, "cross")).size();
+        }
+        assertEquals(keys, byJob);
+        assertEquals(keys, store.getTriggerKeys(GroupMatcher.triggerGroupEquals("cross")).size());
+        assertEquals(keys, store.acquireNextTriggers(fireTime + keys, keys + 1, 0L).size());
+    }
+
+    @SuppressWarnings("deprecation")
+    private static OperableTrigger newTrigger(String name, String jobName, long fireTime) {
+        SimpleTriggerImpl trigger = new SimpleTriggerImpl(name, "cross", jobName, "cross",
+                new Date(fireTime), null, 0, 0);
+        trigger.computeFirstFireTime(null);
+        return trigger;
+    }
+
+    public static class NoOpJob implements Job {
+        public void execute(JobExecutionContext context) {
+        }
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2001-2009 Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.quartz.simpl;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.quartz.AbstractJobStoreTest;
+import org.quartz.JobDataMap;
+import org.quartz.JobKey;
+import org.quartz.SchedulerException;
+import org.quartz.Trigger.CompletedExecutionInstruction;
+import org.quartz.Trigger.TriggerState;
+import org.quartz.TriggerKey;
+import org.quartz.impl.JobDetailImpl;
+import org.quartz.impl.calendar.BaseCalendar;
+import org.quartz.impl.triggers.SimpleTriggerImpl;
+import org.quartz.spi.JobStore;
+import org.quartz.spi.OperableTrigger;
+import org.quartz.spi.TriggerFiredResult;
+
+public class DurableRAMJobStoreTest extends AbstractJobStoreTest {
+
+    private DurableRAMJobStore store;
+
+    @Override
+    protected JobStore createJobStore(String name) {
+        deleteDirectory(dataDirectory(name));
+        store = newStore(name);
+        return store;
+    }
+
+    @Override
+    protected void destroyJobStore(String name) {
+        store.shutdown();
+        deleteDirectory(dataDirectory(name));
+    }
+
+    @SuppressWarnings("deprecation")
+    public void testRecoverFromLogAfterCrash() throws Exception {
+        String name = "testRecoverFromLogAfterCrash";
+        deleteDirectory(dataDirectory(name));
+        try {
+            DurableRAMJobStore first = newStore(name);
+            first.initialize(null, new AbstractJobStoreTest.SampleSignaler());
+
+            first.storeCalendar("cal", new BaseCalendar(), false, false);
+            JobDetailImpl job = new JobDetailImpl("job", "group", MyJob.class);
+            job.setJobDataMap(new JobDataMap(Collections.singletonMap("count", 1)));
+            first.storeJob(job, false);
+
+            long start = System.currentTimeMillis() - 1000L;
+            SimpleTriggerImpl repeating = new SimpleTriggerImpl("repeating", "group", "job", "group",
+                    new Date(start), null, 10, 60000L);
+            repeating.setCalendarName("cal");
+            repeating.computeFirstFireTime(null);
+            first.storeTrigger(repeating, false);
+            SimpleTriggerImpl paused = new SimpleTriggerImpl("paused", "other", "job", "group",
+                    new Date(start + 3600000L), null, 0, 0);
+            paused.computeFirstFireTime(null);
+            first.storeTrigger(paused, false);
+            first.pauseTrigger(paused.getKey());
+            SimpleTriggerImpl removed = new SimpleTriggerImpl("removed", "group", "job", "group",
+                    new Date(start + 3600000L), null, 0, 0);
+            removed.computeFirstFireTime(null);
+            first.storeTrigger(removed, false);
+            first.removeTrigger(removed.getKey());
+
+            // fire the repeating trigger once
+            List<OperableTrigger> acquired = first.acquireNextTriggers(System.currentTimeMillis(), 1, 0L);
+            assertEquals(1, acquired.size());
+            List<TriggerFiredResult> fired = first.triggersFired(acquired);
+            Date nextFireTime = fired.get(0).getTriggerFiredBundle().getTrigger().getNextFireTime();
+
+            // simulate a crash in the middle of writing a record
+            File dir = dataDirectory(name);
+            File[] logs = dir.listFiles();
+            File lastLog = null;
+            for (File log : logs) {
+                if (log.getName().contains(".wal.") && (lastLog == null || log.getName().compareTo(lastLog.getName()) > 0)) {
+                    lastLog = log;
+                }
+            }
+            assertNotNull(lastLog);
+            FileOutputStream out = new FileOutputStream(lastLog, true);
+            out.write(new byte[] {0, 0, 1, 0, 42, 42});
+            out.close();
+
+            DurableRAMJobStore second = newStore(name);
+            second.initialize(null, new AbstractJobStoreTest.SampleSignaler());
+            try {
+                assertEquals(1, second.getNumberOfJobs());
+                assertEquals(2, second.getNumberOfTriggers());
+                assertNotNull(second.retrieveCalendar("cal"));
+                assertEquals(1, second.retrieveJob(new JobKey("job", "group")).getJobDataMap().get("count"));
+                assertEquals(TriggerState.PAUSED, second.getTriggerState(paused.getKey()));
+                assertEquals(TriggerState.NORMAL, second.getTriggerState(repeating.getKey()));
+                assertEquals(nextFireTime, second.retrieveTrigger(repeating.getKey()).getNextFireTime());
+                assertNull(second.retrieveTrigger(new TriggerKey("removed", "group")));
+
+                // changes after recovery land in a snapshot on shutdown
+                second.triggeredJobComplete(fired.get(0).getTriggerFiredBundle().getTrigger(),
+                        fired.get(0).getTriggerFiredBundle().getJobDetail(),
+                        CompletedExecutionInstruction.SET_TRIGGER_COMPLETE);
+                second.resumeTrigger(paused.getKey());
+            } finally {
+                second.shutdown();
+            }
+
+            DurableRAMJobStore third = newStore(name);
+            third.initialize(null, new AbstractJobStoreTest.SampleSignaler());
+            try {
+                assertEquals(TriggerState.COMPLETE, third.getTriggerState(repeating.getKey()));
+                assertEquals(TriggerState.NORMAL, third.getTriggerState(paused.getKey()));
+            } finally {
+                third.shutdown();
+            }
+        } finally {
+            deleteDirectory(dataDirectory(name));
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    public void testUnjournalableJobIsReportedAndKeptInMemory() throws Exception {
+        String name = "testUnjournalableJobIsReportedAndKeptInMemory";
+        deleteDirectory(dataDirectory(name));
+        final List<String> errors = new ArrayList<String>();
+        DurableRAMJobStore durable = newStore(name);
+        durable.initialize(null, new AbstractJobStoreTest.SampleSignaler() {
+            @Override
+            public void notifySchedulerListenersError(String message, SchedulerException e) {
+                errors.add(message);
+            }
+        });
+        try {
+            JobDetailImpl job = new JobDetailImpl("job", "group", MyJob.class);
+            job.setDurability(true);
+            job.setJobDataMap(new JobDataMap(Collections.singletonMap("lock", new Object())));
+            // RAMJobStore.storeJob() only allows ObjectAlreadyExistsException
+            durable.storeJob(job, false);
+
+            assertEquals(1, errors.size());
+            assertTrue(durable.checkExists(job.getKey()));
+        } finally {
+            durable.shutdown();
+            deleteDirectory(dataDirectory(name));
+        }
+    }
+
+    private DurableRAMJobStore newStore(String name) {
+        DurableRAMJobStore durable = new DurableRAMJobStore();
+        durable.setDataDirectory(dataDirectory(name).getPath());
+        durable.setSnapshotIntervalMillis(0);
+        durable.setInstanceName(name);
+        return durable;
+    }
+
+    private static File dataDirectory(String name) {
+        String base = System.getProperty("buildDirectory", System.getProperty("java.io.tmpdir"));
+        return new File(base, "durableJobStore-" + name);
+    }
+
+    private static void deleteDirectory(File dir) {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2001-2009 Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.quartz.simpl;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.quartz.AbstractJobStoreTest;
+import org.quartz.JobDataMap;
+import org.quartz.JobKey;
+import org.quartz.Trigger;
+import org.quartz.Trigger.TriggerState;
+import org.quartz.TriggerKey;
+import org.quartz.impl.JobDetailImpl;
+import org.quartz.impl.calendar.BaseCalendar;
+import org.quartz.impl.matchers.GroupMatcher;
+import org.quartz.impl.triggers.CronTriggerImpl;
+import org.quartz.impl.triggers.SimpleTriggerImpl;
+import org.quartz.spi.JobStore;
+import org.quartz.spi.OperableTrigger;
+
+public class OffHeapRAMJobStoreTest extends AbstractJobStoreTest {
+
+    @Override
+    protected JobStore createJobStore(String name) {
+        return new OffHeapRAMJobStore();
+    }
+
+    @Override
+    protected void destroyJobStore(String name) {
+
+    }
+
+    @SuppressWarnings("deprecation")
+    public void testTriggersRoundTrip() throws Exception {
+        OffHeapRAMJobStore store = new OffHeapRAMJobStore();
+        store.setSlabSize(4096);
+        store.initialize(null, new AbstractJobStoreTest.SampleSignaler());
+
+        store.storeCalendar("cal", new BaseCalendar(), false, false);
+        store.storeJob(new JobDetailImpl("job", "group", MyJob.class), false);
+
+        long start = System.currentTimeMillis() + 60000L;
+        SimpleTriggerImpl simple = new SimpleTriggerImpl("simple", "group", "job", "group",
+                new Date(start), new Date(start + 3600000L), 5, 1000L);
+        simple.setDescription("a simple trigger");
+        simple.setCalendarName("cal");
+        simple.setPriority(7);
+        simple.setMisfireInstruction(Trigger.MISFIRE_INSTRUCTION_IGNORE_MISFIRE_POLICY);
+        simple.setJobDataMap(new JobDataMap(Collections.singletonMap("key", "value")));
+        simple.computeFirstFireTime(null);
+        store.storeTrigger(simple, false);
+
+        CronTriggerImpl cron = new CronTriggerImpl("cron", "other", "job", "group", "0 0 12 * * ?");
+        cron.computeFirstFireTime(null);
+        store.storeTrigger(cron, false);
+
+        OperableTrigger retrieved = store.retrieveTrigger(simple.getKey());
+        assertTrue(retrieved instanceof SimpleTriggerImpl);
+        assertEquals(simple.getNextFireTime(), retrieved.getNextFireTime());
+        assertEquals(simple.getEndTime(), retrieved.getEndTime());
+        assertEquals(5, ((SimpleTriggerImpl) retrieved).getRepeatCount());
+        assertEquals(1000L, ((SimpleTriggerImpl) retrieved).getRepeatInterval());
+        assertEquals("a simple trigger", retrieved.getDescription());
+        assertEquals("cal", retrieved.getCalendarName());
+        assertEquals(7, retrieved.getPriority());
+        assertEquals(Trigger.MISFIRE_INSTRUCTION_IGNORE_MISFIRE_POLICY, retrieved.getMisfireInstruction());
+        assertEquals("value", retrieved.getJobDataMap().get("key"));
+        assertNotSame(retrieved, store.retrieveTrigger(simple.getKey()));
+
+        OperableTrigger retrievedCron = store.retrieveTrigger(cron.getKey());
+        assertTrue(retrievedCron instanceof CronTriggerImpl);
+        assertEquals("0 0 12 * * ?", ((CronTriggerImpl) retrievedCron).getCronExpression());
+
+        assertEquals(2, store.getNumberOfTriggers());
+        assertEquals(2, store.getTriggersForJob(new JobKey("job", "group")).size());
+        assertEquals(1, store.getTriggerKeys(GroupMatcher.triggerGroupEquals("other")).size());
+        assertEquals(2, store.getTriggerKeys(GroupMatcher.anyTriggerGroup()).size());
+
+        try {
+            store.removeCalendar("cal");
+            fail("Calendar referenced by a trigger was removed");
+        } catch (org.quartz.JobPersistenceException expected) {
+        }
+
+        store.pauseTriggers(GroupMatcher.triggerGroupStartsWith("oth"));
+        assertEquals(TriggerState.PAUSED, store.getTriggerState(cron.getKey()));
+        assertEquals(TriggerState.NORMAL, store.getTriggerState(simple.getKey()));
+        assertTrue(store.getPausedTriggerGroups().contains("other"));
+
+        List<OperableTrigger> acquired = store.acquireNextTriggers(start + 1000L, 10, 0L);
+        assertEquals(1, acquired.size());
+        assertEquals(simple.getKey(), acquired.get(0).getKey());
+        assertNotNull(acquired.get(0).getFireInstanceId());
+        store.triggersFired(acquired);
+        assertEquals(new Date(start + 1000L), store.retrieveTrigger(simple.getKey()).getNextFireTime());
+
+        assertTrue(store.removeTrigger(simple.getKey()));
+        assertTrue(store.removeTrigger(cron.getKey()));
+        assertNull(store.retrieveTrigger(new TriggerKey("simple", "group")));
+        // the job was not durable, so it went with its last trigger
+        assertEquals(0, store.getNumberOfJobs());
+        assertTrue(store.removeCalendar("cal"));
+    }
+}
@@ -15,7 +15,13 @@
  */
 package org.quartz.simpl;
 
+import java.util.Date;
+
 import org.quartz.AbstractJobStoreTest;
+import org.quartz.JobPersistenceException;
+import org.quartz.impl.JobDetailImpl;
+import org.quartz.impl.calendar.BaseCalendar;
+import org.quartz.impl.triggers.SimpleTriggerImpl;
 import org.quartz.spi.JobStore;
 
 public class RAMJobStoreTest extends AbstractJobStoreTest {
@@ -30,4 +36,41 @@ public class RAMJobStoreTest extends AbstractJobStoreTest {
     protected void destroyJobStore(String name) {
 
     }
+
+    @SuppressWarnings("deprecation")
+    public void testTriggerIndexesFollowReplaceAndRemove() throws Exception {
+        RAMJobStore store = new RAMJobStore();
+        store.storeCalendar("cal", new BaseCalendar(), false, false);
+        JobDetailImpl job = new JobDetailImpl("job", "group", MyJob.class);
+        job.setDurability(true);
+        store.storeJob(job, false);
+
+        SimpleTriggerImpl withCal = new SimpleTriggerImpl("t1", "group", "job", "group", new Date(), null, 0, 0);
+        withCal.setCalendarName("cal");
+        withCal.computeFirstFireTime(null);
+        store.storeTrigger(withCal, false);
+        SimpleTriggerImpl other = new SimpleTriggerImpl("t2", "group", "job", "group", new Date(), null, 0, 0);
+        other.computeFirstFireTime(null);
+        store.storeTrigger(other, false);
+
+        assertEquals(2, store.getTriggersForJob(job.getKey()).size());
+        assertEquals(1, store.getTriggerWrappersForCalendar("cal").size());
+        try {
+            store.removeCalendar("cal");
+            fail("calendar is still referenced");
+        } catch (JobPersistenceException expected) {
+        }
+
+        SimpleTriggerImpl withoutCal = new SimpleTriggerImpl("t1", "group", "job", "group", new Date(), null, 0, 0);
+        withoutCal.computeFirstFireTime(null);
+        assertTrue(store.replaceTrigger(withCal.getKey(), withoutCal));
+        assertEquals(2, store.getTriggersForJob(job.getKey()).size());
+        assertTrue(store.getTriggerWrappersForCalendar("cal").isEmpty());
+        assertTrue(store.removeCalendar("cal"));
+
+        assertTrue(store.removeTrigger(other.getKey()));
+        assertEquals(1, store.getTriggersForJob(job.getKey()).size());
+        assertTrue(store.removeJob(job.getKey()));
+        assertTrue(store.getTriggersForJob(job.getKey()).isEmpty());
+    }
 }
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2001-2009 Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.quartz.simpl;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for SimpleThreadPool.
+ */
+public class SimpleThreadPoolTest extends TestCase {
+
+    private SimpleThreadPool pool;
+
+    @Override
+    protected void setUp() throws Exception {
+        pool = new SimpleThreadPool(2, Thread.NORM_PRIORITY);
+        pool.setInstanceName(getName());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        pool.shutdown(true);
+    }
+
+    public void testRunsAllRunnables() throws Exception {
+        pool.initialize();
+        assertEquals(2, pool.blockForAvailableThreads());
+
+        final AtomicInteger ran = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(1000);
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(pool.runInThread(new Runnable() {
+                public void run() {
+                    ran.incrementAndGet();
+                    done.countDown();
+                }
+            }));
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(1000, ran.get());
+        assertEquals(2, pool.getCurrentThreadCount());
+        assertEquals(2, pool.blockForAvailableThreads());
+    }
+
+    public void testBlocksUntilThreadIsAvailable() throws Exception {
+        pool.initialize();
+        CountDownLatch release = new CountDownLatch(1);
+        pool.runInThread(new Blocker(release));
+        pool.runInThread(new Blocker(release));
+
+        final CountDownLatch available = new CountDownLatch(1);
+        Thread waiter = new Thread() {
+            @Override
+            public void run() {
+                if (pool.blockForAvailableThreads() > 0) {
+                    available.countDown();
+                }
+            }
+        };
+        waiter.start();
+        assertFalse(available.await(200, TimeUnit.MILLISECONDS));
+
+        release.countDown();
+        assertTrue(available.await(5, TimeUnit.SECONDS));
+        waiter.join();
+    }
+
+    public void testGrowsToMaxAndRetiresIdleThreads() throws Exception {
+        pool.setMaxThreadCount(4);
+        pool.setThreadKeepAliveTime(100L);
+        pool.initialize();
+        assertEquals(4, pool.getPoolSize());
+        assertEquals(2, pool.getCurrentThreadCount());
+        assertEquals(4, pool.blockForAvailableThreads());
+
+        CountDownLatch release = new CountDownLatch(1);
+        for (int i = 0; i < 4; i++) {
+            pool.runInThread(new Blocker(release));
+        }
+        assertEquals(4, pool.getCurrentThreadCount());
+
+        release.countDown();
+        waitForCurrentThreadCount(2);
+        assertEquals(4, pool.blockForAvailableThreads());
+    }
+
+    public void testResizesWhileRunning() throws Exception {
+        pool.setThreadKeepAliveTime(100L);
+        pool.initialize();
+
+        pool.setThreadCount(5);
+        assertEquals(5, pool.getMaxThreadCount());
+        assertEquals(5, pool.getCurrentThreadCount());
+        assertEquals(5, pool.blockForAvailableThreads());
+
+        pool.resize(1, 3);
+        waitForCurrentThreadCount(1);
+        assertEquals(3, pool.blockForAvailableThreads());
+
+        try {
+            pool.resize(2, 1);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    public void testShutdownWaitsForJobsToComplete() throws Exception {
+        pool.initialize();
+        final AtomicInteger completed = new AtomicInteger();
+        for (int i = 0; i < 2; i++) {
+            pool.runInThread(new Runnable() {
+                public void run() {
+                    try {
+                        Thread.sleep(200L);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    completed.incrementAndGet();
+                }
+            });
+        }
+
+        pool.shutdown(true);
+        assertEquals(2, completed.get());
+        assertEquals(0, pool.getCurrentThreadCount());
+        assertEquals(0, pool.blockForAvailableThreads());
+    }
+
+    public void testSubclassIsToldOfWorkersMadeAvailable() throws Exception {
+        final AtomicInteger madeAvailable = new AtomicInteger();
+        pool = new SimpleThreadPool(2, Thread.NORM_PRIORITY) {
+            @Override
+            protected void makeAvailable(WorkerThread wt) {
+                madeAvailable.incrementAndGet();
+                super.makeAvailable(wt);
+            }
+        };
+        pool.setInstanceName(getName());
+        pool.initialize();
+
+        final CountDownLatch done = new CountDownLatch(10);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(pool.runInThread(new Runnable() {
+                public void run() {
+                    done.countDown();
+                }
+            }));
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(2, pool.blockForAvailableThreads());
+        assertEquals(10, madeAvailable.get());
+    }
+
+    private void waitForCurrentThreadCount(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000L;
+        while (pool.getCurrentThreadCount() != count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20L);
+        }
+        assertEquals(count, pool.getCurrentThreadCount());
+    }
+
+    private static class Blocker implements Runnable {
+
+        private final CountDownLatch release;
+
+        Blocker(CountDownLatch release) {
+            this.release = release;
+        }
+
+        public void run() {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                // let the worker go
+            }
+        }
+    }
+}
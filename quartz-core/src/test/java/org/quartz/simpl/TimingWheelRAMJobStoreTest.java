@@ -0,0 +1,140 @@
+/*
+ * Copyright 2001-2009 Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.quartz.simpl;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import org.quartz.AbstractJobStoreTest;
+import org.quartz.impl.triggers.SimpleTriggerImpl;
+import org.quartz.spi.JobStore;
+
+public class TimingWheelRAMJobStoreTest extends AbstractJobStoreTest {
+
+    @Override
+    protected JobStore createJobStore(String name) {
+        return new TimingWheelRAMJobStore();
+    }
+
+    @Override
+    protected void destroyJobStore(String name) {
+
+    }
+
+    public void testWheelOrderMatchesTreeSet() {
+        Random random = new Random(42);
+        long now = System.currentTimeMillis();
+
+        TimingWheelTriggerIndex wheel = new TimingWheelTriggerIndex(1);
+        TreeSetTriggerIndex tree = new TreeSetTriggerIndex();
+        List<TriggerWrapper> wheelWrappers = new ArrayList<TriggerWrapper>();
+        List<TriggerWrapper> treeWrappers = new ArrayList<TriggerWrapper>();
+
+        for (int i = 0; i < 5000; i++) {
+            // a mix of past, near, far and very far (overflow) fire times
+            long offset;
+            switch (i % 4) {
+                case 0: offset = -random.nextInt(10000); break;
+                case 1: offset = random.nextInt(1000); break;
+                case 2: offset = (long) random.nextInt(Integer.MAX_VALUE) * 4; break;
+                default: offset = random.nextInt(100000000); break;
+            }
+            SimpleTriggerImpl trigger = new SimpleTriggerImpl("t" + i, "g" + (i % 7));
+            trigger.setNextFireTime(new Date(now + offset));
+            trigger.setPriority(random.nextInt(10));
+
+            TriggerWrapper forWheel = new TriggerWrapper(trigger);
+            TriggerWrapper forTree = new TriggerWrapper(trigger);
+            assertTrue(wheel.add(forWheel));
+            assertFalse(wheel.add(forWheel));
+            tree.add(forTree);
+            wheelWrappers.add(forWheel);
+            treeWrappers.add(forTree);
+        }
+
+        // remove some from the middle
+        for (int i = 0; i < 5000; i += 3) {
+            assertTrue(wheel.remove(wheelWrappers.get(i)));
+            assertFalse(wheel.remove(wheelWrappers.get(i)));
+            tree.remove(treeWrappers.get(i));
+        }
+
+        assertEquals(tree.size(), wheel.size());
+        while (tree.size() > 0) {
+            TriggerWrapper expected = tree.first();
+            TriggerWrapper actual = wheel.first();
+            assertEquals(expected.key, actual.key);
+            tree.remove(expected);
+            wheel.remove(actual);
+        }
+        assertNull(wheel.first());
+        assertEquals(0, wheel.size());
+    }
+
+    public void testWheelOrderMatchesTreeSetWhileAddingAndDraining() {
+        Random random = new Random(7);
+        long now = System.currentTimeMillis();
+
+        TimingWheelTriggerIndex wheel = new TimingWheelTriggerIndex(1);
+        TreeSetTriggerIndex tree = new TreeSetTriggerIndex();
+        List<TriggerWrapper[]> present = new ArrayList<TriggerWrapper[]>();
+
+        for (int i = 0; i < 50000; i++) {
+            int op = random.nextInt(10);
+            if (op < 5 || present.isEmpty()) {
+                // add, mostly close to the current time so that the
+                // horizon keeps crossing slot and rotation boundaries
+                long offset;
+                switch (random.nextInt(40)) {
+                    case 0: offset = random.nextInt(70000); break;
+                    case 1: offset = random.nextInt(20000000); break;
+                    case 2: offset = (long) random.nextInt(Integer.MAX_VALUE) * 4; break;
+                    default: offset = random.nextInt(1000) - 100; break;
+                }
+                SimpleTriggerImpl trigger = new SimpleTriggerImpl("t" + i, "g" + (i % 7));
+                trigger.setNextFireTime(new Date(now + offset));
+                trigger.setPriority(random.nextInt(10));
+                TriggerWrapper[] pair = new TriggerWrapper[] {new TriggerWrapper(trigger), new TriggerWrapper(trigger)};
+                assertTrue(wheel.add(pair[0]));
+                tree.add(pair[1]);
+                present.add(pair);
+            } else if (op < 6) {
+                TriggerWrapper[] pair = present.remove(random.nextInt(present.size()));
+                assertTrue(wheel.remove(pair[0]));
+                tree.remove(pair[1]);
+            } else {
+                TriggerWrapper expected = tree.first();
+                TriggerWrapper actual = wheel.first();
+                assertEquals("operation " + i, expected.key, actual.key);
+                if (op < 9) {
+                    // fire it, moving the current time forward
+                    for (int j = 0; j < present.size(); j++) {
+                        if (present.get(j)[1] == expected) {
+                            present.remove(j);
+                            break;
+                        }
+                    }
+                    tree.remove(expected);
+                    wheel.remove(actual);
+                    now = Math.max(now, expected.trigger.getNextFireTime().getTime());
+                }
+            }
+            assertEquals(tree.size(), wheel.size());
+        }
+    }
+}
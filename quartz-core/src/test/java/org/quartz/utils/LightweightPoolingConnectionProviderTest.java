@@ -0,0 +1,179 @@
+/*
+ * Copyright 2001-2009 Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.quartz.utils;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+
+import junit.framework.TestCase;
+
+import org.quartz.Scheduler;
+import org.quartz.impl.StdSchedulerFactory;
+
+/**
+ * Unit test for LightweightPoolingConnectionProvider.
+ */
+public class LightweightPoolingConnectionProviderTest extends TestCase {
+
+    private LightweightPoolingConnectionProvider pool;
+
+    @Override
+    protected void setUp() throws Exception {
+        Properties props = new Properties();
+        props.setProperty(PoolingConnectionProvider.DB_DRIVER, "org.apache.derby.jdbc.EmbeddedDriver");
+        props.setProperty(PoolingConnectionProvider.DB_URL, "jdbc:derby:memory:" + getName() + ";create=true");
+        props.setProperty(PoolingConnectionProvider.DB_MAX_CONNECTIONS, "2");
+        props.setProperty(LightweightPoolingConnectionProvider.DB_MAX_WAIT_MILLIS, "100");
+        pool = new LightweightPoolingConnectionProvider(props);
+        pool.initialize();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        pool.shutdown();
+    }
+
+    public void testReusesIdleConnections() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            Connection conn = pool.getConnection();
+            assertEquals(1, pool.getActiveConnectionCount());
+            conn.close();
+        }
+
+        assertEquals(1, pool.getOpenConnectionCount());
+        assertEquals(0, pool.getActiveConnectionCount());
+        assertEquals(5, pool.getAcquisitionWaitHistogram().getCount());
+        assertEquals(5, pool.getUsageHistogram().getCount());
+    }
+
+    public void testWaitsForConnectionWhenAllAreInUse() throws Exception {
+        Connection first = pool.getConnection();
+        Connection second = pool.getConnection();
+        assertNotSame(first, second);
+        assertEquals(2, pool.getOpenConnectionCount());
+
+        try {
+            pool.getConnection();
+            fail("Expected SQLException");
+        } catch (SQLException expected) {
+        }
+
+        second.close();
+        Connection third = pool.getConnection();
+        assertEquals(2, pool.getOpenConnectionCount());
+        third.close();
+        first.close();
+    }
+
+    public void testClosedConnectionIsNotUsable() throws Exception {
+        Connection conn = pool.getConnection();
+        conn.close();
+        conn.close();
+
+        assertTrue(conn.isClosed());
+        try {
+            conn.createStatement();
+            fail("Expected SQLException");
+        } catch (SQLException expected) {
+        }
+        assertEquals(0, pool.getActiveConnectionCount());
+    }
+
+    public void testRollsBackUncommittedWorkOnClose() throws Exception {
+        Connection conn = pool.getConnection();
+        Statement stmt = conn.createStatement();
+        stmt.execute("CREATE TABLE POOL_TEST (ID INTEGER)");
+        stmt.close();
+
+        conn.setAutoCommit(false);
+        stmt = conn.createStatement();
+        stmt.execute("INSERT INTO POOL_TEST VALUES (1)");
+        stmt.close();
+        conn.close();
+
+        conn = pool.getConnection();
+        assertTrue(conn.getAutoCommit());
+        stmt = conn.createStatement();
+        ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM POOL_TEST");
+        assertTrue(rs.next());
+        assertEquals(0, rs.getInt(1));
+        rs.close();
+        stmt.close();
+        conn.close();
+    }
+
+    public void testStatementFailureKeepsConnectionUnlessItIsBroken() throws Exception {
+        Connection conn = pool.getConnection();
+        Statement stmt = conn.createStatement();
+        assertSame(conn, stmt.getConnection());
+        try {
+            stmt.executeQuery("SELECT * FROM NO_SUCH_TABLE");
+            fail("Expected SQLException");
+        } catch (SQLException expected) {
+        }
+        stmt.close();
+        conn.close();
+        assertEquals(1, pool.getOpenConnectionCount());
+
+        conn = pool.getConnection();
+        stmt = conn.createStatement();
+        ResultSet rs = stmt.executeQuery("VALUES 1");
+        assertSame(stmt, rs.getStatement());
+        rs.close();
+
+        // the connection dies under the statement
+        try {
+            DriverManager.getConnection("jdbc:derby:memory:" + getName() + ";drop=true");
+            fail("Expected SQLException");
+        } catch (SQLException expected) {
+        }
+        try {
+            stmt.executeQuery("VALUES 1");
+            fail("Expected SQLException");
+        } catch (SQLException expected) {
+        }
+        stmt.close();
+        conn.close();
+        assertEquals(0, pool.getOpenConnectionCount());
+    }
+
+    public void testConfiguredThroughDataSourceProperties() throws Exception {
+        Properties props = new Properties();
+        props.setProperty("org.quartz.scheduler.instanceName", "lightweightPoolScheduler");
+        props.setProperty("org.quartz.scheduler.skipUpdateCheck", "true");
+        props.setProperty("org.quartz.threadPool.threadCount", "4");
+        props.setProperty("org.quartz.jobStore.class", "org.quartz.impl.jdbcjobstore.JobStoreTX");
+        props.setProperty("org.quartz.jobStore.dataSource", "lightweightDS");
+        props.setProperty("org.quartz.dataSource.lightweightDS.provider", LightweightPoolingConnectionProvider.POOLING_PROVIDER_NAME);
+        props.setProperty("org.quartz.dataSource.lightweightDS.driver", "org.apache.derby.jdbc.EmbeddedDriver");
+        props.setProperty("org.quartz.dataSource.lightweightDS.URL", "jdbc:derby:memory:lightweightDS;create=true");
+
+        Scheduler scheduler = new StdSchedulerFactory(props).getScheduler();
+        try {
+            ConnectionProvider provider = DBConnectionManager.getInstance().getConnectionProvider("lightweightDS");
+            assertTrue(provider instanceof LightweightPoolingConnectionProvider);
+            // the worker threads, the scheduler thread and the misfire handler
+            assertEquals(6, ((LightweightPoolingConnectionProvider) provider).getMaxConnections());
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2001-2009 Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package org.quartz.utils.counter;
+
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+public class HistogramTest extends TestCase {
+
+    public void testBucketsCoverAllValues() {
+        long previousUpperBound = -1;
+        for (int bucket = 0; bucket < 960; bucket++) {
+            long upperBound = Histogram.upperBoundOf(bucket);
+            assertEquals(bucket, Histogram.bucketOf(previousUpperBound + 1));
+            assertEquals(bucket, Histogram.bucketOf(upperBound));
+            assertTrue(upperBound > previousUpperBound);
+            previousUpperBound = upperBound;
+        }
+        assertEquals(Long.MAX_VALUE, previousUpperBound);
+    }
+
+    public void testPercentiles() {
+        Histogram histogram = new Histogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i);
+        }
+        histogram.record(-5);
+
+        assertEquals(1001, histogram.getCount());
+        assertEquals(1000, histogram.getMax());
+        assertEquals(500, histogram.getMean());
+        assertEquals(1000, histogram.getValueAtPercentile(100.0));
+        // buckets are at most 1/16th of their values wide
+        long median = histogram.getValueAtPercentile(50.0);
+        assertTrue(median >= 500 && median <= 500 + 500 / 16);
+        long p99 = histogram.getValueAtPercentile(99.0);
+        assertTrue(p99 >= 990 && p99 <= 1000);
+        assertEquals(0, histogram.getValueAtPercentile(0.0));
+    }
+
+    public void testBucketsAndReset() {
+        Histogram histogram = new Histogram();
+        histogram.record(3);
+        histogram.record(3);
+        histogram.record(100);
+
+        Map<Long, Long> buckets = histogram.getBuckets();
+        assertEquals(2, buckets.size());
+        assertEquals(Long.valueOf(2), buckets.get(Long.valueOf(3)));
+        assertEquals(Long.valueOf(1), buckets.get(Long.valueOf(Histogram.upperBoundOf(Histogram.bucketOf(100)))));
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getValueAtPercentile(99.0));
+        assertTrue(histogram.getBuckets().isEmpty());
+    }
+}
@@ -31,6 +31,7 @@
 -- drop table qrtz_paused_trigger_grps;
 -- drop table qrtz_scheduler_state;
 -- drop table qrtz_locks;
+-- drop table qrtz_data_versions;
 -- drop table qrtz_simple_triggers;
 -- drop table qrtz_simprop_triggers;
 -- drop table qrtz_cron_triggers;
@@ -172,3 +173,11 @@ create table qrtz_locks
 primary key (sched_name,lock_name)
 );
 
+create table qrtz_data_versions
+  (
+    sched_name varchar(120) not null,
+    version_name varchar(40) not null,
+    data_version bigint not null,
+primary key (sched_name,version_name)
+);
+
@@ -31,6 +31,7 @@ drop table qrtz_fired_triggers;
 drop table qrtz_paused_trigger_grps;
 drop table qrtz_scheduler_state;
 drop table qrtz_locks;
+drop table qrtz_data_versions;
 drop table qrtz_simple_triggers;
 drop table qrtz_simprop_triggers;
 drop table qrtz_cron_triggers;
@@ -20,7 +20,6 @@ package org.quartz.impl.jdbcjobstore.oracle;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.ObjectInputStream;
 import java.math.BigDecimal;
 import java.sql.Blob;
 import java.sql.Connection;
@@ -129,6 +128,17 @@ public class OracleDelegate extends StdJDBCDelegate {
     // protected methods that can be overridden by subclasses
     //---------------------------------------------------------------------------
 
+    /**
+     * <p>
+     * Oracle locks the rows of the tables whose columns are named in the
+     * <code>FOR UPDATE OF</code> clause.
+     * </p>
+     */
+    @Override
+    protected String getSkipLockedClause() {
+        return " FOR UPDATE OF T." + COL_TRIGGER_STATE + " SKIP LOCKED";
+    }
+
     @Override
     protected Object getObjectFromBlob(ResultSet rs, String colName)
         throws ClassNotFoundException, IOException, SQLException {
@@ -136,17 +146,18 @@ public class OracleDelegate extends StdJDBCDelegate {
         Object obj = null;
         InputStream binaryInput = rs.getBinaryStream(colName);
         if (binaryInput != null) {
-            ObjectInputStream in = new ObjectInputStream(binaryInput);
-            try {
-                obj = in.readObject();
-            } finally {
-                in.close();
-            }
+            obj = deserializeObject(binaryInput);
         }
 
         return obj;
     }
 
+    @Override
+    protected boolean canBatchBlobWrites() {
+        // blobs are written with SELECT ... FOR UPDATE after the row is inserted
+        return false;
+    }
+
     @Override
     public int insertJobDetail(Connection conn, JobDetail job)
         throws IOException, SQLException {
@@ -0,0 +1,401 @@
+/*
+ * Copyright 2001-2009 Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.quartz.virtualthreads;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordedThread;
+import jdk.jfr.consumer.RecordingStream;
+
+import org.quartz.SchedulerConfigException;
+import org.quartz.spi.ThreadPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * A <code>{@link org.quartz.spi.ThreadPool}</code> that runs each
+ * <code>Runnable</code>, i.e. each <code>JobRunShell</code>, on a new
+ * virtual thread, so that jobs which mostly wait on I/O don't each tie up a
+ * platform thread. Requires Java 21.
+ * </p>
+ *
+ * <p>
+ * At most <code>maxConcurrency</code> jobs run at once, which is the pool
+ * size reported to the scheduler and the number of threads
+ * <code>{@link #blockForAvailableThreads()}</code> counts down from. Use it
+ * to bound the load the jobs put on the databases and services they call.
+ * </p>
+ *
+ * <p>
+ * A virtual thread that blocks while inside a <code>synchronized</code>
+ * block or a native call keeps its carrier thread, which starves the other
+ * virtual threads of carriers. Unless <code>logPinnedThreads</code> is
+ * turned off, the pool listens for the JDK's flight recorder events of this
+ * and logs a warning, with the stack trace, for each of its threads that was
+ * pinned longer than <code>pinnedThreadThreshold</code> millis.
+ * </p>
+ *
+ * <pre>
+ * org.quartz.threadPool.class = org.quartz.virtualthreads.VirtualThreadPool
+ * org.quartz.threadPool.maxConcurrency = 500
+ * </pre>
+ *
+ * @see org.quartz.simpl.SimpleThreadPool
+ */
+public class VirtualThreadPool implements ThreadPool {
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Constants.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Data members.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    private int maxConcurrency = -1;
+
+    private String threadNamePrefix;
+
+    private boolean logPinnedThreads = true;
+
+    private long pinnedThreadThreshold = 20L;
+
+    private String schedulerInstanceName;
+
+    private Semaphore permits;
+
+    private ThreadFactory threadFactory;
+
+    private final Set<Thread> runningThreads = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean isShutdown = false;
+
+    private RecordingStream pinnedThreadEvents;
+
+    private final AtomicLong pinnedThreadCount = new AtomicLong();
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Constructors.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    /**
+     * <p>
+     * Create a new (unconfigured) <code>VirtualThreadPool</code>.
+     * </p>
+     *
+     * @see #setMaxConcurrency(int)
+     */
+    public VirtualThreadPool() {
+    }
+
+    /**
+     * <p>
+     * Create a new <code>VirtualThreadPool</code> that runs at most the
+     * given number of <code>Runnable</code>s at once.
+     * </p>
+     */
+    public VirtualThreadPool(int maxConcurrency) {
+        setMaxConcurrency(maxConcurrency);
+    }
+
+    /*
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     *
+     * Interface.
+     *
+     * ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
+     */
+
+    public Logger getLog() {
+        return log;
+    }
+
+    public int getPoolSize() {
+        return getMaxConcurrency();
+    }
+
+    /**
+     * <p>
+     * Set the number of <code>Runnable</code>s that may run at once - has no
+     * effect after <code>initialize()</code> has been called.
+     * </p>
+     */
+    public void setMaxConcurrency(int maxConcurrency) {
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * <p>
+     * Set the prefix of the names of the virtual threads, by default the
+     * scheduler's name followed by <code>_VirtualWorker</code>.
+     * </p>
+     */
+    public void setThreadNamePrefix(String prfx) {
+        this.threadNamePrefix = prfx;
+    }
+
+    public String getThreadNamePrefix() {
+        return threadNamePrefix;
+    }
+
+    /**
+     * <p>
+     * Set whether to log the pool's virtual threads that pin their carrier
+     * thread, true by default.
+     * </p>
+     */
+    public void setLogPinnedThreads(boolean logPinnedThreads) {
+        this.logPinnedThreads = logPinnedThreads;
+    }
+
+    public boolean isLogPinnedThreads() {
+        return logPinnedThreads;
+    }
+
+    /**
+     * <p>
+     * Set how many millis a virtual thread must pin its carrier thread for
+     * it to be logged, 20 by default.
+     * </p>
+     */
+    public void setPinnedThreadThreshold(long pinnedThreadThreshold) {
+        this.pinnedThreadThreshold = pinnedThreadThreshold;
+    }
+
+    public long getPinnedThreadThreshold() {
+        return pinnedThreadThreshold;
+    }
+
+    /**
+     * <p>
+     * Get the number of times the pool's virtual threads pinned their carrier
+     * thread for longer than the threshold, while pinned threads are logged.
+     * </p>
+     */
+    public long getPinnedThreadCount() {
+        return pinnedThreadCount.get();
+    }
+
+    /**
+     * <p>
+     * Get the number of <code>Runnable</code>s currently running.
+     * </p>
+     */
+    public int getRunningThreadCount() {
+        return runningThreads.size();
+    }
+
+    public void setInstanceId(String schedInstId) {
+    }
+
+    public void setInstanceName(String schedName) {
+        schedulerInstanceName = schedName;
+    }
+
+    public void initialize() throws SchedulerConfigException {
+
+        if (threadFactory != null) // already initialized...
+            return;
+
+        if (maxConcurrency <= 0) {
+            throw new SchedulerConfigException(
+                    "Max concurrency must be > 0");
+        }
+        if (pinnedThreadThreshold < 0) {
+            throw new SchedulerConfigException(
+                    "Pinned thread threshold must be >= 0");
+        }
+
+        if (threadNamePrefix == null) {
+            threadNamePrefix = schedulerInstanceName + "_VirtualWorker";
+        }
+        permits = new Semaphore(maxConcurrency);
+        threadFactory = Thread.ofVirtual().name(threadNamePrefix + "-", 1).factory();
+
+        if (logPinnedThreads) {
+            startPinnedThreadLogging();
+        }
+    }
+
+    private void startPinnedThreadLogging() {
+        try {
+            RecordingStream events = new RecordingStream();
+            events.enable(PINNED_EVENT)
+                .withThreshold(Duration.ofMillis(pinnedThreadThreshold))
+                .withStackTrace();
+            events.onEvent(PINNED_EVENT, this::pinnedThread);
+            events.setReuse(false);
+            events.startAsync();
+            pinnedThreadEvents = events;
+        } catch (RuntimeException e) {
+            // e.g. a runtime without the flight recorder
+            getLog().warn("Unable to log virtual threads that pin their carrier thread: " + e, e);
+        }
+    }
+
+    void pinnedThread(RecordedEvent event) {
+        RecordedThread thread = event.getThread();
+        String threadName = thread == null ? null : thread.getJavaName();
+        if (threadName == null || !threadName.startsWith(threadNamePrefix)) {
+            return;
+        }
+
+        pinnedThreadCount.incrementAndGet();
+        StringBuilder msg = new StringBuilder()
+            .append("Virtual thread ").append(threadName)
+            .append(" pinned its carrier thread for ")
+            .append(event.getDuration().toMillis()).append(" ms");
+        RecordedStackTrace stackTrace = event.getStackTrace();
+        if (stackTrace != null) {
+            for (RecordedFrame frame : stackTrace.getFrames()) {
+                msg.append("\n\tat ")
+                    .append(frame.getMethod().getType().getName()).append('.')
+                    .append(frame.getMethod().getName())
+                    .append("(line ").append(frame.getLineNumber()).append(')');
+            }
+        }
+        getLog().warn(msg.toString());
+    }
+
+    /**
+     * <p>
+     * Run the given <code>Runnable</code> object on a new virtual thread, once
+     * fewer than <code>maxConcurrency</code> are running. If while waiting
+     * the thread pool is asked to shut down, the Runnable is run right away.
+     * </p>
+     *
+     * @param runnable
+     *          the <code>Runnable</code> to be added.
+     */
+    public boolean runInThread(final Runnable runnable) {
+        if (runnable == null) {
+            return false;
+        }
+
+        permits.acquireUninterruptibly();
+
+        Thread thread = threadFactory.newThread(new Runnable() {
+            public void run() {
+                try {
+                    runnable.run();
+                } catch (Throwable exceptionInRunnable) {
+                    getLog().error("Error while executing the Runnable: ",
+                        exceptionInRunnable);
+                } finally {
+                    runningThreads.remove(Thread.currentThread());
+                    permits.release();
+                }
+            }
+        });
+        runningThreads.add(thread);
+        thread.start();
+
+        return true;
+    }
+
+    public int blockForAvailableThreads() {
+        if (isShutdown) {
+            return 0;
+        }
+
+        permits.acquireUninterruptibly();
+        try {
+            return isShutdown ? 0 : permits.availablePermits() + 1;
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * <p>
+     * Stop accepting <code>Runnable</code>s, optionally waiting for those
+     * running to complete.
+     * </p>
+     */
+    public void shutdown(boolean waitForJobsToComplete) {
+
+        getLog().debug("Shutting down threadpool...");
+
+        synchronized (this) {
+            if (!isShutdown && permits != null) {
+                isShutdown = true;
+                // release anyone blocked for an available thread, they'll
+                // find the pool shut down
+                permits.release(Integer.MAX_VALUE / 2);
+            }
+            isShutdown = true;
+        }
+
+        if (waitForJobsToComplete) {
+            boolean interrupted = false;
+            try {
+                for (Thread thread : runningThreads) {
+                    if (thread == Thread.currentThread()) {
+                        continue;
+                    }
+                    try {
+                        getLog().debug("Waiting for thread " + thread.getName() + " to shut down");
+                        thread.join();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+            } finally {
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            getLog().debug("No executing jobs remaining, all threads stopped.");
+        }
+
+        if (pinnedThreadEvents != null) {
+            pinnedThreadEvents.close();
+            pinnedThreadEvents = null;
+        }
+        getLog().debug("Shutdown of threadpool complete.");
+    }
+}
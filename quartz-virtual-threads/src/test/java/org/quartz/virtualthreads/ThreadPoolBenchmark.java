@@ -0,0 +1,93 @@
+/*
+ * Copyright 2001-2009 Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.quartz.virtualthreads;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.quartz.simpl.SimpleThreadPool;
+import org.quartz.spi.ThreadPool;
+
+/**
+ * Compares <code>VirtualThreadPool</code> with <code>SimpleThreadPool</code>
+ * on I/O bound work: each runnable sleeps as if waiting on a remote call,
+ * and runnables are handed to the pool the way the scheduler thread does,
+ * blocking for available threads before each one.
+ *
+ * <pre>
+ * java -cp ... org.quartz.virtualthreads.ThreadPoolBenchmark [concurrency] [runnables] [ioMillis]
+ * </pre>
+ *
+ * Reports the throughput, the mean latency from handing a runnable over to it
+ * starting, and the peak number of live platform threads.
+ */
+public class ThreadPoolBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int concurrency = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        int runnables = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+        long ioMillis = args.length > 2 ? Long.parseLong(args[2]) : 20L;
+
+        for (int round = 0; round < 3; round++) {
+            SimpleThreadPool simple = new SimpleThreadPool(concurrency, Thread.NORM_PRIORITY);
+            simple.setInstanceName("Benchmark");
+            run("SimpleThreadPool", simple, runnables, ioMillis);
+
+            VirtualThreadPool virtual = new VirtualThreadPool(concurrency);
+            virtual.setInstanceName("Benchmark");
+            virtual.setLogPinnedThreads(false);
+            run("VirtualThreadPool", virtual, runnables, ioMillis);
+        }
+    }
+
+    private static void run(String name, ThreadPool pool, int runnables, final long ioMillis)
+            throws Exception {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        threads.resetPeakThreadCount();
+        pool.initialize();
+
+        final CountDownLatch done = new CountDownLatch(runnables);
+        final AtomicLong handoffNanos = new AtomicLong();
+        long start = System.nanoTime();
+        for (int i = 0; i < runnables; i++) {
+            pool.blockForAvailableThreads();
+            final long handedOver = System.nanoTime();
+            pool.runInThread(new Runnable() {
+                public void run() {
+                    handoffNanos.addAndGet(System.nanoTime() - handedOver);
+                    try {
+                        Thread.sleep(ioMillis);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        long elapsedNanos = System.nanoTime() - start;
+        pool.shutdown(true);
+
+        System.out.println(String.format(
+            "%-18s %6d runnables of %3d ms on %4d threads: %8.0f/s, mean handoff %6d us, peak platform threads %4d",
+            name, runnables, ioMillis, pool.getPoolSize(),
+            runnables / (elapsedNanos / 1e9), handoffNanos.get() / runnables / 1000,
+            threads.getPeakThreadCount()));
+    }
+}
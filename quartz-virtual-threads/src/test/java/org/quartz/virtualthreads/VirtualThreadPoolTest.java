@@ -0,0 +1,163 @@
+/*
+ * Copyright 2001-2009 Terracotta, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy
+ * of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ */
+package org.quartz.virtualthreads;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for VirtualThreadPool.
+ */
+public class VirtualThreadPoolTest extends TestCase {
+
+    private VirtualThreadPool pool;
+
+    @Override
+    protected void setUp() throws Exception {
+        pool = new VirtualThreadPool(3);
+        pool.setInstanceName(getName());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        pool.shutdown(true);
+    }
+
+    public void testRunsOnVirtualThreads() throws Exception {
+        pool.setLogPinnedThreads(false);
+        pool.initialize();
+
+        final AtomicBoolean virtual = new AtomicBoolean(true);
+        final CountDownLatch done = new CountDownLatch(100);
+        for (int i = 0; i < 100; i++) {
+            pool.runInThread(new Runnable() {
+                public void run() {
+                    if (!Thread.currentThread().isVirtual()
+                            || !Thread.currentThread().getName().startsWith(getName() + "_VirtualWorker-")) {
+                        virtual.set(false);
+                    }
+                    done.countDown();
+                }
+            });
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertTrue(virtual.get());
+    }
+
+    public void testBlocksForPermits() throws Exception {
+        pool.setLogPinnedThreads(false);
+        pool.initialize();
+        assertEquals(3, pool.getPoolSize());
+        assertEquals(3, pool.blockForAvailableThreads());
+
+        CountDownLatch release = new CountDownLatch(1);
+        pool.runInThread(new Blocker(release));
+        pool.runInThread(new Blocker(release));
+        assertEquals(1, pool.blockForAvailableThreads());
+        pool.runInThread(new Blocker(release));
+        assertEquals(3, pool.getRunningThreadCount());
+
+        final CountDownLatch available = new CountDownLatch(1);
+        Thread waiter = new Thread() {
+            @Override
+            public void run() {
+                if (pool.blockForAvailableThreads() > 0) {
+                    available.countDown();
+                }
+            }
+        };
+        waiter.start();
+        assertFalse(available.await(200, TimeUnit.MILLISECONDS));
+
+        release.countDown();
+        assertTrue(available.await(5, TimeUnit.SECONDS));
+        waiter.join();
+    }
+
+    public void testLogsPinnedThreads() throws Exception {
+        if (Runtime.version().feature() >= 24) {
+            // virtual threads no longer pin their carrier in synchronized blocks
+            return;
+        }
+        pool.setPinnedThreadThreshold(10L);
+        pool.initialize();
+
+        final Object monitor = new Object();
+        pool.runInThread(new Runnable() {
+            public void run() {
+                synchronized (monitor) {
+                    try {
+                        Thread.sleep(100L);
+                    } catch (InterruptedException e) {
+                        // done pinning
+                    }
+                }
+            }
+        });
+
+        long deadline = System.currentTimeMillis() + 10000L;
+        while (pool.getPinnedThreadCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50L);
+        }
+        assertEquals(1, pool.getPinnedThreadCount());
+    }
+
+    public void testShutdownWaitsForJobsToComplete() throws Exception {
+        pool.setLogPinnedThreads(false);
+        pool.initialize();
+        final AtomicInteger completed = new AtomicInteger();
+        for (int i = 0; i < 3; i++) {
+            pool.runInThread(new Runnable() {
+                public void run() {
+                    try {
+                        Thread.sleep(200L);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    completed.incrementAndGet();
+                }
+            });
+        }
+
+        pool.shutdown(true);
+        assertEquals(3, completed.get());
+        assertEquals(0, pool.getRunningThreadCount());
+        assertEquals(0, pool.blockForAvailableThreads());
+    }
+
+    private static class Blocker implements Runnable {
+
+        private final CountDownLatch release;
+
+        Blocker(CountDownLatch release) {
+            this.release = release;
+        }
+
+        public void run() {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                // let the thread go
+            }
+        }
+    }
+}